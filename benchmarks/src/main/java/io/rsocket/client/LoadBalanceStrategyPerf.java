@@ -0,0 +1,172 @@
+package io.rsocket.client;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.core.RSocketConnector;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.Leases;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.util.EmptyPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends requests through a balancer over local connections to backends that do not behave the same:
+ * each backend answers after the delay at its index in {@code delaysMillis}, and grants leases of
+ * the number of requests at its index in {@code leasedRequests} every 100 milliseconds. The latency
+ * of every request is sampled, and {@code rejected} counts the requests that failed because the
+ * selected backend had no lease left. The thread count can be changed with {@code -t <threads>}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LoadBalanceStrategyPerf {
+
+  static final int LEASE_PERIOD_MILLIS = 100;
+
+  @Param({"predictive", "round-robin", "least-outstanding", "lease-weighted"})
+  String strategy;
+
+  @Param({"0,0,1,5"})
+  String delaysMillis;
+
+  @Param({"1000,1000,1000,50"})
+  String leasedRequests;
+
+  List<Closeable> servers;
+  LoadBalancedRSocketMono balancer;
+
+  @Setup
+  public void setup() {
+    String[] delays = delaysMillis.split(",");
+    String[] leases = leasedRequests.split(",");
+    servers = new ArrayList<>(delays.length);
+    List<RSocketSupplier> suppliers = new ArrayList<>(delays.length);
+    for (int i = 0; i < delays.length; i++) {
+      String name = "load-balance-strategy-" + i;
+      Duration delay = Duration.ofMillis(Long.parseLong(delays[i].trim()));
+      int allowed = Integer.parseInt(leases[i].trim());
+      servers.add(
+          RSocketServer.create((setup, sendingSocket) -> Mono.just(new Backend(delay)))
+              .lease(
+                  () ->
+                      Leases.create()
+                          .sender(
+                              stats ->
+                                  Flux.interval(
+                                          Duration.ZERO, Duration.ofMillis(LEASE_PERIOD_MILLIS))
+                                      .map(tick -> Lease.create(LEASE_PERIOD_MILLIS, allowed))))
+              .bind(LocalServerTransport.create(name))
+              .block());
+
+      RSocketConnector connector = RSocketConnector.create().lease(Leases::create);
+      suppliers.add(
+          new RSocketSupplier(() -> connector.connect(LocalClientTransport.create(name))));
+    }
+
+    balancer =
+        LoadBalancedRSocketMono.create(
+            Flux.just(suppliers),
+            LoadBalancedRSocketMono.DEFAULT_LOWER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_HIGHER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_MIN_PENDING,
+            LoadBalancedRSocketMono.DEFAULT_MAX_PENDING,
+            delays.length,
+            delays.length,
+            LoadBalancedRSocketMono.DEFAULT_MAX_REFRESH_PERIOD_MS,
+            5,
+            Duration.ofMillis(500),
+            Duration.ofSeconds(5),
+            strategy(strategy));
+  }
+
+  @TearDown
+  public void tearDown() {
+    balancer.dispose();
+    servers.forEach(Closeable::dispose);
+  }
+
+  @Benchmark
+  public void requestResponse(Rejections rejections) {
+    balancer
+        .flatMap(rSocket -> rSocket.requestResponse(EmptyPayload.INSTANCE))
+        .doOnNext(Payload::release)
+        .onErrorResume(
+            t -> {
+              rejections.rejected++;
+              return Mono.empty();
+            })
+        .block();
+  }
+
+  /** Requests rejected for the lack of a lease, counted on each thread. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Rejections {
+    public long rejected;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rejected = 0;
+    }
+  }
+
+  /** Answers every request with an empty payload, after a fixed delay. */
+  static class Backend extends AbstractRSocket {
+    final Duration delay;
+
+    Backend(Duration delay) {
+      this.delay = delay;
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+      payload.release();
+      if (delay.isZero()) {
+        return Mono.just(EmptyPayload.INSTANCE);
+      }
+      return Mono.delay(delay).map(tick -> EmptyPayload.INSTANCE);
+    }
+  }
+
+  static LoadBalanceStrategy strategy(String name) {
+    switch (name) {
+      case "predictive":
+        return LoadBalanceStrategy.predictive(LoadBalancedRSocketMono.DEFAULT_EXP_FACTOR);
+      case "round-robin":
+        return LoadBalanceStrategy.roundRobin();
+      case "least-outstanding":
+        return LoadBalanceStrategy.leastOutstanding();
+      case "lease-weighted":
+        return LoadBalanceStrategy.leaseWeighted();
+      default:
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+  }
+}
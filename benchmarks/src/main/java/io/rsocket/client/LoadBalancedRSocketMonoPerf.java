@@ -0,0 +1,114 @@
+package io.rsocket.client;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.util.EmptyPayload;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Selects sockets from one balancer on many threads at once, as application threads sending
+ * requests through a shared balancer would. {@code selectAndRequest} also sends a request that
+ * completes immediately, which updates the load and latency statistics of the selected socket. The
+ * thread count can be changed with {@code -t <threads>}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Threads(32)
+@State(Scope.Benchmark)
+public class LoadBalancedRSocketMonoPerf {
+
+  @Param({"8", "64"})
+  int sockets;
+
+  LoadBalancedRSocketMono balancer;
+
+  @Setup
+  public void setup() {
+    List<RSocketSupplier> suppliers = new ArrayList<>(sockets);
+    for (int i = 0; i < sockets; i++) {
+      RSocket rSocket = new StubRSocket();
+      suppliers.add(new RSocketSupplier(() -> Mono.just(rSocket)));
+    }
+    balancer =
+        LoadBalancedRSocketMono.create(
+            Flux.just(suppliers),
+            LoadBalancedRSocketMono.DEFAULT_EXP_FACTOR,
+            LoadBalancedRSocketMono.DEFAULT_LOWER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_HIGHER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_MIN_PENDING,
+            LoadBalancedRSocketMono.DEFAULT_MAX_PENDING,
+            sockets,
+            sockets,
+            LoadBalancedRSocketMono.DEFAULT_MAX_REFRESH_PERIOD_MS);
+  }
+
+  @TearDown
+  public void tearDown() {
+    balancer.dispose();
+  }
+
+  @Benchmark
+  public RSocket select(Selection selection) {
+    balancer.subscribe(selection);
+    return selection.selected;
+  }
+
+  @Benchmark
+  public void selectAndRequest(Selection selection, Blackhole blackhole) {
+    balancer.subscribe(selection);
+    selection.selected.requestResponse(EmptyPayload.INSTANCE).subscribe(blackhole::consume);
+  }
+
+  /** Receives the socket selected on a thread, without allocating a subscriber per selection. */
+  @State(Scope.Thread)
+  public static class Selection implements CoreSubscriber<RSocket> {
+    RSocket selected;
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(RSocket rSocket) {
+      selected = rSocket;
+    }
+
+    @Override
+    public void onError(Throwable t) {}
+
+    @Override
+    public void onComplete() {}
+  }
+
+  /** Responds to every request at once, so that only the balancer is measured. */
+  static class StubRSocket implements RSocket {
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+      return Mono.just(payload);
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package io.rsocket.client;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.core.RSocketConnector;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.util.EmptyPayload;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Simulates a balancer in front of {@code servers} local servers, without a network. Each server
+ * handles up to the number of requests at its index in {@code capacities} at once, queuing the
+ * others, answers each after a delay drawn from {@code latencyDistribution} with the mean at its
+ * index in {@code latencyMillis}, and fails the fraction of requests at its index in {@code
+ * failureRates}. These lists are repeated when shorter than the number of servers.
+ *
+ * <p>Requests arrive at {@code rate} per second, as a Poisson process that does not wait for
+ * responses, so that a slow balancer makes requests queue up instead of slowing the load down.
+ * Latencies are measured from the time each request was due to be sent, and {@code p50Micros},
+ * {@code p99Micros} and {@code p999Micros} are their percentiles over the iteration. {@code
+ * completed} and {@code failed} are the requests answered per second, and {@code skew} is the
+ * number of requests received by the busiest server over the mean, 1.0 being perfectly even. The
+ * score of the benchmark itself is meaningless.
+ *
+ * <p>JMH adds up the percentiles and the skew of all measurement iterations, so the measurement is
+ * a single long iteration. Keep it that way when overriding the iterations on the command line.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 5)
+@Measurement(iterations = 1, time = 30)
+@Threads(1)
+@State(Scope.Benchmark)
+public class LoadBalancerSimulationPerf {
+
+  @Param({"predictive", "round-robin", "least-outstanding"})
+  String strategy;
+
+  @Param({"8"})
+  int servers;
+
+  @Param({"exponential"})
+  String latencyDistribution;
+
+  @Param({"1,1,1,1,1,1,1,10"})
+  String latencyMillis;
+
+  @Param({"0"})
+  String failureRates;
+
+  @Param({"32"})
+  String capacities;
+
+  @Param({"2000"})
+  int rate;
+
+  @Param({"3"})
+  int minAperture;
+
+  @Param({"8"})
+  int maxAperture;
+
+  List<Closeable> closeables;
+  List<Backend> backends;
+  LoadBalancedRSocketMono balancer;
+  final LongAdder completed = new LongAdder();
+  final LongAdder failed = new LongAdder();
+  final Recorder latencies = new Recorder(3);
+  volatile boolean running;
+  Thread generator;
+
+  @Setup
+  public void setup() throws InterruptedException {
+    String[] latencies = latencyMillis.split(",");
+    String[] failures = failureRates.split(",");
+    String[] capacity = capacities.split(",");
+    closeables = new ArrayList<>(servers);
+    backends = new ArrayList<>(servers);
+    List<RSocketSupplier> suppliers = new ArrayList<>(servers);
+    for (int i = 0; i < servers; i++) {
+      String name = "load-balancer-simulation-" + i;
+      Backend backend =
+          new Backend(
+              latency(
+                  latencyDistribution, Double.parseDouble(latencies[i % latencies.length].trim())),
+              Double.parseDouble(failures[i % failures.length].trim()),
+              Integer.parseInt(capacity[i % capacity.length].trim()));
+      backends.add(backend);
+      closeables.add(
+          RSocketServer.create((setup, sendingSocket) -> Mono.just(backend))
+              .bind(LocalServerTransport.create(name))
+              .block());
+
+      RSocketConnector connector = RSocketConnector.create();
+      suppliers.add(
+          new RSocketSupplier(() -> connector.connect(LocalClientTransport.create(name))));
+    }
+
+    balancer =
+        LoadBalancedRSocketMono.create(
+            Flux.just(suppliers),
+            LoadBalancedRSocketMono.DEFAULT_LOWER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_HIGHER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_MIN_PENDING,
+            LoadBalancedRSocketMono.DEFAULT_MAX_PENDING,
+            minAperture,
+            maxAperture,
+            LoadBalancedRSocketMono.DEFAULT_MAX_REFRESH_PERIOD_MS,
+            5,
+            Duration.ofMillis(500),
+            Duration.ofSeconds(5),
+            LoadBalanceStrategyPerf.strategy(strategy));
+    while (balancer.availability() == 0.0) {
+      Thread.sleep(10);
+    }
+
+    running = true;
+    generator = new Thread(this::generate, "load-balancer-simulation-load");
+    generator.setDaemon(true);
+    generator.start();
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    running = false;
+    generator.join();
+    balancer.dispose();
+    closeables.forEach(Closeable::dispose);
+  }
+
+  @Benchmark
+  public void simulate(Throughput throughput, Latency latency) throws InterruptedException {
+    Thread.sleep(100);
+    throughput.record(this);
+    latency.record(this);
+  }
+
+  /** Sends requests at the configured rate until stopped, catching up when late. */
+  void generate() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    double meanInterArrivalNanos = TimeUnit.SECONDS.toNanos(1) / (double) rate;
+    long next = System.nanoTime();
+    while (running) {
+      long now = System.nanoTime();
+      while (next - now <= 0) {
+        send(next);
+        next += (long) (-Math.log(1.0 - random.nextDouble()) * meanInterArrivalNanos);
+      }
+      LockSupport.parkNanos(next - now);
+    }
+  }
+
+  void send(long dueNanos) {
+    balancer
+        .flatMap(rSocket -> rSocket.requestResponse(EmptyPayload.INSTANCE))
+        .subscribe(
+            payload -> {
+              payload.release();
+              latencies.recordValue(
+                  TimeUnit.NANOSECONDS.toMicros(Math.max(0, System.nanoTime() - dueNanos)));
+              completed.increment();
+            },
+            t -> failed.increment());
+  }
+
+  /** Requests answered since the last invocation, which JMH normalizes per second. */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Throughput {
+    public long completed;
+    public long failed;
+    long lastCompleted;
+    long lastFailed;
+
+    @Setup(Level.Iteration)
+    public void reset(LoadBalancerSimulationPerf simulation) {
+      completed = 0;
+      failed = 0;
+      lastCompleted = simulation.completed.sum();
+      lastFailed = simulation.failed.sum();
+    }
+
+    void record(LoadBalancerSimulationPerf simulation) {
+      long completedNow = simulation.completed.sum();
+      long failedNow = simulation.failed.sum();
+      completed += completedNow - lastCompleted;
+      failed += failedNow - lastFailed;
+      lastCompleted = completedNow;
+      lastFailed = failedNow;
+    }
+  }
+
+  /** Latency percentiles and load skew over the iteration, reported as is. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Latency {
+    public long p50Micros;
+    public long p99Micros;
+    public long p999Micros;
+    public double skew;
+    final Histogram iteration = new Histogram(3);
+    Histogram interval;
+    long[] receivedAtStart;
+
+    @Setup(Level.Iteration)
+    public void reset(LoadBalancerSimulationPerf simulation) {
+      p50Micros = 0;
+      p99Micros = 0;
+      p999Micros = 0;
+      skew = 0;
+      // drops the latencies recorded before the iteration
+      interval = simulation.latencies.getIntervalHistogram(interval);
+      iteration.reset();
+      receivedAtStart = received(simulation.backends);
+    }
+
+    void record(LoadBalancerSimulationPerf simulation) {
+      interval = simulation.latencies.getIntervalHistogram(interval);
+      iteration.add(interval);
+      p50Micros = iteration.getValueAtPercentile(50.0);
+      p99Micros = iteration.getValueAtPercentile(99.0);
+      p999Micros = iteration.getValueAtPercentile(99.9);
+
+      long[] received = received(simulation.backends);
+      long total = 0;
+      long max = 0;
+      for (int i = 0; i < received.length; i++) {
+        long count = received[i] - receivedAtStart[i];
+        total += count;
+        max = Math.max(max, count);
+      }
+      skew = total == 0 ? 0.0 : max / (total / (double) received.length);
+    }
+
+    static long[] received(List<Backend> backends) {
+      long[] received = new long[backends.size()];
+      for (int i = 0; i < received.length; i++) {
+        received[i] = backends.get(i).received.sum();
+      }
+      return received;
+    }
+  }
+
+  /**
+   * Handles up to {@code capacity} requests at once, in the order they are received, answering each
+   * after a simulated latency, with an error for a fraction of them.
+   */
+  static class Backend extends AbstractRSocket {
+    final LongSupplier latencyNanos;
+    final double failureRate;
+    final int capacity;
+    final LongAdder received = new LongAdder();
+    final Queue<MonoSink<Payload>> queue = new ArrayDeque<>();
+    int inFlight;
+
+    Backend(LongSupplier latencyNanos, double failureRate, int capacity) {
+      this.latencyNanos = latencyNanos;
+      this.failureRate = failureRate;
+      this.capacity = capacity;
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+      payload.release();
+      received.increment();
+      return Mono.create(
+          sink -> {
+            synchronized (this) {
+              queue.add(sink);
+            }
+            drain();
+          });
+    }
+
+    void drain() {
+      for (; ; ) {
+        MonoSink<Payload> sink;
+        synchronized (this) {
+          if (inFlight >= capacity || (sink = queue.poll()) == null) {
+            return;
+          }
+          inFlight++;
+        }
+        Schedulers.parallel()
+            .schedule(() -> complete(sink), latencyNanos.getAsLong(), TimeUnit.NANOSECONDS);
+      }
+    }
+
+    void complete(MonoSink<Payload> sink) {
+      synchronized (this) {
+        inFlight--;
+      }
+      if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+        sink.error(new ApplicationErrorException("simulated failure"));
+      } else {
+        sink.success(EmptyPayload.INSTANCE);
+      }
+      drain();
+    }
+  }
+
+  /**
+   * Returns latencies in nanoseconds with the given mean, either {@code constant}, {@code
+   * exponential}, or following a {@code pareto} distribution whose tail is heavy enough that a few
+   * requests take many times the mean.
+   */
+  static LongSupplier latency(String distribution, double meanMillis) {
+    double meanNanos = meanMillis * TimeUnit.MILLISECONDS.toNanos(1);
+    switch (distribution) {
+      case "constant":
+        return () -> (long) meanNanos;
+      case "exponential":
+        return () -> (long) (-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * meanNanos);
+      case "pareto":
+        // shape 1.5, with the scale giving the mean
+        return () ->
+            (long)
+                (meanNanos / 3 / Math.pow(1.0 - ThreadLocalRandom.current().nextDouble(), 1 / 1.5));
+      default:
+        throw new IllegalArgumentException("Unknown latency distribution: " + distribution);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package io.rsocket.core;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.RSocket;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.local.LocalServerTransport;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.List;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps {@code connections} idle local connections open, with keep-alive ticking every {@code
+ * keepAliveMillis} on both ends, and reports what they cost while idle: {@code cpuMicros} is the
+ * CPU time used by the process per second of wall time, and {@code heapBytesPerConnection} is the
+ * heap retained by each connection once established.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(1)
+@State(Scope.Benchmark)
+public class KeepAliveScalingPerf {
+
+  @Param({"1000", "10000", "100000"})
+  int connections;
+
+  @Param({"1000"})
+  int keepAliveMillis;
+
+  Closeable server;
+  List<RSocket> clients;
+  long heapBytesPerConnection;
+
+  @Setup
+  public void setUp() {
+    server =
+        RSocketServer.create((setup, sendingSocket) -> Mono.just(new AbstractRSocket() {}))
+            .bind(LocalServerTransport.create("keepalive-scaling"))
+            .block();
+
+    long heapBefore = usedHeap();
+    RSocketConnector connector =
+        RSocketConnector.create()
+            .keepAlive(Duration.ofMillis(keepAliveMillis), Duration.ofMinutes(10));
+    clients =
+        Flux.range(0, connections)
+            .concatMap(
+                i -> connector.connect(LocalClientTransport.create("keepalive-scaling")), 256)
+            .collectList()
+            .block();
+    heapBytesPerConnection = (usedHeap() - heapBefore) / connections;
+  }
+
+  @TearDown
+  public void tearDown() {
+    clients.forEach(RSocket::dispose);
+    server.dispose();
+  }
+
+  @Benchmark
+  public void idle(CpuUsage cpu, HeapUsage heap) throws InterruptedException {
+    Thread.sleep(100);
+    cpu.record();
+    heap.heapBytesPerConnection = heapBytesPerConnection;
+  }
+
+  /** CPU time used by the process, which JMH normalizes per second. */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class CpuUsage {
+    public long cpuMicros;
+    long lastCpuNanos;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      cpuMicros = 0;
+      lastCpuNanos = processCpuNanos();
+    }
+
+    void record() {
+      long cpuNanos = processCpuNanos();
+      cpuMicros += (cpuNanos - lastCpuNanos) / 1000;
+      lastCpuNanos = cpuNanos;
+    }
+  }
+
+  /** Heap retained by each connection, reported as is. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class HeapUsage {
+    public long heapBytesPerConnection;
+  }
+
+  static long processCpuNanos() {
+    return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+        .getProcessCpuTime();
+  }
+
+  static long usedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
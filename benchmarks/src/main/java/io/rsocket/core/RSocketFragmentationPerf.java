@@ -0,0 +1,110 @@
+package io.rsocket.core;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.PayloadsMaxPerfSubscriber;
+import io.rsocket.RSocket;
+import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.util.ByteBufPayload;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Streams small payloads, none of which needs fragmenting, with fragmentation turned off ({@code
+ * mtu} 0) and on, to measure the cost the fragmentation layer adds to the outbound path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 10)
+@Measurement(iterations = 10, time = 20)
+@State(Scope.Benchmark)
+public class RSocketFragmentationPerf {
+
+  static final int STREAM_SIZE = 10000;
+  static final byte[] DATA = new byte[128];
+
+  @Param({"0", "1024"})
+  int mtu;
+
+  RSocket client;
+  Closeable server;
+
+  @TearDown
+  public void tearDown() {
+    client.dispose();
+    server.dispose();
+  }
+
+  @Setup
+  public void setUp() {
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new AbstractRSocket() {
+
+                          @Override
+                          public Flux<Payload> requestStream(Payload payload) {
+                            payload.release();
+                            return Flux.range(0, STREAM_SIZE).map(i -> ByteBufPayload.create(DATA));
+                          }
+
+                          @Override
+                          public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+                            return Flux.from(payloads);
+                          }
+                        }))
+            .payloadDecoder(PayloadDecoder.ZERO_COPY)
+            .fragment(mtu)
+            .bind(LocalServerTransport.create("fragmentation-server"))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .payloadDecoder(PayloadDecoder.ZERO_COPY)
+            .fragment(mtu)
+            .connect(LocalClientTransport.create("fragmentation-server"))
+            .block();
+  }
+
+  @Benchmark
+  public PayloadsMaxPerfSubscriber requestStream(Blackhole blackhole) throws InterruptedException {
+    PayloadsMaxPerfSubscriber subscriber = new PayloadsMaxPerfSubscriber(blackhole);
+    client.requestStream(ByteBufPayload.create(DATA)).subscribe(subscriber);
+    subscriber.await();
+
+    return subscriber;
+  }
+
+  @Benchmark
+  public PayloadsMaxPerfSubscriber requestChannel(Blackhole blackhole) throws InterruptedException {
+    PayloadsMaxPerfSubscriber subscriber = new PayloadsMaxPerfSubscriber(blackhole);
+    client
+        .requestChannel(
+            Flux.fromStream(
+                IntStream.range(0, STREAM_SIZE).mapToObj(i -> ByteBufPayload.create(DATA))))
+        .subscribe(subscriber);
+    subscriber.await();
+
+    return subscriber;
+  }
+}
@@ -20,6 +20,7 @@
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -31,6 +32,10 @@
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * Measures the interactions over the local transport, with payloads encoded into frames and with
+ * payloads passed by reference ({@code payloadReferences}), which skips encoding and decoding them.
+ */
 @BenchmarkMode(Mode.Throughput)
 @Fork(
     value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
@@ -45,6 +50,9 @@ public class RSocketPerf {
   static final Flux<Payload> PAYLOAD_FLUX =
       Flux.fromArray(IntStream.range(0, 100000).mapToObj(__ -> PAYLOAD).toArray(Payload[]::new));
 
+  @Param({"false", "true"})
+  boolean payloadReferences;
+
   RSocket client;
   Closeable server;
   Queue clientsQueue;
@@ -97,10 +105,15 @@ public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
             .bind(LocalServerTransport.create("server"))
             .block();
 
+    LocalClientTransport clientTransport = LocalClientTransport.create("server");
+    if (payloadReferences) {
+      // only touch the new api when asked to, so that jmhBaseline can run the encoded variant
+      clientTransport = clientTransport.passPayloadsByReference(true);
+    }
     client =
         RSocketConnector.create()
             .payloadDecoder(PayloadDecoder.ZERO_COPY)
-            .connect(LocalClientTransport.create("server"))
+            .connect(clientTransport)
             .block();
 
     Field sendProcessorField = RSocketRequester.class.getDeclaredField("sendProcessor");
@@ -1,12 +1,11 @@
 package io.rsocket.core;
 
-import io.netty.util.collection.IntObjectMap;
-import io.rsocket.internal.SynchronizedIntObjectHashMap;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -23,21 +22,49 @@
 public class StreamIdSupplierPerf {
   @Benchmark
   public void benchmarkStreamId(Input input) {
-    int i = input.supplier.nextStreamId(input.map);
+    int i = input.supplier.nextStreamId();
+    input.supplier.release(i);
+    input.bh.consume(i);
+  }
+
+  @Benchmark
+  public void benchmarkStreamIdAfterWrap(WrappedInput input) {
+    int i = input.supplier.nextStreamId();
+    input.supplier.release(i);
     input.bh.consume(i);
   }
 
   @State(Scope.Benchmark)
   public static class Input {
     Blackhole bh;
-    IntObjectMap map;
     StreamIdSupplier supplier;
 
     @Setup
     public void setup(Blackhole bh) {
       this.supplier = StreamIdSupplier.clientSupplier();
       this.bh = bh;
-      this.map = new SynchronizedIntObjectHashMap();
+    }
+  }
+
+  /**
+   * A long-lived connection whose counter has wrapped around while a number of long streams are
+   * still running on the lowest ids.
+   */
+  @State(Scope.Benchmark)
+  public static class WrappedInput {
+    @Param({"0", "1000", "100000"})
+    int runningStreams;
+
+    Blackhole bh;
+    StreamIdSupplier supplier;
+
+    @Setup
+    public void setup(Blackhole bh) {
+      this.supplier = new StreamIdSupplier(Integer.MAX_VALUE);
+      for (int i = 0; i < runningStreams; i++) {
+        supplier.reserve((i << 1) + 1);
+      }
+      this.bh = bh;
     }
   }
 }
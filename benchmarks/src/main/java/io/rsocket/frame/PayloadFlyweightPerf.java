@@ -3,6 +3,8 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.util.ByteBufPayload;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -30,6 +32,25 @@ public void encode(Input input) {
     input.bh.consume(release);
   }
 
+  @Benchmark
+  public void encodeSmallComposite(Input input) {
+    ByteBuf frame =
+        PayloadFrameCodec.encodeNextReleasingPayload(input.allocator, 100, input.smallPayload());
+    ByteBuf framed = FrameLengthCodec.encode(input.allocator, frame.readableBytes(), frame);
+    boolean release = framed.release();
+    input.bh.consume(release);
+  }
+
+  @Benchmark
+  public void encodeSmallContiguous(Input input) {
+    ByteBuf frame =
+        PayloadFrameCodec.encodeNextReleasingPayload(
+            input.allocator, 100, Input.MAX_CONTIGUOUS_FRAME_SIZE, input.smallPayload());
+    ByteBuf framed = FrameLengthCodec.encode(input.allocator, frame.readableBytes(), frame);
+    boolean release = framed.release();
+    input.bh.consume(release);
+  }
+
   @Benchmark
   public void decode(Input input) {
     ByteBuf frame = input.payload;
@@ -41,12 +62,16 @@ public void decode(Input input) {
 
   @State(Scope.Benchmark)
   public static class Input {
+    static final int MAX_CONTIGUOUS_FRAME_SIZE = 1024;
+
     Blackhole bh;
     FrameType frameType;
     ByteBufAllocator allocator;
     ByteBuf payload;
     byte[] metadata = new byte[512];
     byte[] data = new byte[4096];
+    ByteBuf smallMetadata;
+    ByteBuf smallData;
 
     @Setup
     public void setup(Blackhole bh) {
@@ -67,11 +92,20 @@ public void setup(Blackhole bh) {
               Unpooled.wrappedBuffer(data));
       payload.writeBytes(encode);
       encode.release();
+
+      smallMetadata = allocator.buffer().writeBytes(new byte[16]);
+      smallData = allocator.buffer().writeBytes(new byte[128]);
+    }
+
+    Payload smallPayload() {
+      return ByteBufPayload.create(smallData.retain(), smallMetadata.retain());
     }
 
     @TearDown
     public void teardown() {
       payload.release();
+      smallMetadata.release();
+      smallData.release();
     }
   }
 }
@@ -0,0 +1,105 @@
+package io.rsocket.internal;
+
+import io.netty.util.collection.IntObjectMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contends writer threads registering and unregistering streams (application threads) against a
+ * single reader looking streams up (the event loop). The writer count can be changed with {@code
+ * -tg <writers>,1}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Group)
+public class StreamRegistryPerf {
+
+  /** Number of streams that stay registered for the whole run, as long-lived streams would. */
+  static final int ACTIVE_STREAMS = 256;
+
+  @Param({"synchronized", "concurrent"})
+  String registry;
+
+  IntObjectMap<Object> map;
+  AtomicInteger writerIds;
+
+  @Setup
+  public void setup() {
+    this.map =
+        "synchronized".equals(registry)
+            ? new SynchronizedIntObjectHashMap<>()
+            : new ConcurrentIntObjectHashMap<>();
+    this.writerIds = new AtomicInteger();
+    for (int i = 0; i < ACTIVE_STREAMS; i++) {
+      map.put(streamId(i), new Object());
+    }
+  }
+
+  @Benchmark
+  @Group("registry")
+  @GroupThreads(4)
+  public Object putRemove(Writer writer) {
+    int streamId = writer.nextStreamId();
+    Object stream = writer.stream;
+    map.put(streamId, stream);
+    return map.remove(streamId);
+  }
+
+  @Benchmark
+  @Group("registry")
+  @GroupThreads(1)
+  public Object get(Reader reader) {
+    return map.get(streamId(reader.next()));
+  }
+
+  static int streamId(int i) {
+    return (i << 1) + 1;
+  }
+
+  @State(Scope.Thread)
+  public static class Writer {
+    final Object stream = new Object();
+    int next;
+    int stride;
+
+    @Setup
+    public void setup(StreamRegistryPerf registry) {
+      // writers interleave their stream ids above the long-lived ones, as a shared supplier would
+      this.next = ACTIVE_STREAMS + registry.writerIds.getAndIncrement();
+      this.stride = 64;
+    }
+
+    int nextStreamId() {
+      int streamId = streamId(next);
+      next += stride;
+      if (next < 0) {
+        next = ACTIVE_STREAMS + (next & (stride - 1));
+      }
+      return streamId;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Reader {
+    int i;
+
+    int next() {
+      return i++ & (ACTIVE_STREAMS - 1);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Saves, releases and replays small frames through an {@link InMemoryResumableFramesStore} that
+ * holds {@code cachedFrames} of them, to show how the cost of each operation scales with the number
+ * of frames the store holds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class InMemoryResumableFramesStorePerf {
+
+  static final int FRAME_SIZE = 64;
+
+  /** Number of frames saved before the remote position is acknowledged in {@link #saveRelease}. */
+  static final int BATCH_SIZE = 64;
+
+  @Param({"1024", "65536"})
+  int cachedFrames;
+
+  InMemoryResumableFramesStore store;
+  ByteBuf frame;
+
+  @Setup
+  public void setup() {
+    store = new InMemoryResumableFramesStore("perf", cachedFrames * FRAME_SIZE);
+    frame = Unpooled.directBuffer(FRAME_SIZE).writeZero(FRAME_SIZE);
+    for (int i = 0; i < cachedFrames; i++) {
+      // each cached frame is held by the store only, as frames sent on a connection are
+      ByteBuf cached = Unpooled.directBuffer(FRAME_SIZE).writeZero(FRAME_SIZE);
+      store.saveFrame(cached);
+      cached.release();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    store.dispose();
+    frame.release();
+  }
+
+  /** Saves into a full store, so every frame saved evicts the oldest one. */
+  @Benchmark
+  public void save() {
+    store.saveFrame(frame);
+  }
+
+  /** Saves a batch of frames into a full store, then acknowledges all of them at once. */
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void saveRelease() {
+    InMemoryResumableFramesStore store = this.store;
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      store.saveFrame(frame);
+    }
+    store.releaseFrames(store.framePosition() + (long) BATCH_SIZE * FRAME_SIZE);
+  }
+
+  /** Replays every frame held by the store, as on resumption. */
+  @Benchmark
+  public void resumeStream(Blackhole bh) {
+    store
+        .resumeStream()
+        .subscribe(
+            f -> {
+              bh.consume(f);
+              f.release();
+            });
+  }
+}
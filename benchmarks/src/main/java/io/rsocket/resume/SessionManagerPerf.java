@@ -0,0 +1,135 @@
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.rsocket.DuplexConnection;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Simulates a reconnect storm against a full {@link SessionManager}: resuming clients look their
+ * sessions up by token while new clients set up sessions, each of which evicts the least recently
+ * used one. The number of resuming threads can be changed with {@code -tg <resumers>,1}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Group)
+public class SessionManagerPerf {
+
+  static final int TOKEN_SIZE = 16;
+
+  @Param({"10000", "100000"})
+  int maxSessions;
+
+  SessionManager manager;
+  ByteBuf[] tokens;
+
+  @Setup
+  public void setup() {
+    manager = new SessionManager(maxSessions, Duration.ofMinutes(2));
+    tokens = new ByteBuf[maxSessions];
+    for (int i = 0; i < maxSessions; i++) {
+      tokens[i] = token(i);
+      manager.save(session(tokens[i]));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    manager.dispose();
+  }
+
+  @Benchmark
+  @Group("storm")
+  @GroupThreads(7)
+  public ServerRSocketSession resume() {
+    return manager.get(tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+  }
+
+  @Benchmark
+  @Group("storm")
+  @GroupThreads(1)
+  public ServerRSocketSession setupSession(Setups setups) {
+    return manager.save(session(token(setups.next++)));
+  }
+
+  /** Sequence of tokens of new sessions, following those the manager is filled with. */
+  @State(Scope.Thread)
+  public static class Setups {
+    int next = Integer.MAX_VALUE / 2;
+  }
+
+  static ByteBuf token(int id) {
+    ByteBuf token = Unpooled.buffer(TOKEN_SIZE);
+    token.writeLong(0x5eed5eed5eed5eedL).writeLong(id);
+    return token;
+  }
+
+  static ServerRSocketSession session(ByteBuf token) {
+    return new ServerRSocketSession(
+        new IdleConnection(),
+        null,
+        Duration.ofSeconds(10),
+        t -> new InMemoryResumableFramesStore("server", 1024),
+        token,
+        false,
+        null);
+  }
+
+  /** A connection that stays open until disposed and never sends or receives frames. */
+  static class IdleConnection implements DuplexConnection {
+    final MonoProcessor<Void> onClose = MonoProcessor.create();
+
+    @Override
+    public Mono<Void> send(Publisher<ByteBuf> frames) {
+      return Flux.from(frames).doOnNext(ByteBuf::release).then();
+    }
+
+    @Override
+    public Flux<ByteBuf> receive() {
+      return Flux.never();
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+      return ByteBufAllocator.DEFAULT;
+    }
+
+    @Override
+    public Mono<Void> onClose() {
+      return onClose;
+    }
+
+    @Override
+    public void dispose() {
+      onClose.onComplete();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return onClose.isTerminated();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package io.rsocket.stat;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Updates and reads estimators shared by all threads, as a {@code WeightedSocket} does with the
+ * latency of every response and on every selection. Each nested class runs the benchmarks with a
+ * different number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(
+    value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
+    )
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public abstract class StatsPerf {
+
+  Ewma ewma;
+  Median median;
+  FrugalQuantile quantile;
+
+  @Setup
+  public void setup() {
+    ewma = new Ewma(1, TimeUnit.MINUTES, 0.0);
+    median = new Median();
+    quantile = new FrugalQuantile(0.8);
+    for (int i = 0; i < 1000; i++) {
+      double x = latency();
+      ewma.insert(x);
+      median.insert(x);
+      quantile.insert(x);
+    }
+  }
+
+  @Benchmark
+  public void ewmaInsert() {
+    ewma.insert(latency());
+  }
+
+  @Benchmark
+  public double ewmaValue() {
+    return ewma.value();
+  }
+
+  @Benchmark
+  public void medianInsert() {
+    median.insert(latency());
+  }
+
+  @Benchmark
+  public double medianEstimation() {
+    return median.estimation();
+  }
+
+  @Benchmark
+  public void quantileInsert() {
+    quantile.insert(latency());
+  }
+
+  @Benchmark
+  public double quantileEstimation() {
+    return quantile.estimation();
+  }
+
+  static double latency() {
+    return ThreadLocalRandom.current().nextInt(100, 10_000);
+  }
+
+  @Threads(1)
+  public static class OneThread extends StatsPerf {}
+
+  @Threads(8)
+  public static class EightThreads extends StatsPerf {}
+
+  @Threads(32)
+  public static class ThirtyTwoThreads extends StatsPerf {}
+}
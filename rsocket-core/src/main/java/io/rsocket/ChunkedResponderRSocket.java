@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket;
+
+import io.rsocket.util.ChunkedPayload;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Extends the {@link RSocket} with requests whose data arrives in chunks. A responder that enables
+ * {@code streamFragmentedRequests} hands every fragmented request to these methods as soon as its
+ * first fragment arrives, rather than once it is reassembled. Handlers of any other type only ever
+ * receive reassembled payloads.
+ *
+ * <p>The handler must consume and release the chunks. The responder holds up to {@link
+ * #MAX_BUFFERED_CHUNKS} chunks that the handler has not asked for yet; beyond that, the request is
+ * rejected and the chunks fail with an overflow error, as there is no flow control for fragments.
+ *
+ * <p>By default, each method aggregates the chunks and passes the resulting payload on to the
+ * method of the same interaction that takes a regular {@link Payload}, so that a handler only needs
+ * to override the interactions it wants chunks for.
+ */
+public interface ChunkedResponderRSocket extends RSocket {
+
+  /** The most chunks of a request held for a handler that does not consume them. */
+  int MAX_BUFFERED_CHUNKS = 256;
+
+  /**
+   * Fire and Forget interaction model of {@code RSocket}, for a request whose data arrives in
+   * chunks.
+   *
+   * @param payload Request payload.
+   * @return {@code Publisher} that completes when the passed {@code payload} is successfully
+   *     handled, otherwise errors.
+   */
+  default Mono<Void> fireAndForget(ChunkedPayload payload) {
+    return payload.aggregate().flatMap(this::fireAndForget);
+  }
+
+  /**
+   * Request-Response interaction model of {@code RSocket}, for a request whose data arrives in
+   * chunks.
+   *
+   * @param payload Request payload.
+   * @return {@code Publisher} containing at most a single {@code Payload} representing the
+   *     response.
+   */
+  default Mono<Payload> requestResponse(ChunkedPayload payload) {
+    return payload.aggregate().flatMap(this::requestResponse);
+  }
+
+  /**
+   * Request-Stream interaction model of {@code RSocket}, for a request whose data arrives in
+   * chunks.
+   *
+   * @param payload Request payload.
+   * @return {@code Publisher} containing the stream of {@code Payload}s representing the response.
+   */
+  default Flux<Payload> requestStream(ChunkedPayload payload) {
+    return payload.aggregate().flatMapMany(this::requestStream);
+  }
+}
@@ -86,6 +86,18 @@ default Mono<Void> sendOne(ByteBuf frame) {
    */
   ByteBufAllocator alloc();
 
+  /**
+   * Returns whether frames sent on this connection are handed to the peer as they are, within the
+   * same JVM, so that payloads may be carried by reference in a {@link
+   * io.rsocket.frame.PayloadReferenceFrame} rather than be encoded. Connections that wrap another
+   * one only return {@code true} if the wrapped one does and they do not read frame contents.
+   *
+   * @return {@code true} if payloads may be passed by reference on this connection
+   */
+  default boolean supportsPayloadReferences() {
+    return false;
+  }
+
   @Override
   default double availability() {
     return isDisposed() ? 0.0 : 1.0;
@@ -1,18 +1,33 @@
 package io.rsocket.core;
 
+import io.netty.buffer.ByteBuf;
 import io.rsocket.Payload;
 import io.rsocket.frame.FrameHeaderCodec;
 import io.rsocket.frame.FrameLengthCodec;
+import io.rsocket.util.ChunkedPayload;
 
 final class PayloadValidationUtils {
   static final String INVALID_PAYLOAD_ERROR_MESSAGE =
       "The payload is too big to send as a single frame with a 24-bit encoded length. Consider enabling fragmentation via RSocketFactory.";
+  static final String CHUNKED_PAYLOAD_ERROR_MESSAGE =
+      "Chunked payloads can only be sent with fire-and-forget, request-response and request-stream.";
 
   static boolean isValid(int mtu, Payload payload) {
     if (mtu > 0) {
       return true;
     }
 
+    if (payload instanceof ChunkedPayload) {
+      // the data goes in fragments of its own, which are validated as they are sent
+      return !payload.hasMetadata()
+          || (((FrameHeaderCodec.size()
+                      + FrameLengthCodec.FRAME_LENGTH_SIZE
+                      + FrameHeaderCodec.size()
+                      + payload.metadata().readableBytes())
+                  & ~FrameLengthCodec.FRAME_LENGTH_MASK)
+              == 0);
+    }
+
     if (payload.hasMetadata()) {
       return (((FrameHeaderCodec.size()
                   + FrameLengthCodec.FRAME_LENGTH_SIZE
@@ -29,4 +44,14 @@ static boolean isValid(int mtu, Payload payload) {
           == 0);
     }
   }
+
+  static boolean isValid(int mtu, ByteBuf chunk) {
+    if (mtu > 0) {
+      return true;
+    }
+
+    return (((FrameHeaderCodec.size() + chunk.readableBytes() + FrameLengthCodec.FRAME_LENGTH_SIZE)
+            & ~FrameLengthCodec.FRAME_LENGTH_MASK)
+        == 0);
+  }
 }
@@ -24,6 +24,7 @@
 import io.rsocket.SocketAcceptor;
 import io.rsocket.fragmentation.FragmentationDuplexConnection;
 import io.rsocket.fragmentation.ReassemblyDuplexConnection;
+import io.rsocket.frame.FrameLengthCodec;
 import io.rsocket.frame.SetupFrameCodec;
 import io.rsocket.frame.decoder.PayloadDecoder;
 import io.rsocket.internal.ClientServerInputMultiplexer;
@@ -45,7 +46,6 @@
 import java.util.function.Supplier;
 import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.util.annotation.Nullable;
 import reactor.util.retry.Retry;
 
@@ -82,6 +82,7 @@ public class RSocketConnector {
   private String dataMimeType = "application/binary";
   private Duration keepAliveInterval = Duration.ofSeconds(20);
   private Duration keepAliveMaxLifeTime = Duration.ofSeconds(90);
+  private boolean keepAliveSkipWhenActive;
 
   @Nullable private SocketAcceptor acceptor;
   private InitializingInterceptorRegistry interceptors = new InitializingInterceptorRegistry();
@@ -91,6 +92,10 @@ public class RSocketConnector {
   private Supplier<Leases<?>> leasesSupplier;
 
   private int mtu = 0;
+  private int maxContiguousFrameSize = 0;
+  private int maxInboundPayloadSize = Integer.MAX_VALUE;
+  private int maxReassemblyBufferSize = Integer.MAX_VALUE;
+  private boolean streamFragmentedRequests;
   private PayloadDecoder payloadDecoder = PayloadDecoder.DEFAULT;
 
   private RSocketConnector() {}
@@ -207,6 +212,27 @@ public RSocketConnector metadataMimeType(String metadataMimeType) {
    *     Frame</a>
    */
   public RSocketConnector keepAlive(Duration interval, Duration maxLifeTime) {
+    return keepAlive(interval, maxLifeTime, false);
+  }
+
+  /**
+   * Variant of {@link #keepAlive(Duration, Duration)} that can also make {@code KEEPALIVE} frames
+   * follow the traffic of the connection. Any frame received from the server is taken as a sign of
+   * liveness, and with {@code skipWhenActive} the client does not send a {@code KEEPALIVE} frame at
+   * an interval during which frames were both sent and received. A frame is still sent at every
+   * interval when there is a resume position that the server has not been told about yet.
+   *
+   * <p>Only skip frames when the server also takes any frame as a sign of liveness, or sends {@code
+   * KEEPALIVE} frames of its own, as this server does.
+   *
+   * @param interval how frequently to emit KEEPALIVE frames
+   * @param maxLifeTime how long to allow between frames from the remote end before assuming that
+   *     connectivity is lost
+   * @param skipWhenActive whether to skip {@code KEEPALIVE} frames while the connection is busy
+   * @return the same instance for method chaining
+   */
+  public RSocketConnector keepAlive(
+      Duration interval, Duration maxLifeTime, boolean skipWhenActive) {
     if (!interval.negated().isNegative()) {
       throw new IllegalArgumentException("`interval` for keepAlive must be > 0");
     }
@@ -215,6 +241,7 @@ public RSocketConnector keepAlive(Duration interval, Duration maxLifeTime) {
     }
     this.keepAliveInterval = interval;
     this.keepAliveMaxLifeTime = maxLifeTime;
+    this.keepAliveSkipWhenActive = skipWhenActive;
     return this;
   }
 
@@ -413,6 +440,88 @@ public RSocketConnector fragment(int mtu) {
     return this;
   }
 
+  /**
+   * When this is set, outgoing payload frames whose encoded size is no larger than the given value
+   * are copied into a single, right-sized pooled buffer instead of being composed from separate
+   * header, metadata and data buffers. The buffer also reserves room for the frame length prefix of
+   * length-framed transports such as TCP. Larger frames are still composed without copying.
+   *
+   * <p>This trades a copy of small payloads for fewer buffer and composite allocations per frame.
+   *
+   * <p>By default this is not set in which case all payload frames are composed without copying.
+   *
+   * @param maxFrameSize the largest frame size, in bytes, to encode into a single buffer
+   * @return the same instance for method chaining
+   */
+  public RSocketConnector maxContiguousFrameSize(int maxFrameSize) {
+    if (maxFrameSize <= 0 || maxFrameSize > FrameLengthCodec.FRAME_LENGTH_MASK) {
+      throw new IllegalArgumentException(
+          "maxFrameSize must be greater than 0 and no larger than "
+              + FrameLengthCodec.FRAME_LENGTH_MASK);
+    }
+    this.maxContiguousFrameSize = maxFrameSize;
+    return this;
+  }
+
+  /**
+   * Set the largest payload, metadata and data together, that the peer may send in fragments.
+   * Fragments of a payload that grows larger are released as they come. A request is rejected with
+   * an {@code ERROR} frame, any other stream is cancelled and fails with a {@link
+   * io.rsocket.exceptions.CanceledException}.
+   *
+   * <p>By default this is not set in which case payloads are reassembled whatever their size.
+   *
+   * @param maxInboundPayloadSize the largest reassembled payload, in bytes, no less than 64
+   * @return the same instance for method chaining
+   */
+  public RSocketConnector maxInboundPayloadSize(int maxInboundPayloadSize) {
+    this.maxInboundPayloadSize =
+        ReassemblyDuplexConnection.assertMaxInboundPayloadSize(maxInboundPayloadSize);
+    return this;
+  }
+
+  /**
+   * Set how many bytes a connection may hold for all the payloads it is reassembling at once. The
+   * stream whose fragment would go over it is handled as with {@link #maxInboundPayloadSize(int)},
+   * while the other streams carry on.
+   *
+   * <p>By default this is not set in which case the memory held is only limited per stream.
+   *
+   * @param maxReassemblyBufferSize the most bytes held for reassembly, no less than 64
+   * @return the same instance for method chaining
+   */
+  public RSocketConnector maxReassemblyBufferSize(int maxReassemblyBufferSize) {
+    this.maxReassemblyBufferSize =
+        ReassemblyDuplexConnection.assertMaxReassemblyBufferSize(maxReassemblyBufferSize);
+    return this;
+  }
+
+  /**
+   * When this is enabled, fire-and-forget, request-response and request-stream requests that arrive
+   * in fragments are not reassembled. A responder that is a {@link
+   * io.rsocket.ChunkedResponderRSocket} is handed a {@link io.rsocket.util.ChunkedPayload} as soon
+   * as the first fragment arrives, and the data of each fragment is emitted as a chunk as it lands,
+   * so a large request is never held in memory as a whole. Any other responder is handed the
+   * request aggregated once its last fragment arrives. Requests that arrive in a single frame are
+   * handled as usual.
+   *
+   * <p>A streamed request is still subject to {@link #maxInboundPayloadSize(int)} and {@link
+   * #maxReassemblyBufferSize(int)}, counting the bytes it has received until its last fragment
+   * arrives. As fragments are not subject to flow control, a handler that falls more than {@link
+   * io.rsocket.ChunkedResponderRSocket#MAX_BUFFERED_CHUNKS} chunks behind has the request rejected;
+   * this is a hard limit, so a handler that consumes chunks slowly has to buffer them itself.
+   *
+   * <p>By default this is not enabled in which case fragmented requests are reassembled before they
+   * are handed to the responder.
+   *
+   * @param streamFragmentedRequests whether to hand fragmented requests over in chunks
+   * @return the same instance for method chaining
+   */
+  public RSocketConnector streamFragmentedRequests(boolean streamFragmentedRequests) {
+    this.streamFragmentedRequests = streamFragmentedRequests;
+    return this;
+  }
+
   /**
    * Configure the {@code PayloadDecoder} used to create {@link Payload}'s from incoming raw frame
    * buffers. The following decoders are available:
@@ -477,14 +586,25 @@ public Mono<RSocket> connect(Supplier<ClientTransport> transportSupplier) {
             .map(
                 connection ->
                     mtu > 0
-                        ? new FragmentationDuplexConnection(connection, mtu, "client")
-                        : new ReassemblyDuplexConnection(connection));
+                        ? new FragmentationDuplexConnection(
+                            connection,
+                            mtu,
+                            maxInboundPayloadSize,
+                            maxReassemblyBufferSize,
+                            streamFragmentedRequests,
+                            "client")
+                        : new ReassemblyDuplexConnection(
+                            connection,
+                            maxInboundPayloadSize,
+                            maxReassemblyBufferSize,
+                            streamFragmentedRequests));
     return connectionMono
         .flatMap(
             connection -> {
               ByteBuf resumeToken;
               KeepAliveHandler keepAliveHandler;
               DuplexConnection wrappedConnection;
+              ClientServerInputMultiplexer multiplexer;
 
               if (resume != null) {
                 resumeToken = resume.getTokenSupplier().get();
@@ -498,18 +618,26 @@ public Mono<RSocket> connect(Supplier<ClientTransport> transportSupplier) {
                             resume.isCleanupStoreOnKeepAlive())
                         .continueWith(connectionMono)
                         .resumeToken(resumeToken);
-                keepAliveHandler =
-                    new KeepAliveHandler.ResumableKeepAliveHandler(session.resumableConnection());
+                session
+                    .resumableConnection()
+                    .acknowledgePositionEvery(
+                        resume.getAcknowledgeBytes(), resume.getAcknowledgeFrames());
                 wrappedConnection = session.resumableConnection();
+                multiplexer =
+                    new ClientServerInputMultiplexer(wrappedConnection, interceptors, true);
+                keepAliveHandler =
+                    new KeepAliveHandler.ResumableKeepAliveHandler(
+                        session.resumableConnection(), multiplexer, keepAliveSkipWhenActive);
               } else {
                 resumeToken = Unpooled.EMPTY_BUFFER;
-                keepAliveHandler = new KeepAliveHandler.DefaultKeepAliveHandler(connection);
                 wrappedConnection = connection;
+                multiplexer =
+                    new ClientServerInputMultiplexer(wrappedConnection, interceptors, true);
+                keepAliveHandler =
+                    new KeepAliveHandler.DefaultKeepAliveHandler(
+                        multiplexer, keepAliveSkipWhenActive);
               }
 
-              ClientServerInputMultiplexer multiplexer =
-                  new ClientServerInputMultiplexer(wrappedConnection, interceptors, true);
-
               boolean leaseEnabled = leasesSupplier != null;
               Leases<?> leases = leaseEnabled ? leasesSupplier.get() : null;
               RequesterLeaseHandler requesterLeaseHandler =
@@ -523,11 +651,12 @@ public Mono<RSocket> connect(Supplier<ClientTransport> transportSupplier) {
                       payloadDecoder,
                       StreamIdSupplier.clientSupplier(),
                       mtu,
+                      maxContiguousFrameSize,
                       (int) keepAliveInterval.toMillis(),
                       (int) keepAliveMaxLifeTime.toMillis(),
                       keepAliveHandler,
                       requesterLeaseHandler,
-                      Schedulers.single(Schedulers.parallel()));
+                      SerialSchedulers.next());
 
               RSocket wrappedRSocketRequester = interceptors.initRequester(rSocketRequester);
 
@@ -569,7 +698,8 @@ public Mono<RSocket> connect(Supplier<ClientTransport> transportSupplier) {
                                 wrappedRSocketHandler,
                                 payloadDecoder,
                                 responderLeaseHandler,
-                                mtu);
+                                mtu,
+                                maxContiguousFrameSize);
 
                         return wrappedConnection
                             .sendOne(setupFrame)
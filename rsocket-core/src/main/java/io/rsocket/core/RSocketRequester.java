@@ -16,39 +16,43 @@
 
 package io.rsocket.core;
 
+import static io.rsocket.core.PayloadValidationUtils.CHUNKED_PAYLOAD_ERROR_MESSAGE;
 import static io.rsocket.core.PayloadValidationUtils.INVALID_PAYLOAD_ERROR_MESSAGE;
 import static io.rsocket.keepalive.KeepAliveSupport.ClientKeepAliveSupport;
 import static io.rsocket.keepalive.KeepAliveSupport.KeepAlive;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.util.IllegalReferenceCountException;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
-import io.netty.util.collection.IntObjectMap;
 import io.rsocket.DuplexConnection;
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.exceptions.ConnectionErrorException;
 import io.rsocket.exceptions.Exceptions;
+import io.rsocket.fragmentation.RejectedFrame;
 import io.rsocket.frame.CancelFrameCodec;
 import io.rsocket.frame.ErrorFrameCodec;
 import io.rsocket.frame.FrameHeaderCodec;
 import io.rsocket.frame.FrameType;
 import io.rsocket.frame.MetadataPushFrameCodec;
 import io.rsocket.frame.PayloadFrameCodec;
+import io.rsocket.frame.PayloadReferenceFrame;
 import io.rsocket.frame.RequestChannelFrameCodec;
 import io.rsocket.frame.RequestFireAndForgetFrameCodec;
 import io.rsocket.frame.RequestNFrameCodec;
 import io.rsocket.frame.RequestResponseFrameCodec;
 import io.rsocket.frame.RequestStreamFrameCodec;
 import io.rsocket.frame.decoder.PayloadDecoder;
-import io.rsocket.internal.SynchronizedIntObjectHashMap;
+import io.rsocket.internal.ConcurrentIntObjectHashMap;
 import io.rsocket.internal.UnboundedProcessor;
 import io.rsocket.keepalive.KeepAliveFramesAcceptor;
 import io.rsocket.keepalive.KeepAliveHandler;
 import io.rsocket.keepalive.KeepAliveSupport;
 import io.rsocket.lease.RequesterLeaseHandler;
+import io.rsocket.util.ChunkedPayload;
 import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -60,6 +64,7 @@
 import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
 import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -102,15 +107,17 @@ class RSocketRequester implements RSocket {
   private final DuplexConnection connection;
   private final PayloadDecoder payloadDecoder;
   private final StreamIdSupplier streamIdSupplier;
-  private final IntObjectMap<Subscription> senders;
-  private final IntObjectMap<Processor<Payload, Payload>> receivers;
+  private final ConcurrentIntObjectHashMap<Subscription> senders;
+  private final ConcurrentIntObjectHashMap<Processor<Payload, Payload>> receivers;
   private final UnboundedProcessor<ByteBuf> sendProcessor;
   private final int mtu;
+  private final int maxContiguousFrameSize;
+  private final boolean payloadReferences;
   private final RequesterLeaseHandler leaseHandler;
   private final ByteBufAllocator allocator;
   private final KeepAliveFramesAcceptor keepAliveFramesAcceptor;
   private final MonoProcessor<Void> onClose;
-  private final Scheduler serialScheduler;
+  final Scheduler serialScheduler;
 
   RSocketRequester(
       DuplexConnection connection,
@@ -122,14 +129,40 @@ class RSocketRequester implements RSocket {
       @Nullable KeepAliveHandler keepAliveHandler,
       RequesterLeaseHandler leaseHandler,
       Scheduler serialScheduler) {
+    this(
+        connection,
+        payloadDecoder,
+        streamIdSupplier,
+        mtu,
+        0,
+        keepAliveTickPeriod,
+        keepAliveAckTimeout,
+        keepAliveHandler,
+        leaseHandler,
+        serialScheduler);
+  }
+
+  RSocketRequester(
+      DuplexConnection connection,
+      PayloadDecoder payloadDecoder,
+      StreamIdSupplier streamIdSupplier,
+      int mtu,
+      int maxContiguousFrameSize,
+      int keepAliveTickPeriod,
+      int keepAliveAckTimeout,
+      @Nullable KeepAliveHandler keepAliveHandler,
+      RequesterLeaseHandler leaseHandler,
+      Scheduler serialScheduler) {
     this.connection = connection;
     this.allocator = connection.alloc();
     this.payloadDecoder = payloadDecoder;
     this.streamIdSupplier = streamIdSupplier;
     this.mtu = mtu;
+    this.maxContiguousFrameSize = maxContiguousFrameSize;
+    this.payloadReferences = connection.supportsPayloadReferences();
     this.leaseHandler = leaseHandler;
-    this.senders = new SynchronizedIntObjectHashMap<>();
-    this.receivers = new SynchronizedIntObjectHashMap<>();
+    this.senders = new ConcurrentIntObjectHashMap<>();
+    this.receivers = new ConcurrentIntObjectHashMap<>();
     this.onClose = MonoProcessor.create();
     this.serialScheduler = serialScheduler;
 
@@ -228,11 +261,42 @@ private Mono<Void> handleFireAndForget(Payload payload) {
                 return Mono.error(t);
               }
 
-              final int streamId = streamIdSupplier.nextStreamId(receivers);
-              final ByteBuf requestFrame =
-                  RequestFireAndForgetFrameCodec.encodeReleasingPayload(
-                      allocator, streamId, payload);
+              final int streamId = streamIdSupplier.nextStreamId();
+              final ByteBuf requestFrame;
+              try {
+                requestFrame =
+                    payload instanceof ChunkedPayload
+                        ? RequestFireAndForgetFrameCodec.encode(
+                            allocator,
+                            streamId,
+                            true,
+                            chunkedMetadata(payload),
+                            Unpooled.EMPTY_BUFFER)
+                        : payloadReferences
+                            ? PayloadReferenceFrame.encode(
+                                allocator,
+                                FrameType.REQUEST_FNF,
+                                streamId,
+                                false,
+                                false,
+                                0,
+                                payload)
+                            : RequestFireAndForgetFrameCodec.encodeReleasingPayload(
+                                allocator, streamId, maxContiguousFrameSize, payload);
+              } catch (Throwable t) {
+                streamIdSupplier.release(streamId);
+                throw t;
+              }
+
+              if (payload instanceof ChunkedPayload) {
+                sendProcessor.onNext(requestFrame);
+                return sendChunks(streamId, (ChunkedPayload) payload)
+                    .doOnCancel(
+                        () -> sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId)))
+                    .doFinally(s -> streamIdSupplier.release(streamId));
+              }
 
+              streamIdSupplier.release(streamId);
               sendProcessor.onNext(requestFrame);
 
               return Mono.empty();
@@ -274,6 +338,8 @@ private Mono<Payload> handleRequestResponse(final Payload payload) {
                       (s, actual) ->
                           new RequestOperator(actual) {
 
+                            Disposable chunks;
+
                             @Override
                             void hookOnFirstRequest(long n) {
                               if (isDisposed()) {
@@ -283,20 +349,51 @@ void hookOnFirstRequest(long n) {
                                 return;
                               }
 
-                              int streamId = streamIdSupplier.nextStreamId(receivers);
+                              int streamId = streamIdSupplier.nextStreamId();
                               this.streamId = streamId;
 
-                              ByteBuf requestResponseFrame =
-                                  RequestResponseFrameCodec.encodeReleasingPayload(
-                                      allocator, streamId, payload);
+                              ByteBuf requestResponseFrame;
+                              try {
+                                requestResponseFrame =
+                                    payload instanceof ChunkedPayload
+                                        ? RequestResponseFrameCodec.encode(
+                                            allocator,
+                                            streamId,
+                                            true,
+                                            chunkedMetadata(payload),
+                                            Unpooled.EMPTY_BUFFER)
+                                        : payloadReferences
+                                            ? PayloadReferenceFrame.encode(
+                                                allocator,
+                                                FrameType.REQUEST_RESPONSE,
+                                                streamId,
+                                                false,
+                                                false,
+                                                0,
+                                                payload)
+                                            : RequestResponseFrameCodec.encodeReleasingPayload(
+                                                allocator,
+                                                streamId,
+                                                maxContiguousFrameSize,
+                                                payload);
+                              } catch (Throwable t) {
+                                streamIdSupplier.release(streamId);
+                                throw t;
+                              }
 
                               receivers.put(streamId, receiver);
                               sendProcessor.onNext(requestResponseFrame);
+                              if (payload instanceof ChunkedPayload) {
+                                chunks = sendChunks(streamId, receiver, (ChunkedPayload) payload);
+                              }
                             }
 
                             @Override
                             void hookOnCancel() {
-                              if (receivers.remove(streamId, receiver)) {
+                              if (chunks != null) {
+                                chunks.dispose();
+                              }
+                              if (removeReceiver(streamId, receiver)) {
                                 sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId));
                               } else {
                                 payload.release();
@@ -305,7 +402,8 @@ void hookOnCancel() {
 
                             @Override
                             public void hookOnTerminal(SignalType signalType) {
-                              receivers.remove(streamId, receiver);
+                              stopChunks(streamId, chunks);
+                              removeReceiver(streamId, receiver);
                             }
                           }))
               .subscribeOn(serialScheduler)
@@ -346,6 +444,8 @@ private Flux<Payload> handleRequestStream(final Payload payload) {
                       (s, actual) ->
                           new RequestOperator(actual) {
 
+                            Disposable chunks;
+
                             @Override
                             void hookOnFirstRequest(long n) {
                               if (isDisposed()) {
@@ -355,16 +455,46 @@ void hookOnFirstRequest(long n) {
                                 return;
                               }
 
-                              int streamId = streamIdSupplier.nextStreamId(receivers);
+                              int streamId = streamIdSupplier.nextStreamId();
                               this.streamId = streamId;
 
-                              ByteBuf requestStreamFrame =
-                                  RequestStreamFrameCodec.encodeReleasingPayload(
-                                      allocator, streamId, n, payload);
+                              ByteBuf requestStreamFrame;
+                              try {
+                                requestStreamFrame =
+                                    payload instanceof ChunkedPayload
+                                        ? RequestStreamFrameCodec.encode(
+                                            allocator,
+                                            streamId,
+                                            true,
+                                            n,
+                                            chunkedMetadata(payload),
+                                            Unpooled.EMPTY_BUFFER)
+                                        : payloadReferences
+                                            ? PayloadReferenceFrame.encode(
+                                                allocator,
+                                                FrameType.REQUEST_STREAM,
+                                                streamId,
+                                                false,
+                                                false,
+                                                n,
+                                                payload)
+                                            : RequestStreamFrameCodec.encodeReleasingPayload(
+                                                allocator,
+                                                streamId,
+                                                n,
+                                                maxContiguousFrameSize,
+                                                payload);
+                              } catch (Throwable t) {
+                                streamIdSupplier.release(streamId);
+                                throw t;
+                              }
 
                               receivers.put(streamId, receiver);
 
                               sendProcessor.onNext(requestStreamFrame);
+                              if (payload instanceof ChunkedPayload) {
+                                chunks = sendChunks(streamId, receiver, (ChunkedPayload) payload);
+                              }
                             }
 
                             @Override
@@ -379,7 +509,10 @@ void hookOnRemainingRequests(long n) {
 
                             @Override
                             void hookOnCancel() {
-                              if (receivers.remove(streamId, receiver)) {
+                              if (chunks != null) {
+                                chunks.dispose();
+                              }
+                              if (removeReceiver(streamId, receiver)) {
                                 sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId));
                               } else {
                                 payload.release();
@@ -388,7 +521,8 @@ void hookOnCancel() {
 
                             @Override
                             void hookOnTerminal(SignalType signalType) {
-                              receivers.remove(streamId);
+                              stopChunks(streamId, chunks);
+                              removeReceiver(streamId, receiver);
                             }
                           }))
               .subscribeOn(serialScheduler, false)
@@ -396,6 +530,95 @@ void hookOnTerminal(SignalType signalType) {
         });
   }
 
+  /**
+   * Sends the data of a chunked request, whose request frame went out with the metadata only, as a
+   * fragment per chunk followed by an empty last fragment. The next chunk is only asked for once
+   * the transport has taken every frame queued so far, so that a fast producer is held back by the
+   * transport rather than buffered in memory. The stream is cancelled towards the responder if the
+   * chunks fail.
+   */
+  private Mono<Void> sendChunks(int streamId, ChunkedPayload payload) {
+    final UnboundedProcessor<ByteBuf> sendProcessor = this.sendProcessor;
+    final Flux<ByteBuf> chunks = payload.chunks();
+    payload.release();
+
+    return Mono.<Void>create(
+            sink -> {
+              BaseSubscriber<ByteBuf> chunkSubscriber =
+                  new BaseSubscriber<ByteBuf>() {
+                    @Override
+                    protected void hookOnSubscribe(Subscription subscription) {
+                      subscription.request(1);
+                    }
+
+                    @Override
+                    protected void hookOnNext(ByteBuf chunk) {
+                      if (!PayloadValidationUtils.isValid(mtu, chunk)) {
+                        chunk.release();
+                        cancel();
+                        sink.error(new IllegalArgumentException(INVALID_PAYLOAD_ERROR_MESSAGE));
+                        return;
+                      }
+                      sendProcessor.onNext(
+                          PayloadFrameCodec.encode(
+                              allocator, streamId, true, false, true, null, chunk));
+                      sendProcessor.onDrained(
+                          () -> {
+                            if (!isDisposed()) {
+                              request(1);
+                            }
+                          });
+                    }
+
+                    @Override
+                    protected void hookOnComplete() {
+                      sendProcessor.onNext(
+                          PayloadFrameCodec.encode(
+                              allocator,
+                              streamId,
+                              false,
+                              false,
+                              true,
+                              null,
+                              Unpooled.EMPTY_BUFFER));
+                      sink.success();
+                    }
+
+                    @Override
+                    protected void hookOnError(Throwable t) {
+                      sink.error(t);
+                    }
+                  };
+              sink.onDispose(chunkSubscriber);
+              chunks.subscribe(chunkSubscriber);
+            })
+        .doOnError(t -> sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId)));
+  }
+
+  private Disposable sendChunks(
+      int streamId, UnicastProcessor<Payload> receiver, ChunkedPayload payload) {
+    return sendChunks(streamId, payload)
+        .subscribe(
+            null,
+            t -> {
+              removeReceiver(streamId, receiver);
+              receiver.onError(t);
+            });
+  }
+
+  /** Stops sending the chunks of a request that the responder has already terminated. */
+  private void stopChunks(int streamId, @Nullable Disposable chunks) {
+    if (chunks != null && !chunks.isDisposed()) {
+      chunks.dispose();
+      sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId));
+    }
+  }
+
+  @Nullable
+  private static ByteBuf chunkedMetadata(Payload payload) {
+    return payload.hasMetadata() ? payload.sliceMetadata().retain() : null;
+  }
+
   private Flux<Payload> handleChannel(Flux<Payload> request) {
     Throwable err = checkAvailable();
     if (err != null) {
@@ -411,6 +634,11 @@ private Flux<Payload> handleChannel(Flux<Payload> request) {
                   return Mono.error(new IllegalReferenceCountException());
                 }
 
+                if (payload instanceof ChunkedPayload) {
+                  payload.release();
+                  return Mono.error(new IllegalArgumentException(CHUNKED_PAYLOAD_ERROR_MESSAGE));
+                }
+
                 if (!PayloadValidationUtils.isValid(mtu, payload)) {
                   payload.release();
                   final IllegalArgumentException t =
@@ -459,19 +687,32 @@ protected void hookOnNext(Payload payload) {
                                 request(1);
                                 return;
                               }
-                              if (!PayloadValidationUtils.isValid(mtu, payload)) {
+                              if (payload instanceof ChunkedPayload
+                                  || !PayloadValidationUtils.isValid(mtu, payload)) {
+                                final IllegalArgumentException t =
+                                    new IllegalArgumentException(
+                                        payload instanceof ChunkedPayload
+                                            ? CHUNKED_PAYLOAD_ERROR_MESSAGE
+                                            : INVALID_PAYLOAD_ERROR_MESSAGE);
                                 payload.release();
                                 cancel();
-                                final IllegalArgumentException t =
-                                    new IllegalArgumentException(INVALID_PAYLOAD_ERROR_MESSAGE);
                                 // no need to send any errors.
                                 sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId));
                                 receiver.onError(t);
                                 return;
                               }
                               final ByteBuf frame =
-                                  PayloadFrameCodec.encodeNextReleasingPayload(
-                                      allocator, streamId, payload);
+                                  payloadReferences
+                                      ? PayloadReferenceFrame.encode(
+                                          allocator,
+                                          FrameType.PAYLOAD,
+                                          streamId,
+                                          false,
+                                          true,
+                                          0,
+                                          payload)
+                                      : PayloadFrameCodec.encodeNextReleasingPayload(
+                                          allocator, streamId, maxContiguousFrameSize, payload);
 
                               sendProcessor.onNext(frame);
                             }
@@ -505,12 +746,32 @@ void hookOnFirstRequest(long n) {
                           return;
                         }
 
-                        final int streamId = streamIdSupplier.nextStreamId(receivers);
+                        final int streamId = streamIdSupplier.nextStreamId();
                         this.streamId = streamId;
 
-                        final ByteBuf frame =
-                            RequestChannelFrameCodec.encodeReleasingPayload(
-                                allocator, streamId, false, n, initialPayload);
+                        final ByteBuf frame;
+                        try {
+                          frame =
+                              payloadReferences
+                                  ? PayloadReferenceFrame.encode(
+                                      allocator,
+                                      FrameType.REQUEST_CHANNEL,
+                                      streamId,
+                                      false,
+                                      false,
+                                      n,
+                                      initialPayload)
+                                  : RequestChannelFrameCodec.encodeReleasingPayload(
+                                      allocator,
+                                      streamId,
+                                      false,
+                                      n,
+                                      maxContiguousFrameSize,
+                                      initialPayload);
+                        } catch (Throwable t) {
+                          streamIdSupplier.release(streamId);
+                          throw t;
+                        }
 
                         senders.put(streamId, upstreamSubscriber);
                         receivers.put(streamId, receiver);
@@ -534,7 +795,7 @@ void hookOnRemainingRequests(long n) {
                       @Override
                       void hookOnCancel() {
                         senders.remove(streamId, upstreamSubscriber);
-                        if (receivers.remove(streamId, receiver)) {
+                        if (removeReceiver(streamId, receiver)) {
                           sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId));
                         }
                       }
@@ -544,7 +805,7 @@ void hookOnTerminal(SignalType signalType) {
                         if (signalType == SignalType.ON_ERROR) {
                           upstreamSubscriber.cancel();
                         }
-                        receivers.remove(streamId, receiver);
+                        removeReceiver(streamId, receiver);
                       }
 
                       @Override
@@ -664,15 +925,19 @@ private void handleFrame(int streamId, FrameType type, ByteBuf frame) {
           return;
         }
         receiver.onComplete();
-        receivers.remove(streamId);
+        removeReceiver(streamId, receiver);
         break;
       case ERROR:
         if (receiver == null) {
           handleMissingResponseProcessor(streamId, type, frame);
           return;
         }
+        if (frame instanceof RejectedFrame) {
+          // a response dropped by the reassembler, the peer is yet to be told
+          sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId));
+        }
         receiver.onError(Exceptions.from(streamId, frame));
-        receivers.remove(streamId);
+        removeReceiver(streamId, receiver);
         break;
       case CANCEL:
         {
@@ -697,6 +962,14 @@ private void handleFrame(int streamId, FrameType type, ByteBuf frame) {
     }
   }
 
+  private boolean removeReceiver(int streamId, Subscriber<Payload> receiver) {
+    if (receivers.remove(streamId, receiver)) {
+      streamIdSupplier.release(streamId);
+      return true;
+    }
+    return false;
+  }
+
   private void handleMissingResponseProcessor(int streamId, FrameType type, ByteBuf frame) {
     if (!streamIdSupplier.isBeforeOrCurrent(streamId)) {
       if (type == FrameType.ERROR) {
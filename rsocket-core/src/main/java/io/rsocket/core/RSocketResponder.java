@@ -23,16 +23,20 @@
 import io.netty.util.IllegalReferenceCountException;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
-import io.netty.util.collection.IntObjectMap;
+import io.rsocket.ChunkedResponderRSocket;
 import io.rsocket.DuplexConnection;
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.exceptions.CanceledException;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.fragmentation.RejectedFrame;
 import io.rsocket.frame.*;
 import io.rsocket.frame.decoder.PayloadDecoder;
-import io.rsocket.internal.SynchronizedIntObjectHashMap;
+import io.rsocket.internal.ConcurrentIntObjectHashMap;
 import io.rsocket.internal.UnboundedProcessor;
 import io.rsocket.lease.ResponderLeaseHandler;
+import io.rsocket.util.ChunkedPayload;
 import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -72,6 +76,8 @@ class RSocketResponder implements RSocket {
   @SuppressWarnings("deprecation")
   private final io.rsocket.ResponderRSocket responderRSocket;
 
+  @Nullable private final ChunkedResponderRSocket chunkedResponderRSocket;
+
   private final PayloadDecoder payloadDecoder;
   private final ResponderLeaseHandler leaseHandler;
   private final Disposable leaseHandlerDisposable;
@@ -82,9 +88,12 @@ class RSocketResponder implements RSocket {
           RSocketResponder.class, Throwable.class, "terminationError");
 
   private final int mtu;
+  private final int maxContiguousFrameSize;
+  private final boolean payloadReferences;
 
-  private final IntObjectMap<Subscription> sendingSubscriptions;
-  private final IntObjectMap<Processor<Payload, Payload>> channelProcessors;
+  private final ConcurrentIntObjectHashMap<Subscription> sendingSubscriptions;
+  private final ConcurrentIntObjectHashMap<Processor<Payload, Payload>> channelProcessors;
+  private final ConcurrentIntObjectHashMap<UnboundedProcessor<ByteBuf>> chunkReceivers;
 
   private final UnboundedProcessor<ByteBuf> sendProcessor;
   private final ByteBufAllocator allocator;
@@ -95,20 +104,37 @@ class RSocketResponder implements RSocket {
       PayloadDecoder payloadDecoder,
       ResponderLeaseHandler leaseHandler,
       int mtu) {
+    this(connection, requestHandler, payloadDecoder, leaseHandler, mtu, 0);
+  }
+
+  RSocketResponder(
+      DuplexConnection connection,
+      RSocket requestHandler,
+      PayloadDecoder payloadDecoder,
+      ResponderLeaseHandler leaseHandler,
+      int mtu,
+      int maxContiguousFrameSize) {
     this.connection = connection;
     this.allocator = connection.alloc();
     this.mtu = mtu;
+    this.maxContiguousFrameSize = maxContiguousFrameSize;
+    this.payloadReferences = connection.supportsPayloadReferences();
 
     this.requestHandler = requestHandler;
     this.responderRSocket =
         (requestHandler instanceof io.rsocket.ResponderRSocket)
             ? (io.rsocket.ResponderRSocket) requestHandler
             : null;
+    this.chunkedResponderRSocket =
+        (requestHandler instanceof ChunkedResponderRSocket)
+            ? (ChunkedResponderRSocket) requestHandler
+            : null;
 
     this.payloadDecoder = payloadDecoder;
     this.leaseHandler = leaseHandler;
-    this.sendingSubscriptions = new SynchronizedIntObjectHashMap<>();
-    this.channelProcessors = new SynchronizedIntObjectHashMap<>();
+    this.sendingSubscriptions = new ConcurrentIntObjectHashMap<>();
+    this.channelProcessors = new ConcurrentIntObjectHashMap<>();
+    this.chunkReceivers = new ConcurrentIntObjectHashMap<>();
 
     // DO NOT Change the order here. The Send processor must be subscribed to before receiving
     // connections
@@ -150,6 +176,8 @@ private void handleSendProcessorError(Throwable t) {
                 }
               }
             });
+
+    cleanUpChunkReceivers(t);
   }
 
   private void tryTerminateOnConnectionError(Throwable e) {
@@ -173,7 +201,10 @@ private void tryTerminate(Supplier<Throwable> errorSupplier) {
   public Mono<Void> fireAndForget(Payload payload) {
     try {
       if (leaseHandler.useLease()) {
-        return requestHandler.fireAndForget(payload);
+        if (payload instanceof ChunkedPayload) {
+          return leaseHandler.track(fireAndForget((ChunkedPayload) payload));
+        }
+        return leaseHandler.track(requestHandler.fireAndForget(payload));
       } else {
         payload.release();
         return Mono.error(leaseHandler.leaseError());
@@ -187,7 +218,10 @@ public Mono<Void> fireAndForget(Payload payload) {
   public Mono<Payload> requestResponse(Payload payload) {
     try {
       if (leaseHandler.useLease()) {
-        return requestHandler.requestResponse(payload);
+        if (payload instanceof ChunkedPayload) {
+          return leaseHandler.track(requestResponse((ChunkedPayload) payload));
+        }
+        return leaseHandler.track(requestHandler.requestResponse(payload));
       } else {
         payload.release();
         return Mono.error(leaseHandler.leaseError());
@@ -201,7 +235,10 @@ public Mono<Payload> requestResponse(Payload payload) {
   public Flux<Payload> requestStream(Payload payload) {
     try {
       if (leaseHandler.useLease()) {
-        return requestHandler.requestStream(payload);
+        if (payload instanceof ChunkedPayload) {
+          return leaseHandler.track(requestStream((ChunkedPayload) payload));
+        }
+        return leaseHandler.track(requestHandler.requestStream(payload));
       } else {
         payload.release();
         return Flux.error(leaseHandler.leaseError());
@@ -215,7 +252,7 @@ public Flux<Payload> requestStream(Payload payload) {
   public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
     try {
       if (leaseHandler.useLease()) {
-        return requestHandler.requestChannel(payloads);
+        return leaseHandler.track(requestHandler.requestChannel(payloads));
       } else {
         return Flux.error(leaseHandler.leaseError());
       }
@@ -224,10 +261,35 @@ public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
     }
   }
 
+  /*
+   * a chunked request goes to a handler that takes chunks, and is aggregated for any other, which
+   * never sees a chunked payload
+   */
+  private Mono<Void> fireAndForget(ChunkedPayload payload) {
+    ChunkedResponderRSocket handler = chunkedResponderRSocket;
+    return handler != null
+        ? handler.fireAndForget(payload)
+        : payload.aggregate().flatMap(requestHandler::fireAndForget);
+  }
+
+  private Mono<Payload> requestResponse(ChunkedPayload payload) {
+    ChunkedResponderRSocket handler = chunkedResponderRSocket;
+    return handler != null
+        ? handler.requestResponse(payload)
+        : payload.aggregate().flatMap(requestHandler::requestResponse);
+  }
+
+  private Flux<Payload> requestStream(ChunkedPayload payload) {
+    ChunkedResponderRSocket handler = chunkedResponderRSocket;
+    return handler != null
+        ? handler.requestStream(payload)
+        : payload.aggregate().flatMapMany(requestHandler::requestStream);
+  }
+
   private Flux<Payload> requestChannel(Payload payload, Publisher<Payload> payloads) {
     try {
       if (leaseHandler.useLease()) {
-        return responderRSocket.requestChannel(payload, payloads);
+        return leaseHandler.track(responderRSocket.requestChannel(payload, payloads));
       } else {
         payload.release();
         return Flux.error(leaseHandler.leaseError());
@@ -264,6 +326,7 @@ public Mono<Void> onClose() {
   private void cleanup(Throwable e) {
     cleanUpSendingSubscriptions();
     cleanUpChannelProcessors(e);
+    cleanUpChunkReceivers(e);
 
     connection.dispose();
     leaseHandlerDisposable.dispose();
@@ -290,6 +353,11 @@ private synchronized void cleanUpChannelProcessors(Throwable e) {
     channelProcessors.clear();
   }
 
+  private synchronized void cleanUpChunkReceivers(Throwable e) {
+    chunkReceivers.values().forEach(chunks -> chunks.onError(e));
+    chunkReceivers.clear();
+  }
+
   private void handleFrame(ByteBuf frame) {
     try {
       int streamId = FrameHeaderCodec.streamId(frame);
@@ -297,20 +365,21 @@ private void handleFrame(ByteBuf frame) {
       FrameType frameType = FrameHeaderCodec.frameType(frame);
       switch (frameType) {
         case REQUEST_FNF:
-          handleFireAndForget(streamId, fireAndForget(payloadDecoder.apply(frame)));
+          handleFireAndForget(streamId, fireAndForget(decodeRequest(streamId, frame)));
           break;
         case REQUEST_RESPONSE:
-          handleRequestResponse(streamId, requestResponse(payloadDecoder.apply(frame)));
+          handleRequestResponse(streamId, requestResponse(decodeRequest(streamId, frame)));
           break;
         case CANCEL:
           handleCancelFrame(streamId);
+          cancelChunks(streamId, new CancellationException("Cancelled by the requester"));
           break;
         case REQUEST_N:
           handleRequestN(streamId, frame);
           break;
         case REQUEST_STREAM:
           long streamInitialRequestN = RequestStreamFrameCodec.initialRequestN(frame);
-          Payload streamPayload = payloadDecoder.apply(frame);
+          Payload streamPayload = decodeRequest(streamId, frame);
           handleStream(streamId, requestStream(streamPayload), streamInitialRequestN, null);
           break;
         case REQUEST_CHANNEL:
@@ -325,6 +394,9 @@ private void handleFrame(ByteBuf frame) {
           // TODO: Hook in receiving socket.
           break;
         case NEXT:
+          if (handleChunk(streamId, frame)) {
+            break;
+          }
           receiver = channelProcessors.get(streamId);
           if (receiver != null) {
             receiver.onNext(payloadDecoder.apply(frame));
@@ -337,12 +409,20 @@ private void handleFrame(ByteBuf frame) {
           }
           break;
         case ERROR:
+          if (frame instanceof RejectedFrame) {
+            handleRejectedFrame(streamId, (RejectedFrame) frame);
+            break;
+          }
+          cancelChunks(streamId, new ApplicationErrorException(ErrorFrameCodec.dataUtf8(frame)));
           receiver = channelProcessors.get(streamId);
           if (receiver != null) {
             receiver.onError(new ApplicationErrorException(ErrorFrameCodec.dataUtf8(frame)));
           }
           break;
         case NEXT_COMPLETE:
+          if (handleChunk(streamId, frame)) {
+            break;
+          }
           receiver = channelProcessors.get(streamId);
           if (receiver != null) {
             receiver.onNext(payloadDecoder.apply(frame));
@@ -366,6 +446,72 @@ private void handleFrame(ByteBuf frame) {
     }
   }
 
+  /**
+   * Decodes the payload of a request. The first fragment of a request that was not reassembled
+   * stands for a {@link ChunkedPayload}, whose data is emitted chunk by chunk as the following
+   * fragments arrive.
+   *
+   * <p>There is no flow control for fragments, so the chunks that the handler has not asked for yet
+   * are held up to {@link ChunkedResponderRSocket#MAX_BUFFERED_CHUNKS}, beyond which the request is
+   * rejected.
+   */
+  private Payload decodeRequest(int streamId, ByteBuf frame) {
+    Payload payload = payloadDecoder.apply(frame);
+    if (!FrameHeaderCodec.hasFollows(frame)) {
+      return payload;
+    }
+
+    UnboundedProcessor<ByteBuf> chunks = new UnboundedProcessor<>();
+    ChunkedPayload chunkedPayload =
+        ChunkedPayload.create(
+            payload.hasMetadata() ? payload.sliceMetadata().retain() : null, chunks, allocator);
+    if (payload.data().isReadable()) {
+      chunks.onNext(payload.sliceData().retain());
+    }
+    payload.release();
+    chunkReceivers.put(streamId, chunks);
+    return chunkedPayload;
+  }
+
+  private boolean handleChunk(int streamId, ByteBuf frame) {
+    UnboundedProcessor<ByteBuf> chunks = chunkReceivers.get(streamId);
+    if (chunks == null) {
+      return false;
+    }
+
+    if (chunks.size() >= ChunkedResponderRSocket.MAX_BUFFERED_CHUNKS) {
+      chunkReceivers.remove(streamId, chunks);
+      handleCancelFrame(streamId);
+      handleError(streamId, new RejectedException("Request chunks received faster than consumed"));
+      if (!chunks.isDisposed()) {
+        chunks.onError(
+            Exceptions.failWithOverflow(
+                "More than "
+                    + ChunkedResponderRSocket.MAX_BUFFERED_CHUNKS
+                    + " chunks of the request were left unconsumed"));
+      }
+      return true;
+    }
+
+    Payload payload = payloadDecoder.apply(frame);
+    if (payload.data().isReadable()) {
+      chunks.onNext(payload.sliceData().retain());
+    }
+    payload.release();
+    if (!FrameHeaderCodec.hasFollows(frame)) {
+      chunkReceivers.remove(streamId, chunks);
+      chunks.onComplete();
+    }
+    return true;
+  }
+
+  private void cancelChunks(int streamId, Throwable t) {
+    UnboundedProcessor<ByteBuf> chunks = chunkReceivers.remove(streamId);
+    if (chunks != null && !chunks.isDisposed()) {
+      chunks.onError(t);
+    }
+  }
+
   private void handleFireAndForget(int streamId, Mono<Void> result) {
     result.subscribe(
         new BaseSubscriber<Void>() {
@@ -406,7 +552,11 @@ protected void hookOnNext(Payload payload) {
             }
 
             ByteBuf byteBuf =
-                PayloadFrameCodec.encodeNextCompleteReleasingPayload(allocator, streamId, payload);
+                payloadReferences
+                    ? PayloadReferenceFrame.encode(
+                        allocator, FrameType.PAYLOAD, streamId, true, true, 0, payload)
+                    : PayloadFrameCodec.encodeNextCompleteReleasingPayload(
+                        allocator, streamId, maxContiguousFrameSize, payload);
             sendProcessor.onNext(byteBuf);
           }
 
@@ -470,7 +620,11 @@ protected void hookOnNext(Payload payload) {
               }
 
               ByteBuf byteBuf =
-                  PayloadFrameCodec.encodeNextReleasingPayload(allocator, streamId, payload);
+                  payloadReferences
+                      ? PayloadReferenceFrame.encode(
+                          allocator, FrameType.PAYLOAD, streamId, false, true, 0, payload)
+                      : PayloadFrameCodec.encodeNextReleasingPayload(
+                          allocator, streamId, maxContiguousFrameSize, payload);
               sendProcessor.onNext(byteBuf);
             } catch (Throwable e) {
               // specifically for requestChannel case so when Payload is invalid we will not be
@@ -595,6 +749,33 @@ private void handleCancelFrame(int streamId) {
     }
   }
 
+  /**
+   * Tells the peer about a frame of it that the reassembler dropped: a request is rejected, a
+   * payload of a channel cancels the rest of the channel from the peer.
+   */
+  private void handleRejectedFrame(int streamId, RejectedFrame frame) {
+    switch (frame.rejectedFrameType()) {
+      case REQUEST_FNF:
+        // a streamed request is already being handled
+        handleCancelFrame(streamId);
+        cancelChunks(streamId, new RejectedException(ErrorFrameCodec.dataUtf8(frame)));
+        break;
+      case REQUEST_RESPONSE:
+      case REQUEST_STREAM:
+      case REQUEST_CHANNEL:
+        handleCancelFrame(streamId);
+        cancelChunks(streamId, new RejectedException(ErrorFrameCodec.dataUtf8(frame)));
+        handleError(streamId, new RejectedException(ErrorFrameCodec.dataUtf8(frame)));
+        break;
+      default:
+        sendProcessor.onNext(CancelFrameCodec.encode(allocator, streamId));
+        Subscriber<Payload> receiver = channelProcessors.get(streamId);
+        if (receiver != null) {
+          receiver.onError(new CanceledException(ErrorFrameCodec.dataUtf8(frame)));
+        }
+    }
+  }
+
   private void handleError(int streamId, Throwable t) {
     sendProcessor.onNext(ErrorFrameCodec.encode(allocator, streamId, t));
   }
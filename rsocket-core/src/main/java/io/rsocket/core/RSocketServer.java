@@ -28,6 +28,7 @@
 import io.rsocket.fragmentation.FragmentationDuplexConnection;
 import io.rsocket.fragmentation.ReassemblyDuplexConnection;
 import io.rsocket.frame.FrameHeaderCodec;
+import io.rsocket.frame.FrameLengthCodec;
 import io.rsocket.frame.SetupFrameCodec;
 import io.rsocket.frame.decoder.PayloadDecoder;
 import io.rsocket.internal.ClientServerInputMultiplexer;
@@ -42,7 +43,6 @@
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 /**
  * The main class for starting an RSocket server.
@@ -66,6 +66,10 @@ public final class RSocketServer {
   private Supplier<Leases<?>> leasesSupplier = null;
 
   private int mtu = 0;
+  private int maxContiguousFrameSize = 0;
+  private int maxInboundPayloadSize = Integer.MAX_VALUE;
+  private int maxReassemblyBufferSize = Integer.MAX_VALUE;
+  private boolean streamFragmentedRequests;
   private PayloadDecoder payloadDecoder = PayloadDecoder.DEFAULT;
 
   private RSocketServer() {}
@@ -216,6 +220,88 @@ public RSocketServer fragment(int mtu) {
     return this;
   }
 
+  /**
+   * When this is set, outgoing payload frames whose encoded size is no larger than the given value
+   * are copied into a single, right-sized pooled buffer instead of being composed from separate
+   * header, metadata and data buffers. The buffer also reserves room for the frame length prefix of
+   * length-framed transports such as TCP. Larger frames are still composed without copying.
+   *
+   * <p>This trades a copy of small payloads for fewer buffer and composite allocations per frame.
+   *
+   * <p>By default this is not set in which case all payload frames are composed without copying.
+   *
+   * @param maxFrameSize the largest frame size, in bytes, to encode into a single buffer
+   * @return the same instance for method chaining
+   */
+  public RSocketServer maxContiguousFrameSize(int maxFrameSize) {
+    if (maxFrameSize <= 0 || maxFrameSize > FrameLengthCodec.FRAME_LENGTH_MASK) {
+      throw new IllegalArgumentException(
+          "maxFrameSize must be greater than 0 and no larger than "
+              + FrameLengthCodec.FRAME_LENGTH_MASK);
+    }
+    this.maxContiguousFrameSize = maxFrameSize;
+    return this;
+  }
+
+  /**
+   * Set the largest payload, metadata and data together, that the peer may send in fragments.
+   * Fragments of a payload that grows larger are released as they come. A request is rejected with
+   * an {@code ERROR} frame, any other stream is cancelled and fails with a {@link
+   * io.rsocket.exceptions.CanceledException}.
+   *
+   * <p>By default this is not set in which case payloads are reassembled whatever their size.
+   *
+   * @param maxInboundPayloadSize the largest reassembled payload, in bytes, no less than 64
+   * @return the same instance for method chaining
+   */
+  public RSocketServer maxInboundPayloadSize(int maxInboundPayloadSize) {
+    this.maxInboundPayloadSize =
+        ReassemblyDuplexConnection.assertMaxInboundPayloadSize(maxInboundPayloadSize);
+    return this;
+  }
+
+  /**
+   * Set how many bytes a connection may hold for all the payloads it is reassembling at once. The
+   * stream whose fragment would go over it is handled as with {@link #maxInboundPayloadSize(int)},
+   * while the other streams carry on.
+   *
+   * <p>By default this is not set in which case the memory held is only limited per stream.
+   *
+   * @param maxReassemblyBufferSize the most bytes held for reassembly, no less than 64
+   * @return the same instance for method chaining
+   */
+  public RSocketServer maxReassemblyBufferSize(int maxReassemblyBufferSize) {
+    this.maxReassemblyBufferSize =
+        ReassemblyDuplexConnection.assertMaxReassemblyBufferSize(maxReassemblyBufferSize);
+    return this;
+  }
+
+  /**
+   * When this is enabled, fire-and-forget, request-response and request-stream requests that arrive
+   * in fragments are not reassembled. A responder that is a {@link
+   * io.rsocket.ChunkedResponderRSocket} is handed a {@link io.rsocket.util.ChunkedPayload} as soon
+   * as the first fragment arrives, and the data of each fragment is emitted as a chunk as it lands,
+   * so a large request is never held in memory as a whole. Any other responder is handed the
+   * request aggregated once its last fragment arrives. Requests that arrive in a single frame are
+   * handled as usual.
+   *
+   * <p>A streamed request is still subject to {@link #maxInboundPayloadSize(int)} and {@link
+   * #maxReassemblyBufferSize(int)}, counting the bytes it has received until its last fragment
+   * arrives. As fragments are not subject to flow control, a handler that falls more than {@link
+   * io.rsocket.ChunkedResponderRSocket#MAX_BUFFERED_CHUNKS} chunks behind has the request rejected;
+   * this is a hard limit, so a handler that consumes chunks slowly has to buffer them itself.
+   *
+   * <p>By default this is not enabled in which case fragmented requests are reassembled before they
+   * are handed to the responder.
+   *
+   * @param streamFragmentedRequests whether to hand fragmented requests over in chunks
+   * @return the same instance for method chaining
+   */
+  public RSocketServer streamFragmentedRequests(boolean streamFragmentedRequests) {
+    this.streamFragmentedRequests = streamFragmentedRequests;
+    return this;
+  }
+
   /**
    * Configure the {@code PayloadDecoder} used to create {@link Payload}'s from incoming raw frame
    * buffers. The following decoders are available:
@@ -301,8 +387,18 @@ public Mono<Void> apply(DuplexConnection connection) {
   private Mono<Void> acceptor(ServerSetup serverSetup, DuplexConnection connection) {
     connection =
         mtu > 0
-            ? new FragmentationDuplexConnection(connection, mtu, "server")
-            : new ReassemblyDuplexConnection(connection);
+            ? new FragmentationDuplexConnection(
+                connection,
+                mtu,
+                maxInboundPayloadSize,
+                maxReassemblyBufferSize,
+                streamFragmentedRequests,
+                "server")
+            : new ReassemblyDuplexConnection(
+                connection,
+                maxInboundPayloadSize,
+                maxReassemblyBufferSize,
+                streamFragmentedRequests);
 
     ClientServerInputMultiplexer multiplexer =
         new ClientServerInputMultiplexer(connection, interceptors, false);
@@ -385,11 +481,12 @@ private Mono<Void> acceptSetup(
                   payloadDecoder,
                   StreamIdSupplier.serverSupplier(),
                   mtu,
+                  maxContiguousFrameSize,
                   setupPayload.keepAliveInterval(),
                   setupPayload.keepAliveMaxLifetime(),
                   keepAliveHandler,
                   requesterLeaseHandler,
-                  Schedulers.single(Schedulers.parallel()));
+                  SerialSchedulers.next());
 
           RSocket wrappedRSocketRequester = interceptors.initRequester(rSocketRequester);
 
@@ -418,7 +515,8 @@ private Mono<Void> acceptSetup(
                             wrappedRSocketHandler,
                             payloadDecoder,
                             responderLeaseHandler,
-                            mtu);
+                            mtu,
+                            maxContiguousFrameSize);
                   })
               .doFinally(signalType -> setupPayload.release())
               .then();
@@ -431,11 +529,13 @@ private ServerSetup serverSetup() {
 
   ServerSetup createSetup() {
     return new ServerSetup.ResumableServerSetup(
-        new SessionManager(),
-        resume.getSessionDuration(),
+        new SessionManager(resume.getMaxSessions(), resume.getSessionDuration()),
         resume.getStreamTimeout(),
         resume.getStoreFactory(SERVER_TAG),
-        resume.isCleanupStoreOnKeepAlive());
+        resume.isCleanupStoreOnKeepAlive(),
+        resume.getAcknowledgeBytes(),
+        resume.getAcknowledgeFrames(),
+        resume.getMemoryBudget());
   }
 
   private Exception rejectedSetupError(Throwable err) {
@@ -18,7 +18,9 @@
 import io.netty.buffer.ByteBuf;
 import io.rsocket.frame.ResumeFrameCodec;
 import io.rsocket.resume.InMemoryResumableFramesStore;
+import io.rsocket.resume.MappedResumableFramesStore;
 import io.rsocket.resume.ResumableFramesStore;
+import io.rsocket.resume.ResumeMemoryBudget;
 import java.time.Duration;
 import java.util.Objects;
 import java.util.function.Function;
@@ -36,11 +38,15 @@ public class Resume {
   private static final Logger logger = LoggerFactory.getLogger(Resume.class);
 
   private Duration sessionDuration = Duration.ofMinutes(2);
+  private int maxSessions = Integer.MAX_VALUE;
 
   /* Storage */
   private boolean cleanupStoreOnKeepAlive;
+  private long acknowledgeBytes;
+  private int acknowledgeFrames;
   private Function<? super ByteBuf, ? extends ResumableFramesStore> storeFactory;
   private Duration streamTimeout = Duration.ofSeconds(10);
+  private ResumeMemoryBudget memoryBudget;
 
   /* Client only */
   private Supplier<ByteBuf> tokenSupplier = ResumeFrameCodec::generateResumeToken;
@@ -66,6 +72,24 @@ public Resume sessionDuration(Duration sessionDuration) {
     return this;
   }
 
+  /**
+   * The maximum number of sessions a server keeps for resumption. When a new session does not fit,
+   * the session least recently set up or resumed is closed to make space. This setting is for use
+   * with {@link RSocketServer#resume(Resume)} on the server side only.
+   *
+   * <p>By default the number of sessions is not limited.
+   *
+   * @param maxSessions the maximum number of sessions
+   * @return the same instance for method chaining
+   */
+  public Resume maxSessions(int maxSessions) {
+    if (maxSessions <= 0) {
+      throw new IllegalArgumentException("maxSessions must be positive");
+    }
+    this.maxSessions = maxSessions;
+    return this;
+  }
+
   /**
    * When this property is enabled, hints from {@code KEEPALIVE} frames about how much data has been
    * received by the other side, is used to proactively clean frames from the {@link
@@ -81,13 +105,39 @@ public Resume cleanupStoreOnKeepAlive() {
     return this;
   }
 
+  /**
+   * Acknowledge the position received so far to the other side once the given number of resumable
+   * bytes or frames has been received since the last acknowledgement, in addition to the position
+   * sent with every {@code KEEPALIVE} frame. With {@link #cleanupStoreOnKeepAlive()} enabled on the
+   * other side, this keeps its {@link #storeFactory(Function) store} from filling up between
+   * keep-alive ticks under high throughput, and from evicting frames still needed to resume.
+   *
+   * <p>A threshold somewhat below the size of the store of the other side keeps it from filling up;
+   * lower thresholds release frames sooner at the cost of more {@code KEEPALIVE} frames. By default
+   * the position is acknowledged only at keep-alive ticks.
+   *
+   * @param bytes the number of bytes to acknowledge at once, or {@code 0} for no threshold in bytes
+   * @param frames the number of frames to acknowledge at once, or {@code 0} for no threshold in
+   *     frames
+   * @return the same instance for method chaining
+   */
+  public Resume acknowledgePositionEvery(long bytes, int frames) {
+    if (bytes < 0 || frames < 0) {
+      throw new IllegalArgumentException("thresholds must not be negative");
+    }
+    this.acknowledgeBytes = bytes;
+    this.acknowledgeFrames = frames;
+    return this;
+  }
+
   /**
    * Configure a factory to create the storage for buffering (or persisting) a window of frames that
    * may need to be sent again to resume after a dropped connection.
    *
    * <p>By default {@link InMemoryResumableFramesStore} is used with its cache size set to 100,000
    * bytes. When the cache fills up, the oldest frames are gradually removed to create space for new
-   * ones.
+   * ones. For windows too large to keep in memory, {@link MappedResumableFramesStore} keeps the
+   * frames in memory-mapped segment files instead.
    *
    * @param storeFactory the factory to use to create the store
    * @return the same instance for method chaining
@@ -98,6 +148,25 @@ public Resume storeFactory(
     return this;
   }
 
+  /**
+   * Configure a byte budget shared by the stores of all sessions, to bound the memory held for
+   * resumption however many sessions there are. When the budget runs out, the sessions disconnected
+   * for the longest time are evicted first, and otherwise the store saving a frame removes its own
+   * oldest frames. This setting is for use with {@link RSocketServer#resume(Resume)} on the server
+   * side only.
+   *
+   * <p>The budget applies to the default {@link InMemoryResumableFramesStore}. A custom {@link
+   * #storeFactory(Function) store factory} can draw from it with {@link
+   * ResumeMemoryBudget#reserve()}. By default there is no shared budget.
+   *
+   * @param memoryBudget the budget to draw from, which can also be used to export metrics
+   * @return the same instance for method chaining
+   */
+  public Resume memoryBudget(ResumeMemoryBudget memoryBudget) {
+    this.memoryBudget = Objects.requireNonNull(memoryBudget);
+    return this;
+  }
+
   /**
    * A {@link reactor.core.publisher.Flux#timeout(Duration) timeout} value to apply to the resumed
    * session stream obtained from the {@link #storeFactory(Function) store} after a reconnect. The
@@ -153,16 +222,36 @@ Duration getSessionDuration() {
     return sessionDuration;
   }
 
+  long getAcknowledgeBytes() {
+    return acknowledgeBytes;
+  }
+
+  int getAcknowledgeFrames() {
+    return acknowledgeFrames;
+  }
+
+  int getMaxSessions() {
+    return maxSessions;
+  }
+
   boolean isCleanupStoreOnKeepAlive() {
     return cleanupStoreOnKeepAlive;
   }
 
   Function<? super ByteBuf, ? extends ResumableFramesStore> getStoreFactory(String tag) {
-    return storeFactory != null
-        ? storeFactory
+    if (storeFactory != null) {
+      return storeFactory;
+    }
+    ResumeMemoryBudget memoryBudget = this.memoryBudget;
+    return memoryBudget != null
+        ? token -> new InMemoryResumableFramesStore(tag, 100_000, memoryBudget.reserve())
         : token -> new InMemoryResumableFramesStore(tag, 100_000);
   }
 
+  ResumeMemoryBudget getMemoryBudget() {
+    return memoryBudget;
+  }
+
   Duration getStreamTimeout() {
     return streamTimeout;
   }
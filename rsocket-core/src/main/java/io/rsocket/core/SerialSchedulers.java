@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rsocket.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * A bounded set of serial {@link Scheduler}s shared by all connections. Each of them runs its tasks
+ * one at a time on a single worker of {@link Schedulers#parallel()}, so a connection that is
+ * assigned one gets its work serialized without owning a scheduler or a worker of its own. The set
+ * is recreated whenever {@link Schedulers#parallel()} has been replaced, e.g. after {@link
+ * Schedulers#shutdownNow()}.
+ */
+final class SerialSchedulers {
+
+  private static final AtomicInteger INDEX = new AtomicInteger();
+
+  private static volatile Pool pool;
+
+  private SerialSchedulers() {}
+
+  /**
+   * Returns the serial scheduler for a new connection, assigning the shared ones round-robin.
+   *
+   * @return a serial scheduler shared with other connections
+   */
+  static Scheduler next() {
+    return next(Schedulers.parallel());
+  }
+
+  /* the serial scheduler for a new connection, out of a set pinned to the given scheduler */
+  static Scheduler next(Scheduler parallel) {
+    Pool p = pool(parallel);
+    return p.schedulers[(INDEX.getAndIncrement() & Integer.MAX_VALUE) % p.schedulers.length];
+  }
+
+  /**
+   * Returns the number of serial schedulers currently shared between connections.
+   *
+   * @return the size of the shared set
+   */
+  static int size() {
+    return pool(Schedulers.parallel()).schedulers.length;
+  }
+
+  private static Pool pool(Scheduler parallel) {
+    Pool p = pool;
+    if (p != null && p.parallel == parallel) {
+      return p;
+    }
+    synchronized (SerialSchedulers.class) {
+      p = pool;
+      if (p == null || p.parallel != parallel) {
+        p = new Pool(parallel, Schedulers.DEFAULT_POOL_SIZE);
+        pool = p;
+      }
+      return p;
+    }
+  }
+
+  private static final class Pool {
+    final Scheduler parallel;
+    final Scheduler[] schedulers;
+
+    Pool(Scheduler parallel, int size) {
+      this.parallel = parallel;
+      this.schedulers = new Scheduler[size];
+      for (int i = 0; i < size; i++) {
+        // each wraps its own worker, and the parallel scheduler hands workers out round-robin
+        schedulers[i] = Schedulers.single(parallel);
+      }
+    }
+  }
+}
@@ -32,6 +32,7 @@
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
 
 abstract class ServerSetup {
 
@@ -85,22 +86,28 @@ public Mono<Void> acceptRSocketResume(ByteBuf frame, ClientServerInputMultiplexe
 
   static class ResumableServerSetup extends ServerSetup {
     private final SessionManager sessionManager;
-    private final Duration resumeSessionDuration;
     private final Duration resumeStreamTimeout;
     private final Function<? super ByteBuf, ? extends ResumableFramesStore> resumeStoreFactory;
     private final boolean cleanupStoreOnKeepAlive;
+    private final long acknowledgeBytes;
+    private final int acknowledgeFrames;
+    @Nullable private final ResumeMemoryBudget memoryBudget;
 
     ResumableServerSetup(
         SessionManager sessionManager,
-        Duration resumeSessionDuration,
         Duration resumeStreamTimeout,
         Function<? super ByteBuf, ? extends ResumableFramesStore> resumeStoreFactory,
-        boolean cleanupStoreOnKeepAlive) {
+        boolean cleanupStoreOnKeepAlive,
+        long acknowledgeBytes,
+        int acknowledgeFrames,
+        @Nullable ResumeMemoryBudget memoryBudget) {
       this.sessionManager = sessionManager;
-      this.resumeSessionDuration = resumeSessionDuration;
       this.resumeStreamTimeout = resumeStreamTimeout;
       this.resumeStoreFactory = resumeStoreFactory;
       this.cleanupStoreOnKeepAlive = cleanupStoreOnKeepAlive;
+      this.acknowledgeBytes = acknowledgeBytes;
+      this.acknowledgeFrames = acknowledgeFrames;
+      this.memoryBudget = memoryBudget;
     }
 
     @Override
@@ -117,15 +124,19 @@ public Mono<Void> acceptRSocketSetup(
                 .save(
                     new ServerRSocketSession(
                         multiplexer.asClientServerConnection(),
-                        resumeSessionDuration,
+                        /*expired by the session manager*/ null,
                         resumeStreamTimeout,
                         resumeStoreFactory,
                         resumeToken,
-                        cleanupStoreOnKeepAlive))
+                        cleanupStoreOnKeepAlive,
+                        memoryBudget))
                 .resumableConnection();
+        connection.acknowledgePositionEvery(acknowledgeBytes, acknowledgeFrames);
+        ClientServerInputMultiplexer resumableMultiplexer =
+            new ClientServerInputMultiplexer(connection);
         return then.apply(
-            new ResumableKeepAliveHandler(connection),
-            new ClientServerInputMultiplexer(connection));
+            new ResumableKeepAliveHandler(connection, resumableMultiplexer, false),
+            resumableMultiplexer);
       } else {
         return then.apply(new DefaultKeepAliveHandler(multiplexer), multiplexer);
       }
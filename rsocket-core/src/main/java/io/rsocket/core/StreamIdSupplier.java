@@ -15,17 +15,34 @@
  */
 package io.rsocket.core;
 
-import io.netty.util.collection.IntObjectMap;
+import java.util.Arrays;
 
-/** This API is not thread-safe and must be strictly used in serialized fashion */
+/**
+ * Allocates stream ids and keeps track of the ones that are still in use, so that ids handed out
+ * after the counter wraps around never collide with a running stream. In-use ids are kept in a
+ * sparse bitset with one 64-bit word per block of ids that has at least one running stream, which
+ * lets allocation skip a whole block of running streams at once.
+ *
+ * <p>This API is thread-safe.
+ */
 final class StreamIdSupplier {
   private static final int MASK = 0x7FFFFFFF;
 
-  private long streamId;
+  private static final int EMPTY = -1;
+  private static final int MIN_CAPACITY = 8;
+
+  private volatile long streamId;
+
+  // sparse bitset of in-use ids, keyed by block, guarded by this
+  private int[] blocks;
+  private long[] words;
+  private int size;
 
   // Visible for testing
   StreamIdSupplier(int streamId) {
     this.streamId = streamId;
+    this.blocks = newBlocks(MIN_CAPACITY);
+    this.words = new long[MIN_CAPACITY];
   }
 
   static StreamIdSupplier clientSupplier() {
@@ -38,21 +55,156 @@ static StreamIdSupplier serverSupplier() {
 
   /**
    * This methods provides new stream id and ensures there is no intersections with already running
-   * streams. This methods is not thread-safe.
+   * streams. The returned id is considered in use until it is given back with {@link
+   * #release(int)}.
    *
-   * @param streamIds currently running streams store
    * @return next stream id
    */
-  int nextStreamId(IntObjectMap<?> streamIds) {
-    int streamId;
-    do {
-      this.streamId += 2;
-      streamId = (int) (this.streamId & MASK);
-    } while (streamId == 0 || streamIds.containsKey(streamId));
-    return streamId;
+  synchronized int nextStreamId() {
+    long next = this.streamId;
+    for (; ; ) {
+      next += 2;
+      int streamId = (int) (next & MASK);
+      if (streamId == 0) {
+        continue;
+      }
+
+      int index = streamId >>> 1;
+      int slot = slot(index >>> 6);
+      if (slot < 0) {
+        insert(~slot, index >>> 6, 1L << index);
+        this.streamId = next;
+        return streamId;
+      }
+
+      long word = words[slot];
+      // ids of the same parity sharing the block with this one, starting from this one
+      long free = ~word & (-1L << index);
+      if (free != 0) {
+        int bit = Long.numberOfTrailingZeros(free);
+        words[slot] = word | (1L << bit);
+        next += (long) (bit - (index & 63)) << 1;
+        this.streamId = next;
+        return (int) (next & MASK);
+      }
+
+      // the rest of the block is in use, move on to its last id
+      next += (long) (63 - (index & 63)) << 1;
+    }
+  }
+
+  /**
+   * Marks the given stream id as no longer in use, so that it can be handed out again once the
+   * counter wraps around.
+   *
+   * @param streamId the id of a stream that has terminated
+   */
+  synchronized void release(int streamId) {
+    int index = streamId >>> 1;
+    int slot = slot(index >>> 6);
+    if (slot < 0) {
+      return;
+    }
+    long word = words[slot] & ~(1L << index);
+    if (word == 0) {
+      remove(slot);
+    } else {
+      words[slot] = word;
+    }
+  }
+
+  // Visible for testing
+  synchronized void reserve(int streamId) {
+    int index = streamId >>> 1;
+    int slot = slot(index >>> 6);
+    if (slot < 0) {
+      insert(~slot, index >>> 6, 1L << index);
+    } else {
+      words[slot] |= 1L << index;
+    }
+  }
+
+  // Visible for testing
+  synchronized boolean isInUse(int streamId) {
+    int index = streamId >>> 1;
+    int slot = slot(index >>> 6);
+    return slot >= 0 && (words[slot] & (1L << index)) != 0;
   }
 
   boolean isBeforeOrCurrent(int streamId) {
     return this.streamId >= streamId && streamId > 0;
   }
+
+  /** Returns the slot holding the given block, or the bitwise complement of a free slot for it. */
+  private int slot(int block) {
+    final int[] blocks = this.blocks;
+    final int mask = blocks.length - 1;
+    for (int i = hash(block) & mask; ; i = (i + 1) & mask) {
+      int b = blocks[i];
+      if (b == block) {
+        return i;
+      }
+      if (b == EMPTY) {
+        return ~i;
+      }
+    }
+  }
+
+  private void insert(int slot, int block, long word) {
+    blocks[slot] = block;
+    words[slot] = word;
+    if (++size << 1 > blocks.length) {
+      rehash(blocks.length << 1);
+    }
+  }
+
+  /** Removes the given slot and shifts back the entries that probed past it. */
+  private void remove(int slot) {
+    final int[] blocks = this.blocks;
+    final long[] words = this.words;
+    final int mask = blocks.length - 1;
+    size--;
+
+    int free = slot;
+    for (int i = (slot + 1) & mask; blocks[i] != EMPTY; i = (i + 1) & mask) {
+      int home = hash(blocks[i]) & mask;
+      // move the entry back unless its home slot lies cyclically in (free, i]
+      if ((i < home && (home <= free || free <= i)) || (home <= free && free <= i)) {
+        blocks[free] = blocks[i];
+        words[free] = words[i];
+        free = i;
+      }
+    }
+    blocks[free] = EMPTY;
+    words[free] = 0;
+
+    if (size << 3 < blocks.length && blocks.length > MIN_CAPACITY) {
+      rehash(blocks.length >>> 1);
+    }
+  }
+
+  private void rehash(int capacity) {
+    final int[] oldBlocks = this.blocks;
+    final long[] oldWords = this.words;
+    this.blocks = newBlocks(capacity);
+    this.words = new long[capacity];
+    for (int i = 0; i < oldBlocks.length; i++) {
+      if (oldBlocks[i] != EMPTY) {
+        int slot = ~slot(oldBlocks[i]);
+        blocks[slot] = oldBlocks[i];
+        words[slot] = oldWords[i];
+      }
+    }
+  }
+
+  private static int[] newBlocks(int capacity) {
+    int[] blocks = new int[capacity];
+    Arrays.fill(blocks, EMPTY);
+    return blocks;
+  }
+
+  private static int hash(int block) {
+    int h = block * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
 }
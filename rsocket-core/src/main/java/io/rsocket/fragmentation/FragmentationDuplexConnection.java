@@ -43,7 +43,6 @@ public final class FragmentationDuplexConnection extends ReassemblyDuplexConnect
   private static final Logger logger = LoggerFactory.getLogger(FragmentationDuplexConnection.class);
   private final DuplexConnection delegate;
   private final int mtu;
-  private final FrameReassembler frameReassembler;
   private final String type;
 
   /**
@@ -54,15 +53,33 @@ public final class FragmentationDuplexConnection extends ReassemblyDuplexConnect
    * @param type a label to use for logging purposes
    */
   public FragmentationDuplexConnection(DuplexConnection delegate, int mtu, String type) {
-    super(delegate);
+    this(delegate, mtu, Integer.MAX_VALUE, Integer.MAX_VALUE, false, type);
+  }
+
+  /**
+   * Class constructor.
+   *
+   * @param delegate the underlying connection
+   * @param mtu the fragment size, greater than {@link #MIN_MTU_SIZE}
+   * @param maxInboundPayloadSize the largest payload a stream may reassemble, in bytes
+   * @param maxReassemblyBufferSize the most bytes held for all streams awaiting fragments
+   * @param streamFragmentedRequests whether to pass on the fragments of requests as they come
+   *     instead of reassembling them
+   * @param type a label to use for logging purposes
+   */
+  public FragmentationDuplexConnection(
+      DuplexConnection delegate,
+      int mtu,
+      int maxInboundPayloadSize,
+      int maxReassemblyBufferSize,
+      boolean streamFragmentedRequests,
+      String type) {
+    super(delegate, maxInboundPayloadSize, maxReassemblyBufferSize, streamFragmentedRequests);
 
     Objects.requireNonNull(delegate, "delegate must not be null");
     this.delegate = delegate;
     this.mtu = assertMtu(mtu);
-    this.frameReassembler = new FrameReassembler(delegate.alloc());
     this.type = type;
-
-    delegate.onClose().doFinally(s -> frameReassembler.dispose()).subscribe();
   }
 
   private boolean shouldFragment(FrameType frameType, int readableBytes) {
@@ -80,9 +97,14 @@ public static int assertMtu(int mtu) {
     }
   }
 
+  /**
+   * Sends all frames as one continuous outbound stream. Frames that need fragmenting are replaced
+   * inline by their fragments, all other frames pass straight through, so the underlying transport
+   * can keep coalescing writes as it does without fragmentation.
+   */
   @Override
   public Mono<Void> send(Publisher<ByteBuf> frames) {
-    return Flux.from(frames).concatMap(this::sendOne).then();
+    return delegate.send(Flux.from(frames).concatMap(this::fragment));
   }
 
   @Override
@@ -92,6 +114,20 @@ public Mono<Void> sendOne(ByteBuf frame) {
     if (!shouldFragment(frameType, readableBytes)) {
       return delegate.sendOne(frame);
     }
+    return delegate.send(fragments(frame, frameType));
+  }
+
+  private Publisher<ByteBuf> fragment(ByteBuf frame) {
+    FrameType frameType = FrameHeaderCodec.frameType(frame);
+    int readableBytes = frame.readableBytes();
+    if (!shouldFragment(frameType, readableBytes)) {
+      // a scalar inner is emitted directly by concatMap, without an inner subscription
+      return Mono.just(frame);
+    }
+    return fragments(frame, frameType);
+  }
+
+  private Flux<ByteBuf> fragments(ByteBuf frame, FrameType frameType) {
     Flux<ByteBuf> fragments = Flux.from(fragmentFrame(alloc(), mtu, frame, frameType));
     if (logger.isDebugEnabled()) {
       fragments =
@@ -105,6 +141,6 @@ public Mono<Void> sendOne(ByteBuf frame) {
                     ByteBufUtil.prettyHexDump(byteBuf));
               });
     }
-    return delegate.send(fragments);
+    return fragments;
   }
 }
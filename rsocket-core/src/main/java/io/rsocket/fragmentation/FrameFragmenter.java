@@ -45,6 +45,8 @@ static Publisher<ByteBuf> fragmentFrame(
     ByteBuf metadata = getMetadata(frame, frameType);
     ByteBuf data = getData(frame, frameType);
     int streamId = FrameHeaderCodec.streamId(frame);
+    // a frame that is itself a fragment keeps following up to its last piece
+    boolean follows = FrameHeaderCodec.hasFollows(frame);
     return Flux.generate(
             new Consumer<SynchronousSink<ByteBuf>>() {
               boolean first = true;
@@ -58,7 +60,8 @@ public void accept(SynchronousSink<ByteBuf> sink) {
                       encodeFirstFragment(
                           allocator, mtu, frame, frameType, streamId, metadata, data);
                 } else {
-                  byteBuf = encodeFollowsFragment(allocator, mtu, streamId, metadata, data);
+                  byteBuf =
+                      encodeFollowsFragment(allocator, mtu, streamId, follows, metadata, data);
                 }
 
                 sink.next(byteBuf);
@@ -148,7 +151,12 @@ static ByteBuf encodeFirstFragment(
   }
 
   static ByteBuf encodeFollowsFragment(
-      ByteBufAllocator allocator, int mtu, int streamId, ByteBuf metadata, ByteBuf data) {
+      ByteBufAllocator allocator,
+      int mtu,
+      int streamId,
+      boolean follows,
+      ByteBuf metadata,
+      ByteBuf data) {
     // subtract the header bytes
     int remaining = mtu - FrameHeaderCodec.size();
 
@@ -167,9 +175,14 @@ static ByteBuf encodeFollowsFragment(
       dataFragment = data.readRetainedSlice(r);
     }
 
-    boolean follows = data.isReadable() || metadata.isReadable();
     return PayloadFrameCodec.encode(
-        allocator, streamId, follows, false, true, metadataFragment, dataFragment);
+        allocator,
+        streamId,
+        follows || data.isReadable() || metadata.isReadable(),
+        false,
+        true,
+        metadataFragment,
+        dataFragment);
   }
 
   static ByteBuf getMetadata(ByteBuf frame, FrameType frameType) {
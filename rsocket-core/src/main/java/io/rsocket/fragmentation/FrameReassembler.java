@@ -19,12 +19,15 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.collection.IntObjectMap;
+import io.rsocket.RSocketErrorException;
+import io.rsocket.exceptions.CanceledException;
+import io.rsocket.exceptions.RejectedException;
 import io.rsocket.frame.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
@@ -34,6 +37,25 @@
 /**
  * The implementation of the RSocket reassembly behavior.
  *
+ * <p>Fragments are accumulated per stream until the last one arrives. The reassembled size of a
+ * stream is limited by {@code maxInboundPayloadSize}, and the bytes held for all streams of the
+ * connection by {@code maxReassemblyBufferSize}, which counts the capacity allocated for them
+ * rather than the bytes received so far. A stream that goes over either limit has its fragments
+ * released and the rest of them dropped. Nothing is sent to the peer from here: once the last
+ * fragment arrives, a {@link RejectedFrame} is passed on in place of the dropped frame, and the
+ * RSocket on this end rejects the request or cancels the stream.
+ *
+ * <p>Optionally, fragmented requests are not reassembled at all: their fragments are passed on as
+ * they come, for the responder to hand the data over in chunks. Such a request still counts against
+ * both limits with the bytes it has received so far, up to its last fragment, whether or not they
+ * are still held on this end, and is rejected in the same way when it goes over them.
+ *
+ * <p>Small fragments are copied into larger chunks rather than added as components of their own, so
+ * that a payload made of many fragments stays cheap to read.
+ *
+ * <p>Frames are expected to be reassembled by one thread at a time, while {@link #dispose()} may be
+ * called from any thread.
+ *
  * @see <a
  *     href="https://github.com/rsocket/rsocket/blob/master/Protocol.md#fragmentation-and-reassembly">Fragmentation
  *     and Reassembly</a>
@@ -44,37 +66,82 @@ final class FrameReassembler extends AtomicBoolean implements Disposable {
 
   private static final Logger logger = LoggerFactory.getLogger(FrameReassembler.class);
 
+  /** Fragments smaller than this are copied into a chunk instead of being added as a component. */
+  static final int MAX_COPIED_FRAGMENT_SIZE = 64 * 1024;
+
+  static final int MIN_CHUNK_SIZE = 8 * 1024;
+  static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+  static final int MAX_COMPONENTS = 1024;
+
+  /** The size of the length of the metadata in a frame that has metadata. */
+  static final int METADATA_LENGTH_SIZE = 3;
+
+  static final AtomicIntegerFieldUpdater<FrameReassembler> WIP =
+      AtomicIntegerFieldUpdater.newUpdater(FrameReassembler.class, "wip");
+
   final IntObjectMap<ByteBuf> headers;
   final IntObjectMap<CompositeByteBuf> metadata;
   final IntObjectMap<CompositeByteBuf> data;
+  final IntObjectMap<Rejection> rejected;
+  final IntObjectMap<StreamedRequest> streamed;
 
   private final ByteBufAllocator allocator;
+  private final int maxInboundPayloadSize;
+  private final int maxReassemblyBufferSize;
+  private final boolean streamRequests;
+
+  private volatile int wip;
+
+  // capacity allocated for all streams, only accessed by the reassembling thread
+  long bufferedBytes;
 
   public FrameReassembler(ByteBufAllocator allocator) {
+    this(allocator, Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Class constructor.
+   *
+   * @param allocator the allocator for reassembled frames
+   * @param maxInboundPayloadSize the largest reassembled payload, metadata and data, of a stream
+   * @param maxReassemblyBufferSize the most bytes held for all streams awaiting fragments
+   */
+  public FrameReassembler(
+      ByteBufAllocator allocator, int maxInboundPayloadSize, int maxReassemblyBufferSize) {
+    this(allocator, maxInboundPayloadSize, maxReassemblyBufferSize, false);
+  }
+
+  /**
+   * Class constructor.
+   *
+   * @param allocator the allocator for reassembled frames
+   * @param maxInboundPayloadSize the largest reassembled payload, metadata and data, of a stream
+   * @param maxReassemblyBufferSize the most bytes held for all streams awaiting fragments
+   * @param streamRequests whether to pass on the fragments of requests instead of reassembling them
+   */
+  public FrameReassembler(
+      ByteBufAllocator allocator,
+      int maxInboundPayloadSize,
+      int maxReassemblyBufferSize,
+      boolean streamRequests) {
+    this.streamRequests = streamRequests;
     this.allocator = allocator;
+    this.maxInboundPayloadSize = maxInboundPayloadSize;
+    this.maxReassemblyBufferSize = maxReassemblyBufferSize;
     this.headers = new IntObjectHashMap<>();
     this.metadata = new IntObjectHashMap<>();
     this.data = new IntObjectHashMap<>();
+    this.rejected = new IntObjectHashMap<>();
+    this.streamed = new IntObjectHashMap<>();
   }
 
   @Override
   public void dispose() {
     if (compareAndSet(false, true)) {
-      synchronized (FrameReassembler.this) {
-        for (ByteBuf byteBuf : headers.values()) {
-          ReferenceCountUtil.safeRelease(byteBuf);
-        }
-        headers.clear();
-
-        for (ByteBuf byteBuf : metadata.values()) {
-          ReferenceCountUtil.safeRelease(byteBuf);
-        }
-        metadata.clear();
-
-        for (ByteBuf byteBuf : data.values()) {
-          ReferenceCountUtil.safeRelease(byteBuf);
-        }
-        data.clear();
+      // leaves wip above zero for good, whoever brings it there releases the buffers
+      if (WIP.getAndIncrement(this) == 0) {
+        releaseAll();
       }
     }
   }
@@ -84,156 +151,183 @@ public boolean isDisposed() {
     return get();
   }
 
-  @Nullable
-  synchronized ByteBuf getHeader(int streamId) {
-    return headers.get(streamId);
+  private void releaseAll() {
+    for (ByteBuf byteBuf : headers.values()) {
+      ReferenceCountUtil.safeRelease(byteBuf);
+    }
+    headers.clear();
+
+    for (ByteBuf byteBuf : metadata.values()) {
+      ReferenceCountUtil.safeRelease(byteBuf);
+    }
+    metadata.clear();
+
+    for (ByteBuf byteBuf : data.values()) {
+      ReferenceCountUtil.safeRelease(byteBuf);
+    }
+    data.clear();
+
+    rejected.clear();
+    streamed.clear();
+    bufferedBytes = 0;
   }
 
-  synchronized CompositeByteBuf getMetadata(int streamId) {
+  CompositeByteBuf getMetadata(int streamId) {
     CompositeByteBuf byteBuf = metadata.get(streamId);
 
     if (byteBuf == null) {
-      byteBuf = allocator.compositeBuffer();
+      byteBuf = allocator.compositeBuffer(MAX_COMPONENTS);
       metadata.put(streamId, byteBuf);
     }
 
     return byteBuf;
   }
 
-  synchronized CompositeByteBuf getData(int streamId) {
+  CompositeByteBuf getData(int streamId) {
     CompositeByteBuf byteBuf = data.get(streamId);
 
     if (byteBuf == null) {
-      byteBuf = allocator.compositeBuffer();
+      byteBuf = allocator.compositeBuffer(MAX_COMPONENTS);
       data.put(streamId, byteBuf);
     }
 
     return byteBuf;
   }
 
-  @Nullable
-  synchronized ByteBuf removeHeader(int streamId) {
-    return headers.remove(streamId);
-  }
-
-  @Nullable
-  synchronized CompositeByteBuf removeMetadata(int streamId) {
-    return metadata.remove(streamId);
-  }
-
-  @Nullable
-  synchronized CompositeByteBuf removeData(int streamId) {
-    return data.remove(streamId);
-  }
-
-  synchronized void putHeader(int streamId, ByteBuf header) {
-    headers.put(streamId, header);
-  }
-
   void cancelAssemble(int streamId) {
-    ByteBuf header = removeHeader(streamId);
-    CompositeByteBuf metadata = removeMetadata(streamId);
-    CompositeByteBuf data = removeData(streamId);
+    ByteBuf header = headers.remove(streamId);
+    CompositeByteBuf metadata = this.metadata.remove(streamId);
+    CompositeByteBuf data = this.data.remove(streamId);
+    rejected.remove(streamId);
+    StreamedRequest request = streamed.remove(streamId);
+    if (request != null) {
+      bufferedBytes -= request.receivedBytes;
+    }
 
     if (header != null) {
       ReferenceCountUtil.safeRelease(header);
     }
 
     if (metadata != null) {
+      bufferedBytes -= metadata.capacity();
       ReferenceCountUtil.safeRelease(metadata);
     }
 
     if (data != null) {
+      bufferedBytes -= data.capacity();
       ReferenceCountUtil.safeRelease(data);
     }
   }
 
   void handleNoFollowsFlag(ByteBuf frame, SynchronousSink<ByteBuf> sink, int streamId) {
-    ByteBuf header = removeHeader(streamId);
-    if (header != null) {
-      if (FrameHeaderCodec.hasMetadata(header)) {
-        ByteBuf assembledFrame = assembleFrameWithMetadata(frame, streamId, header);
-        sink.next(assembledFrame);
+    Rejection rejection = rejected.remove(streamId);
+    if (rejection != null) {
+      rejection.dropped(PayloadFrameCodec.metadata(frame), PayloadFrameCodec.data(frame));
+      frame.release();
+      sink.next(rejection.frame(allocator, streamId));
+      return;
+    }
+
+    ByteBuf header = headers.get(streamId);
+    if (header == null) {
+      sink.next(frame);
+      return;
+    }
+
+    ByteBuf fragmentMetadata = PayloadFrameCodec.metadata(frame);
+    ByteBuf fragmentData = PayloadFrameCodec.data(frame);
+    if (exceedsLimits(streamId, fragmentMetadata, fragmentData)) {
+      rejection = reject(streamId, fragmentMetadata, fragmentData);
+      frame.release();
+      sink.next(rejection.frame(allocator, streamId));
+      return;
+    }
+
+    headers.remove(streamId);
+    CompositeByteBuf cm = metadata.remove(streamId);
+    CompositeByteBuf cd = data.remove(streamId);
+    bufferedBytes -= capacity(cm) + capacity(cd);
+
+    ByteBuf data;
+    if (cd != null) {
+      append(cd, fragmentData);
+      data = cd;
+    } else {
+      data = fragmentData.retain();
+    }
+
+    if (FrameHeaderCodec.hasMetadata(header)) {
+      ByteBuf metadata;
+      if (fragmentMetadata != null) {
+        if (cm != null) {
+          append(cm, fragmentMetadata);
+          metadata = cm;
+        } else {
+          metadata = fragmentMetadata.retain();
+        }
       } else {
-        ByteBuf data = assembleData(frame, streamId);
-        ByteBuf assembledFrame = FragmentationCodec.encode(allocator, header, data);
-        sink.next(assembledFrame);
+        metadata = cm;
       }
-      frame.release();
+      sink.next(FragmentationCodec.encode(allocator, header, metadata, data));
     } else {
-      sink.next(frame);
+      if (cm != null) {
+        cm.release();
+      }
+      sink.next(FragmentationCodec.encode(allocator, header, data));
     }
+    frame.release();
   }
 
-  void handleFollowsFlag(ByteBuf frame, int streamId, FrameType frameType) {
-    ByteBuf header = getHeader(streamId);
+  void handleFollowsFlag(
+      ByteBuf frame, SynchronousSink<ByteBuf> sink, int streamId, FrameType frameType) {
+    Rejection rejection = rejected.get(streamId);
+    if (rejection != null) {
+      rejection.dropped(
+          FrameHeaderCodec.hasMetadata(frame) ? fragmentMetadata(frame, frameType) : null,
+          fragmentData(frame, frameType));
+      frame.release();
+      return;
+    }
+
+    ByteBuf header = headers.get(streamId);
     if (header == null) {
       header = frame.copy(frame.readerIndex(), FrameHeaderCodec.size());
+      // the reassembled frame is a whole one
+      header.setShort(Integer.BYTES, header.getShort(Integer.BYTES) & ~FrameHeaderCodec.FLAGS_F);
 
       if (frameType == FrameType.REQUEST_CHANNEL || frameType == FrameType.REQUEST_STREAM) {
         long i = RequestChannelFrameCodec.initialRequestN(frame);
         header.writeInt(i > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) i);
       }
-      putHeader(streamId, header);
+      headers.put(streamId, header);
     }
 
-    if (FrameHeaderCodec.hasMetadata(frame)) {
-      CompositeByteBuf metadata = getMetadata(streamId);
-      switch (frameType) {
-        case REQUEST_FNF:
-          metadata.addComponents(true, RequestFireAndForgetFrameCodec.metadata(frame).retain());
-          break;
-        case REQUEST_STREAM:
-          metadata.addComponents(true, RequestStreamFrameCodec.metadata(frame).retain());
-          break;
-        case REQUEST_RESPONSE:
-          metadata.addComponents(true, RequestResponseFrameCodec.metadata(frame).retain());
-          break;
-        case REQUEST_CHANNEL:
-          metadata.addComponents(true, RequestChannelFrameCodec.metadata(frame).retain());
-          break;
-          // Payload and synthetic types
-        case PAYLOAD:
-        case NEXT:
-        case NEXT_COMPLETE:
-        case COMPLETE:
-          metadata.addComponents(true, PayloadFrameCodec.metadata(frame).retain());
-          break;
-        default:
-          throw new IllegalStateException("unsupported fragment type");
-      }
-    }
+    ByteBuf fragmentMetadata =
+        FrameHeaderCodec.hasMetadata(frame) ? fragmentMetadata(frame, frameType) : null;
+    ByteBuf fragmentData = fragmentData(frame, frameType);
 
-    ByteBuf data;
-    switch (frameType) {
-      case REQUEST_FNF:
-        data = RequestFireAndForgetFrameCodec.data(frame).retain();
-        break;
-      case REQUEST_STREAM:
-        data = RequestStreamFrameCodec.data(frame).retain();
-        break;
-      case REQUEST_RESPONSE:
-        data = RequestResponseFrameCodec.data(frame).retain();
-        break;
-      case REQUEST_CHANNEL:
-        data = RequestChannelFrameCodec.data(frame).retain();
-        break;
-        // Payload and synthetic types
-      case PAYLOAD:
-      case NEXT:
-      case NEXT_COMPLETE:
-      case COMPLETE:
-        data = PayloadFrameCodec.data(frame).retain();
-        break;
-      default:
-        throw new IllegalStateException("unsupported fragment type");
+    if (exceedsLimits(streamId, fragmentMetadata, fragmentData)) {
+      // drops the remaining fragments, up to the last one
+      rejected.put(streamId, reject(streamId, fragmentMetadata, fragmentData));
+      frame.release();
+      return;
     }
 
-    getData(streamId).addComponents(true, data);
+    if (fragmentMetadata != null) {
+      buffer(getMetadata(streamId), fragmentMetadata);
+    }
+    buffer(getData(streamId), fragmentData);
     frame.release();
   }
 
   void reassembleFrame(ByteBuf frame, SynchronousSink<ByteBuf> sink) {
+    if (WIP.getAndIncrement(this) != 0) {
+      // disposed, and whoever brought wip above zero releases the buffers
+      frame.release();
+      WIP.decrementAndGet(this);
+      return;
+    }
+
     try {
       FrameType frameType = FrameHeaderCodec.frameType(frame);
       int streamId = FrameHeaderCodec.streamId(frame);
@@ -245,53 +339,274 @@ void reassembleFrame(ByteBuf frame, SynchronousSink<ByteBuf> sink) {
 
       if (!frameType.isFragmentable()) {
         sink.next(frame);
-        return;
-      }
-
-      boolean hasFollows = FrameHeaderCodec.hasFollows(frame);
-
-      if (hasFollows) {
-        handleFollowsFlag(frame, streamId, frameType);
+      } else if (isStreamed(frame, streamId, frameType)) {
+        handleStreamed(frame, sink, streamId, frameType);
+      } else if (FrameHeaderCodec.hasFollows(frame)) {
+        handleFollowsFlag(frame, sink, streamId, frameType);
       } else {
         handleNoFollowsFlag(frame, sink, streamId);
       }
-
     } catch (Throwable t) {
       logger.error("error reassemble frame", t);
       sink.error(t);
     }
+
+    if (WIP.decrementAndGet(this) != 0) {
+      // disposed while reassembling
+      releaseAll();
+    }
   }
 
-  private ByteBuf assembleFrameWithMetadata(ByteBuf frame, int streamId, ByteBuf header) {
-    ByteBuf metadata;
-    CompositeByteBuf cm = removeMetadata(streamId);
+  /**
+   * Tells whether the given fragment is to be passed on as it is, which is the case for every
+   * fragment of a request when requests are streamed.
+   */
+  private boolean isStreamed(ByteBuf frame, int streamId, FrameType frameType) {
+    if (streamed.containsKey(streamId)) {
+      return true;
+    }
 
-    ByteBuf decodedMetadata = PayloadFrameCodec.metadata(frame);
-    if (decodedMetadata != null) {
-      if (cm != null) {
-        metadata = cm.addComponents(true, decodedMetadata.retain());
-      } else {
-        metadata = PayloadFrameCodec.metadata(frame).retain();
+    if (streamRequests && FrameHeaderCodec.hasFollows(frame) && !headers.containsKey(streamId)) {
+      switch (frameType) {
+        case REQUEST_FNF:
+        case REQUEST_RESPONSE:
+        case REQUEST_STREAM:
+          streamed.put(streamId, new StreamedRequest(frameType));
+          return true;
+        default:
       }
-    } else {
-      metadata = cm;
     }
+    return false;
+  }
+
+  /**
+   * Passes on a fragment of a streamed request, unless the request goes over the limits. The
+   * fragments of a rejected request are dropped, and the last one is replaced by a {@link
+   * RejectedFrame} that counts as all the dropped fragments.
+   */
+  private void handleStreamed(
+      ByteBuf frame, SynchronousSink<ByteBuf> sink, int streamId, FrameType frameType) {
+    StreamedRequest request = streamed.get(streamId);
+    boolean last = !FrameHeaderCodec.hasFollows(frame);
+
+    if (request.rejection == null) {
+      int fragmentSize =
+          readableBytes(
+                  FrameHeaderCodec.hasMetadata(frame) ? fragmentMetadata(frame, frameType) : null)
+              + fragmentData(frame, frameType).readableBytes();
+      if (request.receivedBytes + fragmentSize <= maxInboundPayloadSize
+          && bufferedBytes + fragmentSize <= maxReassemblyBufferSize) {
+        request.receivedBytes += fragmentSize;
+        bufferedBytes += fragmentSize;
+        if (last) {
+          streamed.remove(streamId);
+          bufferedBytes -= request.receivedBytes;
+        }
+        sink.next(frame);
+        return;
+      }
 
-    ByteBuf data = assembleData(frame, streamId);
+      bufferedBytes -= request.receivedBytes;
+      request.receivedBytes = 0;
+      request.rejection = new Rejection(request.frameType, limitsMessage(streamId), 0);
+    }
 
-    return FragmentationCodec.encode(allocator, header, metadata, data);
+    request.rejection.frameLength += frame.readableBytes();
+    frame.release();
+    if (last) {
+      streamed.remove(streamId);
+      sink.next(request.rejection.frame(allocator, streamId));
+    }
   }
 
-  private ByteBuf assembleData(ByteBuf frame, int streamId) {
-    ByteBuf data;
-    CompositeByteBuf cd = removeData(streamId);
-    if (cd != null) {
-      cd.addComponents(true, PayloadFrameCodec.data(frame).retain());
-      data = cd;
+  private boolean exceedsLimits(
+      int streamId, @Nullable ByteBuf fragmentMetadata, ByteBuf fragmentData) {
+    CompositeByteBuf cm = metadata.get(streamId);
+    CompositeByteBuf cd = data.get(streamId);
+    long streamSize =
+        readableBytes(cm)
+            + readableBytes(cd)
+            + readableBytes(fragmentMetadata)
+            + fragmentData.readableBytes();
+    long growth = growth(cm, fragmentMetadata) + growth(cd, fragmentData);
+    return streamSize > maxInboundPayloadSize || bufferedBytes + growth > maxReassemblyBufferSize;
+  }
+
+  /**
+   * Releases what was reassembled so far for the given stream, and returns what is needed to stand
+   * for the dropped frame once its last fragment arrives. The type of the first fragment tells
+   * which side started the stream.
+   */
+  private Rejection reject(int streamId, @Nullable ByteBuf fragmentMetadata, ByteBuf fragmentData) {
+    ByteBuf header = headers.get(streamId);
+    Rejection rejection =
+        new Rejection(
+            FrameHeaderCodec.frameType(header),
+            limitsMessage(streamId),
+            header.readableBytes()
+                + (FrameHeaderCodec.hasMetadata(header) ? METADATA_LENGTH_SIZE : 0)
+                + readableBytes(metadata.get(streamId))
+                + readableBytes(data.get(streamId)));
+    rejection.dropped(fragmentMetadata, fragmentData);
+    cancelAssemble(streamId);
+    return rejection;
+  }
+
+  private String limitsMessage(int streamId) {
+    return "Reassembled payload of stream "
+        + streamId
+        + " exceeds the limit of "
+        + maxInboundPayloadSize
+        + " bytes per stream or "
+        + maxReassemblyBufferSize
+        + " bytes per connection";
+  }
+
+  /* appends a fragment to the buffer of a stream, counting the capacity it grows by */
+  private void buffer(CompositeByteBuf composite, ByteBuf fragment) {
+    int capacity = composite.capacity();
+    append(composite, fragment);
+    bufferedBytes += composite.capacity() - capacity;
+  }
+
+  /**
+   * Appends a fragment to the reassembled buffer. Small fragments are copied into a chunk at the
+   * end of it, which grows with the buffer up to {@link #MAX_CHUNK_SIZE}; larger ones are retained
+   * and added as they are.
+   */
+  private static void append(CompositeByteBuf composite, ByteBuf fragment) {
+    int length = fragment.readableBytes();
+    if (length < MAX_COPIED_FRAGMENT_SIZE) {
+      if (composite.writableBytes() < length) {
+        composite.capacity(composite.writerIndex() + chunkSize(composite.writerIndex(), length));
+      }
+      composite.writeBytes(fragment, fragment.readerIndex(), length);
+    } else {
+      if (composite.writableBytes() > 0) {
+        // drops what is left of the last chunk, the fragment has to follow the written bytes
+        composite.capacity(composite.writerIndex());
+      }
+      composite.addComponent(true, fragment.retain());
+    }
+  }
+
+  /* the capacity the given buffer grows by once the fragment is appended, as done by append */
+  private static int growth(@Nullable CompositeByteBuf composite, @Nullable ByteBuf fragment) {
+    if (fragment == null) {
+      return 0;
+    }
+    int length = fragment.readableBytes();
+    int writerIndex = composite == null ? 0 : composite.writerIndex();
+    int capacity = composite == null ? 0 : composite.capacity();
+    if (length < MAX_COPIED_FRAGMENT_SIZE) {
+      return capacity - writerIndex >= length
+          ? 0
+          : writerIndex + chunkSize(writerIndex, length) - capacity;
     } else {
-      data = Unpooled.EMPTY_BUFFER;
+      return writerIndex + length - capacity;
     }
+  }
+
+  /* the size of the chunk added to a buffer of the given size for a fragment of the given length */
+  private static int chunkSize(int writerIndex, int length) {
+    return Math.max(length, Math.min(Math.max(writerIndex, MIN_CHUNK_SIZE), MAX_CHUNK_SIZE));
+  }
 
-    return data;
+  private static ByteBuf fragmentMetadata(ByteBuf frame, FrameType frameType) {
+    switch (frameType) {
+      case REQUEST_FNF:
+        return RequestFireAndForgetFrameCodec.metadata(frame);
+      case REQUEST_STREAM:
+        return RequestStreamFrameCodec.metadata(frame);
+      case REQUEST_RESPONSE:
+        return RequestResponseFrameCodec.metadata(frame);
+      case REQUEST_CHANNEL:
+        return RequestChannelFrameCodec.metadata(frame);
+        // Payload and synthetic types
+      case PAYLOAD:
+      case NEXT:
+      case NEXT_COMPLETE:
+      case COMPLETE:
+        return PayloadFrameCodec.metadata(frame);
+      default:
+        throw new IllegalStateException("unsupported fragment type");
+    }
+  }
+
+  private static ByteBuf fragmentData(ByteBuf frame, FrameType frameType) {
+    switch (frameType) {
+      case REQUEST_FNF:
+        return RequestFireAndForgetFrameCodec.data(frame);
+      case REQUEST_STREAM:
+        return RequestStreamFrameCodec.data(frame);
+      case REQUEST_RESPONSE:
+        return RequestResponseFrameCodec.data(frame);
+      case REQUEST_CHANNEL:
+        return RequestChannelFrameCodec.data(frame);
+        // Payload and synthetic types
+      case PAYLOAD:
+      case NEXT:
+      case NEXT_COMPLETE:
+      case COMPLETE:
+        return PayloadFrameCodec.data(frame);
+      default:
+        throw new IllegalStateException("unsupported fragment type");
+    }
+  }
+
+  private static int readableBytes(@Nullable ByteBuf byteBuf) {
+    return byteBuf == null ? 0 : byteBuf.readableBytes();
+  }
+
+  private static int capacity(@Nullable ByteBuf byteBuf) {
+    return byteBuf == null ? 0 : byteBuf.capacity();
+  }
+
+  /** A request whose fragments are passed on as they come, and the bytes it has received so far. */
+  static final class StreamedRequest {
+    final FrameType frameType;
+    long receivedBytes;
+    @Nullable Rejection rejection;
+
+    StreamedRequest(FrameType frameType) {
+      this.frameType = frameType;
+    }
+  }
+
+  /** A stream whose frame is being dropped, and the length that frame has so far. */
+  static final class Rejection {
+    final FrameType frameType;
+    final String message;
+    long frameLength;
+
+    Rejection(FrameType frameType, String message, long frameLength) {
+      this.frameType = frameType;
+      this.message = message;
+      this.frameLength = frameLength;
+    }
+
+    void dropped(@Nullable ByteBuf fragmentMetadata, ByteBuf fragmentData) {
+      frameLength += readableBytes(fragmentMetadata) + fragmentData.readableBytes();
+    }
+
+    /**
+     * Returns the frame that stands for the dropped one: a request is rejected, any other stream is
+     * cancelled.
+     */
+    ByteBuf frame(ByteBufAllocator allocator, int streamId) {
+      RSocketErrorException exception;
+      switch (frameType) {
+        case REQUEST_FNF:
+        case REQUEST_RESPONSE:
+        case REQUEST_STREAM:
+        case REQUEST_CHANNEL:
+          exception = new RejectedException(message);
+          break;
+        default:
+          exception = new CanceledException(message);
+      }
+      return new RejectedFrame(
+          ErrorFrameCodec.encode(allocator, streamId, exception), frameType, frameLength);
+    }
   }
 }
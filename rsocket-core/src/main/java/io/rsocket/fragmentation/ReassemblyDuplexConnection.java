@@ -37,13 +37,59 @@ public class ReassemblyDuplexConnection implements DuplexConnection {
 
   /** Constructor with the underlying delegate to receive frames from. */
   public ReassemblyDuplexConnection(DuplexConnection delegate) {
+    this(delegate, Integer.MAX_VALUE, Integer.MAX_VALUE, false);
+  }
+
+  /**
+   * Class constructor.
+   *
+   * @param delegate the underlying connection
+   * @param maxInboundPayloadSize the largest payload a stream may reassemble, in bytes
+   * @param maxReassemblyBufferSize the most bytes held for all streams awaiting fragments
+   * @param streamFragmentedRequests whether to pass on the fragments of requests as they come
+   *     instead of reassembling them
+   */
+  public ReassemblyDuplexConnection(
+      DuplexConnection delegate,
+      int maxInboundPayloadSize,
+      int maxReassemblyBufferSize,
+      boolean streamFragmentedRequests) {
     Objects.requireNonNull(delegate, "delegate must not be null");
     this.delegate = delegate;
-    this.frameReassembler = new FrameReassembler(delegate.alloc());
+    this.frameReassembler =
+        new FrameReassembler(
+            delegate.alloc(),
+            assertMaxInboundPayloadSize(maxInboundPayloadSize),
+            assertMaxReassemblyBufferSize(maxReassemblyBufferSize),
+            streamFragmentedRequests);
 
     delegate.onClose().doFinally(s -> frameReassembler.dispose()).subscribe();
   }
 
+  public static int assertMaxInboundPayloadSize(int maxInboundPayloadSize) {
+    if (maxInboundPayloadSize < FragmentationDuplexConnection.MIN_MTU_SIZE) {
+      String msg =
+          String.format(
+              "The smallest allowed maxInboundPayloadSize is %d bytes, provided: %d",
+              FragmentationDuplexConnection.MIN_MTU_SIZE, maxInboundPayloadSize);
+      throw new IllegalArgumentException(msg);
+    } else {
+      return maxInboundPayloadSize;
+    }
+  }
+
+  public static int assertMaxReassemblyBufferSize(int maxReassemblyBufferSize) {
+    if (maxReassemblyBufferSize < FragmentationDuplexConnection.MIN_MTU_SIZE) {
+      String msg =
+          String.format(
+              "The smallest allowed maxReassemblyBufferSize is %d bytes, provided: %d",
+              FragmentationDuplexConnection.MIN_MTU_SIZE, maxReassemblyBufferSize);
+      throw new IllegalArgumentException(msg);
+    } else {
+      return maxReassemblyBufferSize;
+    }
+  }
+
   @Override
   public Mono<Void> send(Publisher<ByteBuf> frames) {
     return delegate.send(frames);
@@ -64,6 +110,11 @@ public ByteBufAllocator alloc() {
     return delegate.alloc();
   }
 
+  @Override
+  public boolean supportsPayloadReferences() {
+    return delegate.supportsPayloadReferences();
+  }
+
   @Override
   public Mono<Void> onClose() {
     return delegate.onClose();
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.fragmentation;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DuplicatedByteBuf;
+import io.rsocket.frame.FrameType;
+
+/**
+ * An {@code ERROR} frame that was not sent by the peer. The reassembler passes it on in place of a
+ * frame it dropped for going over its limits, once the last fragment of that frame is received. It
+ * is up to the RSocket on this end to tell the peer, through its own send path, so that the frames
+ * it sends are saved for resumption like any other.
+ *
+ * <p>For resume positions, the frame counts as the dropped one, with the length that frame would
+ * have had once reassembled, so that they stay in line with the positions of the peer.
+ *
+ * <p>The frame shares the content and the reference count of the buffer it wraps.
+ */
+@SuppressWarnings("deprecation")
+public final class RejectedFrame extends DuplicatedByteBuf {
+  private final FrameType rejectedFrameType;
+  private final long rejectedFrameLength;
+
+  RejectedFrame(ByteBuf errorFrame, FrameType rejectedFrameType, long rejectedFrameLength) {
+    super(errorFrame);
+    this.rejectedFrameType = rejectedFrameType;
+    this.rejectedFrameLength = rejectedFrameLength;
+  }
+
+  /** Returns the type of the dropped frame, which tells which end started the stream. */
+  public FrameType rejectedFrameType() {
+    return rejectedFrameType;
+  }
+
+  /** Returns the length of the dropped frame, as the peer counts it in its resume position. */
+  public long rejectedFrameLength() {
+    return rejectedFrameLength;
+  }
+
+  /**
+   * Returns the length of the given frame in resume positions, which is that of the dropped frame
+   * for a {@link RejectedFrame}.
+   */
+  public static long resumableLength(ByteBuf frame) {
+    return frame instanceof RejectedFrame
+        ? ((RejectedFrame) frame).rejectedFrameLength
+        : frame.readableBytes();
+  }
+}
@@ -7,6 +7,7 @@
 
 class FrameBodyCodec {
   public static final int FRAME_LENGTH_MASK = 0xFFFFFF;
+  static final int METADATA_LENGTH_SIZE = 3;
 
   private FrameBodyCodec() {}
 
@@ -83,6 +84,22 @@ static ByteBuf encode(
     }
   }
 
+  /**
+   * Copies metadata (with its length prefix) and data into the given buffer. Unlike {@link
+   * #encode(ByteBufAllocator, ByteBuf, ByteBuf, boolean, ByteBuf)}, the given metadata and data are
+   * not released.
+   */
+  static ByteBuf encodeInto(
+      final ByteBuf byteBuf, @Nullable ByteBuf metadata, boolean hasMetadata, ByteBuf data) {
+    if (hasMetadata) {
+      int length = metadata.readableBytes();
+      encodeLength(byteBuf, length);
+      byteBuf.writeBytes(metadata, metadata.readerIndex(), length);
+    }
+
+    return byteBuf.writeBytes(data, data.readerIndex(), data.readableBytes());
+  }
+
   static ByteBuf metadataWithoutMarking(ByteBuf byteBuf) {
     int length = decodeLength(byteBuf);
     return byteBuf.readSlice(length);
@@ -51,9 +51,18 @@ public static ByteBuf encode(
       throw new IllegalStateException("bad value for metadata flag");
     }
 
+    return encode(allocator.buffer(), streamId, frameType, flags);
+  }
+
+  static ByteBuf encode(
+      final ByteBuf byteBuf, final int streamId, final FrameType frameType, int flags) {
+    if (!frameType.canHaveMetadata() && ((flags & FLAGS_M) == FLAGS_M)) {
+      throw new IllegalStateException("bad value for metadata flag");
+    }
+
     short typeAndFlags = (short) (frameType.getEncodedType() << FRAME_TYPE_SHIFT | (short) flags);
 
-    return allocator.buffer().writeInt(streamId).writeShort(typeAndFlags);
+    return byteBuf.writeInt(streamId).writeShort(typeAndFlags);
   }
 
   public static boolean hasFollows(ByteBuf byteBuf) {
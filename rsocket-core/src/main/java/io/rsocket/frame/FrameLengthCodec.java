@@ -2,6 +2,7 @@
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import reactor.util.annotation.Nullable;
 
 /**
  * Some transports like TCP aren't framed, and require a length. This is used by DuplexConnections
@@ -13,7 +14,14 @@ public class FrameLengthCodec {
 
   private FrameLengthCodec() {}
 
-  private static void encodeLength(final ByteBuf byteBuf, final int length) {
+  /**
+   * Writes the 3-byte frame length prefix to the given buffer.
+   *
+   * @param byteBuf the buffer to write the length to
+   * @param length the length of the frame that follows
+   * @throws IllegalArgumentException if the length does not fit into 24 bits
+   */
+  public static void encodeLength(final ByteBuf byteBuf, final int length) {
     if ((length & ~FRAME_LENGTH_MASK) != 0) {
       throw new IllegalArgumentException("Length is larger than 24 bits");
     }
@@ -32,11 +40,38 @@ private static int decodeLength(final ByteBuf byteBuf) {
   }
 
   public static ByteBuf encode(ByteBufAllocator allocator, int length, ByteBuf frame) {
+    ByteBuf framed = encodeReserved(length, frame);
+    if (framed != null) {
+      return framed;
+    }
     ByteBuf buffer = allocator.buffer();
     encodeLength(buffer, length);
     return allocator.compositeBuffer(2).addComponents(true, buffer, frame);
   }
 
+  /**
+   * Writes the length into the {@link #FRAME_LENGTH_SIZE} bytes reserved in front of the frame's
+   * reader index. Only frames that the codecs encoded into a single contiguous buffer, with room
+   * reserved for the length, are written into; any other buffer is left untouched.
+   *
+   * @param length the length of the frame
+   * @param frame the frame to prefix with its length, ownership of which is transferred to the
+   *     returned buffer
+   * @return a view of the frame starting at its length prefix, or {@code null} if the frame has no
+   *     room reserved for the length
+   */
+  @Nullable
+  public static ByteBuf encodeReserved(int length, ByteBuf frame) {
+    if (!(frame instanceof LengthReservedFrame) || frame.readerIndex() != FRAME_LENGTH_SIZE) {
+      return null;
+    }
+    if ((length & ~FRAME_LENGTH_MASK) != 0) {
+      throw new IllegalArgumentException("Length is larger than 24 bits");
+    }
+    frame.setMedium(0, length);
+    return frame.slice(0, length + FRAME_LENGTH_SIZE);
+  }
+
   public static int length(ByteBuf byteBuf) {
     byteBuf.markReaderIndex();
     int length = decodeLength(byteBuf);
@@ -26,6 +26,27 @@ static ByteBuf encodeReleasingPayload(
       boolean next,
       int requestN,
       final Payload payload) {
+    return encodeReleasingPayload(
+        allocator, frameType, streamId, complete, next, requestN, 0, payload);
+  }
+
+  /**
+   * Encodes a frame from the given payload and releases it.
+   *
+   * @param maxContiguousSize if the encoded frame is no larger than this, it is copied into a
+   *     single right-sized buffer with {@link FrameLengthCodec#FRAME_LENGTH_SIZE} bytes reserved in
+   *     front of it for the frame length; otherwise, or if {@code 0}, header, metadata and data are
+   *     composed without copying
+   */
+  static ByteBuf encodeReleasingPayload(
+      final ByteBufAllocator allocator,
+      final FrameType frameType,
+      final int streamId,
+      boolean complete,
+      boolean next,
+      int requestN,
+      int maxContiguousSize,
+      final Payload payload) {
 
     // if refCnt exceptions throws here it is safe to do no-op
     boolean hasMetadata = payload.hasMetadata();
@@ -53,6 +74,19 @@ static ByteBuf encodeReleasingPayload(
       throw e;
     }
 
+    if (maxContiguousSize > 0) {
+      return encodeContiguous(
+          allocator,
+          frameType,
+          streamId,
+          complete,
+          next,
+          requestN,
+          maxContiguousSize,
+          metadata,
+          data);
+    }
+
     return encode(allocator, frameType, streamId, false, complete, next, requestN, metadata, data);
   }
 
@@ -79,6 +113,68 @@ static ByteBuf encode(
 
     final boolean hasMetadata = metadata != null;
 
+    int flags = flags(hasMetadata, fragmentFollows, complete, next);
+
+    final ByteBuf header = FrameHeaderCodec.encode(allocator, streamId, frameType, flags);
+
+    if (requestN > 0) {
+      header.writeInt(requestN);
+    }
+
+    return FrameBodyCodec.encode(allocator, header, metadata, hasMetadata, data);
+  }
+
+  private static ByteBuf encodeContiguous(
+      final ByteBufAllocator allocator,
+      final FrameType frameType,
+      final int streamId,
+      boolean complete,
+      boolean next,
+      int requestN,
+      int maxContiguousSize,
+      @Nullable ByteBuf metadata,
+      ByteBuf data) {
+
+    final boolean hasMetadata = metadata != null;
+
+    int frameSize =
+        FrameHeaderCodec.size()
+            + (requestN > 0 ? Integer.BYTES : 0)
+            + (hasMetadata ? FrameBodyCodec.METADATA_LENGTH_SIZE + metadata.readableBytes() : 0)
+            + data.readableBytes();
+
+    if (frameSize > maxContiguousSize) {
+      return encode(
+          allocator, frameType, streamId, false, complete, next, requestN, metadata, data);
+    }
+
+    int flags = flags(hasMetadata, false, complete, next);
+    int capacity = FrameLengthCodec.FRAME_LENGTH_SIZE + frameSize;
+
+    final ByteBuf frame = allocator.buffer(capacity, capacity);
+    try {
+      frame.setIndex(FrameLengthCodec.FRAME_LENGTH_SIZE, FrameLengthCodec.FRAME_LENGTH_SIZE);
+      FrameHeaderCodec.encode(frame, streamId, frameType, flags);
+
+      if (requestN > 0) {
+        frame.writeInt(requestN);
+      }
+
+      FrameBodyCodec.encodeInto(frame, metadata, hasMetadata, data);
+      return new LengthReservedFrame(frame);
+    } catch (Throwable t) {
+      frame.release();
+      throw t;
+    } finally {
+      data.release();
+      if (hasMetadata) {
+        metadata.release();
+      }
+    }
+  }
+
+  private static int flags(
+      boolean hasMetadata, boolean fragmentFollows, boolean complete, boolean next) {
     int flags = 0;
 
     if (hasMetadata) {
@@ -97,16 +193,13 @@ static ByteBuf encode(
       flags |= FrameHeaderCodec.FLAGS_N;
     }
 
-    final ByteBuf header = FrameHeaderCodec.encode(allocator, streamId, frameType, flags);
-
-    if (requestN > 0) {
-      header.writeInt(requestN);
-    }
-
-    return FrameBodyCodec.encode(allocator, header, metadata, hasMetadata, data);
+    return flags;
   }
 
   static ByteBuf data(ByteBuf byteBuf) {
+    if (byteBuf instanceof PayloadReferenceFrame) {
+      return ((PayloadReferenceFrame) byteBuf).payload().sliceData();
+    }
     boolean hasMetadata = FrameHeaderCodec.hasMetadata(byteBuf);
     int idx = byteBuf.readerIndex();
     byteBuf.skipBytes(FrameHeaderCodec.size());
@@ -121,6 +214,9 @@ static ByteBuf metadata(ByteBuf byteBuf) {
     if (!hasMetadata) {
       return null;
     }
+    if (byteBuf instanceof PayloadReferenceFrame) {
+      return ((PayloadReferenceFrame) byteBuf).payload().sliceMetadata();
+    }
     byteBuf.markReaderIndex();
     byteBuf.skipBytes(FrameHeaderCodec.size());
     ByteBuf metadata = FrameBodyCodec.metadataWithoutMarking(byteBuf);
@@ -129,6 +225,9 @@ static ByteBuf metadata(ByteBuf byteBuf) {
   }
 
   static ByteBuf dataWithRequestN(ByteBuf byteBuf) {
+    if (byteBuf instanceof PayloadReferenceFrame) {
+      return ((PayloadReferenceFrame) byteBuf).payload().sliceData();
+    }
     boolean hasMetadata = FrameHeaderCodec.hasMetadata(byteBuf);
     byteBuf.markReaderIndex();
     byteBuf.skipBytes(FrameHeaderCodec.size() + Integer.BYTES);
@@ -143,6 +242,9 @@ static ByteBuf metadataWithRequestN(ByteBuf byteBuf) {
     if (!hasMetadata) {
       return null;
     }
+    if (byteBuf instanceof PayloadReferenceFrame) {
+      return ((PayloadReferenceFrame) byteBuf).payload().sliceMetadata();
+    }
     byteBuf.markReaderIndex();
     byteBuf.skipBytes(FrameHeaderCodec.size() + Integer.BYTES);
     ByteBuf metadata = FrameBodyCodec.metadataWithoutMarking(byteBuf);
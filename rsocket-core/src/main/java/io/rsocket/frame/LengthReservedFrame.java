@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.frame;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DuplicatedByteBuf;
+
+/**
+ * A frame encoded into a buffer that the encoder allocated with {@link
+ * FrameLengthCodec#FRAME_LENGTH_SIZE} bytes in front of the frame for its length. Only frames
+ * wrapped this way are ever written into by {@link FrameLengthCodec#encodeReserved(int, ByteBuf)},
+ * so buffers that merely happen to start at the same reader index are left untouched.
+ *
+ * <p>The frame shares the content and the reference count of the buffer it wraps.
+ */
+@SuppressWarnings("deprecation")
+final class LengthReservedFrame extends DuplicatedByteBuf {
+
+  LengthReservedFrame(ByteBuf frame) {
+    super(frame);
+  }
+}
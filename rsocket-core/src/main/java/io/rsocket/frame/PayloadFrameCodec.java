@@ -12,20 +12,46 @@ private PayloadFrameCodec() {}
   public static ByteBuf encodeNextReleasingPayload(
       ByteBufAllocator allocator, int streamId, Payload payload) {
 
-    return encodeReleasingPayload(allocator, streamId, false, payload);
+    return encodeReleasingPayload(allocator, streamId, false, 0, payload);
+  }
+
+  /**
+   * Variant of {@link #encodeNextReleasingPayload(ByteBufAllocator, int, Payload)} that copies the
+   * payload into a single contiguous frame buffer if the frame is no larger than {@code
+   * maxContiguousSize} bytes.
+   */
+  public static ByteBuf encodeNextReleasingPayload(
+      ByteBufAllocator allocator, int streamId, int maxContiguousSize, Payload payload) {
+
+    return encodeReleasingPayload(allocator, streamId, false, maxContiguousSize, payload);
   }
 
   public static ByteBuf encodeNextCompleteReleasingPayload(
       ByteBufAllocator allocator, int streamId, Payload payload) {
 
-    return encodeReleasingPayload(allocator, streamId, true, payload);
+    return encodeReleasingPayload(allocator, streamId, true, 0, payload);
+  }
+
+  /**
+   * Variant of {@link #encodeNextCompleteReleasingPayload(ByteBufAllocator, int, Payload)} that
+   * copies the payload into a single contiguous frame buffer if the frame is no larger than {@code
+   * maxContiguousSize} bytes.
+   */
+  public static ByteBuf encodeNextCompleteReleasingPayload(
+      ByteBufAllocator allocator, int streamId, int maxContiguousSize, Payload payload) {
+
+    return encodeReleasingPayload(allocator, streamId, true, maxContiguousSize, payload);
   }
 
   static ByteBuf encodeReleasingPayload(
-      ByteBufAllocator allocator, int streamId, boolean complete, Payload payload) {
+      ByteBufAllocator allocator,
+      int streamId,
+      boolean complete,
+      int maxContiguousSize,
+      Payload payload) {
 
     return GenericFrameCodec.encodeReleasingPayload(
-        allocator, FrameType.PAYLOAD, streamId, complete, true, payload);
+        allocator, FrameType.PAYLOAD, streamId, complete, true, 0, maxContiguousSize, payload);
   }
 
   public static ByteBuf encodeComplete(ByteBufAllocator allocator, int streamId) {
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.frame;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledHeapByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import io.rsocket.DuplexConnection;
+import io.rsocket.Payload;
+
+/**
+ * A payload frame that holds only its header, and the {@link Payload} it carries by reference
+ * instead of encoding it. The frame owns the payload and releases it when the frame itself is
+ * deallocated. Header fields are read as from any other frame, while metadata and data are read
+ * from the payload by the codecs and the {@link io.rsocket.frame.decoder.PayloadDecoder}s, which
+ * hand the payload itself over rather than decode it.
+ *
+ * <p>Such frames are only sent on connections that {@link
+ * DuplexConnection#supportsPayloadReferences() support payload references}, as their payload never
+ * makes it into the frame bytes.
+ */
+public final class PayloadReferenceFrame extends UnpooledHeapByteBuf {
+
+  private final Payload payload;
+
+  private PayloadReferenceFrame(ByteBufAllocator allocator, int capacity, Payload payload) {
+    super(allocator, capacity, capacity);
+    this.payload = payload;
+  }
+
+  /**
+   * Encodes the header of a frame for the given payload, taking ownership of the payload.
+   *
+   * @param allocator the allocator the frame reports as its own
+   * @param frameType the type of the frame, a request type or {@link FrameType#PAYLOAD}
+   * @param streamId the stream id
+   * @param complete whether the complete flag is set
+   * @param next whether the next flag is set
+   * @param requestN the initial request n, capped at {@link Integer#MAX_VALUE}, or {@code 0} if the
+   *     frame type has none
+   * @param payload the payload to carry
+   * @return the encoded frame
+   */
+  public static ByteBuf encode(
+      ByteBufAllocator allocator,
+      FrameType frameType,
+      int streamId,
+      boolean complete,
+      boolean next,
+      long requestN,
+      Payload payload) {
+    // if refCnt exceptions throws here it is safe to do no-op
+    boolean hasMetadata = payload.hasMetadata();
+    if (payload.refCnt() <= 0) {
+      throw new IllegalReferenceCountException(payload.refCnt());
+    }
+
+    int flags = 0;
+    if (hasMetadata) {
+      flags |= FrameHeaderCodec.FLAGS_M;
+    }
+    if (complete) {
+      flags |= FrameHeaderCodec.FLAGS_C;
+    }
+    if (next) {
+      flags |= FrameHeaderCodec.FLAGS_N;
+    }
+
+    int capacity = FrameHeaderCodec.size() + (requestN > 0 ? Integer.BYTES : 0);
+    PayloadReferenceFrame frame = new PayloadReferenceFrame(allocator, capacity, payload);
+    FrameHeaderCodec.encode(frame, streamId, frameType, flags);
+    if (requestN > 0) {
+      frame.writeInt(requestN > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) requestN);
+    }
+    return frame;
+  }
+
+  /**
+   * Returns the payload carried by this frame. It stays owned by the frame, so a receiver that
+   * keeps it has to retain it.
+   *
+   * @return the payload carried by this frame
+   */
+  public Payload payload() {
+    return payload;
+  }
+
+  @Override
+  protected void deallocate() {
+    try {
+      payload.release();
+    } finally {
+      super.deallocate();
+    }
+  }
+}
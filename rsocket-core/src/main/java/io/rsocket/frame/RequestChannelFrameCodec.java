@@ -15,6 +15,21 @@ public static ByteBuf encodeReleasingPayload(
       boolean complete,
       long initialRequestN,
       Payload payload) {
+    return encodeReleasingPayload(allocator, streamId, complete, initialRequestN, 0, payload);
+  }
+
+  /**
+   * Variant of {@link #encodeReleasingPayload(ByteBufAllocator, int, boolean, long, Payload)} that
+   * copies the payload into a single contiguous frame buffer if the frame is no larger than {@code
+   * maxContiguousSize} bytes.
+   */
+  public static ByteBuf encodeReleasingPayload(
+      ByteBufAllocator allocator,
+      int streamId,
+      boolean complete,
+      long initialRequestN,
+      int maxContiguousSize,
+      Payload payload) {
 
     if (initialRequestN < 1) {
       throw new IllegalArgumentException("request n is less than 1");
@@ -23,7 +38,14 @@ public static ByteBuf encodeReleasingPayload(
     int reqN = initialRequestN > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) initialRequestN;
 
     return GenericFrameCodec.encodeReleasingPayload(
-        allocator, FrameType.REQUEST_CHANNEL, streamId, complete, false, reqN, payload);
+        allocator,
+        FrameType.REQUEST_CHANNEL,
+        streamId,
+        complete,
+        false,
+        reqN,
+        maxContiguousSize,
+        payload);
   }
 
   public static ByteBuf encode(
@@ -16,6 +16,18 @@ public static ByteBuf encodeReleasingPayload(
         allocator, FrameType.REQUEST_FNF, streamId, false, false, payload);
   }
 
+  /**
+   * Variant of {@link #encodeReleasingPayload(ByteBufAllocator, int, Payload)} that copies the
+   * payload into a single contiguous frame buffer if the frame is no larger than {@code
+   * maxContiguousSize} bytes.
+   */
+  public static ByteBuf encodeReleasingPayload(
+      ByteBufAllocator allocator, int streamId, int maxContiguousSize, Payload payload) {
+
+    return GenericFrameCodec.encodeReleasingPayload(
+        allocator, FrameType.REQUEST_FNF, streamId, false, false, 0, maxContiguousSize, payload);
+  }
+
   public static ByteBuf encode(
       ByteBufAllocator allocator,
       int streamId,
@@ -11,6 +11,20 @@ private RequestStreamFrameCodec() {}
 
   public static ByteBuf encodeReleasingPayload(
       ByteBufAllocator allocator, int streamId, long initialRequestN, Payload payload) {
+    return encodeReleasingPayload(allocator, streamId, initialRequestN, 0, payload);
+  }
+
+  /**
+   * Variant of {@link #encodeReleasingPayload(ByteBufAllocator, int, long, Payload)} that copies
+   * the payload into a single contiguous frame buffer if the frame is no larger than {@code
+   * maxContiguousSize} bytes.
+   */
+  public static ByteBuf encodeReleasingPayload(
+      ByteBufAllocator allocator,
+      int streamId,
+      long initialRequestN,
+      int maxContiguousSize,
+      Payload payload) {
 
     if (initialRequestN < 1) {
       throw new IllegalArgumentException("request n is less than 1");
@@ -19,7 +33,14 @@ public static ByteBuf encodeReleasingPayload(
     int reqN = initialRequestN > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) initialRequestN;
 
     return GenericFrameCodec.encodeReleasingPayload(
-        allocator, FrameType.REQUEST_STREAM, streamId, false, false, reqN, payload);
+        allocator,
+        FrameType.REQUEST_STREAM,
+        streamId,
+        false,
+        false,
+        reqN,
+        maxContiguousSize,
+        payload);
   }
 
   public static ByteBuf encode(
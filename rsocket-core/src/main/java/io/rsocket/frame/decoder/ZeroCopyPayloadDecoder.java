@@ -7,6 +7,7 @@
 import io.rsocket.frame.FrameType;
 import io.rsocket.frame.MetadataPushFrameCodec;
 import io.rsocket.frame.PayloadFrameCodec;
+import io.rsocket.frame.PayloadReferenceFrame;
 import io.rsocket.frame.RequestChannelFrameCodec;
 import io.rsocket.frame.RequestFireAndForgetFrameCodec;
 import io.rsocket.frame.RequestResponseFrameCodec;
@@ -20,6 +21,9 @@
 public class ZeroCopyPayloadDecoder implements PayloadDecoder {
   @Override
   public Payload apply(ByteBuf byteBuf) {
+    if (byteBuf instanceof PayloadReferenceFrame) {
+      return ((PayloadReferenceFrame) byteBuf).payload().retain();
+    }
     ByteBuf m;
     ByteBuf d;
     FrameType type = FrameHeaderCodec.frameType(byteBuf);
@@ -24,6 +24,7 @@
 import io.rsocket.frame.FrameUtil;
 import io.rsocket.plugins.DuplexConnectionInterceptor.Type;
 import io.rsocket.plugins.InitializingInterceptorRegistry;
+import java.util.function.Consumer;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +55,8 @@ public class ClientServerInputMultiplexer implements Closeable {
   private final DuplexConnection clientConnection;
   private final DuplexConnection source;
   private final DuplexConnection clientServerConnection;
+  private volatile Consumer<ByteBuf> onFrameReceived;
+  private volatile Consumer<ByteBuf> onFrameSent;
 
   public ClientServerInputMultiplexer(DuplexConnection source) {
     this(source, emptyInterceptorRegistry, false);
@@ -68,17 +71,21 @@ public ClientServerInputMultiplexer(
 
     source = registry.initConnection(Type.SOURCE, source);
     setupConnection =
-        registry.initConnection(Type.SETUP, new InternalDuplexConnection(source, setup));
+        registry.initConnection(Type.SETUP, new InternalDuplexConnection(this, source, setup));
     serverConnection =
-        registry.initConnection(Type.SERVER, new InternalDuplexConnection(source, server));
+        registry.initConnection(Type.SERVER, new InternalDuplexConnection(this, source, server));
     clientConnection =
-        registry.initConnection(Type.CLIENT, new InternalDuplexConnection(source, client));
-    clientServerConnection = new InternalDuplexConnection(source, client, server);
+        registry.initConnection(Type.CLIENT, new InternalDuplexConnection(this, source, client));
+    clientServerConnection = new InternalDuplexConnection(this, source, client, server);
 
     source
         .receive()
         .groupBy(
             frame -> {
+              Consumer<ByteBuf> onFrameReceived = this.onFrameReceived;
+              if (onFrameReceived != null) {
+                onFrameReceived.accept(frame);
+              }
               int streamId = FrameHeaderCodec.streamId(frame);
               final Type type;
               if (streamId == 0) {
@@ -122,6 +129,24 @@ public ClientServerInputMultiplexer(
             t -> {});
   }
 
+  /**
+   * Sets an action run for every frame received on the connection, whatever stream it belongs to,
+   * before the frame is dispatched.
+   */
+  public ClientServerInputMultiplexer onFrameReceived(Consumer<ByteBuf> onFrameReceived) {
+    this.onFrameReceived = onFrameReceived;
+    return this;
+  }
+
+  /**
+   * Sets an action run for every frame sent on the connection by the requester, the responder or
+   * the setup of the connection.
+   */
+  public ClientServerInputMultiplexer onFrameSent(Consumer<ByteBuf> onFrameSent) {
+    this.onFrameSent = onFrameSent;
+    return this;
+  }
+
   public DuplexConnection asClientServerConnection() {
     return clientServerConnection;
   }
@@ -154,13 +179,17 @@ public Mono<Void> onClose() {
   }
 
   private static class InternalDuplexConnection implements DuplexConnection {
+    private final ClientServerInputMultiplexer multiplexer;
     private final DuplexConnection source;
     private final MonoProcessor<Flux<ByteBuf>>[] processors;
     private final boolean debugEnabled;
 
     @SafeVarargs
     public InternalDuplexConnection(
-        DuplexConnection source, MonoProcessor<Flux<ByteBuf>>... processors) {
+        ClientServerInputMultiplexer multiplexer,
+        DuplexConnection source,
+        MonoProcessor<Flux<ByteBuf>>... processors) {
+      this.multiplexer = multiplexer;
       this.source = source;
       this.processors = processors;
       this.debugEnabled = LOGGER.isDebugEnabled();
@@ -172,7 +201,7 @@ public Mono<Void> send(Publisher<ByteBuf> frame) {
         frame = Flux.from(frame).doOnNext(f -> LOGGER.debug("sending -> " + FrameUtil.toString(f)));
       }
 
-      return source.send(frame);
+      return source.send(Flux.from(frame).doOnNext(this::frameSent));
     }
 
     @Override
@@ -180,10 +209,18 @@ public Mono<Void> sendOne(ByteBuf frame) {
       if (debugEnabled) {
         LOGGER.debug("sending -> " + FrameUtil.toString(frame));
       }
+      frameSent(frame);
 
       return source.sendOne(frame);
     }
 
+    private void frameSent(ByteBuf frame) {
+      Consumer<ByteBuf> onFrameSent = multiplexer.onFrameSent;
+      if (onFrameSent != null) {
+        onFrameSent.accept(frame);
+      }
+    }
+
     @Override
     public Flux<ByteBuf> receive() {
       return Flux.fromArray(processors)
@@ -205,6 +242,11 @@ public ByteBufAllocator alloc() {
       return source.alloc();
     }
 
+    @Override
+    public boolean supportsPayloadReferences() {
+      return source.supportsPayloadReferences();
+    }
+
     @Override
     public void dispose() {
       source.dispose();
@@ -0,0 +1,467 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.internal;
+
+import static io.netty.util.internal.MathUtil.safeFindNextPositivePowerOfTwo;
+
+import io.netty.util.collection.IntObjectMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent {@link IntObjectMap} tuned for stream registries, where lookups happen on the
+ * inbound (event loop) path for every frame while streams are added and removed from arbitrary
+ * threads.
+ *
+ * <p>The map is split into segments, each an open-addressed table with linear probing. Lookups
+ * never lock and never retry under contention: they read the current table of a segment and probe
+ * its slots, which are published with ordered writes. Mutations lock only the segment they touch,
+ * and consecutive stream ids are spread across segments so that concurrent writers rarely meet. A
+ * slot is bound to its key for the lifetime of a table; removed entries leave a tombstone that is
+ * dropped when the segment is rehashed. Iteration is weakly consistent and never throws {@link
+ * java.util.ConcurrentModificationException}. {@code null} keys and values are not permitted.
+ *
+ * @param <V> The value type stored in the map.
+ */
+public final class ConcurrentIntObjectHashMap<V> extends AbstractMap<Integer, V>
+    implements IntObjectMap<V> {
+
+  /** Default capacity of a single segment. */
+  static final int MIN_SEGMENT_CAPACITY = 8;
+
+  /** Maximum number of segments used by the default constructor. */
+  static final int MAX_DEFAULT_SEGMENTS = 16;
+
+  /** Marks a slot whose entry has been removed. The slot keeps its key until the next rehash. */
+  static final Object REMOVED = new Object();
+
+  /** Marks every slot of a table that has been replaced by a rehashed one. */
+  static final Object MOVED = new Object();
+
+  final Segment<V>[] segments;
+  final int segmentShift;
+
+  private final Iterable<PrimitiveEntry<V>> entries = PrimitiveIterator::new;
+  private final Set<Entry<Integer, V>> entrySet = new EntrySet();
+
+  public ConcurrentIntObjectHashMap() {
+    this(
+        Math.min(
+            MAX_DEFAULT_SEGMENTS,
+            safeFindNextPositivePowerOfTwo(Runtime.getRuntime().availableProcessors())));
+  }
+
+  public ConcurrentIntObjectHashMap(int concurrencyLevel) {
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrencyLevel must be > 0");
+    }
+    int segmentCount = safeFindNextPositivePowerOfTwo(concurrencyLevel);
+    @SuppressWarnings("unchecked")
+    Segment<V>[] segments = (Segment<V>[]) new Segment<?>[segmentCount];
+    this.segments = segments;
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment<>();
+    }
+  }
+
+  @Override
+  public V get(int key) {
+    int hash = hash(key);
+    return segmentFor(hash).get(key, hash);
+  }
+
+  @Override
+  public V put(int key, V value) {
+    Objects.requireNonNull(value, "value");
+    int hash = hash(key);
+    return segmentFor(hash).put(key, hash, value);
+  }
+
+  @Override
+  public V remove(int key) {
+    int hash = hash(key);
+    return segmentFor(hash).remove(key, hash, null);
+  }
+
+  /**
+   * Atomically removes the entry for the given key only if it is currently mapped to the given
+   * value.
+   *
+   * @param key the key of the entry
+   * @param value the value expected to be associated with the key
+   * @return {@code true} if the entry was removed
+   */
+  public boolean remove(int key, Object value) {
+    if (value == null) {
+      return false;
+    }
+    int hash = hash(key);
+    return segmentFor(hash).remove(key, hash, value) != null;
+  }
+
+  @Override
+  public boolean containsKey(int key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public Iterable<PrimitiveEntry<V>> entries() {
+    return entries;
+  }
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (Segment<V> segment : segments) {
+      size += segment.size;
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (Segment<V> segment : segments) {
+      if (segment.size != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    for (Segment<V> segment : segments) {
+      segment.clear();
+    }
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof Integer && containsKey((int) (Integer) key);
+  }
+
+  @Override
+  public V get(Object key) {
+    return key instanceof Integer ? get((int) (Integer) key) : null;
+  }
+
+  @Override
+  public V put(Integer key, V value) {
+    return put((int) key, value);
+  }
+
+  @Override
+  public V remove(Object key) {
+    return key instanceof Integer ? remove((int) (Integer) key) : null;
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    return key instanceof Integer && remove((int) (Integer) key, value);
+  }
+
+  @Override
+  public Set<Entry<Integer, V>> entrySet() {
+    return entrySet;
+  }
+
+  private Segment<V> segmentFor(int hash) {
+    // the top bits pick the segment while the low bits pick the slot within the segment
+    return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+  }
+
+  /** Spreads sequential (and same-parity) stream ids over both the segments and the slots. */
+  static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  static final class Table {
+    final int[] keys;
+    final AtomicReferenceArray<Object> values;
+    final int mask;
+
+    Table(int capacity) {
+      this.keys = new int[capacity];
+      this.values = new AtomicReferenceArray<>(capacity);
+      this.mask = capacity - 1;
+    }
+  }
+
+  static final class Segment<V> {
+
+    volatile Table table = new Table(MIN_SEGMENT_CAPACITY);
+
+    /** Number of live entries, written under the segment lock. */
+    volatile int size;
+
+    /** Number of slots holding either a live entry or a tombstone, guarded by the segment lock. */
+    int used;
+
+    @SuppressWarnings("unchecked")
+    V get(int key, int hash) {
+      Table t = table;
+      for (; ; ) {
+        final AtomicReferenceArray<Object> values = t.values;
+        final int mask = t.mask;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+          Object value = values.get(i);
+          if (value == null) {
+            return null;
+          }
+          if (value == MOVED) {
+            break;
+          }
+          // the key is written before the value is published and never changes afterwards
+          if (t.keys[i] == key) {
+            return value == REMOVED ? null : (V) value;
+          }
+        }
+        t = table;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized V put(int key, int hash, V value) {
+      Table t = table;
+      final int mask = t.mask;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        Object current = t.values.get(i);
+        if (current == null) {
+          if ((used + 1) << 1 > t.keys.length) {
+            t = rehash(t, size + 1);
+            i = freeSlot(t, hash);
+          }
+          t.keys[i] = key;
+          t.values.lazySet(i, value);
+          used++;
+          size++;
+          return null;
+        }
+        if (t.keys[i] == key) {
+          t.values.lazySet(i, value);
+          if (current == REMOVED) {
+            size++;
+            return null;
+          }
+          return (V) current;
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized V remove(int key, int hash, Object expected) {
+      final Table t = table;
+      final int mask = t.mask;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        Object current = t.values.get(i);
+        if (current == null) {
+          return null;
+        }
+        if (t.keys[i] == key) {
+          if (current == REMOVED || (expected != null && !expected.equals(current))) {
+            return null;
+          }
+          t.values.lazySet(i, REMOVED);
+          size--;
+          return (V) current;
+        }
+      }
+    }
+
+    synchronized void clear() {
+      if (used == 0) {
+        return;
+      }
+      Table t = table;
+      table = new Table(MIN_SEGMENT_CAPACITY);
+      used = 0;
+      size = 0;
+      retire(t);
+    }
+
+    /** Takes a snapshot of the live entries, or returns {@code null} if there are none. */
+    synchronized Object[] snapshot() {
+      if (size == 0) {
+        return null;
+      }
+      final Table t = table;
+      final Object[] entries = new Object[size << 1];
+      int n = 0;
+      for (int i = 0; i < t.keys.length; i++) {
+        Object value = t.values.get(i);
+        if (value != null && value != REMOVED) {
+          entries[n++] = t.keys[i];
+          entries[n++] = value;
+        }
+      }
+      return entries;
+    }
+
+    /**
+     * Copies the live entries of the given table into a new one sized for the expected number of
+     * entries, publishes it, and retires the old table. Must be called under the segment lock.
+     */
+    private Table rehash(Table t, int expectedSize) {
+      int capacity =
+          Math.max(MIN_SEGMENT_CAPACITY, safeFindNextPositivePowerOfTwo(expectedSize << 2));
+      Table next = new Table(capacity);
+      for (int i = 0; i < t.keys.length; i++) {
+        Object value = t.values.get(i);
+        if (value != null && value != REMOVED) {
+          int key = t.keys[i];
+          int slot = freeSlot(next, hash(key));
+          next.keys[slot] = key;
+          next.values.lazySet(slot, value);
+        }
+      }
+      used = size;
+      table = next;
+      retire(t);
+      return next;
+    }
+
+    /**
+     * Redirects readers still probing the given table to the current one. This happens after the
+     * current table has been published and before any further mutation, so a reader that sees a
+     * regular slot of a retired table observes the same state it would have observed in the new
+     * table.
+     */
+    private static void retire(Table t) {
+      final AtomicReferenceArray<Object> values = t.values;
+      for (int i = 0; i < values.length(); i++) {
+        values.lazySet(i, MOVED);
+      }
+    }
+
+    private static int freeSlot(Table t, int hash) {
+      final int mask = t.mask;
+      int i = hash & mask;
+      while (t.values.get(i) != null) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+  }
+
+  /** Weakly consistent iterator that walks a per-segment snapshot of the live entries. */
+  private final class PrimitiveIterator implements Iterator<PrimitiveEntry<V>> {
+    int segmentIndex;
+    Object[] snapshot;
+    int index;
+    MapEntry last;
+
+    @Override
+    public boolean hasNext() {
+      while (snapshot == null || index == snapshot.length) {
+        if (segmentIndex == segments.length) {
+          return false;
+        }
+        snapshot = segments[segmentIndex++].snapshot();
+        index = 0;
+      }
+      return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public PrimitiveEntry<V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int key = (Integer) snapshot[index++];
+      V value = (V) snapshot[index++];
+      return last = new MapEntry(key, value);
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException("next must be called before each remove.");
+      }
+      ConcurrentIntObjectHashMap.this.remove(last.key, last.value);
+      last = null;
+    }
+  }
+
+  private final class MapEntry implements PrimitiveEntry<V> {
+    final int key;
+    V value;
+
+    MapEntry(int key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public int key() {
+      return key;
+    }
+
+    @Override
+    public V value() {
+      return value;
+    }
+
+    @Override
+    public void setValue(V value) {
+      put(key, value);
+      this.value = value;
+    }
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<Integer, V>> {
+    @Override
+    public Iterator<Entry<Integer, V>> iterator() {
+      final PrimitiveIterator iterator = new PrimitiveIterator();
+      return new Iterator<Entry<Integer, V>>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public Entry<Integer, V> next() {
+          final PrimitiveEntry<V> entry = iterator.next();
+          return new SimpleEntry<Integer, V>(entry.key(), entry.value()) {
+            @Override
+            public V setValue(V value) {
+              entry.setValue(value);
+              return super.setValue(value);
+            }
+          };
+        }
+
+        @Override
+        public void remove() {
+          iterator.remove();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return ConcurrentIntObjectHashMap.this.size();
+    }
+  }
+}
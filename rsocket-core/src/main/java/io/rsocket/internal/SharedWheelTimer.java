@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.internal;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holder of a {@link HashedWheelTimer} shared by everything that keeps one timeout per connection
+ * or session, so that many of them cost a slot in a wheel each rather than a task in a scheduler
+ * queue. The timer runs on a single daemon thread and ticks every 10 milliseconds, so timeouts may
+ * fire up to a tick late; tasks run on that thread and must not block.
+ */
+public final class SharedWheelTimer {
+
+  private SharedWheelTimer() {}
+
+  /** Returns the shared timer, starting it the first time it is used. */
+  public static Timer instance() {
+    return Holder.TIMER;
+  }
+
+  private static final class Holder {
+    static final Timer TIMER =
+        new HashedWheelTimer(
+            new DefaultThreadFactory("rsocket-timer", true), 10, TimeUnit.MILLISECONDS, 512);
+  }
+}
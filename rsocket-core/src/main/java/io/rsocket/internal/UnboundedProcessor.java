@@ -20,6 +20,7 @@
 import io.rsocket.internal.jctools.queues.MpscUnboundedArrayQueue;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.reactivestreams.Subscriber;
@@ -45,6 +46,7 @@
 
   final Queue<T> queue;
   final Queue<T> priorityQueue;
+  final Queue<Runnable> drainedTasks;
 
   volatile boolean done;
   Throwable error;
@@ -84,6 +86,26 @@
   public UnboundedProcessor() {
     this.queue = new MpscUnboundedArrayQueue<>(Queues.SMALL_BUFFER_SIZE);
     this.priorityQueue = new MpscUnboundedArrayQueue<>(Queues.SMALL_BUFFER_SIZE);
+    this.drainedTasks = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Runs the given task once the subscriber has taken every element queued so far, right away if
+   * there is none. A producer can use it to hold back further elements until the subscriber asks
+   * for more, rather than have them pile up in the queue.
+   */
+  public void onDrained(Runnable task) {
+    drainedTasks.offer(task);
+    if (isEmpty()) {
+      runDrainedTasks();
+    }
+  }
+
+  void runDrainedTasks() {
+    Runnable task;
+    while ((task = drainedTasks.poll()) != null) {
+      task.run();
+    }
   }
 
   @Override
@@ -136,6 +158,10 @@ void drainRegular(Subscriber<? super T> a) {
         e++;
       }
 
+      if (!drainedTasks.isEmpty() && q.isEmpty() && pq.isEmpty()) {
+        runDrainedTasks();
+      }
+
       if (r == e) {
         if (checkTerminated(done, q.isEmpty() && pq.isEmpty(), a)) {
           return;
@@ -168,6 +194,10 @@ void drainFused(Subscriber<? super T> a) {
 
       a.onNext(null);
 
+      if (!drainedTasks.isEmpty() && isEmpty()) {
+        runDrainedTasks();
+      }
+
       if (d) {
         hasDownstream = false;
 
@@ -362,7 +392,11 @@ public T poll() {
     if (!pq.isEmpty()) {
       return pq.poll();
     }
-    return queue.poll();
+    T t = queue.poll();
+    if (t == null && !drainedTasks.isEmpty()) {
+      runDrainedTasks();
+    }
+    return t;
   }
 
   @Override
@@ -2,9 +2,11 @@
 
 import io.netty.buffer.ByteBuf;
 import io.rsocket.Closeable;
+import io.rsocket.internal.ClientServerInputMultiplexer;
 import io.rsocket.keepalive.KeepAliveSupport.KeepAlive;
 import io.rsocket.resume.ResumableDuplexConnection;
 import java.util.function.Consumer;
+import reactor.util.annotation.Nullable;
 
 public interface KeepAliveHandler {
 
@@ -15,9 +17,33 @@ KeepAliveFramesAcceptor start(
 
   class DefaultKeepAliveHandler implements KeepAliveHandler {
     private final Closeable duplexConnection;
+    @Nullable private final ClientServerInputMultiplexer multiplexer;
+    private final boolean skipTicksWhenActive;
 
     public DefaultKeepAliveHandler(Closeable duplexConnection) {
       this.duplexConnection = duplexConnection;
+      this.multiplexer = null;
+      this.skipTicksWhenActive = false;
+    }
+
+    /**
+     * Creates a handler that takes any frame received through the given multiplexer as a sign of
+     * liveness.
+     */
+    public DefaultKeepAliveHandler(ClientServerInputMultiplexer multiplexer) {
+      this(multiplexer, false);
+    }
+
+    /**
+     * Creates a handler that takes any frame received through the given multiplexer as a sign of
+     * liveness and, if {@code skipTicksWhenActive}, skips ticks while frames are both sent and
+     * received through it.
+     */
+    public DefaultKeepAliveHandler(
+        ClientServerInputMultiplexer multiplexer, boolean skipTicksWhenActive) {
+      this.duplexConnection = multiplexer;
+      this.multiplexer = multiplexer;
+      this.skipTicksWhenActive = skipTicksWhenActive;
     }
 
     @Override
@@ -26,6 +52,7 @@ public KeepAliveFramesAcceptor start(
         Consumer<ByteBuf> onSendKeepAliveFrame,
         Consumer<KeepAlive> onTimeout) {
       duplexConnection.onClose().doFinally(s -> keepAliveSupport.stop()).subscribe();
+      keepAliveSupport.observeTraffic(multiplexer, skipTicksWhenActive);
       return keepAliveSupport
           .onSendKeepAliveFrame(onSendKeepAliveFrame)
           .onTimeout(onTimeout)
@@ -35,9 +62,25 @@ public KeepAliveFramesAcceptor start(
 
   class ResumableKeepAliveHandler implements KeepAliveHandler {
     private final ResumableDuplexConnection resumableDuplexConnection;
+    @Nullable private final ClientServerInputMultiplexer multiplexer;
+    private final boolean skipTicksWhenActive;
 
     public ResumableKeepAliveHandler(ResumableDuplexConnection resumableDuplexConnection) {
+      this(resumableDuplexConnection, null, false);
+    }
+
+    /**
+     * Creates a handler that takes any frame received through the given multiplexer over the
+     * resumable connection as a sign of liveness and, if {@code skipTicksWhenActive}, skips ticks
+     * while frames are both sent and received through it.
+     */
+    public ResumableKeepAliveHandler(
+        ResumableDuplexConnection resumableDuplexConnection,
+        @Nullable ClientServerInputMultiplexer multiplexer,
+        boolean skipTicksWhenActive) {
       this.resumableDuplexConnection = resumableDuplexConnection;
+      this.multiplexer = multiplexer;
+      this.skipTicksWhenActive = skipTicksWhenActive;
     }
 
     @Override
@@ -47,6 +90,8 @@ public KeepAliveFramesAcceptor start(
         Consumer<KeepAlive> onTimeout) {
       resumableDuplexConnection.onResume(keepAliveSupport::start);
       resumableDuplexConnection.onDisconnect(keepAliveSupport::stop);
+      resumableDuplexConnection.onAcknowledgePosition(keepAliveSupport::acknowledgePosition);
+      keepAliveSupport.observeTraffic(multiplexer, skipTicksWhenActive);
       return keepAliveSupport
           .resumeState(resumableDuplexConnection)
           .onSendKeepAliveFrame(onSendKeepAliveFrame)
@@ -19,67 +19,149 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.rsocket.frame.FrameHeaderCodec;
+import io.rsocket.frame.FrameType;
 import io.rsocket.frame.KeepAliveFrameCodec;
+import io.rsocket.internal.ClientServerInputMultiplexer;
+import io.rsocket.internal.SharedWheelTimer;
 import io.rsocket.resume.ResumeStateHolder;
 import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
-import reactor.core.Disposable;
-import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.annotation.Nullable;
 
+/**
+ * Sends and checks {@code KEEPALIVE} frames at every tick of the keep-alive interval. The ticks of
+ * all connections are driven by the {@link SharedWheelTimer shared timer wheel}, so each started
+ * connection costs a slot in the wheel rather than a task in a scheduler queue. The timer thread
+ * only schedules: each tick is handed off to the {@link #tickScheduler tick scheduler}, {@link
+ * Schedulers#parallel()} by default, and the next tick is scheduled once it has run, so a slow tick
+ * delays neither the ticks of other connections nor overlaps its own next one.
+ *
+ * <p>Received frames only set a flag, which the next tick turns into the time the remote end was
+ * last heard from; a missing remote end is therefore detected up to one interval later than the
+ * timeout. Besides {@code KEEPALIVE} frames, any frame reported with {@link #frameReceived} counts
+ * as the remote end being heard from.
+ *
+ * <p>With {@link #skipTicksWhenActive}, a tick sends no {@code KEEPALIVE} frame when frames were
+ * both sent and received since the previous tick, as the traffic already tells each end that the
+ * other is alive. A tick is still sent when there is a resume position that has not been
+ * acknowledged to the remote end yet.
+ */
 public abstract class KeepAliveSupport implements KeepAliveFramesAcceptor {
   final ByteBufAllocator allocator;
+  private final Timer timer;
+  private volatile Scheduler tickScheduler = Schedulers.parallel();
   private final Duration keepAliveInterval;
   private final Duration keepAliveTimeout;
+  private final long keepAliveIntervalMillis;
   private final long keepAliveTimeoutMillis;
   private volatile Consumer<KeepAlive> onTimeout;
   private volatile Consumer<ByteBuf> onFrameSent;
-  private volatile Disposable ticksDisposable;
+  private volatile Ticks ticks;
   private final AtomicBoolean started = new AtomicBoolean();
 
   private volatile ResumeStateHolder resumeStateHolder;
   private volatile long lastReceivedMillis;
+  private volatile boolean receivedSinceTick;
+  private volatile boolean sentSinceTick;
+  private volatile boolean skipTicksWhenActive;
+  private volatile long lastSentPosition = -1;
 
   private KeepAliveSupport(
       ByteBufAllocator allocator, int keepAliveInterval, int keepAliveTimeout) {
     this.allocator = allocator;
+    this.timer = SharedWheelTimer.instance();
     this.keepAliveInterval = Duration.ofMillis(keepAliveInterval);
     this.keepAliveTimeout = Duration.ofMillis(keepAliveTimeout);
+    this.keepAliveIntervalMillis = keepAliveInterval;
     this.keepAliveTimeoutMillis = keepAliveTimeout;
   }
 
   public KeepAliveSupport start() {
     this.lastReceivedMillis = System.currentTimeMillis();
+    this.receivedSinceTick = false;
+    this.sentSinceTick = false;
     if (started.compareAndSet(false, true)) {
-      ticksDisposable = Flux.interval(keepAliveInterval).subscribe(v -> onIntervalTick());
+      Ticks ticks = new Ticks();
+      this.ticks = ticks;
+      ticks.schedule();
     }
     return this;
   }
 
   public void stop() {
     if (started.compareAndSet(true, false)) {
-      ticksDisposable.dispose();
+      ticks.cancel();
     }
   }
 
   @Override
   public void receive(ByteBuf keepAliveFrame) {
-    this.lastReceivedMillis = System.currentTimeMillis();
+    this.receivedSinceTick = true;
     if (resumeStateHolder != null) {
       long remoteLastReceivedPos = remoteLastReceivedPosition(keepAliveFrame);
       resumeStateHolder.onImpliedPosition(remoteLastReceivedPos);
     }
     if (KeepAliveFrameCodec.respondFlag(keepAliveFrame)) {
-      long localLastReceivedPos = localLastReceivedPosition();
-      send(
-          KeepAliveFrameCodec.encode(
-              allocator,
-              false,
-              localLastReceivedPos,
-              KeepAliveFrameCodec.data(keepAliveFrame).retain()));
+      sendKeepAlive(false, KeepAliveFrameCodec.data(keepAliveFrame).retain());
+    }
+  }
+
+  /** Records that a frame of any type was received from the remote end. */
+  public void frameReceived(ByteBuf frame) {
+    if (!receivedSinceTick) {
+      receivedSinceTick = true;
+    }
+  }
+
+  /**
+   * Records that a frame was sent to the remote end. {@code KEEPALIVE} frames are not counted, so
+   * that the ticks of an otherwise idle connection do not make it look active.
+   */
+  public void frameSent(ByteBuf frame) {
+    if (!sentSinceTick && FrameHeaderCodec.frameType(frame) != FrameType.KEEPALIVE) {
+      sentSinceTick = true;
+    }
+  }
+
+  /**
+   * Sends a {@code KEEPALIVE} frame that does not ask for a response, to acknowledge the position
+   * received so far without waiting for the next tick. Does nothing unless started with a resume
+   * state.
+   */
+  public void acknowledgePosition() {
+    if (started.get() && resumeStateHolder != null) {
+      sendKeepAlive(false, Unpooled.EMPTY_BUFFER);
     }
   }
 
+  /**
+   * Skips the {@code KEEPALIVE} frame of a tick when frames were both sent and received since the
+   * previous one. The remote end must then take any frame as a sign of liveness, or send {@code
+   * KEEPALIVE} frames of its own for this end to respond to.
+   */
+  public KeepAliveSupport skipTicksWhenActive(boolean skipTicksWhenActive) {
+    this.skipTicksWhenActive = skipTicksWhenActive;
+    return this;
+  }
+
+  /**
+   * Sets the scheduler the ticks run on, for instance one backed by the event loop of the
+   * connection. Defaults to {@link Schedulers#parallel()}.
+   */
+  public KeepAliveSupport tickScheduler(Scheduler tickScheduler) {
+    this.tickScheduler = tickScheduler;
+    return this;
+  }
+
   public KeepAliveSupport resumeState(ResumeStateHolder resumeStateHolder) {
     this.resumeStateHolder = resumeStateHolder;
     return this;
@@ -95,6 +177,18 @@ public KeepAliveSupport onTimeout(Consumer<KeepAlive> onTimeout) {
     return this;
   }
 
+  /* counts the frames passing through the multiplexer, if any, in the liveness of the connection */
+  void observeTraffic(
+      @Nullable ClientServerInputMultiplexer multiplexer, boolean skipTicksWhenActive) {
+    if (multiplexer != null) {
+      multiplexer.onFrameReceived(this::frameReceived);
+      if (skipTicksWhenActive) {
+        multiplexer.onFrameSent(this::frameSent);
+        skipTicksWhenActive(true);
+      }
+    }
+  }
+
   abstract void onIntervalTick();
 
   void send(ByteBuf frame) {
@@ -103,8 +197,29 @@ void send(ByteBuf frame) {
     }
   }
 
+  void sendKeepAlive(boolean respond, ByteBuf data) {
+    long position = localLastReceivedPosition();
+    lastSentPosition = position;
+    send(KeepAliveFrameCodec.encode(allocator, respond, position, data));
+  }
+
+  /* whether this tick can be skipped, which starts counting sent frames for the next one */
+  boolean activeSinceTick() {
+    boolean active =
+        skipTicksWhenActive
+            && sentSinceTick
+            && receivedSinceTick
+            && (resumeStateHolder == null || localLastReceivedPosition() == lastSentPosition);
+    sentSinceTick = false;
+    return active;
+  }
+
   void tryTimeout() {
     long now = System.currentTimeMillis();
+    if (receivedSinceTick) {
+      receivedSinceTick = false;
+      lastReceivedMillis = now;
+    }
     if (now - lastReceivedMillis >= keepAliveTimeoutMillis) {
       if (onTimeout != null) {
         onTimeout.accept(new KeepAlive(keepAliveInterval, keepAliveTimeout));
@@ -121,6 +236,58 @@ long remoteLastReceivedPosition(ByteBuf keepAliveFrame) {
     return KeepAliveFrameCodec.lastPosition(keepAliveFrame);
   }
 
+  /*
+   * the ticks of one start of this keep-alive: the timer hands each tick off to the tick
+   * scheduler, which schedules the next one on the timer once the tick has run unless cancelled
+   */
+  private final class Ticks implements TimerTask, Runnable {
+    private volatile boolean cancelled;
+    private volatile Timeout timeout;
+
+    void schedule() {
+      Timeout timeout = timer.newTimeout(this, keepAliveIntervalMillis, TimeUnit.MILLISECONDS);
+      this.timeout = timeout;
+      if (cancelled) {
+        timeout.cancel();
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      Timeout timeout = this.timeout;
+      if (timeout != null) {
+        timeout.cancel();
+      }
+    }
+
+    @Override
+    public void run(Timeout timeout) {
+      if (cancelled) {
+        return;
+      }
+      try {
+        tickScheduler.schedule(this);
+      } catch (RejectedExecutionException e) {
+        // the scheduler is disposed, so is whatever this keep-alive was checking
+        cancelled = true;
+      }
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+      try {
+        onIntervalTick();
+      } finally {
+        if (!cancelled) {
+          schedule();
+        }
+      }
+    }
+  }
+
   public static final class ServerKeepAliveSupport extends KeepAliveSupport {
 
     public ServerKeepAliveSupport(
@@ -143,10 +310,11 @@ public ClientKeepAliveSupport(
 
     @Override
     void onIntervalTick() {
+      boolean active = activeSinceTick();
       tryTimeout();
-      send(
-          KeepAliveFrameCodec.encode(
-              allocator, true, localLastReceivedPosition(), Unpooled.EMPTY_BUFFER));
+      if (!active) {
+        sendKeepAlive(true, Unpooled.EMPTY_BUFFER);
+      }
     }
   }
 
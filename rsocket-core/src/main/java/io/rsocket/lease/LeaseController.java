@@ -0,0 +1,303 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Grants leases to the requesters connected to a responder, so that together they do not send more
+ * requests at once than the responder handles without queuing them. It is shared by all the
+ * connections of a responder, each getting its {@link Leases} from {@link #leases()}:
+ *
+ * <pre>{@code
+ * LeaseController controller = LeaseController.create().maxLimit(500);
+ * RSocketServer.create(acceptor).lease(controller::leases).bind(transport);
+ * }</pre>
+ *
+ * <p>The number of requests the responder may handle at once is a limit estimated with a gradient
+ * algorithm. Every period, the mean latency of the requests that terminated is compared to its
+ * long-term average: while it does not rise, the limit increases by its square root, and when it
+ * does, the limit decreases in proportion, down to half of it. The limit is left alone while the
+ * responder handles less than half of it, as latencies then say nothing of how many more requests
+ * it could handle.
+ *
+ * <p>The limit is shared fairly between the connections: those that handled fewer requests at once
+ * than their share get up to twice what they handled, and the rest is split evenly between the
+ * others. Leases carry the number of requests each connection may send over their time to live at
+ * the current latency with its share in flight. A new lease is only sent when this number changes
+ * by more than a tenth, or when the last one is about to expire.
+ */
+public final class LeaseController {
+  static final int DEFAULT_INITIAL_LIMIT = 20;
+  static final int DEFAULT_MIN_LIMIT = 1;
+  static final int DEFAULT_MAX_LIMIT = 1000;
+  static final Duration DEFAULT_PERIOD = Duration.ofMillis(100);
+  static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(2);
+
+  // smallest change of the permits of a connection worth sending a lease for
+  private static final double MIN_CHANGE = 0.1;
+  private static final double MIN_GRADIENT = 0.5;
+  private static final double SMOOTHING = 0.2;
+  private static final double LONG_TERM_WEIGHT = 0.05;
+
+  private int minLimit = DEFAULT_MIN_LIMIT;
+  private int maxLimit = DEFAULT_MAX_LIMIT;
+  private long periodMillis = DEFAULT_PERIOD.toMillis();
+  private int timeToLiveMillis = (int) DEFAULT_TIME_TO_LIVE.toMillis();
+  private Scheduler scheduler = Schedulers.parallel();
+
+  private final LongAdder latencyNanos = new LongAdder();
+  private final LongAdder latencySamples = new LongAdder();
+
+  // guarded by this
+  private final List<Connection> connections = new ArrayList<>();
+  private double limit = DEFAULT_INITIAL_LIMIT;
+  private double latency;
+  private double longTermLatency;
+  @Nullable private Disposable ticker;
+
+  private LeaseController() {}
+
+  public static LeaseController create() {
+    return new LeaseController();
+  }
+
+  /** Limit of the requests handled at once until enough latencies are known to adapt it. */
+  public LeaseController initialLimit(int initialLimit) {
+    if (initialLimit <= 0) {
+      throw new IllegalArgumentException("initialLimit must be positive");
+    }
+    this.limit = initialLimit;
+    return this;
+  }
+
+  public LeaseController minLimit(int minLimit) {
+    if (minLimit <= 0) {
+      throw new IllegalArgumentException("minLimit must be positive");
+    }
+    this.minLimit = minLimit;
+    return this;
+  }
+
+  public LeaseController maxLimit(int maxLimit) {
+    if (maxLimit <= 0) {
+      throw new IllegalArgumentException("maxLimit must be positive");
+    }
+    this.maxLimit = maxLimit;
+    return this;
+  }
+
+  /** How often the limit is adapted and the leases are checked. */
+  public LeaseController period(Duration period) {
+    if (period.toMillis() <= 0) {
+      throw new IllegalArgumentException("period must be at least a millisecond");
+    }
+    this.periodMillis = period.toMillis();
+    return this;
+  }
+
+  /** Time to live of the leases sent. */
+  public LeaseController timeToLive(Duration timeToLive) {
+    if (timeToLive.toMillis() <= 0 || timeToLive.toMillis() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("timeToLive must be between a millisecond and 24 days");
+    }
+    this.timeToLiveMillis = (int) timeToLive.toMillis();
+    return this;
+  }
+
+  public LeaseController scheduler(Scheduler scheduler) {
+    this.scheduler = scheduler;
+    return this;
+  }
+
+  /** Returns the leases of a new connection, to be used for that connection only. */
+  public Leases<? extends LeaseStats> leases() {
+    Connection connection = new Connection();
+    return Leases.<Connection>create().sender(stats -> connection.leases()).stats(connection);
+  }
+
+  /** Current limit of the requests handled at once, by all connections together. */
+  public synchronized int limit() {
+    return (int) Math.ceil(limit);
+  }
+
+  public synchronized int connections() {
+    return connections.size();
+  }
+
+  private synchronized void register(Connection connection) {
+    connections.add(connection);
+    if (ticker == null) {
+      ticker =
+          scheduler.schedulePeriodically(
+              this::tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+    distribute();
+  }
+
+  private synchronized void unregister(Connection connection) {
+    connections.remove(connection);
+    if (connections.isEmpty() && ticker != null) {
+      ticker.dispose();
+      ticker = null;
+    }
+  }
+
+  synchronized void tick() {
+    long samples = latencySamples.sumThenReset();
+    long nanos = latencyNanos.sumThenReset();
+    int inFlight = 0;
+    for (Connection connection : connections) {
+      inFlight += connection.updateDemand();
+    }
+    if (samples > 0) {
+      adaptLimit(nanos / (double) samples, inFlight);
+    }
+    distribute();
+  }
+
+  private void adaptLimit(double latency, int inFlight) {
+    this.latency = latency;
+    if (longTermLatency == 0.0) {
+      longTermLatency = latency;
+    } else {
+      longTermLatency = longTermLatency * (1 - LONG_TERM_WEIGHT) + latency * LONG_TERM_WEIGHT;
+    }
+
+    if (inFlight < limit / 2) {
+      return;
+    }
+    double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longTermLatency / latency));
+    double newLimit = limit * gradient + Math.sqrt(limit);
+    limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    limit = Math.max(minLimit, Math.min(maxLimit, limit));
+  }
+
+  /**
+   * Max-min fair shares: connections are served from the one wanting the least, each getting what
+   * it wants up to an even split of what is left.
+   */
+  private void distribute() {
+    int size = connections.size();
+    if (size == 0) {
+      return;
+    }
+    Connection[] byDemand = connections.toArray(new Connection[size]);
+    Arrays.sort(byDemand, Comparator.comparingDouble(connection -> connection.demand));
+
+    long now = scheduler.now(TimeUnit.MILLISECONDS);
+    double left = limit;
+    for (int i = 0; i < size; i++) {
+      Connection connection = byDemand[i];
+      double share = Math.min(connection.demand, left / (size - i));
+      left -= share;
+      connection.grant(permits(share), now);
+    }
+  }
+
+  /** Requests sent over a time to live by a connection with its share in flight all along. */
+  private int permits(double share) {
+    if (latency == 0.0) {
+      return (int) Math.ceil(share);
+    }
+    double permits = share * TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis) / latency;
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(permits)));
+  }
+
+  private final class Connection implements LeaseStats {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger peakInFlight = new AtomicInteger();
+    volatile boolean rejected;
+
+    // guarded by the controller
+    FluxSink<Lease> sink;
+    double demand = Double.POSITIVE_INFINITY;
+    int permits;
+    long expiry;
+
+    Flux<Lease> leases() {
+      return Flux.create(
+          sink -> {
+            sink.onDispose(() -> unregister(this));
+            synchronized (LeaseController.this) {
+              this.sink = sink;
+              register(this);
+            }
+          });
+    }
+
+    @Override
+    public void onEvent(EventType eventType) {
+      if (eventType == EventType.REJECT) {
+        rejected = true;
+      }
+    }
+
+    @Override
+    public void onRequestStarted() {
+      int current = inFlight.incrementAndGet();
+      peakInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    @Override
+    public void onRequestTerminated(long durationNanos) {
+      inFlight.decrementAndGet();
+      latencyNanos.add(durationNanos);
+      latencySamples.increment();
+    }
+
+    /**
+     * Updates what the connection wants from the requests it handled at once since the last period,
+     * and returns their peak. A connection whose requests were rejected wants as much as it can
+     * get.
+     */
+    int updateDemand() {
+      int peak = peakInFlight.getAndSet(inFlight.get());
+      if (rejected) {
+        rejected = false;
+        demand = Double.POSITIVE_INFINITY;
+      } else {
+        demand = Math.max(1, 2.0 * peak);
+      }
+      return peak;
+    }
+
+    void grant(int permits, long now) {
+      long renewal = Math.min(2 * periodMillis, timeToLiveMillis / 2);
+      boolean expiring = expiry - now <= renewal;
+      boolean changed = Math.abs(permits - this.permits) > this.permits * MIN_CHANGE;
+      if (expiring || changed) {
+        this.permits = permits;
+        this.expiry = now + timeToLiveMillis;
+        sink.next(Lease.create(timeToLiveMillis, permits));
+      }
+    }
+  }
+}
@@ -20,6 +20,17 @@ public interface LeaseStats {
 
   void onEvent(EventType eventType);
 
+  /** Called when a request accepted under the lease starts being handled. */
+  default void onRequestStarted() {}
+
+  /**
+   * Called when a request accepted under the lease terminates, whether it completes, fails or is
+   * cancelled. For streams and channels, this is when the whole stream terminates.
+   *
+   * @param durationNanos time from when the request started being handled
+   */
+  default void onRequestTerminated(long durationNanos) {}
+
   enum EventType {
     ACCEPT,
     REJECT,
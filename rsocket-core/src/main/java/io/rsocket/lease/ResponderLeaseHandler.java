@@ -26,6 +26,7 @@
 import reactor.core.Disposable;
 import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.annotation.Nullable;
 
 public interface ResponderLeaseHandler extends Availability {
@@ -36,6 +37,22 @@ public interface ResponderLeaseHandler extends Availability {
 
   Disposable send(Consumer<ByteBuf> leaseFrameSender);
 
+  /**
+   * Tracks the response to an accepted request, so that its start and termination can be reported
+   * to lease stats. Returns the response unchanged by default.
+   */
+  default <R> Mono<R> track(Mono<R> response) {
+    return response;
+  }
+
+  /**
+   * Tracks the response to an accepted request, so that its start and termination can be reported
+   * to lease stats. Returns the response unchanged by default.
+   */
+  default <R> Flux<R> track(Flux<R> response) {
+    return response;
+  }
+
   final class Impl<T extends LeaseStats> implements ResponderLeaseHandler {
     private volatile LeaseImpl currentLease = LeaseImpl.empty();
     private final String tag;
@@ -86,6 +103,28 @@ public Disposable send(Consumer<ByteBuf> leaseFrameSender) {
               });
     }
 
+    @Override
+    public <R> Mono<R> track(Mono<R> response) {
+      T ls = leaseStats;
+      if (ls == null) {
+        return response;
+      }
+      long start = System.nanoTime();
+      ls.onRequestStarted();
+      return response.doFinally(signal -> ls.onRequestTerminated(System.nanoTime() - start));
+    }
+
+    @Override
+    public <R> Flux<R> track(Flux<R> response) {
+      T ls = leaseStats;
+      if (ls == null) {
+        return response;
+      }
+      long start = System.nanoTime();
+      ls.onRequestStarted();
+      return response.doFinally(signal -> ls.onRequestTerminated(System.nanoTime() - start));
+    }
+
     @Override
     public double availability() {
       return currentLease.availability();
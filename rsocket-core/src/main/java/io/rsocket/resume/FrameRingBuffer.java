@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A growable ring of frames, each addressed both by a sequence number that increases by one per
+ * added frame and by the frame position it starts at. Frames are only added at the head and only
+ * removed from the tail, so their positions are sorted and a position is found by binary search.
+ * Reading a frame by its sequence number does not modify the ring.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class FrameRingBuffer {
+  private static final int MIN_CAPACITY = 16;
+
+  private ByteBuf[] frames;
+  private long[] positions;
+  private int mask;
+
+  // sequence number of the oldest frame, and of the next frame to be added
+  private long first;
+  private long next;
+
+  FrameRingBuffer() {
+    this.frames = new ByteBuf[MIN_CAPACITY];
+    this.positions = new long[MIN_CAPACITY];
+    this.mask = MIN_CAPACITY - 1;
+  }
+
+  int size() {
+    return (int) (next - first);
+  }
+
+  boolean isEmpty() {
+    return next == first;
+  }
+
+  /** Returns the sequence number of the oldest frame. */
+  long firstSequence() {
+    return first;
+  }
+
+  /** Returns the sequence number the next added frame will get. */
+  long nextSequence() {
+    return next;
+  }
+
+  /**
+   * Adds a frame at the head of the ring.
+   *
+   * @param frame the frame
+   * @param position the position the frame starts at, which must not be before the end of the
+   *     previously added frame
+   */
+  void add(ByteBuf frame, long position) {
+    if (size() == frames.length) {
+      grow();
+    }
+    int slot = (int) next & mask;
+    frames[slot] = frame;
+    positions[slot] = position;
+    next++;
+  }
+
+  /** Returns the frame with the given sequence number, which must be in the ring. */
+  ByteBuf get(long sequence) {
+    return frames[(int) sequence & mask];
+  }
+
+  /** Removes the oldest frame and returns it, or returns {@code null} if the ring is empty. */
+  ByteBuf poll() {
+    if (next == first) {
+      return null;
+    }
+    int slot = (int) first & mask;
+    ByteBuf frame = frames[slot];
+    frames[slot] = null;
+    first++;
+    return frame;
+  }
+
+  /**
+   * Returns the number of frames, counted from the oldest one, that start before the given
+   * position.
+   */
+  int countBefore(long position) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (positions[(int) (first + mid) & mask] < position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void grow() {
+    int capacity = frames.length << 1;
+    ByteBuf[] newFrames = new ByteBuf[capacity];
+    long[] newPositions = new long[capacity];
+    int newMask = capacity - 1;
+    for (long sequence = first; sequence < next; sequence++) {
+      newFrames[(int) sequence & newMask] = frames[(int) sequence & mask];
+      newPositions[(int) sequence & newMask] = positions[(int) sequence & mask];
+    }
+    this.frames = newFrames;
+    this.positions = newPositions;
+    this.mask = newMask;
+  }
+}
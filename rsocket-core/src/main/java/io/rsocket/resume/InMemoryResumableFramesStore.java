@@ -17,7 +17,7 @@
 package io.rsocket.resume;
 
 import io.netty.buffer.ByteBuf;
-import java.util.Queue;
+import io.rsocket.fragmentation.RejectedFrame;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
@@ -25,8 +25,17 @@
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoProcessor;
-import reactor.util.concurrent.Queues;
+import reactor.util.annotation.Nullable;
 
+/**
+ * A {@link ResumableFramesStore} that keeps frames in memory, up to a limit in bytes after which
+ * the oldest frames are removed. Frames are kept in a ring indexed by their position, so releasing
+ * frames up to a position looks it up rather than walking the frames, and replaying frames reads
+ * them in place while frames keep being saved or released.
+ *
+ * <p>Stores of the sessions of a server can also draw from a {@link ResumeMemoryBudget} shared
+ * between them, through a {@link ResumeMemoryBudget.Reservation} passed on creation.
+ */
 public class InMemoryResumableFramesStore implements ResumableFramesStore {
   private static final Logger logger = LoggerFactory.getLogger(InMemoryResumableFramesStore.class);
   private static final long SAVE_REQUEST_SIZE = Long.MAX_VALUE;
@@ -35,15 +44,35 @@ public class InMemoryResumableFramesStore implements ResumableFramesStore {
   volatile long position;
   volatile long impliedPosition;
   volatile int cacheSize;
-  final Queue<ByteBuf> cachedFrames;
+  // guarded by this
+  final FrameRingBuffer cachedFrames;
   private final String tag;
   private final int cacheLimit;
+  @Nullable private final ResumeMemoryBudget.Reservation reservation;
   private volatile int upstreamFrameRefCnt;
 
   public InMemoryResumableFramesStore(String tag, int cacheSizeBytes) {
+    this(tag, cacheSizeBytes, null);
+  }
+
+  /**
+   * Creates a store that, besides keeping at most {@code cacheSizeBytes}, draws the bytes it keeps
+   * from the budget of the given reservation. The store is disposed if its session is evicted from
+   * the budget, and disposes the reservation when it is disposed.
+   *
+   * @param tag the tag to use in log messages
+   * @param cacheSizeBytes the maximum number of frame bytes to keep
+   * @param reservation the reservation to draw bytes from, or {@code null} for none
+   */
+  public InMemoryResumableFramesStore(
+      String tag, int cacheSizeBytes, @Nullable ResumeMemoryBudget.Reservation reservation) {
     this.tag = tag;
     this.cacheLimit = cacheSizeBytes;
-    this.cachedFrames = cachedFramesQueue(cacheSizeBytes);
+    this.cachedFrames = new FrameRingBuffer();
+    this.reservation = reservation;
+    if (reservation != null) {
+      reservation.onEvict(this);
+    }
   }
 
   public Mono<Void> saveFrames(Flux<ByteBuf> frames) {
@@ -55,19 +84,16 @@ public Mono<Void> saveFrames(Flux<ByteBuf> frames) {
   }
 
   @Override
-  public void releaseFrames(long remoteImpliedPos) {
+  public synchronized void releaseFrames(long remoteImpliedPos) {
     long pos = position;
     logger.debug(
         "{} Removing frames for local: {}, remote implied: {}", tag, pos, remoteImpliedPos);
-    long removeSize = Math.max(0, remoteImpliedPos - pos);
-    while (removeSize > 0) {
-      ByteBuf cachedFrame = cachedFrames.poll();
-      if (cachedFrame != null) {
-        removeSize -= releaseTailFrame(cachedFrame);
-      } else {
-        break;
-      }
+    // every frame starting before the remote position has been received, at least in part
+    int count = remoteImpliedPos > pos ? cachedFrames.countBefore(remoteImpliedPos) : 0;
+    for (int i = 0; i < count; i++) {
+      releaseTailFrame(cachedFrames.poll());
     }
+    long removeSize = remoteImpliedPos > pos ? remoteImpliedPos - position : 0;
     if (removeSize > 0) {
       throw new IllegalStateException(
           String.format(
@@ -85,15 +111,10 @@ public void releaseFrames(long remoteImpliedPos) {
   @Override
   public Flux<ByteBuf> resumeStream() {
     return Flux.generate(
-        () -> new ResumeStreamState(cachedFrames.size(), upstreamFrameRefCnt),
+        this::resumeStreamState,
         (state, sink) -> {
-          if (state.next()) {
-            /*spsc queue has no iterator - iterating by consuming*/
-            ByteBuf frame = cachedFrames.poll();
-            if (state.shouldRetain(frame)) {
-              frame.retain();
-            }
-            cachedFrames.offer(frame);
+          ByteBuf frame = nextResumeFrame(state);
+          if (frame != null) {
             sink.next(frame);
           } else {
             sink.complete();
@@ -103,6 +124,25 @@ public Flux<ByteBuf> resumeStream() {
         });
   }
 
+  private synchronized ResumeStreamState resumeStreamState() {
+    return new ResumeStreamState(
+        cachedFrames.firstSequence(), cachedFrames.nextSequence(), upstreamFrameRefCnt);
+  }
+
+  /* frames released or evicted since the stream started have been received and are skipped */
+  private synchronized ByteBuf nextResumeFrame(ResumeStreamState state) {
+    long sequence = Math.max(state.sequence, cachedFrames.firstSequence());
+    if (sequence >= state.endSequence) {
+      return null;
+    }
+    state.sequence = sequence + 1;
+    ByteBuf frame = cachedFrames.get(sequence);
+    if (state.shouldRetain(frame)) {
+      frame.retain();
+    }
+    return frame;
+  }
+
   @Override
   public long framePosition() {
     return position;
@@ -116,7 +156,7 @@ public long frameImpliedPosition() {
   @Override
   public void resumableFrameReceived(ByteBuf frame) {
     /*called on transport thread so non-atomic on volatile is safe*/
-    impliedPosition += frame.readableBytes();
+    impliedPosition += RejectedFrame.resumableLength(frame);
   }
 
   @Override
@@ -126,11 +166,16 @@ public Mono<Void> onClose() {
 
   @Override
   public void dispose() {
-    cacheSize = 0;
-    ByteBuf frame = cachedFrames.poll();
-    while (frame != null) {
-      frame.release();
-      frame = cachedFrames.poll();
+    synchronized (this) {
+      cacheSize = 0;
+      ByteBuf frame = cachedFrames.poll();
+      while (frame != null) {
+        frame.release();
+        frame = cachedFrames.poll();
+      }
+      if (reservation != null) {
+        reservation.dispose();
+      }
     }
     disposed.onComplete();
   }
@@ -140,24 +185,32 @@ public boolean isDisposed() {
     return disposed.isTerminated();
   }
 
-  /* this method and saveFrame() won't be called concurrently,
-   * so non-atomic on volatile is safe*/
+  /* called holding the lock, so non-atomic on volatile is safe*/
   private int releaseTailFrame(ByteBuf content) {
     int frameSize = content.readableBytes();
     cacheSize -= frameSize;
     position += frameSize;
     content.release();
+    if (reservation != null) {
+      reservation.release(frameSize);
+    }
     return frameSize;
   }
 
-  /*this method and releaseTailFrame() won't be called concurrently,
-   * so non-atomic on volatile is safe*/
   void saveFrame(ByteBuf frame) {
+    int frameSize = frame.readableBytes();
+    /*drawn before taking the lock, as it may dispose the stores of other sessions*/
+    boolean reserved =
+        reservation != null && frameSize <= cacheLimit && reservation.acquire(frameSize);
+    saveFrame(frame, frameSize, reserved);
+  }
+
+  /*called holding the lock, so non-atomic on volatile is safe*/
+  private synchronized void saveFrame(ByteBuf frame, int frameSize, boolean reserved) {
     if (upstreamFrameRefCnt == 0) {
       upstreamFrameRefCnt = frame.refCnt();
     }
 
-    int frameSize = frame.readableBytes();
     long availableSize = cacheLimit - cacheSize;
     while (availableSize < frameSize) {
       ByteBuf cachedFrame = cachedFrames.poll();
@@ -167,42 +220,47 @@ void saveFrame(ByteBuf frame) {
         break;
       }
     }
-    if (availableSize >= frameSize) {
-      cachedFrames.offer(frame.retain());
+    if (reservation != null) {
+      /*the budget is exhausted by connected sessions, make space from the oldest frames of this one*/
+      while (!reserved && availableSize >= frameSize) {
+        reserved = reservation.tryAcquire(frameSize);
+        if (!reserved) {
+          ByteBuf cachedFrame = cachedFrames.poll();
+          if (cachedFrame != null) {
+            availableSize += releaseTailFrame(cachedFrame);
+          } else {
+            break;
+          }
+        }
+      }
+    }
+    if (availableSize >= frameSize && (reserved || reservation == null)) {
+      cachedFrames.add(frame.retain(), position + cacheSize);
       cacheSize += frameSize;
     } else {
+      if (reserved) {
+        reservation.release(frameSize);
+      }
       position += frameSize;
     }
   }
 
   static class ResumeStreamState {
-    private final int cacheSize;
+    private final long endSequence;
     private final int expectedRefCnt;
-    private int cacheCounter;
+    private long sequence;
 
-    public ResumeStreamState(int cacheSize, int expectedRefCnt) {
-      this.cacheSize = cacheSize;
+    public ResumeStreamState(long sequence, long endSequence, int expectedRefCnt) {
+      this.sequence = sequence;
+      this.endSequence = endSequence;
       this.expectedRefCnt = expectedRefCnt;
     }
 
-    public boolean next() {
-      if (cacheCounter < cacheSize) {
-        cacheCounter++;
-        return true;
-      } else {
-        return false;
-      }
-    }
-
     public boolean shouldRetain(ByteBuf frame) {
       return frame.refCnt() == expectedRefCnt;
     }
   }
 
-  static Queue<ByteBuf> cachedFramesQueue(int size) {
-    return Queues.<ByteBuf>get(size).get();
-  }
-
   class FramesSubscriber implements Subscriber<ByteBuf> {
     private final long firstRequestSize;
     private final long refillSize;
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.fragmentation.RejectedFrame;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * A {@link ResumableFramesStore} that keeps frames in append-only segment files mapped into memory,
+ * so a session can hold a window of frames far larger than it could afford to keep in buffers. Each
+ * store writes its segments into a directory of its own, created under the given one, and deletes
+ * them when it is disposed.
+ *
+ * <p>Every segment records the frame positions it spans, so {@link #releaseFrames(long)} drops
+ * whole acknowledged segments without reading them and only walks the frames of the segment the
+ * remote position falls into. {@link #resumeStream()} replays frames as buffers wrapping the mapped
+ * segments, without copying them. When the stored frames exceed {@code maxStoredBytes}, the oldest
+ * frames are removed to make space, as {@link InMemoryResumableFramesStore} does.
+ *
+ * <p>Can be plugged in through {@link
+ * io.rsocket.core.Resume#storeFactory(java.util.function.Function) Resume.storeFactory}, e.g.:
+ *
+ * <pre>{@code
+ * new Resume()
+ *     .storeFactory(token -> new MappedResumableFramesStore("client", directory, 16 << 20, 1L << 30))
+ * }</pre>
+ */
+public class MappedResumableFramesStore implements ResumableFramesStore {
+  private static final Logger logger = LoggerFactory.getLogger(MappedResumableFramesStore.class);
+
+  static final int FRAME_LENGTH_SIZE = Integer.BYTES;
+
+  private final MonoProcessor<Void> disposed = MonoProcessor.create();
+  private final String tag;
+  private final Path directory;
+  private final int segmentSize;
+  private final long maxStoredBytes;
+
+  // guarded by this
+  final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  long storedBytes;
+  private int segmentCount;
+
+  volatile long position;
+  volatile long impliedPosition;
+
+  /**
+   * Creates a new store.
+   *
+   * @param tag the tag to use in log messages
+   * @param directory the directory to create the directory of this store in
+   * @param segmentSize the size of each segment file in bytes; a frame that does not fit into a
+   *     segment of this size is given a segment of its own
+   * @param maxStoredBytes the maximum number of frame bytes to store
+   * @throws UncheckedIOException if the directory of this store cannot be created
+   */
+  public MappedResumableFramesStore(
+      String tag, Path directory, int segmentSize, long maxStoredBytes) {
+    Objects.requireNonNull(directory, "directory must not be null");
+    if (segmentSize <= FRAME_LENGTH_SIZE) {
+      throw new IllegalArgumentException("segmentSize must be greater than " + FRAME_LENGTH_SIZE);
+    }
+    if (maxStoredBytes <= 0) {
+      throw new IllegalArgumentException("maxStoredBytes must be positive");
+    }
+    this.tag = tag;
+    this.segmentSize = segmentSize;
+    this.maxStoredBytes = maxStoredBytes;
+    try {
+      this.directory = Files.createTempDirectory(directory, "rsocket-resume-");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public Mono<Void> saveFrames(Flux<ByteBuf> frames) {
+    MonoProcessor<Void> completed = MonoProcessor.create();
+    frames
+        .doFinally(s -> completed.onComplete())
+        .subscribe(
+            this::saveFrame,
+            t -> logger.info("unexpected onError signal: {}, {}", t.getClass(), t.getMessage()));
+    return completed;
+  }
+
+  @Override
+  public synchronized void releaseFrames(long remoteImpliedPos) {
+    long pos = position;
+    logger.debug(
+        "{} Removing frames for local: {}, remote implied: {}", tag, pos, remoteImpliedPos);
+    if (remoteImpliedPos <= pos) {
+      return;
+    }
+
+    Segment segment;
+    // skip the segments the remote has received in full, without reading their frames
+    while ((segment = segments.peekFirst()) != null
+        && segment.endPosition <= remoteImpliedPos
+        && segment.readIndex < segment.writeIndex) {
+      storedBytes -= segment.endPosition - position;
+      position = segment.endPosition;
+      segment.readIndex = segment.writeIndex;
+      removeIfReleased(segment);
+    }
+
+    while (position < remoteImpliedPos && releaseTailFrame() > 0) {}
+
+    if (position < remoteImpliedPos) {
+      throw new IllegalStateException(
+          String.format(
+              "Local and remote state disagreement: "
+                  + "need to remove additional %d bytes, but cache is empty",
+              remoteImpliedPos - position));
+    } else if (position > remoteImpliedPos) {
+      throw new IllegalStateException(
+          "Local and remote state disagreement: " + "local and remote frame sizes are not equal");
+    } else {
+      logger.debug("{} Removed frames. Current store size: {}", tag, storedBytes);
+    }
+  }
+
+  @Override
+  public Flux<ByteBuf> resumeStream() {
+    return Flux.<ByteBuf, ResumeStreamState>generate(
+        this::resumeStreamState,
+        (state, sink) -> {
+          ByteBuf frame = state.next();
+          if (frame != null) {
+            sink.next(frame);
+          } else {
+            sink.complete();
+            logger.debug("{} Resuming stream completed", tag);
+          }
+          return state;
+        });
+  }
+
+  @Override
+  public long framePosition() {
+    return position;
+  }
+
+  @Override
+  public long frameImpliedPosition() {
+    return impliedPosition;
+  }
+
+  @Override
+  public void resumableFrameReceived(ByteBuf frame) {
+    /*called on transport thread so non-atomic on volatile is safe*/
+    impliedPosition += RejectedFrame.resumableLength(frame);
+  }
+
+  @Override
+  public Mono<Void> onClose() {
+    return disposed;
+  }
+
+  @Override
+  public void dispose() {
+    synchronized (this) {
+      storedBytes = 0;
+      Segment segment;
+      while ((segment = segments.pollFirst()) != null) {
+        segment.delete();
+      }
+      try {
+        Files.deleteIfExists(directory);
+      } catch (IOException e) {
+        logger.debug("{} Failed to delete store directory {}", tag, directory, e);
+      }
+    }
+    disposed.onComplete();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return disposed.isTerminated();
+  }
+
+  synchronized void saveFrame(ByteBuf frame) {
+    int frameSize = frame.readableBytes();
+    if (frameSize > maxStoredBytes) {
+      // does not fit at all, the stream can no longer be resumed from before this frame
+      while (releaseTailFrame() > 0) {}
+      position += frameSize;
+      Segment segment = segments.peekLast();
+      if (segment != null) {
+        // the segment kept for writing ends where the next frame starts
+        segment.endPosition = position;
+      }
+      return;
+    }
+    while (storedBytes + frameSize > maxStoredBytes && releaseTailFrame() > 0) {}
+
+    int recordSize = FRAME_LENGTH_SIZE + frameSize;
+    Segment segment = segments.peekLast();
+    if (segment == null || segment.capacity() - segment.writeIndex < recordSize) {
+      if (segment != null && segment.readIndex == segment.writeIndex) {
+        // all of its frames are released, so it would only sit at the head of the new one
+        segments.pollLast();
+        segment.delete();
+      }
+      segment = newSegment(Math.max(segmentSize, recordSize), position + storedBytes);
+      segments.offerLast(segment);
+    }
+
+    segment.append(frame, frameSize);
+    storedBytes += frameSize;
+  }
+
+  /** Releases the oldest stored frame, returning its size or {@code 0} if there is none. */
+  private int releaseTailFrame() {
+    Segment segment;
+    while ((segment = segments.peekFirst()) != null
+        && segment.readIndex == segment.writeIndex
+        && segments.size() > 1) {
+      segments.pollFirst();
+      segment.delete();
+    }
+    if (segment == null || segment.readIndex == segment.writeIndex) {
+      return 0;
+    }
+    int frameSize = segment.buffer.getInt(segment.readIndex);
+    segment.readIndex += FRAME_LENGTH_SIZE + frameSize;
+    storedBytes -= frameSize;
+    position += frameSize;
+    removeIfReleased(segment);
+    return frameSize;
+  }
+
+  /** Deletes a segment once all of its frames are released, unless it is still being written. */
+  private void removeIfReleased(Segment segment) {
+    if (segment.readIndex == segment.writeIndex && segments.size() > 1) {
+      segments.pollFirst();
+      segment.delete();
+    }
+  }
+
+  private Segment newSegment(int capacity, long startPosition) {
+    Path file = directory.resolve(String.format("%010d.segment", segmentCount++));
+    try {
+      return new Segment(file, capacity, startPosition);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private synchronized ResumeStreamState resumeStreamState() {
+    List<ByteBuffer> frames = new ArrayList<>();
+    for (Segment segment : segments) {
+      frames.add(segment.readable());
+    }
+    return new ResumeStreamState(frames);
+  }
+
+  static final class Segment {
+    final Path file;
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+    long endPosition;
+    int readIndex;
+    int writeIndex;
+
+    Segment(Path file, int capacity, long startPosition) throws IOException {
+      this.file = file;
+      this.channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      try {
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      } catch (IOException e) {
+        channel.close();
+        Files.deleteIfExists(file);
+        throw e;
+      }
+      this.endPosition = startPosition;
+    }
+
+    int capacity() {
+      return buffer.capacity();
+    }
+
+    void append(ByteBuf frame, int frameSize) {
+      buffer.putInt(writeIndex, frameSize);
+      ByteBuffer target = buffer.duplicate();
+      target.position(writeIndex + FRAME_LENGTH_SIZE);
+      target.limit(writeIndex + FRAME_LENGTH_SIZE + frameSize);
+      frame.getBytes(frame.readerIndex(), target);
+      writeIndex += FRAME_LENGTH_SIZE + frameSize;
+      endPosition += frameSize;
+    }
+
+    /** Returns a view of the frame records that are not released yet. */
+    ByteBuffer readable() {
+      ByteBuffer readable = buffer.duplicate();
+      readable.position(readIndex);
+      readable.limit(writeIndex);
+      return readable.slice();
+    }
+
+    void delete() {
+      // the mapping stays valid until it is garbage collected, so frames being replayed from this
+      // segment can still be read after it is deleted
+      try {
+        channel.close();
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        logger.debug("Failed to delete segment {}", file, e);
+      }
+    }
+  }
+
+  static final class ResumeStreamState {
+    private final List<ByteBuffer> segments;
+    private int segmentIndex;
+
+    ResumeStreamState(List<ByteBuffer> segments) {
+      this.segments = segments;
+    }
+
+    ByteBuf next() {
+      while (segmentIndex < segments.size()) {
+        ByteBuffer segment = segments.get(segmentIndex);
+        if (segment.remaining() >= FRAME_LENGTH_SIZE) {
+          int frameSize = segment.getInt();
+          ByteBuffer frame = segment.slice();
+          frame.limit(frameSize);
+          segment.position(segment.position() + frameSize);
+          return Unpooled.wrappedBuffer(frame);
+        }
+        segmentIndex++;
+      }
+      return null;
+    }
+  }
+}
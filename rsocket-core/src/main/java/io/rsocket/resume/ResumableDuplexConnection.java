@@ -20,6 +20,7 @@
 import io.netty.buffer.ByteBufAllocator;
 import io.rsocket.Closeable;
 import io.rsocket.DuplexConnection;
+import io.rsocket.fragmentation.RejectedFrame;
 import io.rsocket.frame.FrameHeaderCodec;
 import java.nio.channels.ClosedChannelException;
 import java.time.Duration;
@@ -68,6 +69,13 @@ public class ResumableDuplexConnection implements DuplexConnection, ResumeStateH
 
   private volatile Runnable onResume;
   private volatile Runnable onDisconnect;
+  private volatile Runnable onAcknowledgePosition;
+  /*thresholds of received bytes and frames that trigger a position acknowledgement, 0 if none*/
+  private volatile long ackBytesThreshold;
+  private volatile int ackFramesThreshold;
+  /*accessed on the transport thread only*/
+  private long unacknowledgedBytes;
+  private int unacknowledgedFrames;
   private volatile int state;
   private volatile Disposable resumedStreamDisposable = Disposables.disposed();
 
@@ -85,6 +93,8 @@ public ResumableDuplexConnection(
     resumableFramesStore
         .saveFrames(resumeSaveStreamRequestListener.apply(resumeSaveFrames))
         .subscribe(resumeSaveCompleted);
+    /*frames can no longer be resumed once the store is gone, e.g. evicted from a memory budget*/
+    resumableFramesStore.onClose().doFinally(s -> dispose()).subscribe();
 
     upstreams.flatMap(Function.identity()).subscribe(upstreamSubscriber);
 
@@ -126,6 +136,32 @@ public void onResume(Runnable onResumeAction) {
     this.onResume = onResumeAction;
   }
 
+  /**
+   * Sets the action that acknowledges the position received so far to the remote end, which it can
+   * use to release frames from its store. The action is run whenever resumable frames received
+   * since the last acknowledgement reach one of the thresholds set with {@link
+   * #acknowledgePositionEvery(long, int)}.
+   */
+  public void onAcknowledgePosition(Runnable onAcknowledgePositionAction) {
+    this.onAcknowledgePosition = onAcknowledgePositionAction;
+  }
+
+  /**
+   * Acknowledges the received position after the given number of resumable bytes or frames, in
+   * addition to the acknowledgements sent with {@code KEEPALIVE} frames at every keep-alive tick.
+   *
+   * @param bytes the number of bytes to acknowledge at once, or {@code 0} for no threshold in bytes
+   * @param frames the number of frames to acknowledge at once, or {@code 0} for no threshold in
+   *     frames
+   */
+  public void acknowledgePositionEvery(long bytes, int frames) {
+    if (bytes < 0 || frames < 0) {
+      throw new IllegalArgumentException("thresholds must not be negative");
+    }
+    this.ackBytesThreshold = bytes;
+    this.ackFramesThreshold = frames;
+  }
+
   /*reconnected by session after error. After this downstream can receive frames,
    * but sending in suppressed until resume() is called*/
   public void reconnect(DuplexConnection connection) {
@@ -170,11 +206,31 @@ public Flux<ByteBuf> receive() {
                     f -> {
                       if (isResumableFrame(f)) {
                         resumableFramesStore.resumableFrameReceived(f);
+                        resumableFrameReceived(f);
                       }
                     })
                 .onErrorResume(err -> Mono.never()));
   }
 
+  private void resumableFrameReceived(ByteBuf frame) {
+    long bytesThreshold = ackBytesThreshold;
+    int framesThreshold = ackFramesThreshold;
+    if (bytesThreshold == 0 && framesThreshold == 0) {
+      return;
+    }
+    unacknowledgedBytes += RejectedFrame.resumableLength(frame);
+    unacknowledgedFrames++;
+    if ((bytesThreshold > 0 && unacknowledgedBytes >= bytesThreshold)
+        || (framesThreshold > 0 && unacknowledgedFrames >= framesThreshold)) {
+      unacknowledgedBytes = 0;
+      unacknowledgedFrames = 0;
+      Runnable r = this.onAcknowledgePosition;
+      if (r != null) {
+        r.run();
+      }
+    }
+  }
+
   public long position() {
     return resumableFramesStore.framePosition();
   }
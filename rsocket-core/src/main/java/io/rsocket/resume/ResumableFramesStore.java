@@ -49,7 +49,8 @@ public interface ResumableFramesStore extends Closeable {
 
   /**
    * Received resumable frame as defined by RSocket protocol. Implementation must increment frame
-   * implied position
+   * implied position, by {@link io.rsocket.fragmentation.RejectedFrame#resumableLength} so that a
+   * frame dropped by the reassembler counts with its own length
    */
   void resumableFrameReceived(ByteBuf frame);
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.util.annotation.Nullable;
+
+/**
+ * A byte budget shared by the resume stores of all sessions of a server, so the memory held for
+ * resumption stays bounded however many sessions there are. Each store draws from the budget
+ * through a {@link Reservation} for every frame it keeps and gives the bytes back when the frame is
+ * released.
+ *
+ * <p>When a frame does not fit into the budget, the sessions that are disconnected are evicted
+ * first, those disconnected for the longest time before others: their stores are disposed, which
+ * closes the session, and a later attempt to resume it is rejected. If no disconnected session is
+ * left, the store saving the frame removes its own oldest frames to make space, as it does when it
+ * reaches its own limit.
+ *
+ * <p>Sessions are known to the budget by the store that draws from it, which registers itself
+ * through {@link Reservation#onEvict(Disposable)}, and never by their resume token.
+ *
+ * <p>Configured with {@link io.rsocket.core.Resume#memoryBudget(ResumeMemoryBudget)}. The methods
+ * {@link #reservedBytes()}, {@link #reservedBytesPerSession()} and {@link #evictedSessions()} can
+ * be used to export metrics.
+ */
+public final class ResumeMemoryBudget {
+  private static final Logger logger = LoggerFactory.getLogger(ResumeMemoryBudget.class);
+
+  private final long maxBytes;
+  private final AtomicLong reservedBytes = new AtomicLong();
+  private final AtomicLong evictedSessions = new AtomicLong();
+  private final AtomicLong reservationIds = new AtomicLong();
+  // reservations keyed by the store drawing from them
+  private final Map<Disposable, Reservation> reservations = new ConcurrentHashMap<>();
+  // reservations of disconnected sessions, those disconnected for the longest time first
+  private final ConcurrentSkipListSet<Reservation> disconnectedSessions =
+      new ConcurrentSkipListSet<>(
+          Comparator.comparingLong((Reservation r) -> r.disconnectedAt)
+              .thenComparingLong(r -> r.id));
+
+  /**
+   * Creates a budget.
+   *
+   * @param maxBytes the maximum number of bytes all stores drawing from this budget may keep
+   */
+  public ResumeMemoryBudget(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be positive");
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /** Returns the maximum number of bytes all stores drawing from this budget may keep. */
+  public long maxBytes() {
+    return maxBytes;
+  }
+
+  /** Returns the number of bytes currently kept by all stores drawing from this budget. */
+  public long reservedBytes() {
+    return reservedBytes.get();
+  }
+
+  /** Returns the number of sessions evicted so far to make space for frames of other sessions. */
+  public long evictedSessions() {
+    return evictedSessions.get();
+  }
+
+  /**
+   * Returns a snapshot of the number of bytes kept by the store of each session, keyed by the
+   * {@link Reservation#id() id} of the reservation of the store.
+   */
+  public Map<Long, Long> reservedBytesPerSession() {
+    Map<Long, Long> snapshot = new HashMap<>();
+    for (Reservation reservation : reservations.values()) {
+      snapshot.put(reservation.id, reservation.reservedBytes());
+    }
+    return snapshot;
+  }
+
+  /**
+   * Opens a reservation for the store of a session. The store registers itself with {@link
+   * Reservation#onEvict(Disposable)}, and the reservation gives its bytes back to the budget when
+   * it is disposed.
+   *
+   * @return the reservation to pass to the store
+   */
+  public Reservation reserve() {
+    return new Reservation(reservationIds.incrementAndGet());
+  }
+
+  /** Marks the session of the given store as disconnected, which makes it eligible to evict. */
+  void disconnected(Disposable store) {
+    Reservation reservation = reservations.get(store);
+    if (reservation != null) {
+      reservation.disconnected();
+    }
+  }
+
+  /** Marks the session of the given store as connected again. */
+  void connected(Disposable store) {
+    Reservation reservation = reservations.get(store);
+    if (reservation != null) {
+      reservation.connected();
+    }
+  }
+
+  private boolean tryAcquire(long bytes) {
+    for (; ; ) {
+      long reserved = reservedBytes.get();
+      if (reserved + bytes > maxBytes) {
+        return false;
+      }
+      if (reservedBytes.compareAndSet(reserved, reserved + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  /* the reservation of the session disconnected for the longest time, other than the given one */
+  @Nullable
+  private Reservation evictionCandidate(Reservation exclude) {
+    for (Reservation reservation : disconnectedSessions) {
+      if (reservation != exclude && reservation.reservedBytes() > 0) {
+        return reservation;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The share of a {@link ResumeMemoryBudget} drawn by the store of one session. Stores must not
+   * call {@link #acquire(int)} while holding a lock that the store of another session may take.
+   */
+  public final class Reservation implements Disposable {
+    private static final long DISPOSED = -1;
+
+    private final long id;
+    // number of bytes drawn, or DISPOSED once the bytes are given back for good
+    private final AtomicLong bytes = new AtomicLong();
+    // only changed while the reservation is not in disconnectedSessions, which is ordered by it
+    private volatile long disconnectedAt;
+    // guarded by this
+    private boolean connected = true;
+    private volatile Disposable onEvict;
+
+    Reservation(long id) {
+      this.id = id;
+    }
+
+    /** Returns the id of this reservation, which keys it in the metrics of the budget. */
+    public long id() {
+      return id;
+    }
+
+    /** Returns the number of bytes currently drawn by this reservation. */
+    public long reservedBytes() {
+      return Math.max(0, bytes.get());
+    }
+
+    /**
+     * Sets what to dispose when the session is evicted to make space for other sessions, usually
+     * the store using this reservation.
+     */
+    public void onEvict(Disposable onEvict) {
+      Disposable previous = this.onEvict;
+      this.onEvict = Objects.requireNonNull(onEvict);
+      if (previous != null) {
+        reservations.remove(previous, this);
+      }
+      if (!isDisposed()) {
+        reservations.put(onEvict, this);
+        if (isDisposed()) {
+          reservations.remove(onEvict, this);
+        }
+      }
+    }
+
+    private synchronized void disconnected() {
+      if (connected && !isDisposed()) {
+        connected = false;
+        disconnectedAt = System.nanoTime();
+        disconnectedSessions.add(this);
+      }
+    }
+
+    private synchronized void connected() {
+      if (!connected) {
+        disconnectedSessions.remove(this);
+        connected = true;
+      }
+    }
+
+    /**
+     * Draws bytes from the budget, evicting disconnected sessions if there is not enough left.
+     *
+     * @param size the number of bytes to draw
+     * @return {@code true} if the bytes were drawn, {@code false} if they do not fit even with no
+     *     disconnected session left, or if this reservation is disposed
+     */
+    public boolean acquire(int size) {
+      while (!ResumeMemoryBudget.this.tryAcquire(size)) {
+        Reservation candidate = evictionCandidate(this);
+        if (candidate == null) {
+          return false;
+        }
+        candidate.evict();
+      }
+      return add(size);
+    }
+
+    /**
+     * Draws bytes from the budget if there are enough left, without evicting sessions.
+     *
+     * @param size the number of bytes to draw
+     * @return {@code true} if the bytes were drawn
+     */
+    public boolean tryAcquire(int size) {
+      return ResumeMemoryBudget.this.tryAcquire(size) && add(size);
+    }
+
+    /** Gives bytes drawn by this reservation back to the budget. */
+    public void release(int size) {
+      for (; ; ) {
+        long held = bytes.get();
+        if (held == DISPOSED) {
+          return;
+        }
+        if (bytes.compareAndSet(held, held - size)) {
+          reservedBytes.addAndGet(-size);
+          return;
+        }
+      }
+    }
+
+    private boolean add(int size) {
+      for (; ; ) {
+        long held = bytes.get();
+        if (held == DISPOSED) {
+          reservedBytes.addAndGet(-size);
+          return false;
+        }
+        if (bytes.compareAndSet(held, held + size)) {
+          return true;
+        }
+      }
+    }
+
+    private void evict() {
+      Disposable onEvict = this.onEvict;
+      if (!isDisposed() && onEvict != null) {
+        logger.debug(
+            "Evicting resume session {} holding {} bytes to free up memory", id, reservedBytes());
+        evictedSessions.incrementAndGet();
+        onEvict.dispose();
+      }
+      dispose();
+    }
+
+    @Override
+    public void dispose() {
+      long held = bytes.getAndSet(DISPOSED);
+      if (held != DISPOSED) {
+        Disposable onEvict = this.onEvict;
+        if (onEvict != null) {
+          reservations.remove(onEvict, this);
+        }
+        connected();
+        reservedBytes.addAndGet(-held);
+      }
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return bytes.get() == DISPOSED;
+    }
+  }
+}
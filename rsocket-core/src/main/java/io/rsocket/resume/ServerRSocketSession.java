@@ -30,6 +30,7 @@
 import reactor.core.publisher.FluxProcessor;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.ReplayProcessor;
+import reactor.util.annotation.Nullable;
 
 public class ServerRSocketSession implements RSocketSession<DuplexConnection> {
   private static final Logger logger = LoggerFactory.getLogger(ServerRSocketSession.class);
@@ -40,6 +41,8 @@ public class ServerRSocketSession implements RSocketSession<DuplexConnection> {
       ReplayProcessor.create(0);
   private final ByteBufAllocator allocator;
   private final ByteBuf resumeToken;
+  private final ResumableFramesStore resumableFramesStore;
+  @Nullable private final ResumeMemoryBudget memoryBudget;
 
   public ServerRSocketSession(
       DuplexConnection duplexConnection,
@@ -48,13 +51,40 @@ public ServerRSocketSession(
       Function<? super ByteBuf, ? extends ResumableFramesStore> resumeStoreFactory,
       ByteBuf resumeToken,
       boolean cleanupStoreOnKeepAlive) {
+    this(
+        duplexConnection,
+        resumeSessionDuration,
+        resumeStreamTimeout,
+        resumeStoreFactory,
+        resumeToken,
+        cleanupStoreOnKeepAlive,
+        null);
+  }
+
+  /**
+   * Creates a session.
+   *
+   * @param resumeSessionDuration how long the session may stay disconnected before it is disposed,
+   *     or {@code null} if it is expired by the {@link SessionManager} holding it instead
+   * @param memoryBudget the budget the store of the session draws from, or {@code null} for none
+   */
+  public ServerRSocketSession(
+      DuplexConnection duplexConnection,
+      @Nullable Duration resumeSessionDuration,
+      Duration resumeStreamTimeout,
+      Function<? super ByteBuf, ? extends ResumableFramesStore> resumeStoreFactory,
+      ByteBuf resumeToken,
+      boolean cleanupStoreOnKeepAlive,
+      @Nullable ResumeMemoryBudget memoryBudget) {
     this.allocator = duplexConnection.alloc();
     this.resumeToken = resumeToken;
+    this.memoryBudget = memoryBudget;
+    this.resumableFramesStore = resumeStoreFactory.apply(resumeToken);
     this.resumableConnection =
         new ResumableDuplexConnection(
             "server",
             duplexConnection,
-            resumeStoreFactory.apply(resumeToken),
+            resumableFramesStore,
             resumeStreamTimeout,
             cleanupStoreOnKeepAlive);
 
@@ -64,10 +94,14 @@ public ServerRSocketSession(
             .flatMap(
                 err -> {
                   logger.debug("Starting session timeout due to error", err);
-                  return newConnections
-                      .next()
-                      .doOnNext(c -> logger.debug("Connection after error: {}", c))
-                      .timeout(resumeSessionDuration);
+                  if (memoryBudget != null) {
+                    memoryBudget.disconnected(resumableFramesStore);
+                  }
+                  Mono<DuplexConnection> next =
+                      newConnections
+                          .next()
+                          .doOnNext(c -> logger.debug("Connection after error: {}", c));
+                  return resumeSessionDuration != null ? next.timeout(resumeSessionDuration) : next;
                 })
             .then()
             .cast(DuplexConnection.class);
@@ -115,6 +149,9 @@ public ServerRSocketSession resumeWith(ByteBuf resumeFrame) {
 
   @Override
   public void reconnect(DuplexConnection connection) {
+    if (memoryBudget != null) {
+      memoryBudget.connected(resumableFramesStore);
+    }
     resumableConnection.reconnect(connection);
   }
 
@@ -17,45 +17,325 @@
 package io.rsocket.resume;
 
 import io.netty.buffer.ByteBuf;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.rsocket.internal.SharedWheelTimer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import reactor.util.annotation.Nullable;
 
+/**
+ * Registry of the resumable sessions of a server, looked up by resume token.
+ *
+ * <p>A manager created with {@link #SessionManager(int, Duration)} holds at most {@code
+ * maxSessions} sessions and disposes sessions that stay disconnected for longer than the session
+ * duration. Expiry is driven by a {@link SharedWheelTimer shared timer wheel} rather than a
+ * scheduled task per session, and sessions created for such a manager should not expire by
+ * themselves. When a new session does not fit, a session is disposed to make space: the one
+ * disconnected for the longest time if any, otherwise the least recently saved or resumed one.
+ *
+ * <p>Sessions are spread over segments by the hash of their token, each with its own lock and
+ * recency order, so that lookups in a reconnect storm do not all contend on one lock. The limit
+ * applies to the sessions of all segments together, however unevenly tokens hash. A token is copied
+ * and its hash computed once when the session is saved.
+ */
 public class SessionManager {
+  private static final Logger logger = LoggerFactory.getLogger(SessionManager.class);
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final int maxSessions;
+  private final AtomicInteger size = new AtomicInteger();
+  // orders saves, resumes and disconnections
+  private final AtomicLong clock = new AtomicLong();
+  // disconnected sessions, those disconnected for the longest time first
+  private final ConcurrentSkipListSet<Entry> disconnected =
+      new ConcurrentSkipListSet<>(Comparator.comparingLong((Entry e) -> e.disconnectedAt));
+  @Nullable private final Duration sessionDuration;
+  private final Timer timer;
   private volatile boolean isDisposed;
-  private final Map<ByteBuf, ServerRSocketSession> sessions = new ConcurrentHashMap<>();
+
+  /** Creates a manager with no limit on sessions, which leaves their expiry to the sessions. */
+  public SessionManager() {
+    this(Integer.MAX_VALUE, null, SharedWheelTimer.instance(), defaultSegmentCount());
+  }
+
+  /**
+   * Creates a manager that holds at most {@code maxSessions} sessions and expires disconnected
+   * sessions itself.
+   *
+   * @param maxSessions the maximum number of sessions to hold
+   * @param sessionDuration how long a session may stay disconnected before it is disposed
+   */
+  public SessionManager(int maxSessions, Duration sessionDuration) {
+    this(
+        maxSessions,
+        Objects.requireNonNull(sessionDuration),
+        SharedWheelTimer.instance(),
+        defaultSegmentCount());
+  }
+
+  SessionManager(
+      int maxSessions, @Nullable Duration sessionDuration, Timer timer, int maxSegmentCount) {
+    if (maxSessions <= 0) {
+      throw new IllegalArgumentException("maxSessions must be positive");
+    }
+    // a power of two, and no more segments than sessions so that each can hold one
+    int segmentCount =
+        Math.min(Integer.highestOneBit(maxSegmentCount), Integer.highestOneBit(maxSessions));
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment();
+    }
+    this.segmentMask = segmentCount - 1;
+    this.maxSessions = maxSessions;
+    this.sessionDuration = sessionDuration;
+    this.timer = timer;
+  }
 
   public ServerRSocketSession save(ServerRSocketSession session) {
     if (isDisposed) {
       session.dispose();
-    } else {
-      ByteBuf token = session.token().retain();
-      session
-          .onClose()
-          .doOnSuccess(
-              v -> {
-                if (isDisposed || sessions.get(token) == session) {
-                  sessions.remove(token);
-                }
-                token.release();
-              })
-          .subscribe();
-      ServerRSocketSession prevSession = sessions.remove(token);
-      if (prevSession != null) {
-        prevSession.dispose();
-      }
-      sessions.put(token, session);
+      return session;
+    }
+    Token token = new Token(session.token());
+    Entry entry = new Entry(token, session);
+    entry.lastUsed = clock.incrementAndGet();
+    Segment segment = segment(token);
+    Entry previous;
+    synchronized (segment) {
+      previous = segment.entries.put(token, entry);
+    }
+    if (previous != null) {
+      previous.dispose();
+    } else if (size.incrementAndGet() > maxSessions) {
+      Entry evicted = evict(entry);
+      if (evicted != null) {
+        logger.debug("Evicting session to make space");
+        evicted.dispose();
+      }
+    }
+
+    session.onClose().doFinally(s -> remove(entry)).subscribe();
+    session.resumableConnection().connectionErrors().subscribe(err -> disconnected(entry));
+    if (isDisposed) {
+      session.dispose();
     }
     return session;
   }
 
   @Nullable
   public ServerRSocketSession get(ByteBuf resumeToken) {
-    return sessions.get(resumeToken);
+    Token token = new Token(resumeToken);
+    Segment segment = segment(token);
+    Entry entry;
+    synchronized (segment) {
+      entry = segment.entries.get(token);
+    }
+    if (entry == null) {
+      return null;
+    }
+    entry.lastUsed = clock.incrementAndGet();
+    synchronized (entry) {
+      entry.cancelExpiry();
+      if (entry.disconnectedAt != 0) {
+        disconnected.remove(entry);
+        entry.disconnectedAt = 0;
+      }
+    }
+    return entry.session;
+  }
+
+  /** Returns the number of sessions held. */
+  public int size() {
+    return size.get();
   }
 
   public void dispose() {
     isDisposed = true;
-    sessions.values().forEach(ServerRSocketSession::dispose);
+    List<Entry> entries = new ArrayList<>();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        entries.addAll(segment.entries.values());
+      }
+    }
+    entries.forEach(Entry::dispose);
+  }
+
+  private static int defaultSegmentCount() {
+    return Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
+  }
+
+  private Segment segment(Token token) {
+    return segments[token.hash & segmentMask];
+  }
+
+  private void disconnected(Entry entry) {
+    synchronized (entry) {
+      if (entry.disconnectedAt == 0 && !entry.removed) {
+        entry.disconnectedAt = clock.incrementAndGet();
+        disconnected.add(entry);
+      }
+      if (sessionDuration != null) {
+        entry.scheduleExpiry(timer, sessionDuration);
+      }
+    }
+  }
+
+  /**
+   * Removes a session other than the given one to make space: the one disconnected for the longest
+   * time, or else the least recently used one, which is the eldest of one of the segments.
+   */
+  @Nullable
+  private Entry evict(Entry exclude) {
+    for (Entry entry : disconnected) {
+      if (entry != exclude && remove(entry)) {
+        return entry;
+      }
+    }
+    for (; ; ) {
+      Entry eldest = null;
+      for (Segment segment : segments) {
+        Entry candidate;
+        synchronized (segment) {
+          candidate = segment.eldest(exclude);
+        }
+        if (candidate != null && (eldest == null || candidate.lastUsed < eldest.lastUsed)) {
+          eldest = candidate;
+        }
+      }
+      if (eldest == null) {
+        return null;
+      }
+      if (remove(eldest)) {
+        return eldest;
+      }
+    }
+  }
+
+  /** Removes the entry, returning whether it was still held. */
+  private boolean remove(Entry entry) {
+    Segment segment = segment(entry.token);
+    boolean removed;
+    synchronized (segment) {
+      removed = segment.entries.remove(entry.token, entry);
+    }
+    synchronized (entry) {
+      entry.removed = true;
+      entry.cancelExpiry();
+      if (entry.disconnectedAt != 0) {
+        disconnected.remove(entry);
+      }
+    }
+    if (removed) {
+      size.decrementAndGet();
+    }
+    return removed;
+  }
+
+  static final class Segment {
+    // in access order, the least recently used entry first
+    final LinkedHashMap<Token, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /* called holding the lock on this segment */
+    @Nullable
+    Entry eldest(Entry exclude) {
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (iterator.hasNext()) {
+        Entry entry = iterator.next();
+        if (entry != exclude) {
+          return entry;
+        }
+      }
+      return null;
+    }
+  }
+
+  static final class Entry {
+    final Token token;
+    final ServerRSocketSession session;
+    volatile long lastUsed;
+    // when the session disconnected, or 0 while it is connected; only changed under the lock on
+    // this entry and while it is not in the set of disconnected sessions, which is ordered by it
+    volatile long disconnectedAt;
+    // guarded by this
+    boolean removed;
+    @Nullable private Timeout expiry;
+
+    Entry(Token token, ServerRSocketSession session) {
+      this.token = token;
+      this.session = session;
+    }
+
+    synchronized void scheduleExpiry(Timer timer, Duration sessionDuration) {
+      if (expiry == null) {
+        expiry =
+            timer.newTimeout(
+                timeout -> {
+                  logger.debug("Session expired");
+                  session.dispose();
+                },
+                sessionDuration.toNanos(),
+                TimeUnit.NANOSECONDS);
+      }
+    }
+
+    synchronized void cancelExpiry() {
+      if (expiry != null) {
+        expiry.cancel();
+        expiry = null;
+      }
+    }
+
+    void dispose() {
+      cancelExpiry();
+      session.dispose();
+    }
+  }
+
+  /**
+   * A copy of a resume token, with its hash computed once. Resume tokens are session credentials,
+   * so this is never logged.
+   */
+  static final class Token {
+    final byte[] bytes;
+    final int hash;
+
+    Token(ByteBuf token) {
+      this.bytes = ByteBufUtil.getBytes(token);
+      int hash = Arrays.hashCode(bytes);
+      // spread the high bits, as the low ones select the segment
+      this.hash = hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Token)) {
+        return false;
+      }
+      Token token = (Token) o;
+      return hash == token.hash && Arrays.equals(bytes, token.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
   }
 }
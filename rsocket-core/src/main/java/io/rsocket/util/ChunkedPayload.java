@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+import io.rsocket.ChunkedResponderRSocket;
+import io.rsocket.Payload;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+/**
+ * A {@link Payload} whose data is a stream of chunks rather than a single buffer, so that a large
+ * payload never has to be held in memory as a whole.
+ *
+ * <p>When sent with fire-and-forget, request-response or request-stream, the request frame carries
+ * the metadata and every chunk follows as a fragment of its own, written out as soon as it is
+ * produced. A peer that does not stream fragmented requests reassembles the chunks into a single
+ * payload as usual. The chunks must each fit into a frame unless fragmentation is enabled. They are
+ * subscribed to on the scheduler that serializes the requests of the connection, so a publisher
+ * that blocks, such as one that reads a file, should move to a scheduler of its own with {@code
+ * subscribeOn}.
+ *
+ * <p>A responder that enables {@code streamFragmentedRequests} hands every fragmented request to a
+ * {@link ChunkedResponderRSocket} handler as a {@code ChunkedPayload} as soon as its first fragment
+ * arrives, and each following fragment is emitted by {@link #chunks()} as it lands. The handler
+ * must consume and release the chunks; up to {@link ChunkedResponderRSocket#MAX_BUFFERED_CHUNKS}
+ * are held for it, after which the request is rejected. A handler of any other type never sees a
+ * {@code ChunkedPayload}: the chunks are {@link #aggregate aggregated} into a regular payload
+ * first.
+ *
+ * <p>The data is only available through {@link #chunks()}, which can be consumed once, or {@link
+ * #aggregate}. {@link #data()} and {@link #sliceData()} throw an {@link IllegalStateException}.
+ */
+public final class ChunkedPayload extends AbstractReferenceCounted implements Payload {
+
+  /** The most components of the buffer the chunks are aggregated into, before it is compacted. */
+  static final int MAX_COMPONENTS = 1024;
+
+  private final Publisher<ByteBuf> chunks;
+  private final ByteBufAllocator allocator;
+  @Nullable private ByteBuf metadata;
+  private boolean consumed;
+
+  private ChunkedPayload(
+      @Nullable ByteBuf metadata, Publisher<ByteBuf> chunks, ByteBufAllocator allocator) {
+    this.metadata = metadata;
+    this.chunks = chunks;
+    this.allocator = allocator;
+  }
+
+  /**
+   * Static factory method for a payload without metadata.
+   *
+   * @param chunks the data of the payload, in chunks
+   * @return a payload
+   */
+  public static ChunkedPayload create(Publisher<ByteBuf> chunks) {
+    return create(null, chunks);
+  }
+
+  /**
+   * Static factory method for a payload with metadata.
+   *
+   * @param metadata the metadata of the payload, released with the payload
+   * @param chunks the data of the payload, in chunks
+   * @return a payload
+   */
+  public static ChunkedPayload create(@Nullable ByteBuf metadata, Publisher<ByteBuf> chunks) {
+    return create(metadata, chunks, ByteBufAllocator.DEFAULT);
+  }
+
+  /**
+   * Static factory method for a payload with metadata, whose chunks are aggregated into buffers of
+   * the given allocator.
+   *
+   * @param metadata the metadata of the payload, released with the payload
+   * @param chunks the data of the payload, in chunks
+   * @param allocator the allocator used by {@link #aggregate()}
+   * @return a payload
+   */
+  public static ChunkedPayload create(
+      @Nullable ByteBuf metadata, Publisher<ByteBuf> chunks, ByteBufAllocator allocator) {
+    Objects.requireNonNull(chunks, "chunks must not be null");
+    Objects.requireNonNull(allocator, "allocator must not be null");
+    return new ChunkedPayload(metadata, chunks, allocator);
+  }
+
+  /**
+   * Returns the data of the payload, one chunk at a time. Each chunk is handed over to the
+   * subscriber, which has to release it. If the payload is released without this ever being called,
+   * the chunks are cancelled when the publisher is {@link Disposable}.
+   *
+   * @return the chunks of the data
+   */
+  public Flux<ByteBuf> chunks() {
+    ensureAccessible();
+    consumed = true;
+    return Flux.from(chunks);
+  }
+
+  /**
+   * Collects the chunks into a payload that holds the whole data, for code that expects a regular
+   * {@link Payload}, in a buffer of the allocator this payload was created with. This payload is
+   * released.
+   *
+   * @return the payload, once the last chunk is received
+   */
+  public Mono<Payload> aggregate() {
+    ensureAccessible();
+    final ByteBuf metadata = this.metadata == null ? null : this.metadata.retain();
+    final Flux<ByteBuf> chunks = chunks();
+    release();
+
+    return Mono.defer(
+        () -> {
+          CompositeByteBuf data = allocator.compositeBuffer(MAX_COMPONENTS);
+          AtomicBoolean handedOver = new AtomicBoolean();
+          return chunks
+              .doOnNext(chunk -> data.addComponent(true, chunk))
+              .then(
+                  Mono.fromCallable(
+                      () -> {
+                        handedOver.set(true);
+                        return ByteBufPayload.create(data, metadata);
+                      }))
+              .doFinally(
+                  signalType -> {
+                    if (!handedOver.get()) {
+                      data.release();
+                      if (metadata != null) {
+                        metadata.release();
+                      }
+                    }
+                  });
+        });
+  }
+
+  @Override
+  public boolean hasMetadata() {
+    ensureAccessible();
+    return metadata != null;
+  }
+
+  @Override
+  public ByteBuf sliceMetadata() {
+    ensureAccessible();
+    return metadata == null ? Unpooled.EMPTY_BUFFER : metadata.slice();
+  }
+
+  @Override
+  public ByteBuf sliceData() {
+    throw new IllegalStateException("The data of a chunked payload is only available as chunks");
+  }
+
+  @Override
+  public ByteBuf data() {
+    throw new IllegalStateException("The data of a chunked payload is only available as chunks");
+  }
+
+  @Override
+  public ByteBuf metadata() {
+    ensureAccessible();
+    return metadata == null ? Unpooled.EMPTY_BUFFER : metadata;
+  }
+
+  @Override
+  public ChunkedPayload retain() {
+    super.retain();
+    return this;
+  }
+
+  @Override
+  public ChunkedPayload retain(int increment) {
+    super.retain(increment);
+    return this;
+  }
+
+  @Override
+  public ChunkedPayload touch() {
+    ensureAccessible();
+    if (metadata != null) {
+      metadata.touch();
+    }
+    return this;
+  }
+
+  @Override
+  public ChunkedPayload touch(Object hint) {
+    ensureAccessible();
+    if (metadata != null) {
+      metadata.touch(hint);
+    }
+    return this;
+  }
+
+  @Override
+  protected void deallocate() {
+    if (metadata != null) {
+      metadata.release();
+      metadata = null;
+    }
+    if (!consumed && chunks instanceof Disposable) {
+      ((Disposable) chunks).dispose();
+    }
+  }
+
+  private void ensureAccessible() {
+    if (refCnt() == 0) {
+      throw new IllegalReferenceCountException(0);
+    }
+  }
+}
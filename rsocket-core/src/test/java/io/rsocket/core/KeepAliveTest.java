@@ -22,14 +22,18 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCounted;
 import io.rsocket.RSocket;
 import io.rsocket.TestScheduler;
 import io.rsocket.buffer.LeaksTrackingByteBufAllocator;
 import io.rsocket.exceptions.ConnectionErrorException;
+import io.rsocket.frame.CancelFrameCodec;
 import io.rsocket.frame.FrameHeaderCodec;
 import io.rsocket.frame.FrameType;
 import io.rsocket.frame.KeepAliveFrameCodec;
+import io.rsocket.internal.ClientServerInputMultiplexer;
 import io.rsocket.lease.RequesterLeaseHandler;
+import io.rsocket.plugins.InitializingInterceptorRegistry;
 import io.rsocket.resume.InMemoryResumableFramesStore;
 import io.rsocket.resume.ResumableDuplexConnection;
 import io.rsocket.test.util.TestDuplexConnection;
@@ -38,6 +42,7 @@
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -68,6 +73,27 @@ static RSocketState requester(int tickPeriod, int timeout) {
     return new RSocketState(rSocket, allocator, connection);
   }
 
+  static RSocketState multiplexedRequester(
+      int tickPeriod, int timeout, boolean skipTicksWhenActive) {
+    LeaksTrackingByteBufAllocator allocator =
+        LeaksTrackingByteBufAllocator.instrument(ByteBufAllocator.DEFAULT);
+    TestDuplexConnection connection = new TestDuplexConnection(allocator);
+    ClientServerInputMultiplexer multiplexer =
+        new ClientServerInputMultiplexer(connection, new InitializingInterceptorRegistry(), true);
+    RSocketRequester rSocket =
+        new RSocketRequester(
+            multiplexer.asClientConnection(),
+            DefaultPayload::create,
+            StreamIdSupplier.clientSupplier(),
+            0,
+            tickPeriod,
+            timeout,
+            new DefaultKeepAliveHandler(multiplexer, skipTicksWhenActive),
+            RequesterLeaseHandler.None,
+            TestScheduler.INSTANCE);
+    return new RSocketState(rSocket, allocator, connection);
+  }
+
   static ResumableRSocketState resumableRequester(int tickPeriod, int timeout) {
     LeaksTrackingByteBufAllocator allocator =
         LeaksTrackingByteBufAllocator.instrument(ByteBufAllocator.DEFAULT);
@@ -224,6 +250,102 @@ void resumableRSocketsNotDisposedOnMissingKeepAlives() {
     Assertions.assertThat(connection.isDisposed()).isTrue();
   }
 
+  @Test
+  void resumableRequesterAcknowledgesPositionOnThreshold() {
+    ResumableRSocketState rSocketState = resumableRequester(100_000, 100_000);
+    TestDuplexConnection connection = rSocketState.connection();
+    rSocketState.resumableDuplexConnection().acknowledgePositionEvery(0, 2);
+
+    ByteBuf first = CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1);
+    ByteBuf second = CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 3);
+    long position = first.readableBytes() + second.readableBytes();
+
+    StepVerifier.create(Flux.from(connection.getSentAsPublisher()).take(1))
+        .then(() -> connection.addToReceivedBuffer(first))
+        .then(() -> Assertions.assertThat(connection.getSent()).isEmpty())
+        .then(() -> connection.addToReceivedBuffer(second))
+        .expectNextMatches(
+            frame ->
+                keepAliveFrameWithoutRespondFlag(frame)
+                    && KeepAliveFrameCodec.lastPosition(frame) == position)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void rSocketNotDisposedOnPresentOtherFrames() {
+    RSocketState rSocketState =
+        multiplexedRequester(KEEP_ALIVE_INTERVAL, KEEP_ALIVE_TIMEOUT, false);
+    TestDuplexConnection connection = rSocketState.connection();
+
+    Disposable traffic =
+        Flux.interval(Duration.ofMillis(100))
+            .subscribe(
+                n ->
+                    connection.addToReceivedBuffer(
+                        CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1)));
+
+    Mono.delay(Duration.ofMillis(2000)).block();
+    traffic.dispose();
+
+    Assertions.assertThat(rSocketState.rSocket().isDisposed()).isFalse();
+    rSocketState.rSocket().dispose();
+    Assertions.assertThat(connection.getSent()).allMatch(ReferenceCounted::release);
+  }
+
+  @Test
+  void requesterSkipsKeepAlivesWhileActive() {
+    RSocketState rSocketState = multiplexedRequester(KEEP_ALIVE_INTERVAL, KEEP_ALIVE_TIMEOUT, true);
+    TestDuplexConnection connection = rSocketState.connection();
+
+    Disposable traffic =
+        Flux.interval(Duration.ofMillis(20))
+            .subscribe(
+                n -> {
+                  connection.addToReceivedBuffer(
+                      CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1));
+                  rSocketState
+                      .rSocket()
+                      .fireAndForget(DefaultPayload.create("traffic"))
+                      .subscribe();
+                });
+
+    Mono.delay(Duration.ofMillis(1000)).block();
+    traffic.dispose();
+
+    Assertions.assertThat(connection.getSent()).isNotEmpty().noneMatch(this::keepAliveFrame);
+    Assertions.assertThat(rSocketState.rSocket().isDisposed()).isFalse();
+
+    StepVerifier.create(Flux.from(connection.getSentAsPublisher()).take(1))
+        .expectNextMatches(this::keepAliveFrameWithRespondFlag)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    rSocketState.rSocket().dispose();
+    Assertions.assertThat(connection.getSent()).allMatch(ReferenceCounted::release);
+  }
+
+  @Test
+  void requesterSendsKeepAlivesWhileOnlyReceiving() {
+    RSocketState rSocketState = multiplexedRequester(KEEP_ALIVE_INTERVAL, KEEP_ALIVE_TIMEOUT, true);
+    TestDuplexConnection connection = rSocketState.connection();
+
+    Disposable traffic =
+        Flux.interval(Duration.ofMillis(20))
+            .subscribe(
+                n ->
+                    connection.addToReceivedBuffer(
+                        CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1)));
+
+    StepVerifier.create(Flux.from(connection.getSentAsPublisher()).take(2))
+        .expectNextMatches(this::keepAliveFrameWithRespondFlag)
+        .expectNextMatches(this::keepAliveFrameWithRespondFlag)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    traffic.dispose();
+    rSocketState.rSocket().dispose();
+    Assertions.assertThat(connection.getSent()).allMatch(ReferenceCounted::release);
+  }
+
   private boolean keepAliveFrame(ByteBuf frame) {
     return FrameHeaderCodec.frameType(frame) == FrameType.KEEPALIVE;
   }
@@ -20,7 +20,9 @@
 import static io.rsocket.frame.FrameType.SETUP;
 import static org.assertj.core.data.Offset.offset;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.netty.buffer.ByteBuf;
@@ -71,6 +73,7 @@ class RSocketLeaseTest {
   private ByteBufAllocator byteBufAllocator;
   private TestDuplexConnection connection;
   private RSocketResponder rSocketResponder;
+  private RSocket mockRSocketHandler;
 
   private EmitterProcessor<Lease> leaseSender = EmitterProcessor.create();
   private Flux<Lease> leaseReceiver;
@@ -101,7 +104,7 @@ void setUp() {
             requesterLeaseHandler,
             TestScheduler.INSTANCE);
 
-    RSocket mockRSocketHandler = mock(RSocket.class);
+    mockRSocketHandler = mock(RSocket.class);
     when(mockRSocketHandler.metadataPush(any())).thenReturn(Mono.empty());
     when(mockRSocketHandler.fireAndForget(any())).thenReturn(Mono.empty());
     when(mockRSocketHandler.requestResponse(any())).thenReturn(Mono.empty());
@@ -262,6 +265,30 @@ void expiredLeaseRequestsAreRejected(Function<RSocket, Publisher<?>> interaction
         .verify(Duration.ofSeconds(5));
   }
 
+  @ParameterizedTest
+  @MethodSource("interactions")
+  void responderReportsAcceptedRequestsToStats(Function<RSocket, Publisher<?>> interaction) {
+    LeaseStats leaseStats = mock(LeaseStats.class);
+    RSocketResponder responder =
+        new RSocketResponder(
+            new TestDuplexConnection(byteBufAllocator),
+            mockRSocketHandler,
+            PayloadDecoder.DEFAULT,
+            new ResponderLeaseHandler.Impl<>(
+                TAG, byteBufAllocator, stats -> leaseSender, Optional.of(leaseStats)),
+            0);
+    leaseSender.onNext(Lease.create(5_000, 2));
+
+    Flux.from(interaction.apply(responder))
+        .as(StepVerifier::create)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    verify(leaseStats).onEvent(LeaseStats.EventType.ACCEPT);
+    verify(leaseStats).onRequestStarted();
+    verify(leaseStats).onRequestTerminated(anyLong());
+  }
+
   @Test
   void sendLease() {
     ByteBuf metadata = byteBufAllocator.buffer();
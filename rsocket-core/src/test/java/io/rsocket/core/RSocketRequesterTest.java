@@ -28,7 +28,9 @@
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
@@ -788,6 +790,33 @@ public void ensureSendsErrorOnIllegalRefCntPayload(
         .verify(Duration.ofMillis(100));
   }
 
+  @ParameterizedTest
+  @MethodSource("encodeErrorCases")
+  public void shouldReleaseStreamIdIfRequestFrameEncodingFails(
+      BiFunction<Payload, RSocket, Publisher<?>> sourceProducer) {
+    Payload invalidPayload = mock(Payload.class);
+    when(invalidPayload.refCnt()).thenReturn(1);
+    // passes validation, then fails once the request frame is encoded
+    when(invalidPayload.data())
+        .thenReturn(Unpooled.EMPTY_BUFFER)
+        .thenThrow(new IllegalStateException("boom"));
+
+    Publisher<?> source = sourceProducer.apply(invalidPayload, rule.socket);
+
+    StepVerifier.create(source).expectErrorMessage("boom").verify(Duration.ofMillis(100));
+
+    Assertions.assertThat(rule.streamIdSupplier.isInUse(1)).isFalse();
+    Assertions.assertThat(rule.connection.getSent()).isEmpty();
+  }
+
+  private static Stream<BiFunction<Payload, RSocket, Publisher<?>>> encodeErrorCases() {
+    return Stream.of(
+        (p, r) -> r.fireAndForget(p),
+        (p, r) -> r.requestResponse(p),
+        (p, r) -> r.requestStream(p),
+        (p, r) -> r.requestChannel(Mono.just(p)));
+  }
+
   private static Stream<BiFunction<Payload, RSocket, Publisher<?>>> refCntCases() {
     return Stream.of(
         (p, r) -> r.fireAndForget(p),
@@ -1074,12 +1103,15 @@ public void shouldTerminateAllStreamsIfThereRacingBetweenDisposeAndRequests(
   }
 
   public static class ClientSocketRule extends AbstractSocketRule<RSocketRequester> {
+    StreamIdSupplier streamIdSupplier;
+
     @Override
     protected RSocketRequester newRSocket() {
+      streamIdSupplier = StreamIdSupplier.clientSupplier();
       return new RSocketRequester(
           connection,
           PayloadDecoder.ZERO_COPY,
-          StreamIdSupplier.clientSupplier(),
+          streamIdSupplier,
           0,
           0,
           0,
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.TestScheduler;
+import io.rsocket.buffer.LeaksTrackingByteBufAllocator;
+import io.rsocket.exceptions.CanceledException;
+import io.rsocket.fragmentation.ReassemblyDuplexConnection;
+import io.rsocket.frame.ErrorFrameCodec;
+import io.rsocket.frame.FrameHeaderCodec;
+import io.rsocket.frame.FrameType;
+import io.rsocket.frame.PayloadFrameCodec;
+import io.rsocket.frame.RequestResponseFrameCodec;
+import io.rsocket.keepalive.KeepAliveHandler.ResumableKeepAliveHandler;
+import io.rsocket.lease.RequesterLeaseHandler;
+import io.rsocket.lease.ResponderLeaseHandler;
+import io.rsocket.resume.InMemoryResumableFramesStore;
+import io.rsocket.resume.ResumableDuplexConnection;
+import io.rsocket.test.util.TestDuplexConnection;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Frames dropped by the reassembler for going over its limits, with resumption on top: positions
+ * must stay in line with those of the peer, and what is sent to the peer about the dropped frames
+ * must be saved for resumption.
+ */
+public class ReassemblyLimitsResumeTest {
+  private static final byte[] data = new byte[1024];
+
+  static {
+    ThreadLocalRandom.current().nextBytes(data);
+  }
+
+  private LeaksTrackingByteBufAllocator allocator;
+  private TestDuplexConnection connection;
+  private InMemoryResumableFramesStore store;
+  private ResumableDuplexConnection resumableConnection;
+
+  @BeforeEach
+  void setUp() {
+    allocator = LeaksTrackingByteBufAllocator.instrument(ByteBufAllocator.DEFAULT);
+    connection = new TestDuplexConnection(allocator);
+    store = new InMemoryResumableFramesStore("test", 100_000);
+    resumableConnection =
+        new ResumableDuplexConnection(
+            "test",
+            new ReassemblyDuplexConnection(connection, 2 * data.length, Integer.MAX_VALUE, false),
+            store,
+            Duration.ofSeconds(10),
+            false);
+  }
+
+  @Test
+  void rejectedRequestCountsInPositionAndRejectionIsSavedForResumption() {
+    new RSocketResponder(
+        resumableConnection,
+        new RSocket() {
+          @Override
+          public Mono<Payload> requestResponse(Payload payload) {
+            payload.release();
+            return Mono.just(DefaultPayload.create("response"));
+          }
+        },
+        DefaultPayload::create,
+        ResponderLeaseHandler.None,
+        0);
+
+    long requestLength = receiveFragments(1, true, 3);
+
+    Assertions.assertThat(resumableConnection.impliedPosition()).isEqualTo(requestLength);
+    List<ByteBuf> saved = store.resumeStream().collectList().block();
+    Assertions.assertThat(saved).hasSize(1);
+    ByteBuf error = saved.get(0);
+    Assertions.assertThat(FrameHeaderCodec.frameType(error)).isEqualTo(FrameType.ERROR);
+    Assertions.assertThat(FrameHeaderCodec.streamId(error)).isEqualTo(1);
+    Assertions.assertThat(ErrorFrameCodec.errorCode(error)).isEqualTo(ErrorFrameCodec.REJECTED);
+    Assertions.assertThat(connection.getSent()).containsExactly(error);
+    error.release();
+
+    // the connection goes on as usual, from positions both ends agree on
+    ByteBuf request =
+        RequestResponseFrameCodec.encode(allocator, 3, false, null, Unpooled.wrappedBuffer(data));
+    long nextRequestLength = request.readableBytes();
+    connection.addToReceivedBuffer(request);
+
+    Assertions.assertThat(resumableConnection.impliedPosition())
+        .isEqualTo(requestLength + nextRequestLength);
+    Assertions.assertThat(connection.getSent())
+        .hasSize(2)
+        .element(1)
+        .matches(frame -> FrameHeaderCodec.frameType(frame) == FrameType.NEXT_COMPLETE);
+    resumableConnection.dispose();
+  }
+
+  @Test
+  void rejectedResponseCountsInPositionAndCancelIsSavedForResumption() {
+    RSocketRequester requester =
+        new RSocketRequester(
+            resumableConnection,
+            DefaultPayload::create,
+            StreamIdSupplier.clientSupplier(),
+            0,
+            0,
+            0,
+            new ResumableKeepAliveHandler(resumableConnection),
+            RequesterLeaseHandler.None,
+            TestScheduler.INSTANCE);
+
+    long[] responseLength = new long[1];
+    StepVerifier.create(requester.requestResponse(DefaultPayload.create("request")))
+        .then(() -> responseLength[0] = receiveFragments(1, false, 3))
+        .expectError(CanceledException.class)
+        .verify(Duration.ofSeconds(5));
+
+    Assertions.assertThat(resumableConnection.impliedPosition()).isEqualTo(responseLength[0]);
+
+    List<ByteBuf> saved = store.resumeStream().collectList().block();
+    Assertions.assertThat(saved).hasSize(2);
+    Assertions.assertThat(FrameHeaderCodec.frameType(saved.get(0)))
+        .isEqualTo(FrameType.REQUEST_RESPONSE);
+    Assertions.assertThat(FrameHeaderCodec.frameType(saved.get(1))).isEqualTo(FrameType.CANCEL);
+    Assertions.assertThat(FrameHeaderCodec.streamId(saved.get(1))).isEqualTo(1);
+    saved.forEach(ByteBuf::release);
+    resumableConnection.dispose();
+  }
+
+  /**
+   * Receives a frame of the given stream in as many fragments of {@link #data}, over the limit of
+   * two of them, and returns the length of that frame once reassembled.
+   */
+  private long receiveFragments(int streamId, boolean request, int fragments) {
+    ByteBuf[] wholeData = new ByteBuf[fragments];
+    for (int i = 0; i < fragments; i++) {
+      wholeData[i] = Unpooled.wrappedBuffer(data);
+      boolean follows = i < fragments - 1;
+      ByteBuf fragment =
+          request && i == 0
+              ? RequestResponseFrameCodec.encode(
+                  allocator, streamId, follows, null, Unpooled.wrappedBuffer(data))
+              : PayloadFrameCodec.encode(
+                  allocator, streamId, follows, !follows, true, null, Unpooled.wrappedBuffer(data));
+      connection.addToReceivedBuffer(fragment);
+    }
+    ByteBuf whole =
+        request
+            ? RequestResponseFrameCodec.encode(
+                allocator, streamId, false, null, Unpooled.wrappedBuffer(wholeData))
+            : PayloadFrameCodec.encode(
+                allocator, streamId, false, true, true, null, Unpooled.wrappedBuffer(wholeData));
+    long length = whole.readableBytes();
+    whole.release();
+    return length;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rsocket.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.rsocket.test.util.TestClientTransport;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class SerialSchedulersTest {
+
+  @Test
+  public void shouldShareABoundedSetOfSchedulers() {
+    Set<Scheduler> schedulers = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 0; i < 10_000; i++) {
+      schedulers.add(SerialSchedulers.next());
+    }
+
+    assertThat(schedulers).hasSize(SerialSchedulers.size());
+    assertThat(SerialSchedulers.size()).isEqualTo(Schedulers.DEFAULT_POOL_SIZE);
+  }
+
+  @Test
+  public void shouldBeSharedByConnections() {
+    Set<Scheduler> schedulers = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 0; i < 1_000; i++) {
+      RSocketRequester requester =
+          (RSocketRequester) RSocketConnector.connectWith(new TestClientTransport()).block();
+      schedulers.add(requester.serialScheduler);
+      requester.dispose();
+    }
+
+    assertThat(schedulers.size()).isLessThanOrEqualTo(SerialSchedulers.size());
+  }
+
+  @Test
+  public void shouldRecoverAfterParallelSchedulerShutdown() {
+    Scheduler parallel = Schedulers.newParallel("serial-schedulers-test");
+    Scheduler replacement = Schedulers.newParallel("serial-schedulers-test-replacement");
+    try {
+      Scheduler before = SerialSchedulers.next(parallel);
+
+      parallel.dispose();
+
+      Scheduler after = SerialSchedulers.next(replacement);
+      assertThat(after).isNotSameAs(before);
+      assertThat(Mono.just("ok").subscribeOn(after).block(Duration.ofSeconds(5))).isEqualTo("ok");
+    } finally {
+      parallel.dispose();
+      replacement.dispose();
+    }
+  }
+}
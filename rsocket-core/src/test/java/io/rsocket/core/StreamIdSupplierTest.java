@@ -20,42 +20,37 @@
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
-import io.netty.util.collection.IntObjectMap;
-import io.rsocket.internal.SynchronizedIntObjectHashMap;
 import org.junit.Test;
 
 public class StreamIdSupplierTest {
   @Test
   public void testClientSequence() {
-    IntObjectMap<Object> map = new SynchronizedIntObjectHashMap<>();
     StreamIdSupplier s = StreamIdSupplier.clientSupplier();
-    assertEquals(1, s.nextStreamId(map));
-    assertEquals(3, s.nextStreamId(map));
-    assertEquals(5, s.nextStreamId(map));
+    assertEquals(1, s.nextStreamId());
+    assertEquals(3, s.nextStreamId());
+    assertEquals(5, s.nextStreamId());
   }
 
   @Test
   public void testServerSequence() {
-    IntObjectMap<Object> map = new SynchronizedIntObjectHashMap<>();
     StreamIdSupplier s = StreamIdSupplier.serverSupplier();
-    assertEquals(2, s.nextStreamId(map));
-    assertEquals(4, s.nextStreamId(map));
-    assertEquals(6, s.nextStreamId(map));
+    assertEquals(2, s.nextStreamId());
+    assertEquals(4, s.nextStreamId());
+    assertEquals(6, s.nextStreamId());
   }
 
   @Test
   public void testClientIsValid() {
-    IntObjectMap<Object> map = new SynchronizedIntObjectHashMap<>();
     StreamIdSupplier s = StreamIdSupplier.clientSupplier();
 
     assertFalse(s.isBeforeOrCurrent(1));
     assertFalse(s.isBeforeOrCurrent(3));
 
-    s.nextStreamId(map);
+    s.nextStreamId();
     assertTrue(s.isBeforeOrCurrent(1));
     assertFalse(s.isBeforeOrCurrent(3));
 
-    s.nextStreamId(map);
+    s.nextStreamId();
     assertTrue(s.isBeforeOrCurrent(3));
 
     // negative
@@ -68,17 +63,16 @@ public void testClientIsValid() {
 
   @Test
   public void testServerIsValid() {
-    IntObjectMap<Object> map = new SynchronizedIntObjectHashMap<>();
     StreamIdSupplier s = StreamIdSupplier.serverSupplier();
 
     assertFalse(s.isBeforeOrCurrent(2));
     assertFalse(s.isBeforeOrCurrent(4));
 
-    s.nextStreamId(map);
+    s.nextStreamId();
     assertTrue(s.isBeforeOrCurrent(2));
     assertFalse(s.isBeforeOrCurrent(4));
 
-    s.nextStreamId(map);
+    s.nextStreamId();
     assertTrue(s.isBeforeOrCurrent(4));
 
     // negative
@@ -91,29 +85,75 @@ public void testServerIsValid() {
 
   @Test
   public void testWrap() {
-    IntObjectMap<Object> map = new SynchronizedIntObjectHashMap<>();
     StreamIdSupplier s = new StreamIdSupplier(Integer.MAX_VALUE - 3);
 
-    assertEquals(2147483646, s.nextStreamId(map));
-    assertEquals(2, s.nextStreamId(map));
-    assertEquals(4, s.nextStreamId(map));
+    assertEquals(2147483646, s.nextStreamId());
+    assertEquals(2, s.nextStreamId());
+    assertEquals(4, s.nextStreamId());
 
     s = new StreamIdSupplier(Integer.MAX_VALUE - 2);
 
-    assertEquals(2147483647, s.nextStreamId(map));
-    assertEquals(1, s.nextStreamId(map));
-    assertEquals(3, s.nextStreamId(map));
+    assertEquals(2147483647, s.nextStreamId());
+    assertEquals(1, s.nextStreamId());
+    assertEquals(3, s.nextStreamId());
   }
 
   @Test
   public void testSkipFound() {
-    IntObjectMap<Object> map = new SynchronizedIntObjectHashMap<>();
-    map.put(5, new Object());
-    map.put(9, new Object());
     StreamIdSupplier s = StreamIdSupplier.clientSupplier();
-    assertEquals(1, s.nextStreamId(map));
-    assertEquals(3, s.nextStreamId(map));
-    assertEquals(7, s.nextStreamId(map));
-    assertEquals(11, s.nextStreamId(map));
+    s.reserve(5);
+    s.reserve(9);
+    assertEquals(1, s.nextStreamId());
+    assertEquals(3, s.nextStreamId());
+    assertEquals(7, s.nextStreamId());
+    assertEquals(11, s.nextStreamId());
+  }
+
+  @Test
+  public void testReleaseAndReuseAfterWrap() {
+    StreamIdSupplier s = new StreamIdSupplier(Integer.MAX_VALUE - 2);
+    assertEquals(2147483647, s.nextStreamId());
+    assertEquals(1, s.nextStreamId());
+    assertTrue(s.isInUse(1));
+
+    s.release(2147483647);
+    assertFalse(s.isInUse(2147483647));
+    s.release(1);
+    assertFalse(s.isInUse(1));
+    // releasing twice is harmless
+    s.release(1);
+    assertEquals(3, s.nextStreamId());
+  }
+
+  @Test
+  public void testSkipBlocksOfRunningStreamsAfterWrap() {
+    StreamIdSupplier s = new StreamIdSupplier(Integer.MAX_VALUE - 2);
+    for (int i = 1; i < 1000; i += 2) {
+      s.reserve(i);
+    }
+    s.release(501);
+
+    assertEquals(2147483647, s.nextStreamId());
+    assertEquals(501, s.nextStreamId());
+    assertEquals(1001, s.nextStreamId());
+    assertEquals(1003, s.nextStreamId());
+
+    for (int i = 1; i < 1000; i += 2) {
+      s.release(i);
+    }
+    assertFalse(s.isInUse(999));
+    assertTrue(s.isInUse(1001));
+  }
+
+  @Test
+  public void testSkipBlocksOfRunningServerStreamsAfterWrap() {
+    StreamIdSupplier s = new StreamIdSupplier(Integer.MAX_VALUE - 3);
+    for (int i = 2; i <= 256; i += 2) {
+      s.reserve(i);
+    }
+
+    assertEquals(2147483646, s.nextStreamId());
+    assertEquals(258, s.nextStreamId());
+    assertTrue(s.isInUse(258));
   }
 }
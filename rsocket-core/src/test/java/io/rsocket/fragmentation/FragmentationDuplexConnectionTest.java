@@ -106,4 +106,50 @@ void sendData() {
             })
         .verifyComplete();
   }
+
+  @DisplayName("sends fragments and small frames as one continuous stream")
+  @Test
+  void sendMixedFramesAsSingleStream() {
+    ByteBuf small1 =
+        RequestResponseFrameCodec.encode(
+            allocator, 1, false, Unpooled.EMPTY_BUFFER, Unpooled.wrappedBuffer(new byte[8]));
+    ByteBuf large =
+        RequestResponseFrameCodec.encode(
+            allocator, 3, false, Unpooled.EMPTY_BUFFER, Unpooled.wrappedBuffer(data));
+    ByteBuf small2 =
+        RequestResponseFrameCodec.encode(
+            allocator, 5, false, Unpooled.EMPTY_BUFFER, Unpooled.wrappedBuffer(new byte[8]));
+
+    when(delegate.onClose()).thenReturn(Mono.never());
+    when(delegate.alloc()).thenReturn(allocator);
+
+    new FragmentationDuplexConnection(delegate, 64, "").send(Flux.just(small1, large, small2));
+
+    verify(delegate).send(publishers.capture());
+    verify(delegate, never()).sendOne(any());
+
+    StepVerifier.create(Flux.from(publishers.getValue()))
+        .assertNext(byteBuf -> Assert.assertSame(small1, byteBuf))
+        .assertNext(
+            byteBuf -> {
+              Assert.assertEquals(3, FrameHeaderCodec.streamId(byteBuf));
+              Assert.assertEquals(FrameType.REQUEST_RESPONSE, FrameHeaderCodec.frameType(byteBuf));
+              Assert.assertTrue(FrameHeaderCodec.hasFollows(byteBuf));
+              byteBuf.release();
+            })
+        .thenConsumeWhile(
+            byteBuf -> FrameHeaderCodec.streamId(byteBuf) == 3,
+            byteBuf -> {
+              if (!FrameHeaderCodec.hasFollows(byteBuf)) {
+                Assert.assertEquals(FrameType.NEXT, FrameHeaderCodec.frameType(byteBuf));
+              }
+              byteBuf.release();
+            })
+        .assertNext(byteBuf -> Assert.assertSame(small2, byteBuf))
+        .verifyComplete();
+
+    small1.release();
+    small2.release();
+    allocator.assertHasNoLeaks();
+  }
 }
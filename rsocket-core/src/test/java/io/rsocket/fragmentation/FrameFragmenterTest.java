@@ -269,7 +269,7 @@ void encodeFirstWithDataAndMetadataStream() {
   @Test
   void fragmentData() {
     ByteBuf rr =
-        RequestResponseFrameCodec.encode(allocator, 1, true, null, Unpooled.wrappedBuffer(data));
+        RequestResponseFrameCodec.encode(allocator, 1, false, null, Unpooled.wrappedBuffer(data));
 
     Publisher<ByteBuf> fragments =
         FrameFragmenter.fragmentFrame(allocator, 1024, rr, FrameType.REQUEST_RESPONSE);
@@ -296,7 +296,7 @@ void fragmentData() {
   void fragmentMetadata() {
     ByteBuf rr =
         RequestStreamFrameCodec.encode(
-            allocator, 1, true, 10, Unpooled.wrappedBuffer(metadata), Unpooled.EMPTY_BUFFER);
+            allocator, 1, false, 10, Unpooled.wrappedBuffer(metadata), Unpooled.EMPTY_BUFFER);
 
     Publisher<ByteBuf> fragments =
         FrameFragmenter.fragmentFrame(allocator, 1024, rr, FrameType.REQUEST_STREAM);
@@ -323,7 +323,7 @@ void fragmentMetadata() {
   void fragmentDataAndMetadata() {
     ByteBuf rr =
         RequestResponseFrameCodec.encode(
-            allocator, 1, true, Unpooled.wrappedBuffer(metadata), Unpooled.wrappedBuffer(data));
+            allocator, 1, false, Unpooled.wrappedBuffer(metadata), Unpooled.wrappedBuffer(data));
 
     Publisher<ByteBuf> fragments =
         FrameFragmenter.fragmentFrame(allocator, 1024, rr, FrameType.REQUEST_RESPONSE);
@@ -347,4 +347,24 @@ void fragmentDataAndMetadata() {
             })
         .verifyComplete();
   }
+
+  @DisplayName("fragments a frame that is itself a fragment")
+  @Test
+  void fragmentFollowingFragment() {
+    ByteBuf payload =
+        PayloadFrameCodec.encode(
+            allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data));
+
+    Publisher<ByteBuf> fragments =
+        FrameFragmenter.fragmentFrame(allocator, 256, payload, FrameType.NEXT);
+
+    StepVerifier.create(Flux.from(fragments))
+        .thenConsumeWhile(
+            byteBuf -> {
+              Assert.assertEquals(FrameType.NEXT, FrameHeaderCodec.frameType(byteBuf));
+              Assert.assertTrue(FrameHeaderCodec.hasFollows(byteBuf));
+              return true;
+            })
+        .verifyComplete();
+  }
 }
@@ -22,6 +22,7 @@
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import io.rsocket.frame.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
@@ -480,4 +481,258 @@ public void dispose() {
     Assert.assertFalse(reassembler.metadata.containsKey(1));
     Assert.assertFalse(reassembler.data.containsKey(1));
   }
+
+  @DisplayName("rejects a request larger than maxInboundPayloadSize")
+  @Test
+  void rejectRequestOverMaxInboundPayloadSize() {
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            RequestResponseFrameCodec.encode(
+                allocator, 1, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, false, false, true, null, Unpooled.wrappedBuffer(data)));
+    ByteBuf whole =
+        RequestResponseFrameCodec.encode(
+            allocator, 1, false, null, Unpooled.wrappedBuffer(data, data, data, data));
+
+    FrameReassembler reassembler =
+        new FrameReassembler(allocator, 2 * data.length, Integer.MAX_VALUE);
+
+    StepVerifier.create(Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame))
+        .assertNext(
+            byteBuf -> {
+              // stands for the whole request, and only once its last fragment is received
+              RejectedFrame rejected = (RejectedFrame) byteBuf;
+              Assert.assertEquals(0, byteBufs.get(3).refCnt());
+              Assert.assertEquals(FrameType.ERROR, FrameHeaderCodec.frameType(rejected));
+              Assert.assertEquals(1, FrameHeaderCodec.streamId(rejected));
+              Assert.assertEquals(ErrorFrameCodec.REJECTED, ErrorFrameCodec.errorCode(rejected));
+              Assert.assertEquals(FrameType.REQUEST_RESPONSE, rejected.rejectedFrameType());
+              Assert.assertEquals(whole.readableBytes(), rejected.rejectedFrameLength());
+              rejected.release();
+            })
+        .verifyComplete();
+    whole.release();
+
+    Assert.assertFalse(reassembler.headers.containsKey(1));
+    Assert.assertFalse(reassembler.data.containsKey(1));
+    Assert.assertFalse(reassembler.rejected.containsKey(1));
+    Assert.assertEquals(0, reassembler.bufferedBytes);
+    for (ByteBuf byteBuf : byteBufs) {
+      Assert.assertEquals(0, byteBuf.refCnt());
+    }
+  }
+
+  @DisplayName("cancels the stream that goes over maxReassemblyBufferSize")
+  @Test
+  void cancelStreamOverMaxReassemblyBufferSize() {
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            PayloadFrameCodec.encode(
+                allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 3, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, false, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 3, false, false, true, null, Unpooled.wrappedBuffer(data)));
+
+    // the first fragment of a stream takes a whole chunk, which leaves no room for another stream
+    FrameReassembler reassembler =
+        new FrameReassembler(allocator, Integer.MAX_VALUE, 2 * FrameReassembler.MIN_CHUNK_SIZE - 1);
+
+    StepVerifier.create(Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame))
+        .assertNext(
+            byteBuf -> {
+              Assert.assertEquals(1, FrameHeaderCodec.streamId(byteBuf));
+              Assert.assertEquals(
+                  Unpooled.wrappedBuffer(data, data, data), PayloadFrameCodec.data(byteBuf));
+              byteBuf.release();
+            })
+        .assertNext(
+            byteBuf -> {
+              RejectedFrame rejected = (RejectedFrame) byteBuf;
+              Assert.assertEquals(FrameType.ERROR, FrameHeaderCodec.frameType(rejected));
+              Assert.assertEquals(3, FrameHeaderCodec.streamId(rejected));
+              Assert.assertEquals(ErrorFrameCodec.CANCELED, ErrorFrameCodec.errorCode(rejected));
+              Assert.assertEquals(FrameType.NEXT, rejected.rejectedFrameType());
+              rejected.release();
+            })
+        .verifyComplete();
+
+    Assert.assertTrue(reassembler.headers.isEmpty());
+    Assert.assertTrue(reassembler.rejected.isEmpty());
+    Assert.assertEquals(0, reassembler.bufferedBytes);
+    for (ByteBuf byteBuf : byteBufs) {
+      Assert.assertEquals(0, byteBuf.refCnt());
+    }
+  }
+
+  @DisplayName("copies small fragments into a few components")
+  @Test
+  void consolidateSmallFragments() {
+    int fragments = 1000;
+    byte[] fragment = Arrays.copyOf(data, 100);
+    ByteBuf expected = Unpooled.buffer(fragments * fragment.length);
+
+    FrameReassembler reassembler = new FrameReassembler(allocator);
+    List<ByteBuf> assembled = new ArrayList<>();
+    for (int i = 0; i < fragments; i++) {
+      fragment[0] = (byte) i;
+      expected.writeBytes(fragment);
+      ByteBuf frame =
+          i == 0
+              ? RequestResponseFrameCodec.encode(
+                  allocator, 1, true, null, Unpooled.wrappedBuffer(fragment.clone()))
+              : PayloadFrameCodec.encode(
+                  allocator,
+                  1,
+                  i < fragments - 1,
+                  false,
+                  true,
+                  null,
+                  Unpooled.wrappedBuffer(fragment.clone()));
+      if (i == fragments - 1) {
+        Assert.assertTrue(reassembler.data.get(1).numComponents() < 16);
+      }
+      Flux.just(frame).handle(reassembler::reassembleFrame).subscribe(assembled::add);
+    }
+
+    Assert.assertEquals(1, assembled.size());
+    ByteBuf byteBuf = assembled.get(0);
+    Assert.assertEquals(FrameType.REQUEST_RESPONSE, FrameHeaderCodec.frameType(byteBuf));
+    Assert.assertEquals(expected, RequestResponseFrameCodec.data(byteBuf));
+    byteBuf.release();
+  }
+
+  @DisplayName("passes on the fragments of requests when requests are streamed")
+  @Test
+  void passThroughStreamedRequest() {
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            RequestResponseFrameCodec.encode(
+                allocator, 1, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 3, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 3, false, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, false, false, true, null, Unpooled.wrappedBuffer(data)));
+
+    FrameReassembler reassembler =
+        new FrameReassembler(allocator, Integer.MAX_VALUE, Integer.MAX_VALUE, true);
+
+    StepVerifier.create(Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame))
+        .expectNext(byteBufs.get(0), byteBufs.get(2))
+        .assertNext(
+            byteBuf -> {
+              // not a request, reassembled as usual
+              Assert.assertEquals(3, FrameHeaderCodec.streamId(byteBuf));
+              Assert.assertEquals(
+                  Unpooled.wrappedBuffer(data, data), PayloadFrameCodec.data(byteBuf));
+              byteBuf.release();
+            })
+        .expectNext(byteBufs.get(4))
+        .verifyComplete();
+
+    Assert.assertTrue(reassembler.streamed.isEmpty());
+    Assert.assertEquals(0, reassembler.bufferedBytes);
+    ReferenceCountUtil.safeRelease(byteBufs.get(0));
+    ReferenceCountUtil.safeRelease(byteBufs.get(2));
+    ReferenceCountUtil.safeRelease(byteBufs.get(4));
+  }
+
+  @DisplayName("rejects a streamed request larger than maxInboundPayloadSize")
+  @Test
+  void rejectStreamedRequestOverMaxInboundPayloadSize() {
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            RequestResponseFrameCodec.encode(
+                allocator, 1, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, false, false, true, null, Unpooled.wrappedBuffer(data)));
+    long droppedLength = byteBufs.get(2).readableBytes() + byteBufs.get(3).readableBytes();
+
+    FrameReassembler reassembler =
+        new FrameReassembler(allocator, 2 * data.length, Integer.MAX_VALUE, true);
+
+    StepVerifier.create(Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame))
+        .expectNext(byteBufs.get(0), byteBufs.get(1))
+        .assertNext(
+            byteBuf -> {
+              // stands for the dropped fragments, once the last one is received
+              RejectedFrame rejected = (RejectedFrame) byteBuf;
+              Assert.assertEquals(1, FrameHeaderCodec.streamId(rejected));
+              Assert.assertEquals(ErrorFrameCodec.REJECTED, ErrorFrameCodec.errorCode(rejected));
+              Assert.assertEquals(FrameType.REQUEST_RESPONSE, rejected.rejectedFrameType());
+              Assert.assertEquals(droppedLength, rejected.rejectedFrameLength());
+              rejected.release();
+            })
+        .verifyComplete();
+
+    Assert.assertTrue(reassembler.streamed.isEmpty());
+    Assert.assertEquals(0, reassembler.bufferedBytes);
+    Assert.assertEquals(0, byteBufs.get(2).refCnt());
+    Assert.assertEquals(0, byteBufs.get(3).refCnt());
+    ReferenceCountUtil.safeRelease(byteBufs.get(0));
+    ReferenceCountUtil.safeRelease(byteBufs.get(1));
+  }
+
+  @DisplayName("counts streamed requests against maxReassemblyBufferSize until they complete")
+  @Test
+  void rejectStreamedRequestOverMaxReassemblyBufferSize() {
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            RequestResponseFrameCodec.encode(
+                allocator, 1, true, null, Unpooled.wrappedBuffer(data)),
+            RequestResponseFrameCodec.encode(
+                allocator, 3, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 3, true, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 1, false, false, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 3, false, false, true, null, Unpooled.wrappedBuffer(data)),
+            RequestResponseFrameCodec.encode(
+                allocator, 5, true, null, Unpooled.wrappedBuffer(data)),
+            PayloadFrameCodec.encode(
+                allocator, 5, false, false, true, null, Unpooled.wrappedBuffer(data)));
+
+    long droppedLength = byteBufs.get(2).readableBytes() + byteBufs.get(4).readableBytes();
+
+    FrameReassembler reassembler =
+        new FrameReassembler(allocator, Integer.MAX_VALUE, 2 * data.length, true);
+
+    StepVerifier.create(Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame))
+        .expectNext(byteBufs.get(0), byteBufs.get(1), byteBufs.get(3))
+        .assertNext(
+            byteBuf -> {
+              // stream 1 was still in flight when stream 3 went on
+              RejectedFrame rejected = (RejectedFrame) byteBuf;
+              Assert.assertEquals(3, FrameHeaderCodec.streamId(rejected));
+              Assert.assertEquals(FrameType.REQUEST_RESPONSE, rejected.rejectedFrameType());
+              Assert.assertEquals(droppedLength, rejected.rejectedFrameLength());
+              rejected.release();
+            })
+        .expectNext(byteBufs.get(5), byteBufs.get(6))
+        .verifyComplete();
+
+    Assert.assertTrue(reassembler.streamed.isEmpty());
+    Assert.assertEquals(0, reassembler.bufferedBytes);
+    for (int i : new int[] {0, 1, 3, 5, 6}) {
+      ReferenceCountUtil.safeRelease(byteBufs.get(i));
+    }
+  }
 }
@@ -5,7 +5,9 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.rsocket.util.ByteBufPayload;
 import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
 
@@ -261,4 +263,56 @@ void requestFnfMetadata() {
     assertTrue(data.readableBytes() == 0);
     request.release();
   }
+
+  @Test
+  void testContiguousEncoding() {
+    ByteBuf frame =
+        RequestStreamFrameCodec.encodeReleasingPayload(
+            ByteBufAllocator.DEFAULT, 1, 1, 64, ByteBufPayload.create("d", "md"));
+
+    assertFalse(frame instanceof CompositeByteBuf);
+    assertEquals(FrameLengthCodec.FRAME_LENGTH_SIZE, frame.readerIndex());
+    assertEquals(frame.capacity(), frame.writerIndex());
+    assertEquals("000000011900000000010000026d6464", ByteBufUtil.hexDump(frame));
+    assertEquals("md", RequestStreamFrameCodec.metadata(frame).toString(StandardCharsets.UTF_8));
+    assertEquals("d", RequestStreamFrameCodec.data(frame).toString(StandardCharsets.UTF_8));
+
+    frame = FrameLengthCodec.encode(ByteBufAllocator.DEFAULT, frame.readableBytes(), frame);
+
+    assertFalse(frame instanceof CompositeByteBuf);
+    String expected = "000010000000011900000000010000026d6464";
+    assertEquals(expected, ByteBufUtil.hexDump(frame));
+    frame.release();
+  }
+
+  @Test
+  void testContiguousEncodingAboveThreshold() {
+    ByteBuf frame =
+        RequestStreamFrameCodec.encodeReleasingPayload(
+            ByteBufAllocator.DEFAULT, 1, 1, 15, ByteBufPayload.create("d", "md"));
+
+    assertTrue(frame instanceof CompositeByteBuf);
+    assertEquals(0, frame.readerIndex());
+
+    frame = FrameLengthCodec.encode(ByteBufAllocator.DEFAULT, frame.readableBytes(), frame);
+
+    String expected = "000010000000011900000000010000026d6464";
+    assertEquals(expected, ByteBufUtil.hexDump(frame));
+    frame.release();
+  }
+
+  @Test
+  void testReservedLengthOnlyWrittenForContiguousFrames() {
+    ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] {1, 2, 3, 4, 5, 6});
+    buffer.readerIndex(3);
+
+    assertNull(FrameLengthCodec.encodeReserved(3, buffer));
+    assertEquals("010203040506", ByteBufUtil.hexDump(buffer, 0, 6));
+
+    ByteBuf framed = FrameLengthCodec.encode(ByteBufAllocator.DEFAULT, 3, buffer);
+
+    assertEquals("000003040506", ByteBufUtil.hexDump(framed));
+    assertEquals("010203040506", ByteBufUtil.hexDump(buffer, 0, 6));
+    framed.release();
+  }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.frame;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.util.ByteBufPayload;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class PayloadReferenceFrameTest {
+
+  @Test
+  void encodesHeaderOnly() {
+    Payload payload = ByteBufPayload.create("d", "md");
+    ByteBuf frame =
+        PayloadReferenceFrame.encode(
+            ByteBufAllocator.DEFAULT, FrameType.REQUEST_STREAM, 5, false, false, 42, payload);
+
+    assertThat(frame.readableBytes()).isEqualTo(FrameHeaderCodec.size() + Integer.BYTES);
+    assertThat(FrameHeaderCodec.frameType(frame)).isEqualTo(FrameType.REQUEST_STREAM);
+    assertThat(FrameHeaderCodec.streamId(frame)).isEqualTo(5);
+    assertThat(FrameHeaderCodec.hasMetadata(frame)).isTrue();
+    assertThat(RequestStreamFrameCodec.initialRequestN(frame)).isEqualTo(42);
+    assertThat(RequestStreamFrameCodec.data(frame).toString(StandardCharsets.UTF_8)).isEqualTo("d");
+    assertThat(RequestStreamFrameCodec.metadata(frame).toString(StandardCharsets.UTF_8))
+        .isEqualTo("md");
+
+    frame.release();
+    assertThat(payload.refCnt()).isZero();
+  }
+
+  @Test
+  void encodesFlags() {
+    ByteBuf frame =
+        PayloadReferenceFrame.encode(
+            ByteBufAllocator.DEFAULT,
+            FrameType.PAYLOAD,
+            3,
+            true,
+            true,
+            0,
+            ByteBufPayload.create("d"));
+
+    assertThat(frame.readableBytes()).isEqualTo(FrameHeaderCodec.size());
+    assertThat(FrameHeaderCodec.frameType(frame)).isEqualTo(FrameType.NEXT_COMPLETE);
+    assertThat(FrameHeaderCodec.hasMetadata(frame)).isFalse();
+    assertThat(PayloadFrameCodec.metadata(frame)).isNull();
+
+    frame.release();
+  }
+
+  @Test
+  void decodersHandOverThePayload() {
+    for (PayloadDecoder decoder :
+        new PayloadDecoder[] {PayloadDecoder.DEFAULT, PayloadDecoder.ZERO_COPY}) {
+      Payload payload =
+          ByteBufPayload.create(
+              Unpooled.copiedBuffer("d", StandardCharsets.UTF_8),
+              Unpooled.copiedBuffer("md", StandardCharsets.UTF_8));
+      ByteBuf frame =
+          PayloadReferenceFrame.encode(
+              ByteBufAllocator.DEFAULT, FrameType.PAYLOAD, 1, false, true, 0, payload);
+
+      Payload decoded = decoder.apply(frame);
+      frame.release();
+
+      assertThat(decoded).isSameAs(payload);
+      assertThat(decoded.refCnt()).isOne();
+      decoded.release();
+      assertThat(payload.refCnt()).isZero();
+    }
+  }
+}
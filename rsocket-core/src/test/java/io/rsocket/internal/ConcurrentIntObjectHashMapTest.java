@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.util.collection.IntObjectMap.PrimitiveEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentIntObjectHashMapTest {
+
+  @Test
+  public void putGetRemove() {
+    ConcurrentIntObjectHashMap<String> map = new ConcurrentIntObjectHashMap<>(4);
+
+    assertThat(map.put(1, "a")).isNull();
+    assertThat(map.put(3, "b")).isNull();
+    assertThat(map.put(1, "c")).isEqualTo("a");
+
+    assertThat(map.get(1)).isEqualTo("c");
+    assertThat(map.get(3)).isEqualTo("b");
+    assertThat(map.get(5)).isNull();
+    assertThat(map.containsKey(3)).isTrue();
+    assertThat(map.size()).isEqualTo(2);
+
+    assertThat(map.remove(1, "a")).isFalse();
+    assertThat(map.remove(1, (Object) "c")).isTrue();
+    assertThat(map.remove(3)).isEqualTo("b");
+    assertThat(map.remove(3)).isNull();
+    assertThat(map.get(1)).isNull();
+    assertThat(map.isEmpty()).isTrue();
+
+    assertThat(map.put(1, "d")).isNull();
+    assertThat(map.get(1)).isEqualTo("d");
+    assertThat(map.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldBehaveLikeHashMapAcrossRehashes() {
+    ConcurrentIntObjectHashMap<Integer> map = new ConcurrentIntObjectHashMap<>(2);
+    Map<Integer, Integer> expected = new HashMap<>();
+
+    // stream ids only grow, so every slot is eventually left behind as a tombstone
+    for (int i = 1; i < 100_000; i += 2) {
+      map.put(i, Integer.valueOf(i));
+      expected.put(i, i);
+      if (i > 64) {
+        int old = i - 64 - (i % 7) * 2;
+        assertThat(map.remove(old)).isEqualTo(expected.remove(old));
+      }
+    }
+
+    assertThat(map.size()).isEqualTo(expected.size());
+    assertThat(map).isEqualTo(expected);
+    expected.forEach((k, v) -> assertThat(map.get((int) k)).isEqualTo(v));
+  }
+
+  @Test
+  public void iterationToleratesRemovalOfVisitedEntries() {
+    ConcurrentIntObjectHashMap<Integer> map = new ConcurrentIntObjectHashMap<>(4);
+    for (int i = 0; i < 100; i++) {
+      map.put(i, Integer.valueOf(i));
+    }
+
+    List<Integer> visited = new ArrayList<>();
+    for (PrimitiveEntry<Integer> entry : map.entries()) {
+      visited.add(entry.value());
+      map.remove(entry.key());
+    }
+
+    assertThat(visited).hasSize(100).doesNotHaveDuplicates();
+    assertThat(map).isEmpty();
+
+    map.put(7, Integer.valueOf(7));
+    map.values().forEach(v -> map.clear());
+    assertThat(map).isEmpty();
+    assertThat(map.get(7)).isNull();
+  }
+
+  @Test
+  public void readerShouldObserveEveryEntryWhileWritersChurn() throws InterruptedException {
+    final ConcurrentIntObjectHashMap<Integer> map = new ConcurrentIntObjectHashMap<>(8);
+    final int writers = 4;
+    final int perWriter = 50_000;
+    final int pinned = -1;
+    map.put(pinned, Integer.valueOf(pinned));
+
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final CountDownLatch done = new CountDownLatch(writers);
+    for (int w = 0; w < writers; w++) {
+      final int offset = w;
+      Thread writer =
+          new Thread(
+              () -> {
+                try {
+                  for (int i = 0; i < perWriter; i++) {
+                    int key = i * writers + offset;
+                    Integer value = key;
+                    map.put(key, value);
+                    if (map.get(key) != value) {
+                      throw new AssertionError("lost " + key);
+                    }
+                    if (!map.remove(key, value)) {
+                      throw new AssertionError("could not remove " + key);
+                    }
+                  }
+                } catch (Throwable t) {
+                  failure.compareAndSet(null, t);
+                } finally {
+                  done.countDown();
+                }
+              });
+      writer.start();
+    }
+
+    while (done.getCount() > 0) {
+      assertThat(map.get(pinned)).isEqualTo(pinned);
+    }
+
+    assertThat(failure.get()).isNull();
+    assertThat(map).containsOnlyKeys(pinned);
+  }
+}
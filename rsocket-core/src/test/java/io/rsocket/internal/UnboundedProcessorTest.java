@@ -20,8 +20,11 @@
 import io.rsocket.util.ByteBufPayload;
 import io.rsocket.util.EmptyPayload;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 
 public class UnboundedProcessorTest {
   @Test
@@ -113,6 +116,46 @@ public void testPrioritizedFused() {
     Assert.assertEquals(closestPayload.getDataUtf8(), "test");
   }
 
+  @Test
+  public void testOnDrainedRunsOnceQueuedElementsAreTaken() {
+    UnboundedProcessor<Payload> processor = new UnboundedProcessor<>();
+    AtomicInteger drained = new AtomicInteger();
+
+    processor.onDrained(drained::incrementAndGet);
+    Assert.assertEquals(1, drained.get());
+
+    processor.onNext(EmptyPayload.INSTANCE);
+    processor.onNext(EmptyPayload.INSTANCE);
+    processor.onDrained(drained::incrementAndGet);
+    Assert.assertEquals(1, drained.get());
+
+    BaseSubscriber<Payload> subscriber =
+        new BaseSubscriber<Payload>() {
+          @Override
+          protected void hookOnSubscribe(Subscription subscription) {}
+        };
+    processor.subscribe(subscriber);
+    subscriber.request(1);
+    Assert.assertEquals(1, drained.get());
+
+    subscriber.request(1);
+    Assert.assertEquals(2, drained.get());
+  }
+
+  @Test
+  public void testOnDrainedFused() {
+    UnboundedProcessor<Payload> processor = new UnboundedProcessor<>();
+    AtomicInteger drained = new AtomicInteger();
+
+    processor.onNext(EmptyPayload.INSTANCE);
+    processor.onDrained(drained::incrementAndGet);
+
+    Assert.assertNotNull(processor.poll());
+    Assert.assertEquals(0, drained.get());
+    Assert.assertNull(processor.poll());
+    Assert.assertEquals(1, drained.get());
+  }
+
   public void testOnNextAfterSubscribeN(int n) throws Exception {
     CountDownLatch latch = new CountDownLatch(n);
     UnboundedProcessor<Payload> processor = new UnboundedProcessor<>();
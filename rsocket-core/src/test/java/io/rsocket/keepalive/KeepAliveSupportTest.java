@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.keepalive;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.keepalive.KeepAliveSupport.ClientKeepAliveSupport;
+import io.rsocket.keepalive.KeepAliveSupport.ServerKeepAliveSupport;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class KeepAliveSupportTest {
+  private static final int CONNECTIONS = 10_000;
+  private static final int KEEP_ALIVE_INTERVAL = 50;
+  private static final int KEEP_ALIVE_TIMEOUT = 100_000;
+
+  private final List<KeepAliveSupport> supports = new ArrayList<>();
+  private final Set<String> tickThreads = ConcurrentHashMap.newKeySet();
+
+  @AfterEach
+  void tearDown() {
+    supports.forEach(KeepAliveSupport::stop);
+  }
+
+  @Test
+  void ticksOfManyConnectionsAllRunOffTheTimerThread() throws InterruptedException {
+    AtomicIntegerArray ticks = new AtomicIntegerArray(CONNECTIONS);
+    CountDownLatch ticked = new CountDownLatch(CONNECTIONS);
+    for (int i = 0; i < CONNECTIONS; i++) {
+      int connection = i;
+      start(
+          new ClientKeepAliveSupport(
+                  ByteBufAllocator.DEFAULT, KEEP_ALIVE_INTERVAL, KEEP_ALIVE_TIMEOUT)
+              .onSendKeepAliveFrame(
+                  frame -> {
+                    frame.release();
+                    tickThreads.add(Thread.currentThread().getName());
+                    if (ticks.incrementAndGet(connection) == 3) {
+                      ticked.countDown();
+                    }
+                  }));
+    }
+
+    Assertions.assertThat(ticked.await(10, TimeUnit.SECONDS))
+        .as("every connection ticked three times")
+        .isTrue();
+    Assertions.assertThat(tickThreads).isNotEmpty().noneMatch(t -> t.startsWith("rsocket-timer"));
+  }
+
+  @Test
+  void slowTickDoesNotDelayTicksOfOtherConnections() throws InterruptedException {
+    Scheduler slowScheduler = Schedulers.newSingle("slow-tick");
+    CountDownLatch slowTickStarted = new CountDownLatch(1);
+    CountDownLatch slowTickReleased = new CountDownLatch(1);
+    try {
+      start(
+          new ClientKeepAliveSupport(
+                  ByteBufAllocator.DEFAULT, KEEP_ALIVE_INTERVAL, KEEP_ALIVE_TIMEOUT)
+              .tickScheduler(slowScheduler)
+              .onSendKeepAliveFrame(
+                  frame -> {
+                    frame.release();
+                    slowTickStarted.countDown();
+                    awaitUninterruptibly(slowTickReleased);
+                  }));
+      Assertions.assertThat(slowTickStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+      CountDownLatch timedOut = new CountDownLatch(CONNECTIONS);
+      for (int i = 0; i < CONNECTIONS; i++) {
+        start(
+            new ServerKeepAliveSupport(
+                    ByteBufAllocator.DEFAULT, KEEP_ALIVE_INTERVAL, KEEP_ALIVE_INTERVAL)
+                .onTimeout(
+                    keepAlive -> {
+                      tickThreads.add(Thread.currentThread().getName());
+                      timedOut.countDown();
+                    }));
+      }
+
+      Assertions.assertThat(timedOut.await(10, TimeUnit.SECONDS))
+          .as("every connection timed out while a tick is blocked")
+          .isTrue();
+      Assertions.assertThat(tickThreads)
+          .isNotEmpty()
+          .noneMatch(t -> t.startsWith("rsocket-timer") || t.startsWith("slow-tick"));
+    } finally {
+      slowTickReleased.countDown();
+      slowScheduler.dispose();
+    }
+  }
+
+  private void start(KeepAliveSupport support) {
+    supports.add(support);
+    support.start();
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
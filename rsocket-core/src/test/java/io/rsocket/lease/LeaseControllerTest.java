@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class LeaseControllerTest {
+
+  private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+  private final LeaseController controller =
+      LeaseController.create()
+          .initialLimit(20)
+          .period(Duration.ofMillis(100))
+          .timeToLive(Duration.ofSeconds(2))
+          .scheduler(scheduler);
+
+  @Test
+  void sendsLeaseOnConnect() {
+    Requester requester = new Requester();
+
+    assertThat(requester.leases).hasSize(1);
+    assertThat(requester.lastLease().getAllowedRequests()).isEqualTo(20);
+    assertThat(requester.lastLease().getTimeToLiveMillis()).isEqualTo(2_000);
+    assertThat(controller.connections()).isOne();
+  }
+
+  @Test
+  void splitsLimitBetweenConnections() {
+    Requester idle = new Requester();
+    Requester busy = new Requester();
+    assertThat(idle.lastLease().getAllowedRequests()).isEqualTo(10);
+    assertThat(busy.lastLease().getAllowedRequests()).isEqualTo(10);
+
+    for (int i = 0; i < 10; i++) {
+      busy.stats.onRequestStarted();
+    }
+    scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+    assertThat(idle.lastLease().getAllowedRequests()).isEqualTo(1);
+    assertThat(busy.lastLease().getAllowedRequests()).isEqualTo(19);
+  }
+
+  @Test
+  void raisesLimitWhileLatencyHolds() {
+    Requester requester = new Requester();
+
+    for (int i = 0; i < 10; i++) {
+      requester.load(controller.limit(), 1);
+    }
+
+    assertThat(controller.limit()).isGreaterThan(25);
+    int limit = controller.limit();
+    assertThat(requester.lastLease().getAllowedRequests())
+        .isGreaterThanOrEqualTo(limit * 2_000 * 9 / 10);
+  }
+
+  @Test
+  void lowersLimitWhenLatencyRises() {
+    Requester requester = new Requester();
+    for (int i = 0; i < 10; i++) {
+      requester.load(controller.limit(), 1);
+    }
+    int limit = controller.limit();
+
+    for (int i = 0; i < 10; i++) {
+      requester.load(controller.limit(), 4);
+    }
+
+    assertThat(controller.limit()).isLessThan(limit * 3 / 4);
+  }
+
+  @Test
+  void keepsLimitWhileMostlyIdle() {
+    Requester requester = new Requester();
+
+    for (int i = 0; i < 10; i++) {
+      requester.load(5, 1);
+    }
+
+    assertThat(controller.limit()).isEqualTo(20);
+  }
+
+  @Test
+  void sendsLeaseOnlyWhenPermitsChangeOrExpire() {
+    Requester requester = new Requester();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(100));
+    assertThat(requester.leases).hasSize(2);
+    assertThat(requester.lastLease().getAllowedRequests()).isEqualTo(1);
+
+    scheduler.advanceTimeBy(Duration.ofMillis(1_700));
+    assertThat(requester.leases).hasSize(2);
+
+    scheduler.advanceTimeBy(Duration.ofMillis(100));
+    assertThat(requester.leases).hasSize(3);
+    assertThat(requester.lastLease().getAllowedRequests()).isEqualTo(1);
+  }
+
+  @Test
+  void forgetsClosedConnections() {
+    Requester closed = new Requester();
+    Requester open = new Requester();
+
+    closed.subscription.dispose();
+    scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+    assertThat(controller.connections()).isOne();
+    open.stats.onEvent(LeaseStats.EventType.REJECT);
+    scheduler.advanceTimeBy(Duration.ofMillis(100));
+    assertThat(open.lastLease().getAllowedRequests()).isEqualTo(20);
+  }
+
+  private final class Requester {
+    final List<Lease> leases = new ArrayList<>();
+    final LeaseStats stats;
+    final Disposable subscription;
+
+    Requester() {
+      Leases<? extends LeaseStats> connectionLeases = controller.leases();
+      stats = connectionLeases.stats().get();
+      subscription =
+          connectionLeases.sender().apply(connectionLeases.stats()).subscribe(leases::add);
+    }
+
+    Lease lastLease() {
+      return leases.get(leases.size() - 1);
+    }
+
+    /** Handles the given number of requests at once, each for the given latency, for a period. */
+    void load(int requests, long latencyMillis) {
+      for (int i = 0; i < requests; i++) {
+        stats.onRequestStarted();
+      }
+      for (int i = 0; i < requests; i++) {
+        stats.onRequestTerminated(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+      }
+      scheduler.advanceTimeBy(Duration.ofMillis(100));
+    }
+  }
+}
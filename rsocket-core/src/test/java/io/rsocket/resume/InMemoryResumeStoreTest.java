@@ -2,10 +2,15 @@
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 public class InMemoryResumeStoreTest {
 
@@ -67,6 +72,55 @@ void releaseFrames() {
     Assert.assertEquals(size(frame1, frame2), store.position);
   }
 
+  @Test
+  void releaseManyFrames() {
+    InMemoryResumableFramesStore store = inMemoryStore(10_000);
+    List<ByteBuf> frames = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      frames.add(frameMock(10));
+    }
+    store.saveFrames(Flux.fromIterable(frames)).block();
+    store.releaseFrames(600);
+    Assert.assertEquals(40, store.cachedFrames.size());
+    Assert.assertEquals(400, store.cacheSize);
+    Assert.assertEquals(600, store.position);
+    Assert.assertEquals(frames.subList(60, 100), store.resumeStream().collectList().block());
+  }
+
+  @Test
+  void releaseFramesWithinFrame() {
+    InMemoryResumableFramesStore store = inMemoryStore(100);
+    store.saveFrames(Flux.just(frameMock(10), frameMock(10))).block();
+    Assertions.assertThrows(IllegalStateException.class, () -> store.releaseFrames(15));
+  }
+
+  @Test
+  void resumeStreamKeepsFrames() {
+    InMemoryResumableFramesStore store = inMemoryStore(100);
+    ByteBuf frame1 = frameMock(10);
+    ByteBuf frame2 = frameMock(20);
+    store.saveFrames(Flux.just(frame1, frame2)).block();
+    Assert.assertEquals(Arrays.asList(frame1, frame2), store.resumeStream().collectList().block());
+    Assert.assertEquals(Arrays.asList(frame1, frame2), store.resumeStream().collectList().block());
+    Assert.assertEquals(2, store.cachedFrames.size());
+  }
+
+  @Test
+  void resumeStreamSkipsReleasedFrames() {
+    InMemoryResumableFramesStore store = inMemoryStore(100);
+    ByteBuf frame1 = frameMock(10);
+    ByteBuf frame2 = frameMock(10);
+    ByteBuf frame3 = frameMock(10);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    StepVerifier.create(store.resumeStream(), 1)
+        .expectNext(frame1)
+        .then(() -> store.releaseFrames(20))
+        .thenRequest(2)
+        .expectNext(frame3)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+  }
+
   @Test
   void receiveImpliedPosition() {
     InMemoryResumableFramesStore store = inMemoryStore(100);
@@ -0,0 +1,183 @@
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+
+public class MappedResumableFramesStoreTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void saveWithoutTailRemoval() {
+    MappedResumableFramesStore store = mappedStore(64, 25);
+    ByteBuf frame = frameMock(10, 1);
+    store.saveFrames(Flux.just(frame)).block();
+    Assert.assertEquals(1, store.segments.size());
+    Assert.assertEquals(frame.readableBytes(), store.storedBytes);
+    Assert.assertEquals(0, store.position);
+  }
+
+  @Test
+  void saveRemoveTwoFromTail() {
+    MappedResumableFramesStore store = mappedStore(64, 25);
+    ByteBuf frame1 = frameMock(10, 1);
+    ByteBuf frame2 = frameMock(10, 2);
+    ByteBuf frame3 = frameMock(20, 3);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    Assert.assertEquals(frame3.readableBytes(), store.storedBytes);
+    Assert.assertEquals(size(frame1, frame2), store.position);
+    assertResumeStream(store, frame3);
+  }
+
+  @Test
+  void saveBiggerThanStore() {
+    MappedResumableFramesStore store = mappedStore(64, 25);
+    ByteBuf frame1 = frameMock(10, 1);
+    ByteBuf frame2 = frameMock(10, 2);
+    ByteBuf frame3 = frameMock(30, 3);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    Assert.assertEquals(0, store.storedBytes);
+    Assert.assertEquals(size(frame1, frame2, frame3), store.position);
+    assertResumeStream(store);
+  }
+
+  @Test
+  void releaseFramesAfterBiggerThanStore() {
+    MappedResumableFramesStore store = mappedStore(64, 25);
+    ByteBuf frame1 = frameMock(10, 1);
+    ByteBuf frame2 = frameMock(30, 2);
+    ByteBuf frame3 = frameMock(10, 3);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    Assert.assertEquals(frame3.readableBytes(), store.storedBytes);
+    Assert.assertEquals(size(frame1, frame2), store.position);
+
+    store.releaseFrames(size(frame1, frame2, frame3));
+    Assert.assertEquals(0, store.storedBytes);
+    Assert.assertEquals(size(frame1, frame2, frame3), store.position);
+    assertResumeStream(store);
+  }
+
+  @Test
+  void saveAcrossSegments() {
+    MappedResumableFramesStore store = mappedStore(32, 1000);
+    ByteBuf frame1 = frameMock(20, 1);
+    ByteBuf frame2 = frameMock(20, 2);
+    ByteBuf frame3 = frameMock(50, 3);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    Assert.assertEquals(3, store.segments.size());
+    Assert.assertEquals(size(frame1, frame2, frame3), store.storedBytes);
+    assertResumeStream(store, frame1, frame2, frame3);
+  }
+
+  @Test
+  void releaseFrames() {
+    MappedResumableFramesStore store = mappedStore(32, 1000);
+    ByteBuf frame1 = frameMock(10, 1);
+    ByteBuf frame2 = frameMock(10, 2);
+    ByteBuf frame3 = frameMock(10, 3);
+    ByteBuf frame4 = frameMock(10, 4);
+    store.saveFrames(Flux.just(frame1, frame2, frame3, frame4)).block();
+    Assert.assertEquals(2, store.segments.size());
+
+    store.releaseFrames(30);
+    Assert.assertEquals(1, store.segments.size());
+    Assert.assertEquals(frame4.readableBytes(), store.storedBytes);
+    Assert.assertEquals(size(frame1, frame2, frame3), store.position);
+    assertResumeStream(store, frame4);
+
+    store.releaseFrames(40);
+    Assert.assertEquals(0, store.storedBytes);
+    assertResumeStream(store);
+  }
+
+  @Test
+  void releaseFramesAfterReleasedSegmentIsFollowed() {
+    MappedResumableFramesStore store = mappedStore(32, 1000);
+    ByteBuf frame1 = frameMock(20, 1);
+    ByteBuf frame2 = frameMock(20, 2);
+    ByteBuf frame3 = frameMock(20, 3);
+    store.saveFrames(Flux.just(frame1)).block();
+    store.releaseFrames(size(frame1));
+    store.saveFrames(Flux.just(frame2, frame3)).block();
+
+    store.releaseFrames(size(frame1, frame2, frame3));
+    Assert.assertEquals(0, store.storedBytes);
+    Assert.assertEquals(size(frame1, frame2, frame3), store.position);
+    assertResumeStream(store);
+  }
+
+  @Test
+  void saveRemovesFromTailAfterReleasedSegmentIsFollowed() {
+    MappedResumableFramesStore store = mappedStore(32, 50);
+    ByteBuf frame1 = frameMock(20, 1);
+    ByteBuf frame2 = frameMock(20, 2);
+    ByteBuf frame3 = frameMock(20, 3);
+    ByteBuf frame4 = frameMock(20, 4);
+    store.saveFrames(Flux.just(frame1)).block();
+    store.releaseFrames(size(frame1));
+    Assertions.assertTimeoutPreemptively(
+        Duration.ofSeconds(5), () -> store.saveFrames(Flux.just(frame2, frame3, frame4)).block());
+
+    Assert.assertEquals(size(frame3, frame4), store.storedBytes);
+    Assert.assertEquals(size(frame1, frame2), store.position);
+    assertResumeStream(store, frame3, frame4);
+  }
+
+  @Test
+  void releaseFramesMismatch() {
+    MappedResumableFramesStore store = mappedStore(64, 1000);
+    store.saveFrames(Flux.just(frameMock(10, 1), frameMock(10, 2))).block();
+    Assertions.assertThrows(IllegalStateException.class, () -> store.releaseFrames(15));
+  }
+
+  @Test
+  void receiveImpliedPosition() {
+    MappedResumableFramesStore store = mappedStore(64, 100);
+    ByteBuf frame1 = frameMock(10, 1);
+    ByteBuf frame2 = frameMock(30, 2);
+    store.resumableFrameReceived(frame1);
+    store.resumableFrameReceived(frame2);
+    Assert.assertEquals(size(frame1, frame2), store.frameImpliedPosition());
+  }
+
+  @Test
+  void disposeDeletesSegments() throws IOException {
+    MappedResumableFramesStore store = mappedStore(32, 1000);
+    store.saveFrames(Flux.just(frameMock(20, 1), frameMock(20, 2))).block();
+    store.dispose();
+    try (Stream<Path> files = Files.list(directory)) {
+      Assert.assertEquals(0, files.count());
+    }
+  }
+
+  private void assertResumeStream(MappedResumableFramesStore store, ByteBuf... frames) {
+    List<ByteBuf> resumed = store.resumeStream().collectList().block();
+    Assert.assertEquals(Arrays.asList(frames), resumed);
+  }
+
+  private int size(ByteBuf... byteBufs) {
+    return Arrays.stream(byteBufs).mapToInt(ByteBuf::readableBytes).sum();
+  }
+
+  private MappedResumableFramesStore mappedStore(int segmentSize, int size) {
+    return new MappedResumableFramesStore("test", directory, segmentSize, size);
+  }
+
+  private static ByteBuf frameMock(int size, int content) {
+    byte[] bytes = new byte[size];
+    Arrays.fill(bytes, (byte) content);
+    return Unpooled.wrappedBuffer(bytes);
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class ResumeMemoryBudgetTest {
+
+  private final ResumeMemoryBudget budget = new ResumeMemoryBudget(100);
+
+  @Test
+  void storesDrawFromSharedBudget() {
+    ResumeMemoryBudget.Reservation firstReservation = budget.reserve();
+    ResumeMemoryBudget.Reservation secondReservation = budget.reserve();
+    InMemoryResumableFramesStore first = store(firstReservation, 1000);
+    InMemoryResumableFramesStore second = store(secondReservation, 1000);
+
+    first.saveFrame(frame(30));
+    second.saveFrame(frame(20));
+    second.saveFrame(frame(10));
+
+    assertThat(budget.reservedBytes()).isEqualTo(60);
+    assertThat(budget.reservedBytesPerSession())
+        .hasSize(2)
+        .containsEntry(firstReservation.id(), 30L)
+        .containsEntry(secondReservation.id(), 30L);
+  }
+
+  @Test
+  void releasedFramesGiveBytesBack() {
+    InMemoryResumableFramesStore store = store(1000);
+    store.saveFrame(frame(30));
+    store.saveFrame(frame(20));
+
+    store.releaseFrames(30);
+    assertThat(budget.reservedBytes()).isEqualTo(20);
+
+    store.dispose();
+    assertThat(budget.reservedBytes()).isZero();
+    assertThat(budget.reservedBytesPerSession()).isEmpty();
+  }
+
+  @Test
+  void localLimitStillApplies() {
+    InMemoryResumableFramesStore store = store(25);
+    store.saveFrame(frame(20));
+    store.saveFrame(frame(20));
+    assertThat(store.cacheSize).isEqualTo(20);
+    assertThat(store.framePosition()).isEqualTo(20);
+    assertThat(budget.reservedBytes()).isEqualTo(20);
+
+    store.saveFrame(frame(30));
+    assertThat(store.cacheSize).isZero();
+    assertThat(store.framePosition()).isEqualTo(70);
+    assertThat(budget.reservedBytes()).isZero();
+  }
+
+  @Test
+  void connectedSessionTrimsItsOwnFrames() {
+    InMemoryResumableFramesStore first = store(1000);
+    InMemoryResumableFramesStore second = store(1000);
+    first.saveFrame(frame(60));
+    second.saveFrame(frame(30));
+
+    second.saveFrame(frame(30));
+
+    assertThat(first.isDisposed()).isFalse();
+    assertThat(first.cacheSize).isEqualTo(60);
+    assertThat(second.cacheSize).isEqualTo(30);
+    assertThat(second.framePosition()).isEqualTo(30);
+    assertThat(budget.reservedBytes()).isEqualTo(90);
+    assertThat(budget.evictedSessions()).isZero();
+  }
+
+  @Test
+  void disconnectedSessionsAreEvictedFirst() {
+    ResumeMemoryBudget.Reservation oldestReservation = budget.reserve();
+    InMemoryResumableFramesStore oldest = store(oldestReservation, 1000);
+    InMemoryResumableFramesStore recent = store(1000);
+    InMemoryResumableFramesStore connected = store(1000);
+    oldest.saveFrame(frame(30));
+    recent.saveFrame(frame(30));
+    connected.saveFrame(frame(30));
+    budget.disconnected(oldest);
+    budget.disconnected(recent);
+
+    connected.saveFrame(frame(30));
+
+    assertThat(oldest.isDisposed()).isTrue();
+    assertThat(recent.isDisposed()).isFalse();
+    assertThat(connected.cacheSize).isEqualTo(60);
+    assertThat(budget.reservedBytes()).isEqualTo(90);
+    assertThat(budget.evictedSessions()).isOne();
+    assertThat(budget.reservedBytesPerSession()).doesNotContainKey(oldestReservation.id());
+  }
+
+  @Test
+  void reconnectedSessionIsNotEvicted() {
+    InMemoryResumableFramesStore first = store(1000);
+    InMemoryResumableFramesStore second = store(1000);
+    first.saveFrame(frame(60));
+    budget.disconnected(first);
+    budget.connected(first);
+
+    second.saveFrame(frame(60));
+
+    assertThat(first.isDisposed()).isFalse();
+    assertThat(second.cacheSize).isZero();
+    assertThat(second.framePosition()).isEqualTo(60);
+    assertThat(budget.reservedBytes()).isEqualTo(60);
+  }
+
+  @Test
+  void sessionDisconnectedAgainIsEvictedLast() {
+    InMemoryResumableFramesStore first = store(1000);
+    InMemoryResumableFramesStore second = store(1000);
+    InMemoryResumableFramesStore connected = store(1000);
+    first.saveFrame(frame(30));
+    second.saveFrame(frame(30));
+    connected.saveFrame(frame(30));
+    budget.disconnected(first);
+    budget.disconnected(second);
+    budget.connected(first);
+    budget.disconnected(first);
+
+    connected.saveFrame(frame(30));
+
+    assertThat(first.isDisposed()).isFalse();
+    assertThat(second.isDisposed()).isTrue();
+    assertThat(budget.evictedSessions()).isOne();
+  }
+
+  private InMemoryResumableFramesStore store(int cacheSize) {
+    return store(budget.reserve(), cacheSize);
+  }
+
+  private InMemoryResumableFramesStore store(
+      ResumeMemoryBudget.Reservation reservation, int cacheSize) {
+    return new InMemoryResumableFramesStore("test", cacheSize, reservation);
+  }
+
+  private static ByteBuf frame(int size) {
+    byte[] bytes = new byte[size];
+    Arrays.fill(bytes, (byte) 1);
+    return Unpooled.wrappedBuffer(bytes);
+  }
+}
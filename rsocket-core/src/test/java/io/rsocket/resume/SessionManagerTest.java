@@ -0,0 +1,321 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.rsocket.test.util.TestDuplexConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SessionManagerTest {
+
+  private final ManualTimer timer = new ManualTimer();
+
+  @Test
+  void getsSessionByTokenContent() {
+    SessionManager manager = manager(10);
+    ServerRSocketSession session = manager.save(session("token"));
+
+    assertThat(manager.get(token("token"))).isSameAs(session);
+    assertThat(manager.get(token("other"))).isNull();
+  }
+
+  @Test
+  void replacesSessionWithSameToken() {
+    SessionManager manager = manager(10);
+    ServerRSocketSession first = manager.save(session("token"));
+    ServerRSocketSession second = manager.save(session("token"));
+
+    assertThat(first.isDisposed()).isTrue();
+    assertThat(second.isDisposed()).isFalse();
+    assertThat(manager.get(token("token"))).isSameAs(second);
+    assertThat(manager.size()).isOne();
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedSession() {
+    SessionManager manager = manager(2);
+    ServerRSocketSession first = manager.save(session("first"));
+    ServerRSocketSession second = manager.save(session("second"));
+    manager.get(token("first"));
+
+    ServerRSocketSession third = manager.save(session("third"));
+
+    assertThat(second.isDisposed()).isTrue();
+    assertThat(first.isDisposed()).isFalse();
+    assertThat(third.isDisposed()).isFalse();
+    assertThat(manager.get(token("second"))).isNull();
+    assertThat(manager.size()).isEqualTo(2);
+  }
+
+  @Test
+  void limitAppliesAcrossSegmentsWithSkewedTokens() {
+    SessionManager manager = new SessionManager(3, Duration.ofMinutes(1), timer, 2);
+    List<String> tokens = tokensInSameSegment(2, 4);
+    ServerRSocketSession first = manager.save(session(tokens.get(0)));
+    ServerRSocketSession second = manager.save(session(tokens.get(1)));
+    ServerRSocketSession third = manager.save(session(tokens.get(2)));
+
+    assertThat(first.isDisposed()).isFalse();
+    assertThat(second.isDisposed()).isFalse();
+    assertThat(third.isDisposed()).isFalse();
+    assertThat(manager.size()).isEqualTo(3);
+
+    ServerRSocketSession fourth = manager.save(session(tokens.get(3)));
+
+    assertThat(first.isDisposed()).isTrue();
+    assertThat(second.isDisposed()).isFalse();
+    assertThat(fourth.isDisposed()).isFalse();
+    assertThat(manager.size()).isEqualTo(3);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedSessionOfAnySegment() {
+    SessionManager manager = new SessionManager(2, Duration.ofMinutes(1), timer, 2);
+    List<String> tokens = tokensInSameSegment(2, 2);
+    ServerRSocketSession first = manager.save(session(tokens.get(0)));
+    ServerRSocketSession second = manager.save(session(tokens.get(1)));
+    manager.get(token(tokens.get(0)));
+
+    ServerRSocketSession other = manager.save(session(tokenInOtherSegment(2, tokens.get(0))));
+
+    assertThat(second.isDisposed()).isTrue();
+    assertThat(first.isDisposed()).isFalse();
+    assertThat(other.isDisposed()).isFalse();
+    assertThat(manager.size()).isEqualTo(2);
+  }
+
+  @Test
+  void evictsDisconnectedSessionFirst() {
+    SessionManager manager = manager(2);
+    TestDuplexConnection connection = new TestDuplexConnection(ByteBufAllocator.DEFAULT);
+    ServerRSocketSession first = manager.save(session("first"));
+    ServerRSocketSession second = manager.save(session(connection, "second"));
+    connection.dispose();
+
+    ServerRSocketSession third = manager.save(session("third"));
+
+    assertThat(second.isDisposed()).isTrue();
+    assertThat(first.isDisposed()).isFalse();
+    assertThat(third.isDisposed()).isFalse();
+    assertThat(manager.size()).isEqualTo(2);
+  }
+
+  @Test
+  void resumedSessionIsNoLongerEvictedFirst() {
+    SessionManager manager = manager(2);
+    TestDuplexConnection connection = new TestDuplexConnection(ByteBufAllocator.DEFAULT);
+    ServerRSocketSession first = manager.save(session("first"));
+    ServerRSocketSession second = manager.save(session(connection, "second"));
+    connection.dispose();
+    manager.get(token("second"));
+
+    ServerRSocketSession third = manager.save(session("third"));
+
+    assertThat(first.isDisposed()).isTrue();
+    assertThat(second.isDisposed()).isFalse();
+    assertThat(third.isDisposed()).isFalse();
+  }
+
+  @Test
+  void removesClosedSession() {
+    SessionManager manager = manager(10);
+    ServerRSocketSession session = manager.save(session("token"));
+
+    session.dispose();
+
+    assertThat(manager.get(token("token"))).isNull();
+    assertThat(manager.size()).isZero();
+  }
+
+  @Test
+  void expiresDisconnectedSession() {
+    SessionManager manager = manager(10);
+    TestDuplexConnection connection = new TestDuplexConnection(ByteBufAllocator.DEFAULT);
+    ServerRSocketSession session = manager.save(session(connection, "token"));
+    assertThat(timer.timeouts).isEmpty();
+
+    connection.dispose();
+    assertThat(timer.timeouts).hasSize(1);
+    assertThat(timer.timeouts.get(0).delayNanos).isEqualTo(Duration.ofMinutes(1).toNanos());
+    assertThat(session.isDisposed()).isFalse();
+
+    timer.fire();
+    assertThat(session.isDisposed()).isTrue();
+    assertThat(manager.size()).isZero();
+  }
+
+  @Test
+  void resumeCancelsExpiry() {
+    SessionManager manager = manager(10);
+    TestDuplexConnection connection = new TestDuplexConnection(ByteBufAllocator.DEFAULT);
+    ServerRSocketSession session = manager.save(session(connection, "token"));
+    connection.dispose();
+
+    assertThat(manager.get(token("token"))).isSameAs(session);
+
+    assertThat(timer.timeouts.get(0).isCancelled()).isTrue();
+    timer.fire();
+    assertThat(session.isDisposed()).isFalse();
+  }
+
+  @Test
+  void disposeDisposesSessions() {
+    SessionManager manager = manager(10);
+    ServerRSocketSession session = manager.save(session("token"));
+
+    manager.dispose();
+    assertThat(session.isDisposed()).isTrue();
+
+    ServerRSocketSession late = manager.save(session("late"));
+    assertThat(late.isDisposed()).isTrue();
+  }
+
+  /** Returns tokens that all fall into the first of the given number of segments. */
+  private static List<String> tokensInSameSegment(int segmentCount, int count) {
+    List<String> tokens = new ArrayList<>();
+    for (int i = 0; tokens.size() < count; i++) {
+      String token = "token-" + i;
+      if (segmentIndex(token, segmentCount) == 0) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  private static String tokenInOtherSegment(int segmentCount, String token) {
+    for (int i = 0; ; i++) {
+      String other = "other-" + i;
+      if (segmentIndex(other, segmentCount) != segmentIndex(token, segmentCount)) {
+        return other;
+      }
+    }
+  }
+
+  private static int segmentIndex(String token, int segmentCount) {
+    return new SessionManager.Token(token(token)).hash & (segmentCount - 1);
+  }
+
+  private SessionManager manager(int maxSessions) {
+    return new SessionManager(maxSessions, Duration.ofMinutes(1), timer, 1);
+  }
+
+  private static ServerRSocketSession session(String token) {
+    return session(new TestDuplexConnection(ByteBufAllocator.DEFAULT), token);
+  }
+
+  private static ServerRSocketSession session(TestDuplexConnection connection, String token) {
+    return new ServerRSocketSession(
+        connection,
+        null,
+        Duration.ofSeconds(10),
+        t -> new InMemoryResumableFramesStore("test", 1000),
+        token(token),
+        false,
+        null);
+  }
+
+  private static ByteBuf token(String token) {
+    return Unpooled.copiedBuffer(token, StandardCharsets.UTF_8);
+  }
+
+  static final class ManualTimer implements Timer {
+    final List<ManualTimeout> timeouts = new ArrayList<>();
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+      ManualTimeout timeout = new ManualTimeout(this, task, unit.toNanos(delay));
+      timeouts.add(timeout);
+      return timeout;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+      return Collections.emptySet();
+    }
+
+    void fire() {
+      for (ManualTimeout timeout : new ArrayList<>(timeouts)) {
+        if (!timeout.cancelled) {
+          timeout.run();
+        }
+      }
+    }
+  }
+
+  static final class ManualTimeout implements Timeout {
+    final Timer timer;
+    final TimerTask task;
+    final long delayNanos;
+    boolean cancelled;
+    boolean expired;
+
+    ManualTimeout(Timer timer, TimerTask task, long delayNanos) {
+      this.timer = timer;
+      this.task = task;
+      this.delayNanos = delayNanos;
+    }
+
+    void run() {
+      expired = true;
+      try {
+        task.run(this);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public Timer timer() {
+      return timer;
+    }
+
+    @Override
+    public TimerTask task() {
+      return task;
+    }
+
+    @Override
+    public boolean isExpired() {
+      return expired;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public boolean cancel() {
+      cancelled = true;
+      return !expired;
+    }
+  }
+}
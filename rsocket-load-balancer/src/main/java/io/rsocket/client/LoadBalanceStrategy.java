@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the socket a request is sent to among the active sockets of a {@link
+ * LoadBalancedRSocketMono}. The balancer keeps deciding how many sockets are active; a strategy
+ * only chooses between them, from the statistics each socket collects.
+ *
+ * <p>A strategy is called concurrently by every thread that sends requests through the balancer,
+ * and should not block.
+ */
+public interface LoadBalanceStrategy {
+
+  /**
+   * Selects one of the given sockets. A socket with no availability may be returned when no other
+   * one is found, in which case the balancer tries to add a socket.
+   *
+   * @param sockets the active sockets, at least two of them
+   * @return the selected socket
+   */
+  <T extends LoadBalancerSocketMetrics> T select(List<T> sockets);
+
+  /**
+   * Returns the strategy weighing the predicted latency and the outstanding requests of two random
+   * sockets, which is the default one.
+   *
+   * @param expFactor how aggressive is the algorithm toward outliers. A higher number means we send
+   *     aggressively less traffic to a server slightly slower.
+   */
+  static LoadBalanceStrategy predictive(double expFactor) {
+    return new Predictive(expFactor);
+  }
+
+  /** Returns a strategy sending requests to the available sockets in turn. */
+  static LoadBalanceStrategy roundRobin() {
+    return new RoundRobin();
+  }
+
+  /** Returns a strategy sending requests to the available socket with the fewest outstanding. */
+  static LoadBalanceStrategy leastOutstanding() {
+    return new LeastOutstanding();
+  }
+
+  /**
+   * Returns a strategy picking sockets at random, in proportion to their availability. For a socket
+   * to a server that grants leases, this is the share of the last lease that is left.
+   */
+  static LoadBalanceStrategy leaseWeighted() {
+    return new LeaseWeighted();
+  }
+
+  /**
+   * Power of two choices between random sockets, weighing each by its predicted latency, penalized
+   * or favored depending on where it stands in the latency band of all sockets, and by its
+   * outstanding requests. The weight is proportional to the availability of the socket, so that
+   * sockets to servers granting leases get requests in proportion to the permits they have left,
+   * and a socket with no permits left is only selected when no other one has any.
+   */
+  final class Predictive implements LoadBalanceStrategy {
+    private static final int EFFORT = 5;
+
+    private final double expFactor;
+
+    public Predictive(double expFactor) {
+      this.expFactor = expFactor;
+    }
+
+    @Override
+    public <T extends LoadBalancerSocketMetrics> T select(List<T> sockets) {
+      int size = sockets.size();
+      T rsc1 = null;
+      T rsc2 = null;
+
+      Random rng = ThreadLocalRandom.current();
+      for (int i = 0; i < EFFORT; i++) {
+        int i1 = rng.nextInt(size);
+        int i2 = rng.nextInt(size - 1);
+        if (i2 >= i1) {
+          i2++;
+        }
+        rsc1 = sockets.get(i1);
+        rsc2 = sockets.get(i2);
+        if (rsc1.availability() > 0.0 && rsc2.availability() > 0.0) {
+          break;
+        }
+      }
+
+      if (rsc1.availability() == 0.0 && rsc2.availability() == 0.0) {
+        // most sockets are out of leases, look for one that still has some
+        int start = rng.nextInt(size);
+        for (int i = 0; i < size; i++) {
+          T socket = sockets.get((start + i) % size);
+          if (socket.availability() > 0.0) {
+            return socket;
+          }
+        }
+        return rsc1;
+      }
+
+      double w1 = algorithmicWeight(rsc1);
+      double w2 = algorithmicWeight(rsc2);
+      if (w1 < w2) {
+        return rsc2;
+      } else {
+        return rsc1;
+      }
+    }
+
+    double algorithmicWeight(LoadBalancerSocketMetrics socket) {
+      double availability = socket.availability();
+      if (availability == 0.0) {
+        return 0.0;
+      }
+
+      int pendings = socket.pending();
+      double latency = socket.predictedLatency();
+
+      double low = socket.lowerQuantileLatency();
+      double high =
+          Math.max(
+              socket.higherQuantileLatency(),
+              low * 1.001); // ensure higherQuantile > lowerQuantile + .1%
+      double bandWidth = Math.max(high - low, 1);
+
+      if (latency < low) {
+        double alpha = (low - latency) / bandWidth;
+        double bonusFactor = Math.pow(1 + alpha, expFactor);
+        latency /= bonusFactor;
+      } else if (latency > high) {
+        double alpha = (latency - high) / bandWidth;
+        double penaltyFactor = Math.pow(1 + alpha, expFactor);
+        latency *= penaltyFactor;
+      }
+
+      return availability * 1.0 / (1.0 + latency * (pendings + 1));
+    }
+  }
+
+  /**
+   * Available sockets in turn. Skipped sockets take their turn too, so that the socket following an
+   * unavailable one is not selected twice as often as the others.
+   */
+  final class RoundRobin implements LoadBalanceStrategy {
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public <T extends LoadBalancerSocketMetrics> T select(List<T> sockets) {
+      int size = sockets.size();
+      T socket = null;
+      for (int i = 0; i < size; i++) {
+        socket = sockets.get(Math.floorMod(next.getAndIncrement(), size));
+        if (socket.availability() > 0.0) {
+          return socket;
+        }
+      }
+      return socket;
+    }
+  }
+
+  /** The available socket with the fewest outstanding requests, ties going to a random one. */
+  final class LeastOutstanding implements LoadBalanceStrategy {
+
+    @Override
+    public <T extends LoadBalancerSocketMetrics> T select(List<T> sockets) {
+      int size = sockets.size();
+      int start = ThreadLocalRandom.current().nextInt(size);
+      T least = null;
+      int leastPending = Integer.MAX_VALUE;
+      for (int i = 0; i < size; i++) {
+        T socket = sockets.get((start + i) % size);
+        int pending = socket.pending();
+        if (pending < leastPending && socket.availability() > 0.0) {
+          least = socket;
+          leastPending = pending;
+        }
+      }
+      return least != null ? least : sockets.get(start);
+    }
+  }
+
+  /** Random sockets, each with a probability proportional to its availability. */
+  final class LeaseWeighted implements LoadBalanceStrategy {
+
+    @Override
+    public <T extends LoadBalancerSocketMetrics> T select(List<T> sockets) {
+      int size = sockets.size();
+      double total = 0.0;
+      for (int i = 0; i < size; i++) {
+        total += sockets.get(i).availability();
+      }
+
+      Random rng = ThreadLocalRandom.current();
+      if (total > 0.0) {
+        double target = rng.nextDouble() * total;
+        for (int i = 0; i < size; i++) {
+          T socket = sockets.get(i);
+          double availability = socket.availability();
+          if (availability > 0.0) {
+            target -= availability;
+            if (target < 0.0) {
+              return socket;
+            }
+          }
+        }
+      }
+      return sockets.get(rng.nextInt(size));
+    }
+  }
+}
@@ -18,6 +18,7 @@
 
 import io.rsocket.*;
 import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.lease.MissingLeaseException;
 import io.rsocket.stat.Ewma;
 import io.rsocket.stat.FrugalQuantile;
 import io.rsocket.stat.Median;
@@ -25,13 +26,14 @@
 import io.rsocket.util.Clock;
 import java.nio.channels.ClosedChannelException;
 import java.time.Duration;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
@@ -47,7 +49,22 @@
  * An implementation of {@link Mono} that load balances across a pool of RSockets and emits one when
  * it is subscribed to
  *
- * <p>It estimates the load of each RSocket based on statistics collected.
+ * <p>It estimates the load of each RSocket based on statistics collected, and keeps a number of
+ * them active, its aperture, that follows the load. Which active RSocket a request goes to is up to
+ * a {@link LoadBalanceStrategy}, by default the {@link LoadBalanceStrategy#predictive predictive}
+ * one.
+ *
+ * <p>Connections up to the aperture are opened as soon as factories are received rather than on the
+ * next selection, and the balancer reports no availability until the minimum aperture is connected.
+ * {@link RSocketSupplierPool#subset} limits each client to a stable slice of the factories.
+ *
+ * <p>An RSocket whose requests fail more often than not is ejected for a while: it reports no
+ * availability, so that it is not selected, and is replaced in the aperture until it is readmitted.
+ * See {@link #ejections()} and {@link #ejectedSockets()}.
+ *
+ * <p>Selection does not lock: the active sockets are kept in an array that is copied on every
+ * change, and the load of each socket is kept in atomic counters. Refreshing the sockets and the
+ * aperture is done by one selecting thread at a time, the others skip it.
  */
 public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
     implements Availability, Closeable {
@@ -63,10 +80,15 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
       TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES);
   private static final Logger logger = LoggerFactory.getLogger(LoadBalancedRSocketMono.class);
   private static final long APERTURE_REFRESH_PERIOD = Clock.unit().convert(15, TimeUnit.SECONDS);
-  private static final int EFFORT = 5;
   private static final long DEFAULT_INITIAL_INTER_ARRIVAL_TIME =
       Clock.unit().convert(1L, TimeUnit.SECONDS);
   private static final int DEFAULT_INTER_ARRIVAL_FACTOR = 500;
+  private static final long OUTLIER_WINDOW = Clock.unit().convert(10, TimeUnit.SECONDS);
+  private static final int OUTLIER_MIN_REQUESTS = 10;
+  private static final double OUTLIER_MIN_SUCCESS_RATE = 0.5;
+  private static final long BASE_EJECTION_TIME = Clock.unit().convert(5, TimeUnit.SECONDS);
+  private static final long MAX_EJECTION_TIME = Clock.unit().convert(5, TimeUnit.MINUTES);
+  private static final double MAX_EJECTED_FRACTION = 0.5;
 
   private static final FailingRSocket FAILING_REACTIVE_SOCKET = new FailingRSocket();
   protected final Mono<RSocket> rSocketMono;
@@ -75,10 +97,11 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
   private final int minAperture;
   private final int maxAperture;
   private final long maxRefreshPeriod;
-  private final double expFactor;
+  private final LoadBalanceStrategy strategy;
   private final Quantile lowerQuantile;
   private final Quantile higherQuantile;
-  private final ArrayList<WeightedSocket> activeSockets;
+  private volatile List<WeightedSocket> activeSockets;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
   private final Ewma pendings;
   private final MonoProcessor<Void> onClose = MonoProcessor.create();
   private final RSocketSupplierPool pool;
@@ -88,13 +111,14 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
   private volatile int targetAperture;
   private long lastApertureRefresh;
   private long refreshPeriod;
-  private int pendingSockets;
+  private volatile int pendingSockets; // connecting, written under the lock
+  private volatile boolean warm;
   private volatile long lastRefresh;
+  private volatile int ejectedSockets;
+  private final AtomicLong ejections = new AtomicLong();
 
   /**
    * @param factories the source (factories) of RSocket
-   * @param expFactor how aggressive is the algorithm toward outliers. A higher number means we send
-   *     aggressively less traffic to a server slightly slower.
    * @param lowQuantile the lower bound of the latency band of acceptable values. Any server below
    *     that value will be aggressively favored.
    * @param highQuantile the higher bound of the latency band of acceptable values. Any server above
@@ -112,10 +136,10 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
    * @param weightedSocketBackOff the duration a a weighted socket will add to each retry attempt.
    * @param weightedSocketMaxBackOff the max duration a weighted socket will delay before retrying
    *     to connect. The default is 5 seconds.
+   * @param strategy selects the active RSocket each request is sent to.
    */
   private LoadBalancedRSocketMono(
       Publisher<? extends Collection<RSocketSupplier>> factories,
-      double expFactor,
       double lowQuantile,
       double highQuantile,
       double minPendings,
@@ -125,15 +149,16 @@ private LoadBalancedRSocketMono(
       long maxRefreshPeriodMs,
       long weightedSocketRetries,
       Duration weightedSocketBackOff,
-      Duration weightedSocketMaxBackOff) {
+      Duration weightedSocketMaxBackOff,
+      LoadBalanceStrategy strategy) {
     this.weightedSocketRetries = weightedSocketRetries;
     this.weightedSocketBackOff = weightedSocketBackOff;
     this.weightedSocketMaxBackOff = weightedSocketMaxBackOff;
-    this.expFactor = expFactor;
+    this.strategy = strategy;
     this.lowerQuantile = new FrugalQuantile(lowQuantile);
     this.higherQuantile = new FrugalQuantile(highQuantile);
 
-    this.activeSockets = new ArrayList<>();
+    this.activeSockets = Collections.emptyList();
     this.pendingSockets = 0;
 
     this.minPendings = minPendings;
@@ -148,7 +173,7 @@ private LoadBalancedRSocketMono(
     this.lastApertureRefresh = Clock.now();
     this.refreshPeriod = Clock.unit().convert(15L, TimeUnit.SECONDS);
     this.lastRefresh = Clock.now();
-    this.pool = new RSocketSupplierPool(factories);
+    this.pool = new RSocketSupplierPool(factories, this::onNewFactories);
     refreshSockets();
 
     rSocketMono = Mono.fromSupplier(this::select);
@@ -170,6 +195,29 @@ public static LoadBalancedRSocketMono create(
         DEFAULT_MAX_REFRESH_PERIOD_MS);
   }
 
+  /**
+   * Creates a balancer with the default settings that selects sockets with the given strategy.
+   *
+   * @param factories the source (factories) of RSocket
+   * @param strategy selects the active RSocket each request is sent to
+   */
+  public static LoadBalancedRSocketMono create(
+      Publisher<? extends Collection<RSocketSupplier>> factories, LoadBalanceStrategy strategy) {
+    return create(
+        factories,
+        DEFAULT_LOWER_QUANTILE,
+        DEFAULT_HIGHER_QUANTILE,
+        DEFAULT_MIN_PENDING,
+        DEFAULT_MAX_PENDING,
+        DEFAULT_MIN_APERTURE,
+        DEFAULT_MAX_APERTURE,
+        DEFAULT_MAX_REFRESH_PERIOD_MS,
+        5,
+        Duration.ofMillis(500),
+        Duration.ofSeconds(5),
+        strategy);
+  }
+
   public static LoadBalancedRSocketMono create(
       Publisher<? extends Collection<RSocketSupplier>> factories,
       double expFactor,
@@ -183,9 +231,41 @@ public static LoadBalancedRSocketMono create(
       long weightedSocketRetries,
       Duration weightedSocketBackOff,
       Duration weightedSocketMaxBackOff) {
+    return create(
+        factories,
+        lowQuantile,
+        highQuantile,
+        minPendings,
+        maxPendings,
+        minAperture,
+        maxAperture,
+        maxRefreshPeriodMs,
+        weightedSocketRetries,
+        weightedSocketBackOff,
+        weightedSocketMaxBackOff,
+        LoadBalanceStrategy.predictive(expFactor));
+  }
+
+  /**
+   * Creates a balancer that selects sockets with the given strategy. See {@link
+   * LoadBalanceStrategy#predictive} for the {@code expFactor} of the default strategy, and the
+   * other parameters are the same as for the other {@code create} methods.
+   */
+  public static LoadBalancedRSocketMono create(
+      Publisher<? extends Collection<RSocketSupplier>> factories,
+      double lowQuantile,
+      double highQuantile,
+      double minPendings,
+      double maxPendings,
+      int minAperture,
+      int maxAperture,
+      long maxRefreshPeriodMs,
+      long weightedSocketRetries,
+      Duration weightedSocketBackOff,
+      Duration weightedSocketMaxBackOff,
+      LoadBalanceStrategy strategy) {
     return new LoadBalancedRSocketMono(
         factories,
-        expFactor,
         lowQuantile,
         highQuantile,
         minPendings,
@@ -195,7 +275,8 @@ public static LoadBalancedRSocketMono create(
         maxRefreshPeriodMs,
         weightedSocketRetries,
         weightedSocketBackOff,
-        weightedSocketMaxBackOff) {
+        weightedSocketMaxBackOff,
+        strategy) {
       @Override
       public void subscribe(CoreSubscriber<? super RSocket> s) {
         rSocketMono.subscribe(s);
@@ -213,7 +294,7 @@ public static LoadBalancedRSocketMono create(
       int minAperture,
       int maxAperture,
       long maxRefreshPeriodMs) {
-    return new LoadBalancedRSocketMono(
+    return create(
         factories,
         expFactor,
         lowQuantile,
@@ -225,12 +306,7 @@ public static LoadBalancedRSocketMono create(
         maxRefreshPeriodMs,
         5,
         Duration.ofMillis(500),
-        Duration.ofSeconds(5)) {
-      @Override
-      public void subscribe(CoreSubscriber<? super RSocket> s) {
-        rSocketMono.subscribe(s);
-      }
-    };
+        Duration.ofSeconds(5));
   }
 
   /**
@@ -238,8 +314,12 @@ public void subscribe(CoreSubscriber<? super RSocket> s) {
    * match targetAperture - periodically append a new connection
    */
   private synchronized void refreshSockets() {
+    long now = Clock.now();
+    readmitEjectedSockets(now);
     refreshAperture();
-    int n = activeSockets.size();
+    // ejected sockets are replaced while they are out, and the aperture shrinks back by quicking
+    // the worst socket once they are readmitted
+    int n = activeSockets.size() - ejectedSockets;
     if (n < targetAperture && !pool.isPoolEmpty()) {
       logger.debug(
           "aperture {} is below target {}, adding {} sockets",
@@ -247,12 +327,11 @@ private synchronized void refreshSockets() {
           targetAperture,
           targetAperture - n);
       addSockets(targetAperture - n);
-    } else if (targetAperture < activeSockets.size()) {
+    } else if (targetAperture < n) {
       logger.debug("aperture {} is above target {}, quicking 1 socket", n, targetAperture);
       quickSlowestRS();
     }
 
-    long now = Clock.now();
     if (now - lastRefresh >= refreshPeriod) {
       long prev = refreshPeriod;
       refreshPeriod = (long) Math.min(refreshPeriod * 1.5, maxRefreshPeriod);
@@ -273,6 +352,9 @@ private synchronized void addSockets(int numberOfNewSocket) {
           n);
     }
 
+    // counted upfront, so that the sockets of a batch are all known to be connecting before the
+    // first of them connects
+    pendingSockets += n;
     for (int i = 0; i < n; i++) {
       Optional<RSocketSupplier> optional = pool.get();
 
@@ -280,12 +362,113 @@ private synchronized void addSockets(int numberOfNewSocket) {
         RSocketSupplier supplier = optional.get();
         WeightedSocket socket = new WeightedSocket(supplier, lowerQuantile, higherQuantile);
       } else {
+        pendingSockets -= n - i;
         break;
       }
     }
   }
 
+  /* opens connections to new factories right away, rather than on the next selection */
+  private void onNewFactories() {
+    // the pool is not assigned yet while factories are delivered from within its constructor,
+    // which is followed by a refresh anyway
+    if (pool != null) {
+      refreshSockets();
+    }
+  }
+
+  /* refreshes the sockets unless another thread is doing so */
+  private void tryRefreshSockets() {
+    if (refreshing.compareAndSet(false, true)) {
+      try {
+        refreshSockets();
+      } finally {
+        refreshing.set(false);
+      }
+    }
+  }
+
+  private synchronized void socketSettled() {
+    pendingSockets--;
+  }
+
+  /**
+   * Whether enough sockets are connected for the balancer to report its availability: at least the
+   * minimum aperture, or all the factories if there are fewer, unless some failed to connect.
+   */
+  private boolean isWarm(int connected) {
+    return connected > 0
+        && (pendingSockets == 0 || connected >= Math.min(minAperture, pool.size()));
+  }
+
+  private synchronized void addActiveSocket(WeightedSocket socket) {
+    WeightedSocket[] sockets = activeSockets.toArray(new WeightedSocket[activeSockets.size() + 1]);
+    sockets[sockets.length - 1] = socket;
+    activeSockets = Collections.unmodifiableList(Arrays.asList(sockets));
+  }
+
+  private synchronized void removeActiveSocket(WeightedSocket socket) {
+    int i = activeSockets.indexOf(socket);
+    if (i >= 0) {
+      WeightedSocket[] sockets = new WeightedSocket[activeSockets.size() - 1];
+      for (int j = 0, k = 0; j < activeSockets.size(); j++) {
+        if (j != i) {
+          sockets[k++] = activeSockets.get(j);
+        }
+      }
+      activeSockets = Collections.unmodifiableList(Arrays.asList(sockets));
+      if (socket.ejectedUntil != 0L) {
+        ejectedSockets--;
+      }
+    }
+  }
+
+  /**
+   * Ejects a socket whose requests fail too often, which then reports no availability until it is
+   * readmitted. A socket ejected again soon after being readmitted stays out twice as long as the
+   * previous time, and no more than a fraction of the active sockets are ejected at once.
+   */
+  private synchronized void eject(WeightedSocket socket, long now) {
+    List<WeightedSocket> activeSockets = this.activeSockets;
+    if (socket.ejectedUntil != 0L
+        || ejectedSockets >= (int) (activeSockets.size() * MAX_EJECTED_FRACTION)
+        || !activeSockets.contains(socket)) {
+      return;
+    }
+
+    if (now - socket.readmittedAt > MAX_EJECTION_TIME) {
+      socket.consecutiveEjections = 0;
+    }
+    long ejectionTime =
+        Math.min(
+            BASE_EJECTION_TIME << Math.min(socket.consecutiveEjections, 16), MAX_EJECTION_TIME);
+    socket.consecutiveEjections++;
+    socket.ejectedUntil = now + ejectionTime;
+    ejectedSockets++;
+    ejections.incrementAndGet();
+    logger.info(
+        "Ejecting {} for {} ms, success rate {}",
+        socket,
+        TimeUnit.MILLISECONDS.convert(ejectionTime, Clock.unit()),
+        socket.successRate());
+  }
+
+  private void readmitEjectedSockets(long now) {
+    if (ejectedSockets == 0) {
+      return;
+    }
+    for (WeightedSocket socket : activeSockets) {
+      long ejectedUntil = socket.ejectedUntil;
+      if (ejectedUntil != 0L && now >= ejectedUntil) {
+        socket.readmit(now);
+        ejectedSockets--;
+        logger.debug("Readmitting {}", socket);
+      }
+    }
+  }
+
   private synchronized void refreshAperture() {
+    List<WeightedSocket> activeSockets = this.activeSockets;
     int n = activeSockets.size();
     if (n == 0) {
       return;
@@ -333,6 +516,7 @@ private void updateAperture(int newValue, long now) {
   }
 
   private synchronized void quickSlowestRS() {
+    List<WeightedSocket> activeSockets = this.activeSockets;
     if (activeSockets.size() <= 1) {
       return;
     }
@@ -361,7 +545,15 @@ private synchronized void quickSlowestRS() {
   }
 
   @Override
-  public synchronized double availability() {
+  public double availability() {
+    List<WeightedSocket> activeSockets = this.activeSockets;
+    if (!warm) {
+      if (!isWarm(activeSockets.size())) {
+        return 0.0;
+      }
+      warm = true;
+    }
+
     double currentAvailability = 0.0;
     if (!activeSockets.isEmpty()) {
       for (WeightedSocket rs : activeSockets) {
@@ -373,77 +565,46 @@ public synchronized double availability() {
     return currentAvailability;
   }
 
-  private synchronized RSocket select() {
-    refreshSockets();
+  /**
+   * Number of times a socket was ejected because too many of its requests failed, since this
+   * balancer was created.
+   *
+   * @return Number of ejections.
+   */
+  public long ejections() {
+    return ejections.get();
+  }
 
-    if (activeSockets.isEmpty()) {
-      return FAILING_REACTIVE_SOCKET;
-    }
+  /**
+   * Number of active sockets that are ejected at this moment.
+   *
+   * @return Number of ejected sockets.
+   */
+  public int ejectedSockets() {
+    return ejectedSockets;
+  }
 
+  private RSocket select() {
+    tryRefreshSockets();
+
+    List<WeightedSocket> activeSockets = this.activeSockets;
     int size = activeSockets.size();
+    if (size == 0) {
+      return FAILING_REACTIVE_SOCKET;
+    }
     if (size == 1) {
       return activeSockets.get(0);
     }
 
-    WeightedSocket rsc1 = null;
-    WeightedSocket rsc2 = null;
-
-    Random rng = ThreadLocalRandom.current();
-    for (int i = 0; i < EFFORT; i++) {
-      int i1 = rng.nextInt(size);
-      int i2 = rng.nextInt(size - 1);
-      if (i2 >= i1) {
-        i2++;
-      }
-      rsc1 = activeSockets.get(i1);
-      rsc2 = activeSockets.get(i2);
-      if (rsc1.availability() > 0.0 && rsc2.availability() > 0.0) {
-        break;
-      }
-      if (i + 1 == EFFORT && !pool.isPoolEmpty()) {
-        addSockets(1);
-      }
-    }
-
-    double w1 = algorithmicWeight(rsc1);
-    double w2 = algorithmicWeight(rsc2);
-    if (w1 < w2) {
-      return rsc2;
-    } else {
-      return rsc1;
-    }
-  }
-
-  private double algorithmicWeight(WeightedSocket socket) {
-    if (socket == null || socket.availability() == 0.0) {
-      return 0.0;
-    }
-
-    int pendings = socket.getPending();
-    double latency = socket.getPredictedLatency();
-
-    double low = lowerQuantile.estimation();
-    double high =
-        Math.max(
-            higherQuantile.estimation(),
-            low * 1.001); // ensure higherQuantile > lowerQuantile + .1%
-    double bandWidth = Math.max(high - low, 1);
-
-    if (latency < low) {
-      double alpha = (low - latency) / bandWidth;
-      double bonusFactor = Math.pow(1 + alpha, expFactor);
-      latency /= bonusFactor;
-    } else if (latency > high) {
-      double alpha = (latency - high) / bandWidth;
-      double penaltyFactor = Math.pow(1 + alpha, expFactor);
-      latency *= penaltyFactor;
+    WeightedSocket selected = strategy.select(activeSockets);
+    if (selected.availability() == 0.0 && !pool.isPoolEmpty()) {
+      addSockets(1);
     }
-
-    return socket.availability() * 1.0 / (1.0 + latency * (pendings + 1));
+    return selected;
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     return "LoadBalancer(a:"
         + activeSockets.size()
         + ", f: "
@@ -452,6 +613,8 @@ public synchronized String toString() {
         + pendings.value()
         + ", targetAperture="
         + targetAperture
+        + ", ejected="
+        + ejectedSockets
         + ", band=["
         + lowerQuantile.estimation()
         + ", "
@@ -461,11 +624,16 @@ public synchronized String toString() {
 
   @Override
   public void dispose() {
+    List<WeightedSocket> sockets;
     synchronized (this) {
-      activeSockets.forEach(WeightedSocket::dispose);
-      activeSockets.clear();
+      sockets = activeSockets;
+      activeSockets = Collections.emptyList();
+      ejectedSockets = 0;
       onClose.onComplete();
     }
+    for (WeightedSocket socket : sockets) {
+      socket.dispose();
+    }
   }
 
   @Override
@@ -478,6 +646,21 @@ public Mono<Void> onClose() {
     return onClose;
   }
 
+  /* outcomes of the requests of a WeightedSocket, successes in the high bits, failures in the low */
+  private static final long SUCCESS = 1L << 32;
+  private static final long FAILURE = 1L;
+
+  private static double successRate(long outcomes) {
+    long successes = outcomes >>> 32;
+    long total = successes + (outcomes & 0xFFFFFFFFL);
+    return total == 0 ? 1.0 : successes / (double) total;
+  }
+
+  private static boolean isOutlier(long outcomes) {
+    return (outcomes >>> 32) + (outcomes & 0xFFFFFFFFL) >= OUTLIER_MIN_REQUESTS
+        && successRate(outcomes) < OUTLIER_MIN_SUCCESS_RATE;
+  }
+
   /**
    * (Null Object Pattern) This failing RSocket never succeed, it is useful for simplifying the code
    * when dealing with edge cases.
@@ -543,18 +726,26 @@ private class WeightedSocket implements LoadBalancerSocketMetrics, RSocket {
     private final Quantile higherQuantile;
     private final long inactivityFactor;
     private final MonoProcessor<RSocket> rSocketMono;
-    private volatile int pending; // instantaneous rate
-    private long stamp; // last timestamp we sent a request
-    private long stamp0; // last timestamp we sent a request or receive a response
-    private long duration; // instantaneous cumulative duration
+    private final AtomicInteger pending; // instantaneous rate
+    private final AtomicLong stamp; // last timestamp we sent a request
+    private final AtomicLong stamp0; // last timestamp we sent a request or receive a response
+    private final AtomicLong duration; // instantaneous cumulative duration
+    private final AtomicLong outcomesWindowStart;
+    private final AtomicLong outcomes; // since the window started
+
+    // written under the balancer lock
+    private volatile long ejectedUntil; // 0 while admitted
+    private long readmittedAt;
+    private int consecutiveEjections;
 
     private Median median;
     private Ewma interArrivalTime;
 
     private AtomicLong pendingStreams; // number of active streams
 
-    private volatile double availability = 0.0;
+    private volatile RSocket source;
     private final MonoProcessor<Void> onClose = MonoProcessor.create();
+    private final AtomicBoolean settled = new AtomicBoolean();
 
     WeightedSocket(
         RSocketSupplier factory,
@@ -566,10 +757,13 @@ private class WeightedSocket implements LoadBalancerSocketMetrics, RSocket {
       this.higherQuantile = higherQuantile;
       this.inactivityFactor = inactivityFactor;
       long now = Clock.now();
-      this.stamp = now;
-      this.stamp0 = now;
-      this.duration = 0L;
-      this.pending = 0;
+      this.pending = new AtomicInteger();
+      this.stamp = new AtomicLong(now);
+      this.stamp0 = new AtomicLong(now);
+      this.duration = new AtomicLong();
+      this.outcomesWindowStart = new AtomicLong(now);
+      this.outcomes = new AtomicLong();
+      this.readmittedAt = now;
       this.median = new Median();
       this.interArrivalTime = new Ewma(1, TimeUnit.MINUTES, DEFAULT_INITIAL_INTER_ARRIVAL_TIME);
       this.pendingStreams = new AtomicLong();
@@ -580,8 +774,9 @@ private class WeightedSocket implements LoadBalancerSocketMetrics, RSocket {
           .onClose()
           .doFinally(
               s -> {
+                settle();
                 pool.accept(factory);
-                activeSockets.remove(WeightedSocket.this);
+                removeActiveSocket(WeightedSocket.this);
                 logger.debug(
                     "Removed {} from factory {} from activeSockets", WeightedSocket.this, factory);
               })
@@ -642,15 +837,19 @@ private class WeightedSocket implements LoadBalancerSocketMetrics, RSocket {
                   }
                 }*/
                 rSocketMono.onNext(rSocket);
-                availability = 1.0;
+                source = rSocket;
                 if (!WeightedSocket.this
                     .isDisposed()) { // May be already disposed because of retryBackoff delay
-                  activeSockets.add(WeightedSocket.this);
+                  addActiveSocket(WeightedSocket.this);
                   logger.debug(
                       "Added WeightedSocket {} from factory {} to activeSockets",
                       WeightedSocket.this,
                       factory);
+                  if (WeightedSocket.this.isDisposed()) { // disposed while being added
+                    removeActiveSocket(WeightedSocket.this);
+                  }
                 }
+                settle();
               });
     }
 
@@ -721,9 +920,15 @@ public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
           });
     }
 
-    synchronized double getPredictedLatency() {
+    @Override
+    public double predictedLatency() {
+      return getPredictedLatency();
+    }
+
+    double getPredictedLatency() {
+      int pending = this.pending.get();
       long now = Clock.now();
-      long elapsed = Math.max(now - stamp, 1L);
+      long elapsed = Math.max(now - stamp.get(), 1L);
 
       double weight;
       double prediction = median.estimation();
@@ -742,7 +947,7 @@ synchronized double getPredictedLatency() {
         weight = median.estimation();
       } else {
         double predicted = prediction * pending;
-        double instant = instantaneous(now);
+        double instant = duration.get() + (now - stamp0.get()) * pending;
 
         if (predicted < instant) { // NB: (0.0 < 0.0) == false
           weight = instant / pending; // NB: pending never equal 0 here
@@ -756,32 +961,63 @@ synchronized double getPredictedLatency() {
     }
 
     int getPending() {
-      return pending;
+      return pending.get();
     }
 
-    private synchronized long instantaneous(long now) {
-      return duration + (now - stamp0) * pending;
+    private long incr() {
+      long now = Clock.now();
+      int pending = this.pending.getAndIncrement();
+      duration.addAndGet(Math.max(0, now - stamp0.getAndSet(now)) * pending);
+      interArrivalTime.insert(now - stamp.getAndSet(now));
+      return now;
     }
 
-    private synchronized long incr() {
+    private long decr(long timestamp) {
       long now = Clock.now();
-      interArrivalTime.insert(now - stamp);
-      duration += Math.max(0, now - stamp0) * pending;
-      pending += 1;
-      stamp = now;
-      stamp0 = now;
+      int pending = this.pending.getAndDecrement();
+      duration.addAndGet(Math.max(0, now - stamp0.getAndSet(now)) * pending - (now - timestamp));
       return now;
     }
 
-    private synchronized long decr(long timestamp) {
+    /* no longer counts as connecting, once connected or closed */
+    private void settle() {
+      if (settled.compareAndSet(false, true)) {
+        socketSettled();
+      }
+    }
+
+    private void succeeded() {
+      record(true);
+    }
+
+    private void failed(Throwable t) {
+      // a request rejected for the lack of a lease says nothing about the server
+      if (!(t instanceof MissingLeaseException)) {
+        record(false);
+      }
+    }
+
+    private void record(boolean success) {
       long now = Clock.now();
-      duration += Math.max(0, now - stamp0) * pending - (now - timestamp);
-      pending -= 1;
-      stamp0 = now;
-      return now;
+      long windowStart = outcomesWindowStart.get();
+      if (now - windowStart > OUTLIER_WINDOW
+          && outcomesWindowStart.compareAndSet(windowStart, now)) {
+        outcomes.set(0L);
+      }
+      long current = outcomes.addAndGet(success ? SUCCESS : FAILURE);
+      if (!success && ejectedUntil == 0L && isOutlier(current)) {
+        eject(this, now);
+      }
+    }
+
+    private void readmit(long now) {
+      outcomesWindowStart.set(now);
+      outcomes.set(0L);
+      readmittedAt = now;
+      ejectedUntil = 0L;
     }
 
-    private synchronized void observe(double rtt) {
+    private void observe(double rtt) {
       median.insert(rtt);
       lowerQuantile.insert(rtt);
       higherQuantile.insert(rtt);
@@ -789,7 +1025,11 @@ private synchronized void observe(double rtt) {
 
     @Override
     public double availability() {
-      return availability;
+      if (ejectedUntil != 0L) {
+        return 0.0;
+      }
+      RSocket source = this.source;
+      return source != null ? source.availability() : 0.0;
     }
 
     @Override
@@ -809,6 +1049,7 @@ public Mono<Void> onClose() {
 
     @Override
     public String toString() {
+      int pending = this.pending.get();
       return "WeightedSocket("
           + "median="
           + median.estimation()
@@ -819,7 +1060,7 @@ public String toString() {
           + " inter-arrival="
           + interArrivalTime.value()
           + " duration/pending="
-          + (pending == 0 ? 0 : (double) duration / pending)
+          + (pending == 0 ? 0 : (double) duration.get() / pending)
           + " pending="
           + pending
           + " availability= "
@@ -849,12 +1090,17 @@ public double interArrivalTime() {
 
     @Override
     public int pending() {
-      return pending;
+      return pending.get();
     }
 
     @Override
     public long lastTimeUsedMillis() {
-      return stamp0;
+      return stamp0.get();
+    }
+
+    @Override
+    public double successRate() {
+      return LoadBalancedRSocketMono.successRate(outcomes.get());
     }
 
     /**
@@ -903,6 +1149,7 @@ public void onError(Throwable t) {
         if (done.compareAndSet(false, true)) {
           child.onError(t);
           long now = decr(start);
+          failed(t);
           if (t instanceof TransportException || t instanceof ClosedChannelException) {
             socket.dispose();
           } else if (t instanceof TimeoutException) {
@@ -916,6 +1163,7 @@ public void onComplete() {
         if (done.compareAndSet(false, true)) {
           long now = decr(start);
           observe(now - start);
+          succeeded();
           child.onComplete();
         }
       }
@@ -949,6 +1197,7 @@ public void onNext(U u) {
       public void onError(Throwable t) {
         socket.pendingStreams.decrementAndGet();
         child.onError(t);
+        socket.failed(t);
         if (t instanceof TransportException || t instanceof ClosedChannelException) {
           logger.debug("Disposing {} from activeSockets because of error {}", socket, t);
           socket.dispose();
@@ -959,6 +1208,7 @@ public void onError(Throwable t) {
       public void onComplete() {
         socket.pendingStreams.decrementAndGet();
         child.onComplete();
+        socket.succeeded();
       }
     }
   }
@@ -28,6 +28,16 @@ public interface LoadBalancerSocketMetrics extends Availability {
    */
   double medianLatency();
 
+  /**
+   * Latency expected for the next request, from the median latency and the requests that are
+   * outstanding. This is calculated per invocation.
+   *
+   * @return Predicted latency.
+   */
+  default double predictedLatency() {
+    return medianLatency();
+  }
+
   /**
    * Lower quantile of latency as per last calculation. This is not calculated per invocation.
    *
@@ -63,4 +73,14 @@ public interface LoadBalancerSocketMetrics extends Availability {
    * @return Last time used in millis since epoch.
    */
   long lastTimeUsedMillis();
+
+  /**
+   * Share of the requests that succeeded in the current window. A socket that falls below the
+   * minimum success rate is ejected for a while.
+   *
+   * @return Success rate, between 0.0 and 1.0.
+   */
+  default double successRate() {
+    return 1.0;
+  }
 }
@@ -26,13 +26,28 @@
   private final MonoProcessor<Void> onClose;
 
   public RSocketSupplierPool(Publisher<? extends Collection<RSocketSupplier>> publisher) {
+    this(publisher, () -> {});
+  }
+
+  /**
+   * @param publisher the source of the suppliers
+   * @param onNewFactories called, outside of the lock of the pool, whenever suppliers were added or
+   *     removed, for instance so that connections to the new ones can be opened right away
+   */
+  public RSocketSupplierPool(
+      Publisher<? extends Collection<RSocketSupplier>> publisher, Runnable onNewFactories) {
     this.onClose = MonoProcessor.create();
     this.factoryPool = new ArrayList<>();
     this.leasedSuppliers = new ArrayList<>();
 
     Disposable disposable =
         Flux.from(publisher)
-            .doOnNext(this::handleNewFactories)
+            .doOnNext(
+                factories -> {
+                  if (handleNewFactories(factories)) {
+                    onNewFactories.run();
+                  }
+                })
             .onErrorResume(
                 t -> {
                   logger.error("error streaming RSocketSuppliers", t);
@@ -43,7 +58,48 @@ public RSocketSupplierPool(Publisher<? extends Collection<RSocketSupplier>> publ
     onClose.doFinally(s -> disposable.dispose()).subscribe();
   }
 
-  private synchronized void handleNewFactories(Collection<RSocketSupplier> newFactories) {
+  /**
+   * Keeps a stable subset of each list of suppliers, so that clients with different ids connect to
+   * different servers and the connections are evenly spread across servers. Clients are grouped in
+   * rounds of {@code suppliers / subsetSize} clients; each round shuffles the suppliers with its
+   * own seed and gives each of its clients a distinct slice of {@code subsetSize} suppliers.
+   *
+   * <p>All clients must list the suppliers of a given server in the same order, for instance sorted
+   * by address, as this is what the subsets are computed from.
+   *
+   * @param publisher the source of all suppliers
+   * @param clientId an id of this client, distinct from those of the other clients and ideally
+   *     contiguous with them
+   * @param subsetSize the number of suppliers to keep
+   */
+  public static Flux<List<RSocketSupplier>> subset(
+      Publisher<? extends Collection<RSocketSupplier>> publisher, int clientId, int subsetSize) {
+    if (clientId < 0) {
+      throw new IllegalArgumentException("clientId must not be negative");
+    }
+    if (subsetSize < 1) {
+      throw new IllegalArgumentException("subsetSize must be positive");
+    }
+    return Flux.from(publisher).map(suppliers -> subset(suppliers, clientId, subsetSize));
+  }
+
+  static <T> List<T> subset(Collection<T> suppliers, int clientId, int subsetSize) {
+    List<T> shuffled = new ArrayList<>(suppliers);
+    if (shuffled.size() <= subsetSize) {
+      return shuffled;
+    }
+
+    int subsetCount = shuffled.size() / subsetSize;
+    int round = clientId / subsetCount;
+    // the first values of Randoms seeded with consecutive rounds are alike, so scramble the seed
+    Collections.shuffle(shuffled, new Random(new SplittableRandom(round).nextLong()));
+
+    int start = (clientId % subsetCount) * subsetSize;
+    return new ArrayList<>(shuffled.subList(start, start + subsetSize));
+  }
+
+  /* returns whether suppliers were added or removed */
+  private synchronized boolean handleNewFactories(Collection<RSocketSupplier> newFactories) {
     Set<RSocketSupplier> current = new HashSet<>(factoryPool.size() + leasedSuppliers.size());
     current.addAll(factoryPool);
     current.addAll(leasedSuppliers);
@@ -103,6 +159,7 @@ private synchronized void handleNewFactories(Collection<RSocketSupplier> newFact
       }
       logger.debug(msgBuilder.toString());
     }
+    return changed;
   }
 
   @Override
@@ -172,8 +229,13 @@ public void dispose() {
     if (!onClose.isDisposed()) {
       onClose.onComplete();
 
-      close(factoryPool);
-      close(leasedSuppliers);
+      // disposing a leased supplier returns it to the pool, so close copies of both lists
+      List<RSocketSupplier> suppliers;
+      synchronized (this) {
+        suppliers = new ArrayList<>(factoryPool);
+        suppliers.addAll(leasedSuppliers);
+      }
+      close(suppliers);
     }
   }
 
@@ -190,6 +252,11 @@ public synchronized int poolSize() {
     return factoryPool.size();
   }
 
+  /* number of suppliers, whether they are in the pool or leased */
+  synchronized int size() {
+    return factoryPool.size() + leasedSuppliers.size();
+  }
+
   public synchronized boolean isPoolEmpty() {
     return factoryPool.isEmpty();
   }
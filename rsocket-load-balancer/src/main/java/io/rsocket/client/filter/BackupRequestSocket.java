@@ -21,35 +21,79 @@
 import io.rsocket.stat.FrugalQuantile;
 import io.rsocket.stat.Quantile;
 import io.rsocket.util.Clock;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.reactivestreams.Publisher;
-import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Sends a backup of a request-response or request-stream when the first response takes longer than
+ * the given quantile of the latencies observed so far. Whichever of the two responds first wins,
+ * and the other one is cancelled; for a stream, this is decided by its first element.
+ *
+ * <p>Backups are scheduled on {@link Schedulers#parallel()} by default, whose delays are precise to
+ * well below a millisecond, and limited by a {@link Budget} so that a latency spike on a struggling
+ * server does not double the load it gets.
+ */
 public class BackupRequestSocket implements RSocket {
-  private final ScheduledExecutorService executor;
+  public static final double DEFAULT_QUANTILE = 0.99;
+  public static final double DEFAULT_MAX_BACKUP_RATIO = 0.1;
+
   private final RSocket child;
   private final Quantile q;
+  private final Budget budget;
+  private final Scheduler scheduler;
+
+  private final LongAdder backupsSent = new LongAdder();
+  private final LongAdder backupsWon = new LongAdder();
+  private final LongAdder backupsWasted = new LongAdder();
+  private final LongAdder backupsDenied = new LongAdder();
+
+  /**
+   * @param child the socket requests and their backups are sent to
+   * @param quantile the quantile of the latency after which a backup is sent
+   * @param budget limits the number of backups, and may be shared by several sockets
+   * @param scheduler schedules the backups
+   */
+  public BackupRequestSocket(RSocket child, double quantile, Budget budget, Scheduler scheduler) {
+    this.child = child;
+    this.q = new FrugalQuantile(quantile);
+    this.budget = budget;
+    this.scheduler = scheduler;
+  }
+
+  public BackupRequestSocket(RSocket child, double quantile, Budget budget) {
+    this(child, quantile, budget, Schedulers.parallel());
+  }
 
+  /**
+   * @deprecated use {@link #BackupRequestSocket(RSocket, double, Budget, Scheduler)} with {@link
+   *     Schedulers#fromExecutorService(java.util.concurrent.ExecutorService)} instead
+   */
+  @Deprecated
   public BackupRequestSocket(RSocket child, double quantile, ScheduledExecutorService executor) {
-    this.child = child;
-    this.executor = executor;
-    q = new FrugalQuantile(quantile);
+    this(
+        child,
+        quantile,
+        new Budget(DEFAULT_MAX_BACKUP_RATIO),
+        Schedulers.fromExecutorService(executor));
   }
 
   public BackupRequestSocket(RSocket child, double quantile) {
-    this(child, quantile, Executors.newScheduledThreadPool(2));
+    this(child, quantile, new Budget(DEFAULT_MAX_BACKUP_RATIO));
   }
 
   public BackupRequestSocket(RSocket child) {
-    this(child, 0.99);
+    this(child, DEFAULT_QUANTILE);
   }
 
   @Override
@@ -60,17 +104,13 @@ public Mono<Void> fireAndForget(Payload payload) {
   @Override
   public Mono<Payload> requestResponse(Payload payload) {
     return Mono.from(
-        subscriber -> {
-          Subscriber<? super Payload> oneSubscriber = new OneSubscriber<>(subscriber);
-          Subscriber<? super Payload> backupRequest =
-              new FirstRequestSubscriber(oneSubscriber, () -> child.requestResponse(payload));
-          child.requestResponse(payload).subscribe(backupRequest);
-        });
+        subscriber -> new Hedge(Operators.toCoreSubscriber(subscriber), payload, false).start());
   }
 
   @Override
   public Flux<Payload> requestStream(Payload payload) {
-    return child.requestStream(payload);
+    return Flux.from(
+        subscriber -> new Hedge(Operators.toCoreSubscriber(subscriber), payload, true).start());
   }
 
   @Override
@@ -103,128 +143,298 @@ public Mono<Void> onClose() {
     return child.onClose();
   }
 
+  /**
+   * Number of backup requests sent.
+   *
+   * @return Number of backups sent.
+   */
+  public long backupsSent() {
+    return backupsSent.sum();
+  }
+
+  /**
+   * Number of backup requests that responded before the request they were a backup of.
+   *
+   * @return Number of backups that won.
+   */
+  public long backupsWon() {
+    return backupsWon.sum();
+  }
+
+  /**
+   * Number of backup requests sent for nothing, because the request they were a backup of responded
+   * first or was cancelled.
+   *
+   * @return Number of backups wasted.
+   */
+  public long backupsWasted() {
+    return backupsWasted.sum();
+  }
+
+  /**
+   * Number of backup requests that were due but not sent, because the budget was exhausted.
+   *
+   * @return Number of backups denied.
+   */
+  public long backupsDenied() {
+    return backupsDenied.sum();
+  }
+
   @Override
   public String toString() {
-    return "BackupRequest(q=" + q + ")->" + child;
+    return "BackupRequest(q=" + q + ", sent=" + backupsSent() + ")->" + child;
   }
 
-  private static class OneSubscriber<T> implements Subscriber<T> {
-    private final Subscriber<T> subscriber;
-    private final AtomicBoolean firstEvent;
-    private final AtomicBoolean firstTerminal;
+  /**
+   * A token bucket limiting backups to a ratio of the requests: every request adds the ratio to the
+   * bucket and every backup takes one from it. Up to {@code maxBurst} backups can be saved up for a
+   * spike.
+   */
+  public static final class Budget {
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong tokens = new AtomicLong();
+
+    public Budget(double maxBackupRatio, int maxBurst) {
+      if (maxBackupRatio < 0.0) {
+        throw new IllegalArgumentException("maxBackupRatio must not be negative");
+      }
+      if (maxBurst < 1) {
+        throw new IllegalArgumentException("maxBurst must be positive");
+      }
+      this.deposit = Math.round(maxBackupRatio * TOKEN);
+      this.capacity = maxBurst * TOKEN;
+    }
 
-    private OneSubscriber(Subscriber<T> subscriber) {
-      this.subscriber = subscriber;
-      this.firstEvent = new AtomicBoolean(false);
-      this.firstTerminal = new AtomicBoolean(false);
+    public Budget(double maxBackupRatio) {
+      this(maxBackupRatio, 10);
     }
 
-    @Override
-    public void onSubscribe(Subscription s) {
-      subscriber.onSubscribe(s);
+    void deposit() {
+      if (deposit > 0 && tokens.get() < capacity) {
+        tokens.accumulateAndGet(deposit, (current, d) -> Math.min(capacity, current + d));
+      }
     }
 
-    @Override
-    public void onNext(T t) {
-      if (firstEvent.compareAndSet(false, true)) {
-        subscriber.onNext(t);
+    boolean tryWithdraw() {
+      for (; ; ) {
+        long current = tokens.get();
+        if (current < TOKEN) {
+          return false;
+        }
+        if (tokens.compareAndSet(current, current - TOKEN)) {
+          return true;
+        }
       }
     }
+  }
 
-    @Override
-    public void onError(Throwable t) {
-      if (firstTerminal.compareAndSet(false, true)) {
-        subscriber.onError(t);
+  /**
+   * Races a request against its backup, if one is sent, and relays the signals of whichever signals
+   * first. Until then, the demand is accumulated so that the backup can be given the rest of it
+   * when it wins.
+   */
+  private final class Hedge implements Subscription, Runnable {
+    private final CoreSubscriber<? super Payload> actual;
+    private final Payload payload;
+    private final boolean stream;
+    private final Racer primary;
+
+    // guarded by this
+    private Racer backup;
+    private long requested;
+    private boolean cancelled;
+    private boolean holdsPayload;
+
+    private volatile Racer winner;
+    private Disposable timeout;
+
+    Hedge(CoreSubscriber<? super Payload> actual, Payload payload, boolean stream) {
+      this.actual = actual;
+      this.payload = payload;
+      this.stream = stream;
+      this.primary = new Racer(this);
+    }
+
+    void start() {
+      budget.deposit();
+      long delay = (long) q.estimation();
+      if (delay > 0) {
+        // one more reference for the backup, as sending a request releases its payload
+        payload.retain();
+        holdsPayload = true;
+      }
+      actual.onSubscribe(this);
+      send().subscribe(primary);
+      if (delay > 0) {
+        Disposable timeout = scheduler.schedule(this, delay, TimeUnit.MICROSECONDS);
+        synchronized (this) {
+          this.timeout = timeout;
+          if (winner == null && !cancelled) {
+            return;
+          }
+        }
+        timeout.dispose();
       }
     }
 
     @Override
-    public void onComplete() {
-      if (firstTerminal.compareAndSet(false, true)) {
-        subscriber.onComplete();
+    public void run() {
+      Racer backup;
+      synchronized (this) {
+        if (winner != null || cancelled || requested == 0) {
+          return;
+        }
+        if (!budget.tryWithdraw()) {
+          backupsDenied.increment();
+          releasePayload();
+          return;
+        }
+        backup = new Racer(this);
+        this.backup = backup;
+        holdsPayload = false;
       }
+      backupsSent.increment();
+      send().subscribe(backup);
+      // the backup races for the first signal, and gets the rest of the demand if it wins
+      backup.request(1);
     }
-  }
-
-  private class FirstRequestSubscriber implements Subscriber<Payload> {
-    private final Subscriber<? super Payload> oneSubscriber;
-    private final Supplier<Publisher<Payload>> action;
-    private long start;
-    private ScheduledFuture<?> future;
 
-    private FirstRequestSubscriber(
-        Subscriber<? super Payload> oneSubscriber, Supplier<Publisher<Payload>> action) {
-      this.oneSubscriber = oneSubscriber;
-      this.action = action;
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Racer winner;
+        synchronized (this) {
+          winner = this.winner;
+          if (winner == null) {
+            requested = Operators.addCap(requested, n);
+          }
+        }
+        if (winner != null) {
+          winner.request(n);
+        } else {
+          primary.request(n);
+        }
+      }
     }
 
     @Override
-    public void onSubscribe(Subscription s) {
-      start = Clock.now();
-      if (q.estimation() > 0) {
-        future =
-            executor.schedule(
-                () -> action.get().subscribe(new BackupRequestSubscriber<>(oneSubscriber, s)),
-                (long) q.estimation(),
-                TimeUnit.MICROSECONDS);
+    public void cancel() {
+      Racer backup;
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        cancelled = true;
+        backup = this.backup;
+        if (winner == null && backup != null) {
+          backupsWasted.increment();
+        }
+        releasePayload();
+      }
+      cancelTimeout();
+      primary.cancel();
+      if (backup != null) {
+        backup.cancel();
       }
-      oneSubscriber.onSubscribe(s);
     }
 
-    @Override
-    public void onNext(Payload t) {
-      if (future != null) {
-        future.cancel(true);
+    private Publisher<Payload> send() {
+      return stream ? child.requestStream(payload) : child.requestResponse(payload);
+    }
+
+    /** Returns whether the racer is, or now becomes, the winner. */
+    boolean win(Racer racer) {
+      Racer winner = this.winner;
+      if (winner != null) {
+        return winner == racer;
       }
-      oneSubscriber.onNext(t);
-      long latency = Clock.now() - start;
-      q.insert(latency);
+
+      Racer loser;
+      long remaining;
+      synchronized (this) {
+        if (this.winner != null) {
+          return this.winner == racer;
+        }
+        this.winner = racer;
+        loser = racer == primary ? backup : primary;
+        remaining = requested == Long.MAX_VALUE ? Long.MAX_VALUE : requested - 1;
+        releasePayload();
+      }
+
+      cancelTimeout();
+      q.insert(Clock.now() - racer.start);
+      if (racer != primary) {
+        backupsWon.increment();
+        primary.cancel();
+        if (remaining > 0) {
+          racer.request(remaining);
+        }
+      } else if (loser != null) {
+        backupsWasted.increment();
+        loser.cancel();
+      }
+      return true;
     }
 
-    @Override
-    public void onError(Throwable t) {
-      oneSubscriber.onError(t);
+    // called under the lock
+    private void releasePayload() {
+      if (holdsPayload) {
+        holdsPayload = false;
+        payload.release();
+      }
     }
 
-    @Override
-    public void onComplete() {
-      oneSubscriber.onComplete();
+    private void cancelTimeout() {
+      Disposable timeout;
+      synchronized (this) {
+        timeout = this.timeout;
+      }
+      if (timeout != null) {
+        timeout.dispose();
+      }
     }
   }
 
-  private class BackupRequestSubscriber<T> implements Subscriber<T> {
-    private final Subscriber<? super T> oneSubscriber;
-    private final Subscription firstRequestSubscription;
-    private long start;
+  /** One of the requests of a {@link Hedge}, which only relays its signals if it wins. */
+  private static final class Racer extends Operators.DeferredSubscription
+      implements CoreSubscriber<Payload> {
+    private final Hedge hedge;
+    private final long start;
 
-    private BackupRequestSubscriber(
-        Subscriber<? super T> oneSubscriber, Subscription firstRequestSubscription) {
-      this.oneSubscriber = oneSubscriber;
-      this.firstRequestSubscription = firstRequestSubscription;
+    Racer(Hedge hedge) {
+      this.hedge = hedge;
+      this.start = Clock.now();
     }
 
     @Override
     public void onSubscribe(Subscription s) {
-      start = Clock.now();
-      s.request(1);
+      set(s);
     }
 
     @Override
-    public void onNext(T t) {
-      firstRequestSubscription.cancel();
-      oneSubscriber.onNext(t);
-      long latency = Clock.now() - start;
-      q.insert(latency);
+    public void onNext(Payload payload) {
+      if (hedge.win(this)) {
+        hedge.actual.onNext(payload);
+      } else {
+        payload.release();
+      }
     }
 
     @Override
     public void onError(Throwable t) {
-      oneSubscriber.onError(t);
+      if (hedge.win(this)) {
+        hedge.actual.onError(t);
+      }
     }
 
     @Override
     public void onComplete() {
-      oneSubscriber.onComplete();
+      if (hedge.win(this)) {
+        hedge.actual.onComplete();
+      }
     }
   }
 }
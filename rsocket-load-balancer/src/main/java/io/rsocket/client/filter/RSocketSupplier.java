@@ -20,6 +20,7 @@
 import io.rsocket.Closeable;
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
+import io.rsocket.lease.MissingLeaseException;
 import io.rsocket.stat.Ewma;
 import io.rsocket.util.Clock;
 import io.rsocket.util.RSocketProxy;
@@ -112,7 +113,7 @@ public AvailabilityAwareRSocketProxy(RSocket source) {
     public Mono<Void> fireAndForget(Payload payload) {
       return source
           .fireAndForget(payload)
-          .doOnError(t -> errorPercentage.insert(0.0))
+          .doOnError(this::onError)
           .doOnSuccess(v -> updateErrorPercentage(1.0));
     }
 
@@ -120,7 +121,7 @@ public Mono<Void> fireAndForget(Payload payload) {
     public Mono<Payload> requestResponse(Payload payload) {
       return source
           .requestResponse(payload)
-          .doOnError(t -> errorPercentage.insert(0.0))
+          .doOnError(this::onError)
           .doOnSuccess(p -> updateErrorPercentage(1.0));
     }
 
@@ -128,7 +129,7 @@ public Mono<Payload> requestResponse(Payload payload) {
     public Flux<Payload> requestStream(Payload payload) {
       return source
           .requestStream(payload)
-          .doOnError(th -> errorPercentage.insert(0.0))
+          .doOnError(this::onError)
           .doOnComplete(() -> updateErrorPercentage(1.0));
     }
 
@@ -136,7 +137,7 @@ public Flux<Payload> requestStream(Payload payload) {
     public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
       return source
           .requestChannel(payloads)
-          .doOnError(th -> errorPercentage.insert(0.0))
+          .doOnError(this::onError)
           .doOnComplete(() -> updateErrorPercentage(1.0));
     }
 
@@ -144,10 +145,18 @@ public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
     public Mono<Void> metadataPush(Payload payload) {
       return source
           .metadataPush(payload)
-          .doOnError(t -> errorPercentage.insert(0.0))
+          .doOnError(this::onError)
           .doOnSuccess(v -> updateErrorPercentage(1.0));
     }
 
+    private void onError(Throwable t) {
+      // a request rejected for the lack of a lease never reached the server, and the socket is
+      // available again as soon as the next lease is received
+      if (!(t instanceof MissingLeaseException)) {
+        errorPercentage.insert(0.0);
+      }
+    }
+
     @Override
     public double availability() {
       // If the window is expired set success and failure to zero and return
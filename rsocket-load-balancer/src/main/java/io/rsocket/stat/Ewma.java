@@ -18,6 +18,7 @@
 
 import io.rsocket.util.Clock;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * Compute the exponential weighted moving average of a series of values. The time at which you
@@ -26,38 +27,53 @@
  *
  * <p>e.g. with a half-life of 10 unit, if you insert 100 at t=0 and 200 at t=10 the ewma will be
  * equal to (200 - 100)/2 = 150 (half of the distance between the new and the old value)
+ *
+ * <p>Inserting does not lock nor allocate: the time elapsed since the previous insert goes to the
+ * thread that moves the stamp forward, and the average is updated with a compare-and-set of its
+ * bits, so that concurrent inserts are all accounted for.
  */
 public class Ewma {
+  private static final AtomicLongFieldUpdater<Ewma> STAMP =
+      AtomicLongFieldUpdater.newUpdater(Ewma.class, "stamp");
+  private static final AtomicLongFieldUpdater<Ewma> EWMA =
+      AtomicLongFieldUpdater.newUpdater(Ewma.class, "ewma");
+
   private final long tau;
   private volatile long stamp;
-  private volatile double ewma;
+  private volatile long ewma; // bits of the double value
 
   public Ewma(long halfLife, TimeUnit unit, double initialValue) {
     this.tau = Clock.unit().convert((long) (halfLife / Math.log(2)), unit);
     stamp = 0L;
-    ewma = initialValue;
+    ewma = Double.doubleToRawLongBits(initialValue);
   }
 
-  public synchronized void insert(double x) {
+  public void insert(double x) {
     long now = Clock.now();
-    double elapsed = Math.max(0, now - stamp);
-    stamp = now;
+    long previous = STAMP.getAndAccumulate(this, now, Math::max);
+    double elapsed = Math.max(0, now - previous);
 
     double w = Math.exp(-elapsed / tau);
-    ewma = w * ewma + (1.0 - w) * x;
+    for (; ; ) {
+      long bits = ewma;
+      double next = w * Double.longBitsToDouble(bits) + (1.0 - w) * x;
+      if (EWMA.compareAndSet(this, bits, Double.doubleToRawLongBits(next))) {
+        return;
+      }
+    }
   }
 
-  public synchronized void reset(double value) {
+  public void reset(double value) {
     stamp = 0L;
-    ewma = value;
+    ewma = Double.doubleToRawLongBits(value);
   }
 
   public double value() {
-    return ewma;
+    return Double.longBitsToDouble(ewma);
   }
 
   @Override
   public String toString() {
-    return "Ewma(value=" + ewma + ", age=" + (Clock.now() - stamp) + ")";
+    return "Ewma(value=" + value() + ", age=" + (Clock.now() - stamp) + ")";
   }
 }
@@ -17,6 +17,8 @@
 package io.rsocket.stat;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Reference: Ma, Qiang, S. Muthukrishnan, and Mark Sandler. "Frugal Streaming for Estimating
@@ -24,8 +26,15 @@
  * 2013. 77-96.
  *
  * <p>More info: http://blog.aggregateknowledge.com/2013/09/16/sketch-of-the-day-frugal-streaming/
+ *
+ * <p>Inserting does not lock nor allocate: one thread at a time updates the estimate, and a data
+ * point inserted while another thread is updating is skipped. The estimation only relies on a
+ * sample of the data points anyway, and which ones are skipped does not depend on their value.
  */
 public class FrugalQuantile implements Quantile {
+  private static final AtomicIntegerFieldUpdater<FrugalQuantile> UPDATING =
+      AtomicIntegerFieldUpdater.newUpdater(FrugalQuantile.class, "updating");
+
   private final double increment;
   private double quantile;
   private Random rng;
@@ -34,6 +43,13 @@ public class FrugalQuantile implements Quantile {
   int step;
   int sign;
 
+  private volatile int updating;
+
+  /**
+   * @param quantile the quantile to estimate, between 0.0 and 1.0
+   * @param increment how much the step grows on every data point on the same side of the estimate
+   * @param rng the source of randomness, or {@code null} for {@link ThreadLocalRandom}
+   */
   public FrugalQuantile(double quantile, double increment, Random rng) {
     this.increment = increment;
     this.quantile = quantile;
@@ -44,7 +60,7 @@ public FrugalQuantile(double quantile, double increment, Random rng) {
   }
 
   public FrugalQuantile(double quantile) {
-    this(quantile, 1.0, new Random());
+    this(quantile, 1.0, null);
   }
 
   public double estimation() {
@@ -52,7 +68,19 @@ public double estimation() {
   }
 
   @Override
-  public synchronized void insert(double x) {
+  public void insert(double x) {
+    if (UPDATING.compareAndSet(this, 0, 1)) {
+      try {
+        update(x);
+      } finally {
+        updating = 0;
+      }
+    }
+  }
+
+  /** Updates the estimate with a data point, called by one thread at a time. */
+  void update(double x) {
+    Random rng = this.rng != null ? this.rng : ThreadLocalRandom.current();
     if (sign == 0) {
       estimate = x;
       sign = 1;
@@ -23,7 +23,7 @@ public Median() {
   }
 
   @Override
-  public synchronized void insert(double x) {
+  void update(double x) {
     if (sign == 0) {
       estimate = x;
       sign = 1;
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.client.filter.BackupRequestSocket;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class BackupRequestSocketTest {
+
+  private final ManualScheduler scheduler = new ManualScheduler();
+  private final List<Mono<Payload>> responses = new ArrayList<>();
+  private final List<Flux<Payload>> streams = new ArrayList<>();
+
+  @Test(timeout = 10_000L)
+  public void testBackupWinsWhenRequestHangs() throws Exception {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    BackupRequestSocket socket = warmedUp(new BackupRequestSocket.Budget(1.0));
+    responses.add(Mono.<Payload>never().doOnCancel(() -> cancelled.set(true)));
+    responses.add(Mono.just(DefaultPayload.create("backup")));
+
+    CompletableFuture<Payload> response = socket.requestResponse(payload()).toFuture();
+    Assert.assertFalse(response.isDone());
+    scheduler.fire();
+
+    Assert.assertEquals("backup", response.get().getDataUtf8());
+    Assert.assertTrue(cancelled.get());
+    Assert.assertEquals(1, socket.backupsSent());
+    Assert.assertEquals(1, socket.backupsWon());
+    Assert.assertEquals(0, socket.backupsWasted());
+  }
+
+  @Test(timeout = 10_000L)
+  public void testRequestWinsOverBackup() throws Exception {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    MonoProcessor<Payload> primary = MonoProcessor.create();
+    BackupRequestSocket socket = warmedUp(new BackupRequestSocket.Budget(1.0));
+    responses.add(primary);
+    responses.add(Mono.<Payload>never().doOnCancel(() -> cancelled.set(true)));
+
+    CompletableFuture<Payload> response = socket.requestResponse(payload()).toFuture();
+    scheduler.fire();
+    primary.onNext(DefaultPayload.create("primary"));
+
+    Assert.assertEquals("primary", response.get().getDataUtf8());
+    Assert.assertTrue(cancelled.get());
+    Assert.assertEquals(1, socket.backupsSent());
+    Assert.assertEquals(0, socket.backupsWon());
+    Assert.assertEquals(1, socket.backupsWasted());
+  }
+
+  @Test(timeout = 10_000L)
+  public void testBudgetDeniesBackups() throws Exception {
+    BackupRequestSocket socket = warmedUp(new BackupRequestSocket.Budget(0.0));
+    responses.add(Mono.never());
+    responses.add(Mono.just(DefaultPayload.create("backup")));
+
+    CompletableFuture<Payload> response = socket.requestResponse(payload()).toFuture();
+    scheduler.fire();
+
+    Assert.assertFalse(response.isDone());
+    Assert.assertEquals(0, socket.backupsSent());
+    Assert.assertEquals(1, socket.backupsDenied());
+    Assert.assertEquals(1, responses.size());
+  }
+
+  @Test(timeout = 10_000L)
+  public void testStreamBackupWinsUntilFirstElement() throws Exception {
+    BackupRequestSocket socket = warmedUp(new BackupRequestSocket.Budget(1.0));
+    streams.add(Flux.never());
+    streams.add(Flux.just("a", "b", "c").map(DefaultPayload::create));
+
+    MonoProcessor<List<String>> elements =
+        socket.requestStream(payload()).map(Payload::getDataUtf8).collectList().toProcessor();
+    scheduler.fire();
+
+    Assert.assertEquals(Arrays.asList("a", "b", "c"), elements.block(Duration.ofSeconds(5)));
+    Assert.assertEquals(1, socket.backupsWon());
+  }
+
+  /** Returns a socket that has seen a response, so that it sends backups. */
+  private BackupRequestSocket warmedUp(BackupRequestSocket.Budget budget) {
+    BackupRequestSocket socket =
+        new BackupRequestSocket(
+            new RSocket() {
+              @Override
+              public Mono<Payload> requestResponse(Payload payload) {
+                return responses.remove(0);
+              }
+
+              @Override
+              public Flux<Payload> requestStream(Payload payload) {
+                return streams.remove(0);
+              }
+            },
+            0.5,
+            budget,
+            scheduler);
+    responses.add(Mono.delay(Duration.ofMillis(5)).map(i -> DefaultPayload.create("warm-up")));
+    socket.requestResponse(payload()).block();
+    scheduler.tasks.clear();
+    return socket;
+  }
+
+  private static Payload payload() {
+    return DefaultPayload.create("request");
+  }
+
+  private static final class ManualScheduler implements Scheduler {
+    final List<ManualTask> tasks = new ArrayList<>();
+
+    @Override
+    public Disposable schedule(Runnable task) {
+      return schedule(task, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+      ManualTask manualTask = new ManualTask(task);
+      tasks.add(manualTask);
+      return manualTask;
+    }
+
+    @Override
+    public Worker createWorker() {
+      return Schedulers.immediate().createWorker();
+    }
+
+    void fire() {
+      for (ManualTask task :
+          tasks.stream().filter(t -> !t.cancelled).collect(Collectors.toList())) {
+        task.task.run();
+      }
+    }
+  }
+
+  private static final class ManualTask implements Disposable {
+    final Runnable task;
+    boolean cancelled;
+
+    ManualTask(Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return cancelled;
+    }
+
+    @Override
+    public void dispose() {
+      cancelled = true;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoadBalanceStrategyTest {
+
+  @Test
+  public void testRoundRobinSkipsUnavailableSockets() {
+    Socket a = new Socket(1.0, 0, 10);
+    Socket b = new Socket(0.0, 0, 10);
+    Socket c = new Socket(1.0, 0, 10);
+    List<Socket> sockets = Arrays.asList(a, b, c);
+    LoadBalanceStrategy strategy = LoadBalanceStrategy.roundRobin();
+
+    Map<Socket, Integer> counts = select(strategy, sockets, 100);
+
+    Assert.assertFalse(counts.containsKey(b));
+    Assert.assertEquals(counts.get(a), counts.get(c), 1);
+  }
+
+  @Test
+  public void testLeastOutstandingSelectsFewestPending() {
+    Socket busy = new Socket(1.0, 5, 10);
+    Socket idle = new Socket(1.0, 1, 10);
+    Socket unavailable = new Socket(0.0, 0, 10);
+    List<Socket> sockets = Arrays.asList(busy, idle, unavailable);
+
+    Map<Socket, Integer> counts = select(LoadBalanceStrategy.leastOutstanding(), sockets, 100);
+
+    Assert.assertEquals(100, (int) counts.get(idle));
+  }
+
+  @Test
+  public void testLeaseWeightedFollowsAvailability() {
+    Socket full = new Socket(1.0, 0, 10);
+    Socket drained = new Socket(0.25, 0, 10);
+    Socket expired = new Socket(0.0, 0, 10);
+    List<Socket> sockets = Arrays.asList(full, drained, expired);
+
+    Map<Socket, Integer> counts = select(LoadBalanceStrategy.leaseWeighted(), sockets, 10_000);
+
+    Assert.assertFalse(counts.containsKey(expired));
+    Assert.assertEquals(4.0, counts.get(full) / (double) counts.get(drained), 0.5);
+  }
+
+  @Test
+  public void testPredictiveFavorsFasterSockets() {
+    Socket fast = new Socket(1.0, 0, 10);
+    Socket slow = new Socket(1.0, 0, 1000);
+
+    Map<Socket, Integer> counts =
+        select(
+            LoadBalanceStrategy.predictive(LoadBalancedRSocketMono.DEFAULT_EXP_FACTOR),
+            Arrays.asList(fast, slow),
+            100);
+
+    Assert.assertEquals(100, (int) counts.get(fast));
+  }
+
+  @Test
+  public void testPredictiveSkipsSocketsOutOfLeases() {
+    List<Socket> sockets = new ArrayList<>();
+    for (int i = 0; i < 32; i++) {
+      sockets.add(new Socket(0.0, 0, 10));
+    }
+    Socket leased = new Socket(0.1, 5, 1000);
+    sockets.add(leased);
+
+    Map<Socket, Integer> counts =
+        select(
+            LoadBalanceStrategy.predictive(LoadBalancedRSocketMono.DEFAULT_EXP_FACTOR),
+            sockets,
+            1000);
+
+    Assert.assertEquals(1000, (int) counts.get(leased));
+  }
+
+  private static Map<Socket, Integer> select(
+      LoadBalanceStrategy strategy, List<Socket> sockets, int times) {
+    Map<Socket, Integer> counts = new HashMap<>();
+    for (int i = 0; i < times; i++) {
+      counts.merge(strategy.select(sockets), 1, Integer::sum);
+    }
+    return counts;
+  }
+
+  private static class Socket implements LoadBalancerSocketMetrics {
+    private final double availability;
+    private final int pending;
+    private final double latency;
+
+    Socket(double availability, int pending, double latency) {
+      this.availability = availability;
+      this.pending = pending;
+      this.latency = latency;
+    }
+
+    @Override
+    public double availability() {
+      return availability;
+    }
+
+    @Override
+    public double medianLatency() {
+      return latency;
+    }
+
+    @Override
+    public double lowerQuantileLatency() {
+      return 10;
+    }
+
+    @Override
+    public double higherQuantileLatency() {
+      return 1000;
+    }
+
+    @Override
+    public double interArrivalTime() {
+      return 0;
+    }
+
+    @Override
+    public int pending() {
+      return pending;
+    }
+
+    @Override
+    public long lastTimeUsedMillis() {
+      return 0;
+    }
+  }
+}
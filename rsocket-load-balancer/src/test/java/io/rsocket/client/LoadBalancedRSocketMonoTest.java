@@ -19,17 +19,27 @@
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.util.EmptyPayload;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.reactivestreams.Publisher;
+import reactor.core.publisher.DirectProcessor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 
 public class LoadBalancedRSocketMonoTest {
 
@@ -93,6 +103,109 @@ public void testRefreshesSocketsOnSelectBeforeReturningFailedAfterNewFactoriesDe
     Assert.assertEquals(1.0, balancer.availability(), 0);
   }
 
+  @Test(timeout = 10_000L)
+  public void testConcurrentSelectionsKeepPendingCounts() throws Exception {
+    List<RSocketSupplier> factories =
+        Arrays.asList(
+            succeedingFactory(new TestingRSocket(Function.identity())),
+            succeedingFactory(new TestingRSocket(Function.identity())),
+            succeedingFactory(new TestingRSocket(Function.identity())));
+    LoadBalancedRSocketMono balancer = LoadBalancedRSocketMono.create(Flux.just(factories));
+    Set<RSocket> selected = ConcurrentHashMap.newKeySet();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 1000; i++) {
+                    RSocket rSocket = balancer.block();
+                    selected.add(rSocket);
+                    rSocket.requestResponse(EmptyPayload.INSTANCE).block();
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(3, selected.size());
+    for (RSocket rSocket : selected) {
+      Assert.assertEquals(0, ((LoadBalancerSocketMetrics) rSocket).pending());
+    }
+  }
+
+  @Test(timeout = 10_000L)
+  public void testEjectsSocketFailingRequests() {
+    TestingRSocket failingSocket =
+        new TestingRSocket(Function.identity()) {
+          @Override
+          public Mono<Payload> requestResponse(Payload payload) {
+            return Mono.error(new ApplicationErrorException("failing fast"));
+          }
+        };
+    List<RSocketSupplier> factories =
+        Arrays.asList(
+            succeedingFactory(new TestingRSocket(Function.identity())),
+            succeedingFactory(new TestingRSocket(Function.identity())),
+            succeedingFactory(failingSocket));
+    LoadBalancedRSocketMono balancer = LoadBalancedRSocketMono.create(Flux.just(factories));
+
+    Flux.range(0, 200)
+        .concatMap(
+            i ->
+                balancer
+                    .flatMap(rSocket -> rSocket.requestResponse(EmptyPayload.INSTANCE))
+                    .onErrorResume(ApplicationErrorException.class, e -> Mono.empty()))
+        .blockLast();
+
+    Assert.assertEquals(1, balancer.ejections());
+    Assert.assertEquals(1, balancer.ejectedSockets());
+
+    Flux.range(0, 100)
+        .concatMap(i -> balancer.flatMap(rSocket -> rSocket.requestResponse(EmptyPayload.INSTANCE)))
+        .blockLast();
+  }
+
+  @Test(timeout = 10_000L)
+  public void testConnectsMinimumApertureBeforeReportingAvailability() {
+    DirectProcessor<List<RSocketSupplier>> factories = DirectProcessor.create();
+    MonoProcessor<RSocket> lastConnection = MonoProcessor.create();
+    List<RSocketSupplier> suppliers = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      RSocketSupplier supplier = succeedingFactory(new TestingRSocket(Function.identity()));
+      suppliers.add(supplier);
+    }
+    Mockito.when(suppliers.get(4).get()).thenReturn(lastConnection);
+
+    LoadBalancedRSocketMono balancer =
+        LoadBalancedRSocketMono.create(
+            factories,
+            LoadBalancedRSocketMono.DEFAULT_EXP_FACTOR,
+            LoadBalancedRSocketMono.DEFAULT_LOWER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_HIGHER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_MIN_PENDING,
+            LoadBalancedRSocketMono.DEFAULT_MAX_PENDING,
+            5,
+            LoadBalancedRSocketMono.DEFAULT_MAX_APERTURE,
+            LoadBalancedRSocketMono.DEFAULT_MAX_REFRESH_PERIOD_MS);
+    factories.onNext(suppliers);
+
+    // connections are opened as the factories are received, before any selection
+    for (RSocketSupplier supplier : suppliers) {
+      Mockito.verify(supplier).get();
+    }
+    Assert.assertEquals(0.0, balancer.availability(), 0);
+
+    lastConnection.onNext(new TestingRSocket(Function.identity()));
+    Assert.assertEquals(1.0, balancer.availability(), 0);
+  }
+
   private void testBalancer(List<RSocketSupplier> factories) throws InterruptedException {
     Publisher<List<RSocketSupplier>> src =
         s -> {
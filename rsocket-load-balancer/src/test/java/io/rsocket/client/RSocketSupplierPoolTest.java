@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RSocketSupplierPoolTest {
+
+  /**
+   * Simulates 1000 clients connecting to 10 out of 1000 servers each, and checks that every server
+   * gets as many connections, where a random choice would leave some servers with none.
+   */
+  @Test
+  public void testSubsetsSpreadConnectionsEvenly() {
+    int clients = 1000;
+    int subsetSize = 10;
+    List<Integer> servers = servers(1000);
+
+    int[] connections = new int[servers.size()];
+    for (int clientId = 0; clientId < clients; clientId++) {
+      for (int server : RSocketSupplierPool.subset(servers, clientId, subsetSize)) {
+        connections[server]++;
+      }
+    }
+
+    int[] random = new int[servers.size()];
+    Random rng = new Random(0);
+    for (int clientId = 0; clientId < clients; clientId++) {
+      List<Integer> shuffled = new ArrayList<>(servers);
+      Collections.shuffle(shuffled, rng);
+      for (int server : shuffled.subList(0, subsetSize)) {
+        random[server]++;
+      }
+    }
+
+    Assert.assertEquals(0, spread(connections));
+    Assert.assertTrue("random spread " + spread(random), spread(connections) < spread(random));
+  }
+
+  @Test
+  public void testSubsetsSpreadConnectionsWhenClientsDoNotFillRounds() {
+    int clients = 250;
+    List<Integer> servers = servers(64);
+
+    int[] connections = new int[servers.size()];
+    for (int clientId = 0; clientId < clients; clientId++) {
+      for (int server : RSocketSupplierPool.subset(servers, clientId, 5)) {
+        connections[server]++;
+      }
+    }
+
+    // 250 clients take 1250 connections from 64 servers, about 19.5 each
+    Assert.assertTrue("spread " + spread(connections), spread(connections) <= 5);
+  }
+
+  @Test
+  public void testSubsetIsStableAndDistinctWithinRound() {
+    List<Integer> servers = servers(30);
+
+    Assert.assertEquals(
+        RSocketSupplierPool.subset(servers, 7, 3), RSocketSupplierPool.subset(servers, 7, 3));
+
+    Set<Integer> round = new HashSet<>();
+    for (int clientId = 0; clientId < 10; clientId++) {
+      round.addAll(RSocketSupplierPool.subset(servers, clientId, 3));
+    }
+    Assert.assertEquals(30, round.size());
+  }
+
+  @Test
+  public void testSubsetKeepsAllWhenFewerThanSubsetSize() {
+    List<Integer> servers = servers(3);
+
+    Assert.assertEquals(servers, RSocketSupplierPool.subset(servers, 42, 5));
+  }
+
+  private static List<Integer> servers(int count) {
+    List<Integer> servers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      servers.add(i);
+    }
+    return servers;
+  }
+
+  private static int spread(int[] connections) {
+    int min = Integer.MAX_VALUE;
+    int max = 0;
+    for (int count : connections) {
+      min = Math.min(min, count);
+      max = Math.max(max, count);
+    }
+    return max - min;
+  }
+}
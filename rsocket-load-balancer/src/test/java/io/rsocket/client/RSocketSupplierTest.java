@@ -25,6 +25,7 @@
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.lease.MissingLeaseException;
 import io.rsocket.test.TestSubscriber;
 import io.rsocket.util.EmptyPayload;
 import java.util.concurrent.CountDownLatch;
@@ -101,7 +102,32 @@ public void testWidowReset() throws InterruptedException {
         });
   }
 
+  @Test
+  public void testMissingLeaseKeepsAvailability() throws InterruptedException {
+    testRSocket(
+        new MissingLeaseException("test"),
+        (latch, socket) -> {
+          Publisher<Payload> payloadPublisher = socket.requestResponse(EmptyPayload.INSTANCE);
+
+          Subscriber<Payload> subscriber = TestSubscriber.create();
+          payloadPublisher.subscribe(subscriber);
+          verify(subscriber).onComplete();
+          double good = socket.availability();
+
+          subscriber = TestSubscriber.create();
+          payloadPublisher.subscribe(subscriber);
+          verify(subscriber).onError(any(MissingLeaseException.class));
+          assertEquals(good, socket.availability(), 0.0);
+          latch.countDown();
+        });
+  }
+
   private void testRSocket(BiConsumer<CountDownLatch, RSocket> f) throws InterruptedException {
+    testRSocket(new RuntimeException(), f);
+  }
+
+  private void testRSocket(RuntimeException error, BiConsumer<CountDownLatch, RSocket> f)
+      throws InterruptedException {
     AtomicInteger count = new AtomicInteger(0);
     TestingRSocket socket =
         new TestingRSocket(
@@ -109,7 +135,7 @@ private void testRSocket(BiConsumer<CountDownLatch, RSocket> f) throws Interrupt
               if (count.getAndIncrement() < 1) {
                 return EmptyPayload.INSTANCE;
               } else {
-                throw new RuntimeException();
+                throw error;
               }
             });
 
@@ -16,8 +16,13 @@
 
 package io.rsocket.stat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -37,6 +42,37 @@ public void testMedian() {
         "Error avg = " + (errorSum / n) + " in range [" + minError + ", " + maxError + "]");
   }
 
+  @Test
+  public void testConcurrentInserts() throws Exception {
+    int threads = 4;
+    int n = 100 * 1024;
+    int range = Integer.MAX_VALUE >> 16;
+    Median m = new Median();
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        Random rng = new Random(t);
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < n; i++) {
+                    m.insert(Math.max(0, range / 2 + (int) (range / 5 * rng.nextGaussian())));
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    double error = Math.abs(range / 2 - m.estimation()) / (range / 2);
+    Assert.assertTrue("p50=" + m.estimation() + ", error=" + error, error < 0.05);
+  }
+
   /** Test Median estimation with normal random data */
   private void testMedian(Random rng) {
     int n = 100 * 1024;
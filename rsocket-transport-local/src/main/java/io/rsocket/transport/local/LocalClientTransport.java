@@ -36,9 +36,12 @@ public final class LocalClientTransport implements ClientTransport {
 
   private final ByteBufAllocator allocator;
 
-  private LocalClientTransport(String name, ByteBufAllocator allocator) {
+  private final boolean payloadReferences;
+
+  private LocalClientTransport(String name, ByteBufAllocator allocator, boolean payloadReferences) {
     this.name = name;
     this.allocator = allocator;
+    this.payloadReferences = payloadReferences;
   }
 
   /**
@@ -66,7 +69,29 @@ public static LocalClientTransport create(String name, ByteBufAllocator allocato
     Objects.requireNonNull(name, "name must not be null");
     Objects.requireNonNull(allocator, "allocator must not be null");
 
-    return new LocalClientTransport(name, allocator);
+    return new LocalClientTransport(name, allocator, false);
+  }
+
+  /**
+   * Hands payloads over to the other side by reference instead of encoding them into frames and
+   * decoding them again. Stream semantics such as request n, cancellation and leases are kept, as
+   * frames are still exchanged, but these only carry their header. This applies to both sides of
+   * the connections created by this transport.
+   *
+   * <p>The receiving side is handed the very {@link io.rsocket.Payload} that was sent, so a payload
+   * that is sent more than once is shared by its receivers. Connection interceptors see frames
+   * whose bytes hold no metadata or data, unless they read these through the frame codecs. A side
+   * whose connection is wrapped by an interceptor keeps encoding the payloads it sends, unless the
+   * wrapper itself {@link io.rsocket.DuplexConnection#supportsPayloadReferences() supports payload
+   * references}.
+   *
+   * <p>By default this is disabled.
+   *
+   * @param payloadReferences whether to pass payloads by reference
+   * @return a new instance that passes payloads as given, this instance is left unchanged
+   */
+  public LocalClientTransport passPayloadsByReference(boolean payloadReferences) {
+    return new LocalClientTransport(name, allocator, payloadReferences);
   }
 
   @Override
@@ -82,10 +107,14 @@ public Mono<DuplexConnection> connect() {
           UnboundedProcessor<ByteBuf> out = new UnboundedProcessor<>();
           MonoProcessor<Void> closeNotifier = MonoProcessor.create();
 
-          server.apply(new LocalDuplexConnection(allocator, out, in, closeNotifier)).subscribe();
+          server
+              .apply(
+                  new LocalDuplexConnection(allocator, out, in, closeNotifier, payloadReferences))
+              .subscribe();
 
           return Mono.just(
-              (DuplexConnection) new LocalDuplexConnection(allocator, in, out, closeNotifier));
+              (DuplexConnection)
+                  new LocalDuplexConnection(allocator, in, out, closeNotifier, payloadReferences));
         });
   }
 }
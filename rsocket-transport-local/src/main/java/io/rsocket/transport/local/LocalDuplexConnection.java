@@ -36,6 +36,8 @@ final class LocalDuplexConnection implements DuplexConnection {
 
   private final Subscriber<ByteBuf> out;
 
+  private final boolean payloadReferences;
+
   /**
    * Creates a new instance.
    *
@@ -49,10 +51,29 @@ final class LocalDuplexConnection implements DuplexConnection {
       Flux<ByteBuf> in,
       Subscriber<ByteBuf> out,
       MonoProcessor<Void> onClose) {
+    this(allocator, in, out, onClose, false);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param in the inbound {@link ByteBuf}s
+   * @param out the outbound {@link ByteBuf}s
+   * @param onClose the closing notifier
+   * @param payloadReferences whether payloads may be passed by reference
+   * @throws NullPointerException if {@code in}, {@code out}, or {@code onClose} are {@code null}
+   */
+  LocalDuplexConnection(
+      ByteBufAllocator allocator,
+      Flux<ByteBuf> in,
+      Subscriber<ByteBuf> out,
+      MonoProcessor<Void> onClose,
+      boolean payloadReferences) {
     this.allocator = Objects.requireNonNull(allocator, "allocator must not be null");
     this.in = Objects.requireNonNull(in, "in must not be null");
     this.out = Objects.requireNonNull(out, "out must not be null");
     this.onClose = Objects.requireNonNull(onClose, "onClose must not be null");
+    this.payloadReferences = payloadReferences;
   }
 
   @Override
@@ -94,4 +115,9 @@ public Mono<Void> sendOne(ByteBuf frame) {
   public ByteBufAllocator alloc() {
     return allocator;
   }
+
+  @Override
+  public boolean supportsPayloadReferences() {
+    return payloadReferences;
+  }
 }
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.local;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.ChunkedResponderRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketConnector;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.util.ChunkedPayload;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.test.StepVerifier;
+
+final class LocalChunkedPayloadTest {
+
+  static final int CHUNKS = 100;
+  static final int CHUNK_SIZE = 1024;
+
+  Closeable server;
+  RSocket client;
+
+  @AfterEach
+  void tearDown() {
+    if (client != null) {
+      client.dispose();
+    }
+    if (server != null) {
+      server.dispose();
+    }
+  }
+
+  @DisplayName("hands a fragmented request over in chunks before its last fragment arrives")
+  @Test
+  void streamsChunkedRequest() throws InterruptedException {
+    AtomicInteger receivedChunks = new AtomicInteger();
+    CountDownLatch firstChunk = new CountDownLatch(1);
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new ChunkedResponderRSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(ChunkedPayload payload) {
+                            String metadata = payload.getMetadataUtf8();
+                            Flux<ByteBuf> chunks = payload.chunks();
+                            payload.release();
+                            return chunks
+                                .doOnNext(
+                                    chunk -> {
+                                      receivedChunks.incrementAndGet();
+                                      firstChunk.countDown();
+                                    })
+                                .reduce(
+                                    0L,
+                                    (size, chunk) -> {
+                                      size += chunk.readableBytes();
+                                      chunk.release();
+                                      return size;
+                                    })
+                                .map(size -> DefaultPayload.create(metadata + ":" + size));
+                          }
+                        }))
+            .streamFragmentedRequests(true)
+            .fragment(256)
+            .bind(LocalServerTransport.create("chunked-payload-streaming"))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .fragment(256)
+            .connect(LocalClientTransport.create("chunked-payload-streaming"))
+            .block();
+
+    UnicastProcessor<ByteBuf> chunks = UnicastProcessor.create();
+    Mono<String> response =
+        client
+            .requestResponse(
+                ChunkedPayload.create(Unpooled.copiedBuffer("upload".getBytes()), chunks))
+            .map(
+                payload -> {
+                  String data = payload.getDataUtf8();
+                  payload.release();
+                  return data;
+                })
+            .cache();
+    response.subscribe();
+
+    chunks.onNext(Unpooled.wrappedBuffer(new byte[CHUNK_SIZE]));
+    assertThat(firstChunk.await(5, TimeUnit.SECONDS)).isTrue();
+
+    for (int i = 1; i < CHUNKS; i++) {
+      chunks.onNext(Unpooled.wrappedBuffer(new byte[CHUNK_SIZE]));
+    }
+    chunks.onComplete();
+
+    assertThat(response.block(Duration.ofSeconds(5))).isEqualTo("upload:" + CHUNKS * CHUNK_SIZE);
+    // every chunk was fragmented again to fit the mtu, and each fragment handed over on its own
+    assertThat(receivedChunks.get()).isGreaterThan(CHUNKS);
+  }
+
+  @DisplayName("aggregates a fragmented request for a responder that does not take chunks")
+  @Test
+  void aggregatesChunkedRequestForRegularResponder() {
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new RSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            assertThat(payload).isNotInstanceOf(ChunkedPayload.class);
+                            Payload response =
+                                DefaultPayload.create(
+                                    payload.getMetadataUtf8()
+                                        + ":"
+                                        + payload.data().readableBytes());
+                            payload.release();
+                            return Mono.just(response);
+                          }
+                        }))
+            .streamFragmentedRequests(true)
+            .fragment(256)
+            .bind(LocalServerTransport.create("chunked-payload-aggregation"))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .fragment(256)
+            .connect(LocalClientTransport.create("chunked-payload-aggregation"))
+            .block();
+
+    Payload response =
+        client
+            .requestResponse(
+                ChunkedPayload.create(
+                    Unpooled.copiedBuffer("upload".getBytes()),
+                    Flux.range(0, CHUNKS).map(i -> Unpooled.wrappedBuffer(new byte[CHUNK_SIZE]))))
+            .block(Duration.ofSeconds(5));
+
+    assertThat(response.getDataUtf8()).isEqualTo("upload:" + CHUNKS * CHUNK_SIZE);
+    response.release();
+  }
+
+  @DisplayName("rejects a streamed request larger than maxInboundPayloadSize")
+  @Test
+  void rejectsStreamedRequestOverMaxInboundPayloadSize() {
+    AtomicInteger handled = new AtomicInteger();
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new RSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            handled.incrementAndGet();
+                            payload.release();
+                            return Mono.just(DefaultPayload.create("done"));
+                          }
+                        }))
+            .streamFragmentedRequests(true)
+            .maxInboundPayloadSize(CHUNKS * CHUNK_SIZE / 2)
+            .bind(LocalServerTransport.create("chunked-payload-limit"))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .fragment(256)
+            .connect(LocalClientTransport.create("chunked-payload-limit"))
+            .block();
+
+    Mono<Payload> response =
+        client.requestResponse(
+            ChunkedPayload.create(
+                Flux.range(0, CHUNKS).map(i -> Unpooled.wrappedBuffer(new byte[CHUNK_SIZE]))));
+
+    StepVerifier.create(response)
+        .expectError(RejectedException.class)
+        .verify(Duration.ofSeconds(5));
+    assertThat(handled.get()).isZero();
+  }
+
+  @DisplayName("rejects a request whose chunks pile up unconsumed")
+  @Test
+  void rejectsRequestWithTooManyUnconsumedChunks() {
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new ChunkedResponderRSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(ChunkedPayload payload) {
+                            Flux<ByteBuf> chunks = payload.chunks();
+                            payload.release();
+                            // takes the first chunk and never asks for another
+                            return chunks
+                                .concatMap(
+                                    chunk -> {
+                                      chunk.release();
+                                      return Mono.<Payload>never();
+                                    },
+                                    1)
+                                .next();
+                          }
+                        }))
+            .streamFragmentedRequests(true)
+            .bind(LocalServerTransport.create("chunked-payload-overflow"))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .fragment(64)
+            .connect(LocalClientTransport.create("chunked-payload-overflow"))
+            .block();
+
+    Mono<Payload> response =
+        client.requestResponse(
+            ChunkedPayload.create(
+                null,
+                Flux.range(0, 2 * ChunkedResponderRSocket.MAX_BUFFERED_CHUNKS)
+                    .map(i -> Unpooled.wrappedBuffer(new byte[16]))));
+
+    StepVerifier.create(response)
+        .expectError(RejectedException.class)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @DisplayName("asks for the next chunk only once the fragments of the last one are sent")
+  @Test
+  void pacesChunksOnTransportDemand() {
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new RSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            payload.release();
+                            return Mono.just(DefaultPayload.create("done"));
+                          }
+                        }))
+            .bind(LocalServerTransport.create("chunked-payload-pacing"))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .fragment(256)
+            .connect(LocalClientTransport.create("chunked-payload-pacing"))
+            .block();
+
+    List<Long> requests = new CopyOnWriteArrayList<>();
+    Payload response =
+        client
+            .requestResponse(
+                ChunkedPayload.create(
+                    null,
+                    Flux.range(0, CHUNKS)
+                        .doOnRequest(requests::add)
+                        .map(i -> Unpooled.wrappedBuffer(new byte[CHUNK_SIZE]))))
+            .block(Duration.ofSeconds(5));
+
+    assertThat(response.getDataUtf8()).isEqualTo("done");
+    response.release();
+    assertThat(requests).containsOnly(1L);
+    assertThat(requests.size()).isGreaterThanOrEqualTo(CHUNKS);
+  }
+
+  @DisplayName("reassembles a chunked request for a responder that does not stream requests")
+  @Test
+  void reassemblesChunkedRequest() {
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new RSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            assertThat(payload).isNotInstanceOf(ChunkedPayload.class);
+                            Payload response =
+                                DefaultPayload.create(
+                                    payload.getMetadataUtf8() + ":" + payload.getDataUtf8());
+                            payload.release();
+                            return Mono.just(response);
+                          }
+                        }))
+            .bind(LocalServerTransport.create("chunked-payload-reassembly"))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .connect(LocalClientTransport.create("chunked-payload-reassembly"))
+            .block();
+
+    Payload response =
+        client
+            .requestResponse(
+                ChunkedPayload.create(
+                    Unpooled.copiedBuffer("upload".getBytes()),
+                    Flux.just("a", "b", "c").map(s -> Unpooled.copiedBuffer(s.getBytes()))))
+            .block(Duration.ofSeconds(5));
+
+    assertThat(response.getDataUtf8()).isEqualTo("upload:abc");
+    response.release();
+  }
+}
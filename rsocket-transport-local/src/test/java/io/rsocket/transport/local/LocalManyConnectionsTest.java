@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.local;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.Closeable;
+import io.rsocket.DuplexConnection;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketConnector;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.frame.FrameHeaderCodec;
+import io.rsocket.frame.FrameType;
+import io.rsocket.plugins.DuplexConnectionInterceptor;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+final class LocalManyConnectionsTest {
+
+  static final int CONNECTIONS = 2_000;
+  static final int REQUESTS_PER_CONNECTION = 4;
+
+  @DisplayName("serves many connections from a bounded set of serial workers")
+  @Test
+  void manyConnectionsShareSerialWorkers() {
+    Closeable server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new RSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            return Mono.just(payload);
+                          }
+                        }))
+            .bind(LocalServerTransport.create("many-connections"))
+            .block();
+
+    List<RSocket> clients = new ArrayList<>(CONNECTIONS);
+    List<Set<Thread>> requestThreads = new ArrayList<>(CONNECTIONS);
+    try {
+      for (int i = 0; i < CONNECTIONS; i++) {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        requestThreads.add(threads);
+        clients.add(
+            RSocketConnector.create()
+                .interceptors(registry -> registry.forConnection(recordRequestThreads(threads)))
+                .connect(LocalClientTransport.create("many-connections"))
+                .block());
+      }
+
+      Long responses =
+          Flux.fromIterable(clients)
+              .flatMap(
+                  client ->
+                      Flux.range(0, REQUESTS_PER_CONNECTION)
+                          .flatMap(i -> client.requestResponse(DefaultPayload.create("ping"))),
+                  256)
+              .doOnNext(Payload::release)
+              .count()
+              .block(Duration.ofSeconds(30));
+
+      assertThat(responses).isEqualTo((long) CONNECTIONS * REQUESTS_PER_CONNECTION);
+      // the requests of a connection are all sent from the one serial worker it was assigned
+      assertThat(requestThreads).allSatisfy(threads -> assertThat(threads).hasSize(1));
+      // and connections share a bounded set of workers of the parallel scheduler
+      Set<Thread> allThreads = new HashSet<>();
+      requestThreads.forEach(allThreads::addAll);
+      assertThat(allThreads.size()).isLessThanOrEqualTo(Schedulers.DEFAULT_POOL_SIZE);
+      assertThat(allThreads).allMatch(t -> t.getName().startsWith("parallel-"));
+    } finally {
+      clients.forEach(RSocket::dispose);
+      server.dispose();
+    }
+  }
+
+  /* records the threads request frames are sent from on the client connection */
+  static DuplexConnectionInterceptor recordRequestThreads(Set<Thread> threads) {
+    return (type, connection) ->
+        type != DuplexConnectionInterceptor.Type.CLIENT
+            ? connection
+            : new DuplexConnection() {
+              @Override
+              public Mono<Void> send(Publisher<ByteBuf> frames) {
+                return connection.send(
+                    Flux.from(frames)
+                        .doOnNext(
+                            frame -> {
+                              if (FrameHeaderCodec.frameType(frame) == FrameType.REQUEST_RESPONSE) {
+                                threads.add(Thread.currentThread());
+                              }
+                            }));
+              }
+
+              @Override
+              public Flux<ByteBuf> receive() {
+                return connection.receive();
+              }
+
+              @Override
+              public ByteBufAllocator alloc() {
+                return connection.alloc();
+              }
+
+              @Override
+              public Mono<Void> onClose() {
+                return connection.onClose();
+              }
+
+              @Override
+              public void dispose() {
+                connection.dispose();
+              }
+
+              @Override
+              public boolean isDisposed() {
+                return connection.isDisposed();
+              }
+            };
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.local;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketConnector;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.util.ByteBufPayload;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+final class LocalPayloadReferenceTest {
+
+  Closeable server;
+  RSocket client;
+
+  List<Long> requests = new CopyOnWriteArrayList<>();
+  AtomicBoolean cancelled = new AtomicBoolean();
+
+  @AfterEach
+  void tearDown() {
+    if (client != null) {
+      client.dispose();
+    }
+    if (server != null) {
+      server.dispose();
+    }
+  }
+
+  void start(String name) {
+    server =
+        RSocketServer.create(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new RSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            return Mono.just(payload);
+                          }
+
+                          @Override
+                          public Flux<Payload> requestStream(Payload payload) {
+                            payload.release();
+                            return Flux.range(0, 100)
+                                .map(i -> ByteBufPayload.create("" + i))
+                                .doOnRequest(requests::add)
+                                .doOnCancel(() -> cancelled.set(true));
+                          }
+
+                          @Override
+                          public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+                            return Flux.from(payloads);
+                          }
+                        }))
+            .bind(LocalServerTransport.create(name))
+            .block();
+
+    client =
+        RSocketConnector.create()
+            .connect(LocalClientTransport.create(name).passPayloadsByReference(true))
+            .block();
+  }
+
+  @DisplayName("hands the sent payload over to the responder and back")
+  @Test
+  void requestResponsePassesPayload() {
+    start("payload-reference-response");
+    Payload payload = ByteBufPayload.create("data", "metadata");
+
+    Payload response = client.requestResponse(payload).block(Duration.ofSeconds(5));
+
+    assertThat(response).isSameAs(payload);
+    assertThat(response.getDataUtf8()).isEqualTo("data");
+    assertThat(response.getMetadataUtf8()).isEqualTo("metadata");
+    assertThat(response.refCnt()).isOne();
+    response.release();
+  }
+
+  @DisplayName("keeps request n and cancel semantics of a stream")
+  @Test
+  void requestStreamHonoursRequestNAndCancel() {
+    start("payload-reference-stream");
+
+    client
+        .requestStream(ByteBufPayload.create("request"))
+        .map(
+            payload -> {
+              String data = payload.getDataUtf8();
+              payload.release();
+              return data;
+            })
+        .as(publisher -> StepVerifier.create(publisher, 2))
+        .expectNext("0", "1")
+        .thenRequest(3)
+        .expectNext("2", "3", "4")
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(requests).containsExactly(2L, 3L);
+    StepVerifier.create(Mono.fromCallable(cancelled::get).repeat().takeUntil(c -> c).last())
+        .expectNext(true)
+        .verifyComplete();
+  }
+
+  @DisplayName("echoes payloads of a channel by reference")
+  @Test
+  void requestChannelPassesPayloads() {
+    start("payload-reference-channel");
+    Payload[] payloads = new Payload[10];
+    for (int i = 0; i < payloads.length; i++) {
+      payloads[i] = ByteBufPayload.create("" + i);
+    }
+
+    List<Payload> responses =
+        client.requestChannel(Flux.fromArray(payloads)).collectList().block(Duration.ofSeconds(5));
+
+    assertThat(responses).containsExactly(payloads);
+    responses.forEach(Payload::release);
+  }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2015-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static io.rsocket.frame.FrameLengthCodec.FRAME_LENGTH_SIZE;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.frame.FrameLengthCodec;
+import io.rsocket.internal.jctools.queues.MpscUnboundedArrayQueue;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+/**
+ * Coalesces outbound frames into length-prefixed batches. Frames are queued as they arrive and
+ * drained on the given {@link Executor} (the channel's event loop), so every frame enqueued between
+ * two drains ends up in the same batch. Frames with room reserved for the length get it written in
+ * place, all other length prefixes of a batch share a single pooled buffer, and each batch is
+ * emitted as one {@link CompositeByteBuf} so that the transport issues a single gathering write and
+ * flush for it.
+ */
+final class FrameBatchingFlux extends Flux<ByteBuf> {
+
+  private final Publisher<ByteBuf> source;
+  private final ByteBufAllocator allocator;
+  private final Executor executor;
+  private final int maxBatchFrames;
+  private final int maxBatchBytes;
+
+  FrameBatchingFlux(
+      Publisher<ByteBuf> source,
+      ByteBufAllocator allocator,
+      Executor executor,
+      int maxBatchFrames,
+      int maxBatchBytes) {
+    this.source = source;
+    this.allocator = allocator;
+    this.executor = executor;
+    this.maxBatchFrames = maxBatchFrames;
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  @Override
+  public void subscribe(CoreSubscriber<? super ByteBuf> actual) {
+    source.subscribe(
+        new FrameBatchingSubscriber(actual, allocator, executor, maxBatchFrames, maxBatchBytes));
+  }
+
+  static final class FrameBatchingSubscriber
+      implements CoreSubscriber<ByteBuf>, Subscription, Runnable {
+
+    final CoreSubscriber<? super ByteBuf> actual;
+    final ByteBufAllocator allocator;
+    final Executor executor;
+    final int maxBatchFrames;
+    final int maxBatchBytes;
+    final Queue<ByteBuf> queue;
+    final ByteBuf[] batch;
+
+    Subscription s;
+
+    volatile boolean done;
+    Throwable error;
+
+    volatile boolean cancelled;
+
+    volatile int wip;
+    static final AtomicIntegerFieldUpdater<FrameBatchingSubscriber> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(FrameBatchingSubscriber.class, "wip");
+
+    volatile long requested;
+    static final AtomicLongFieldUpdater<FrameBatchingSubscriber> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(FrameBatchingSubscriber.class, "requested");
+
+    FrameBatchingSubscriber(
+        CoreSubscriber<? super ByteBuf> actual,
+        ByteBufAllocator allocator,
+        Executor executor,
+        int maxBatchFrames,
+        int maxBatchBytes) {
+      this.actual = actual;
+      this.allocator = allocator;
+      this.executor = executor;
+      this.maxBatchFrames = maxBatchFrames;
+      this.maxBatchBytes = maxBatchBytes;
+      this.queue = new MpscUnboundedArrayQueue<>(Queues.SMALL_BUFFER_SIZE);
+      this.batch = new ByteBuf[maxBatchFrames];
+    }
+
+    @Override
+    public Context currentContext() {
+      return actual.currentContext();
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (Operators.validate(this.s, s)) {
+        this.s = s;
+        actual.onSubscribe(this);
+        s.request(Long.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public void onNext(ByteBuf frame) {
+      if (done || cancelled) {
+        ReferenceCountUtil.safeRelease(frame);
+        return;
+      }
+      queue.offer(frame);
+      schedule();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      if (done) {
+        Operators.onErrorDropped(t, actual.currentContext());
+        return;
+      }
+      error = t;
+      done = true;
+      schedule();
+    }
+
+    @Override
+    public void onComplete() {
+      if (done) {
+        return;
+      }
+      done = true;
+      schedule();
+    }
+
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Operators.addCap(REQUESTED, this, n);
+        schedule();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      s.cancel();
+      schedule();
+    }
+
+    void schedule() {
+      if (WIP.getAndIncrement(this) == 0) {
+        try {
+          executor.execute(this);
+        } catch (Throwable t) {
+          // the event loop is shutting down, so there is nobody left to write to
+          cancelled = true;
+          s.cancel();
+          clear();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      final CoreSubscriber<? super ByteBuf> a = actual;
+      int missed = 1;
+
+      for (; ; ) {
+        long r = requested;
+        long e = 0L;
+
+        while (e != r) {
+          boolean d = done;
+          ByteBuf frames;
+          try {
+            frames = pollBatch();
+          } catch (Throwable t) {
+            cancelled = true;
+            s.cancel();
+            clear();
+            a.onError(t);
+            return;
+          }
+          boolean empty = frames == null;
+
+          if (checkTerminated(d, empty, a)) {
+            return;
+          }
+
+          if (empty) {
+            break;
+          }
+
+          a.onNext(frames);
+          e++;
+        }
+
+        if (e == r && checkTerminated(done, queue.isEmpty(), a)) {
+          return;
+        }
+
+        if (e != 0 && r != Long.MAX_VALUE) {
+          REQUESTED.addAndGet(this, -e);
+        }
+
+        missed = WIP.addAndGet(this, -missed);
+        if (missed == 0) {
+          break;
+        }
+      }
+    }
+
+    ByteBuf pollBatch() {
+      final Queue<ByteBuf> q = queue;
+      final ByteBuf[] batch = this.batch;
+
+      ByteBuf frame = q.poll();
+      if (frame == null) {
+        return null;
+      }
+
+      int count = 0;
+      int bytes = 0;
+      for (; ; ) {
+        batch[count++] = frame;
+        bytes += frame.readableBytes() + FRAME_LENGTH_SIZE;
+
+        if (count == maxBatchFrames) {
+          break;
+        }
+        ByteBuf next = q.peek();
+        if (next == null || bytes + next.readableBytes() + FRAME_LENGTH_SIZE > maxBatchBytes) {
+          break;
+        }
+        frame = q.poll();
+      }
+
+      ByteBuf lengths = null;
+      CompositeByteBuf composite = allocator.compositeBuffer(count * 2);
+      try {
+        for (int i = 0; i < count; i++) {
+          ByteBuf f = batch[i];
+          int length = f.readableBytes();
+          ByteBuf framed = FrameLengthCodec.encodeReserved(length, f);
+          if (framed != null) {
+            batch[i] = null;
+            composite.addComponent(true, framed);
+            continue;
+          }
+          if (lengths == null) {
+            lengths = allocator.buffer((count - i) * FRAME_LENGTH_SIZE);
+          }
+          int offset = lengths.writerIndex();
+          FrameLengthCodec.encodeLength(lengths, length);
+          batch[i] = null;
+          composite.addComponent(true, lengths.retainedSlice(offset, FRAME_LENGTH_SIZE));
+          composite.addComponent(true, f);
+        }
+        return composite;
+      } catch (Throwable t) {
+        composite.release();
+        for (int i = 0; i < count; i++) {
+          if (batch[i] != null) {
+            ReferenceCountUtil.safeRelease(batch[i]);
+            batch[i] = null;
+          }
+        }
+        throw t;
+      } finally {
+        if (lengths != null) {
+          lengths.release();
+        }
+      }
+    }
+
+    boolean checkTerminated(boolean d, boolean empty, CoreSubscriber<? super ByteBuf> a) {
+      if (cancelled) {
+        clear();
+        return true;
+      }
+      if (d && empty) {
+        Throwable e = error;
+        if (e != null) {
+          a.onError(e);
+        } else {
+          a.onComplete();
+        }
+        return true;
+      }
+      return false;
+    }
+
+    void clear() {
+      ByteBuf frame;
+      while ((frame = queue.poll()) != null) {
+        ReferenceCountUtil.safeRelease(frame);
+      }
+    }
+  }
+}
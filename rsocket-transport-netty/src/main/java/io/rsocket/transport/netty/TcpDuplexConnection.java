@@ -32,6 +32,8 @@ public final class TcpDuplexConnection extends BaseDuplexConnection {
 
   private final Connection connection;
   private final boolean encodeLength;
+  private final int maxBatchFrames;
+  private final int maxBatchBytes;
 
   /**
    * Creates a new instance
@@ -52,7 +54,29 @@ public TcpDuplexConnection(Connection connection) {
    */
   @Deprecated
   public TcpDuplexConnection(Connection connection, boolean encodeLength) {
+    this(connection, encodeLength, 0, 0);
+  }
+
+  /**
+   * Creates a new instance that coalesces outbound frames into batches. All frames that become
+   * available between two runs of the channel's event loop are length-prefixed and written as a
+   * single gathering write followed by one flush.
+   *
+   * @param connection the {@link Connection} for managing the server
+   * @param maxBatchFrames the maximum number of frames to write in a single batch
+   * @param maxBatchBytes the maximum number of bytes, including length prefixes, to write in a
+   *     single batch; a frame larger than this is still written, in a batch of its own
+   * @since 1.0.1
+   */
+  public TcpDuplexConnection(Connection connection, int maxBatchFrames, int maxBatchBytes) {
+    this(connection, true, assertBatchFrames(maxBatchFrames), assertBatchBytes(maxBatchBytes));
+  }
+
+  private TcpDuplexConnection(
+      Connection connection, boolean encodeLength, int maxBatchFrames, int maxBatchBytes) {
     this.encodeLength = encodeLength;
+    this.maxBatchFrames = maxBatchFrames;
+    this.maxBatchBytes = maxBatchBytes;
     this.connection = Objects.requireNonNull(connection, "connection must not be null");
 
     connection
@@ -83,6 +107,15 @@ public Flux<ByteBuf> receive() {
 
   @Override
   public Mono<Void> send(Publisher<ByteBuf> frames) {
+    if (maxBatchFrames > 0 && !(frames instanceof Mono)) {
+      return connection
+          .outbound()
+          .send(
+              new FrameBatchingFlux(
+                  frames, alloc(), connection.channel().eventLoop(), maxBatchFrames, maxBatchBytes),
+              batch -> true)
+          .then();
+    }
     if (frames instanceof Mono) {
       return connection.outbound().sendObject(((Mono<ByteBuf>) frames).map(this::encode)).then();
     }
@@ -97,6 +130,34 @@ private ByteBuf encode(ByteBuf frame) {
     }
   }
 
+  /**
+   * Validates the maximum number of frames per batch.
+   *
+   * @param maxBatchFrames the maximum number of frames per batch
+   * @return the validated value
+   * @throws IllegalArgumentException if {@code maxBatchFrames} is not positive
+   */
+  public static int assertBatchFrames(int maxBatchFrames) {
+    if (maxBatchFrames <= 0) {
+      throw new IllegalArgumentException("maxBatchFrames must be greater than 0");
+    }
+    return maxBatchFrames;
+  }
+
+  /**
+   * Validates the maximum number of bytes per batch.
+   *
+   * @param maxBatchBytes the maximum number of bytes per batch
+   * @return the validated value
+   * @throws IllegalArgumentException if {@code maxBatchBytes} is not positive
+   */
+  public static int assertBatchBytes(int maxBatchBytes) {
+    if (maxBatchBytes <= 0) {
+      throw new IllegalArgumentException("maxBatchBytes must be greater than 0");
+    }
+    return maxBatchBytes;
+  }
+
   private ByteBuf decode(ByteBuf frame) {
     if (encodeLength) {
       return FrameLengthCodec.frame(frame).retain();
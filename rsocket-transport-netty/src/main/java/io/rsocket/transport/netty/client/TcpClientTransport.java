@@ -24,6 +24,7 @@
 import java.net.InetSocketAddress;
 import java.util.Objects;
 import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
 import reactor.netty.tcp.TcpClient;
 
 /**
@@ -33,8 +34,17 @@ public final class TcpClientTransport implements ClientTransport {
 
   private final TcpClient client;
 
+  private final int maxBatchFrames;
+  private final int maxBatchBytes;
+
   private TcpClientTransport(TcpClient client) {
+    this(client, 0, 0);
+  }
+
+  private TcpClientTransport(TcpClient client, int maxBatchFrames, int maxBatchBytes) {
     this.client = client;
+    this.maxBatchFrames = maxBatchFrames;
+    this.maxBatchBytes = maxBatchBytes;
   }
 
   /**
@@ -90,11 +100,36 @@ public static TcpClientTransport create(TcpClient client) {
     return new TcpClientTransport(client);
   }
 
+  /**
+   * Enables batched writes where all outbound frames that become available between two runs of the
+   * channel's event loop are coalesced and written with a single gathering write and flush, instead
+   * of one write and flush per frame.
+   *
+   * <p>By default this is not enabled.
+   *
+   * @param maxBatchFrames the maximum number of frames to write in a single batch
+   * @param maxBatchBytes the maximum number of bytes to write in a single batch
+   * @return a new instance with batched writes enabled, this instance is left unchanged
+   * @since 1.0.1
+   */
+  public TcpClientTransport batchWrites(int maxBatchFrames, int maxBatchBytes) {
+    return new TcpClientTransport(
+        client,
+        TcpDuplexConnection.assertBatchFrames(maxBatchFrames),
+        TcpDuplexConnection.assertBatchBytes(maxBatchBytes));
+  }
+
   @Override
   public Mono<DuplexConnection> connect() {
     return client
         .doOnConnected(c -> c.addHandlerLast(new RSocketLengthCodec()))
         .connect()
-        .map(TcpDuplexConnection::new);
+        .map(this::newDuplexConnection);
+  }
+
+  private TcpDuplexConnection newDuplexConnection(Connection connection) {
+    return maxBatchFrames > 0
+        ? new TcpDuplexConnection(connection, maxBatchFrames, maxBatchBytes)
+        : new TcpDuplexConnection(connection);
   }
 }
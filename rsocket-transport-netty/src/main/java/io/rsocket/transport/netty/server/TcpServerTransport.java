@@ -23,6 +23,7 @@
 import java.net.InetSocketAddress;
 import java.util.Objects;
 import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
 import reactor.netty.tcp.TcpServer;
 
 /**
@@ -32,8 +33,17 @@ public final class TcpServerTransport implements ServerTransport<CloseableChanne
 
   private final TcpServer server;
 
+  private final int maxBatchFrames;
+  private final int maxBatchBytes;
+
   private TcpServerTransport(TcpServer server) {
+    this(server, 0, 0);
+  }
+
+  private TcpServerTransport(TcpServer server, int maxBatchFrames, int maxBatchBytes) {
     this.server = server;
+    this.maxBatchFrames = maxBatchFrames;
+    this.maxBatchBytes = maxBatchBytes;
   }
 
   /**
@@ -85,6 +95,25 @@ public static TcpServerTransport create(TcpServer server) {
     return new TcpServerTransport(server);
   }
 
+  /**
+   * Enables batched writes where all outbound frames that become available between two runs of the
+   * channel's event loop are coalesced and written with a single gathering write and flush, instead
+   * of one write and flush per frame.
+   *
+   * <p>By default this is not enabled.
+   *
+   * @param maxBatchFrames the maximum number of frames to write in a single batch
+   * @param maxBatchBytes the maximum number of bytes to write in a single batch
+   * @return a new instance with batched writes enabled, this instance is left unchanged
+   * @since 1.0.1
+   */
+  public TcpServerTransport batchWrites(int maxBatchFrames, int maxBatchBytes) {
+    return new TcpServerTransport(
+        server,
+        TcpDuplexConnection.assertBatchFrames(maxBatchFrames),
+        TcpDuplexConnection.assertBatchBytes(maxBatchBytes));
+  }
+
   @Override
   public Mono<CloseableChannel> start(ConnectionAcceptor acceptor) {
     Objects.requireNonNull(acceptor, "acceptor must not be null");
@@ -93,11 +122,17 @@ public Mono<CloseableChannel> start(ConnectionAcceptor acceptor) {
             c -> {
               c.addHandlerLast(new RSocketLengthCodec());
               acceptor
-                  .apply(new TcpDuplexConnection(c))
+                  .apply(newDuplexConnection(c))
                   .then(Mono.<Void>never())
                   .subscribe(c.disposeSubscriber());
             })
         .bind()
         .map(CloseableChannel::new);
   }
+
+  private TcpDuplexConnection newDuplexConnection(Connection connection) {
+    return maxBatchFrames > 0
+        ? new TcpDuplexConnection(connection, maxBatchFrames, maxBatchBytes)
+        : new TcpDuplexConnection(connection);
+  }
 }